@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Compares {@link DoubleParser} with {@link Double#parseDouble} on the coordinates and distances of
+ * shapes.txt of a real feed.
+ *
+ * <p>Run with {@code ./gradlew :core:jmh}. Another feed may be given with {@code
+ * -PjmhArchive=/path/to/gtfs.zip}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DoubleParserBenchmark {
+  private static final String SHAPES_FILENAME = "shapes.txt";
+  private static final String[] DOUBLE_COLUMNS = {
+    "shape_pt_lat", "shape_pt_lon", "shape_dist_traveled"
+  };
+
+  /** GTFS archive with shapes.txt. */
+  @Param("../../webapp/src/test/resources/bart_gtfs.zip")
+  public String archive;
+
+  private String[] strings;
+  private char[][] chars;
+
+  @Setup
+  public void readShapes() throws IOException {
+    List<String> values = new ArrayList<>();
+    try (ZipFile zipFile = new ZipFile(archive)) {
+      ZipEntry entry = zipFile.getEntry(SHAPES_FILENAME);
+      if (entry == null) {
+        throw new IOException(archive + " has no " + SHAPES_FILENAME);
+      }
+      try (BufferedReader reader =
+          new BufferedReader(
+              new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+        // Shapes have no quoted fields, so the rows are simply split at commas.
+        List<String> header = Arrays.asList(reader.readLine().split(","));
+        List<Integer> columnIndices = new ArrayList<>();
+        for (String column : DOUBLE_COLUMNS) {
+          if (header.contains(column)) {
+            columnIndices.add(header.indexOf(column));
+          }
+        }
+        String line;
+        while ((line = reader.readLine()) != null) {
+          String[] row = line.split(",", -1);
+          for (int columnIndex : columnIndices) {
+            // Empty values, e.g., of shape_dist_traveled, are never parsed by the validator.
+            if (columnIndex < row.length && !row[columnIndex].isEmpty()) {
+              values.add(row[columnIndex]);
+            }
+          }
+        }
+      }
+    }
+    strings = values.toArray(new String[0]);
+    chars = new char[strings.length][];
+    for (int i = 0; i < strings.length; ++i) {
+      chars[i] = strings[i].toCharArray();
+    }
+  }
+
+  @Benchmark
+  public double doubleParser() {
+    DoubleParser parser = new DoubleParser();
+    double sum = 0;
+    for (char[] value : chars) {
+      if (parser.parse(value, 0, value.length)) {
+        sum += parser.getValue();
+      }
+    }
+    return sum;
+  }
+
+  /** Parses strings that already exist, which leaves out the cost of creating them from a row. */
+  @Benchmark
+  public double jdkParseDouble() {
+    double sum = 0;
+    for (String value : strings) {
+      sum += Double.parseDouble(value);
+    }
+    return sum;
+  }
+
+  /** Creates a string for each value, as the validator did before it parsed the characters. */
+  @Benchmark
+  public double jdkParseDoubleOfNewString() {
+    double sum = 0;
+    for (char[] value : chars) {
+      sum += Double.parseDouble(new String(value, 0, value.length));
+    }
+    return sum;
+  }
+}
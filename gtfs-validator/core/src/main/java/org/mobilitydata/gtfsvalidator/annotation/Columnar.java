@@ -0,0 +1,45 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Stores a large GTFS table, such as "stop_times.txt", column by column instead of as entity
+ * objects.
+ *
+ * <p>The annotation processor generates a {@code Gtfs*Columns} class with an array for each field:
+ * seconds since midnight for times, doubles for coordinates and dictionary codes for IDs. The table
+ * container keeps the columns and materializes entities only when they are accessed, so validators
+ * that read the columns by row index do not create any objects.
+ *
+ * <p>Columnar tables may have a {@code @FirstKey} with a {@code @SequenceKey} and indices but not a
+ * {@code @PrimaryKey}.
+ *
+ * <pre>
+ *   @GtfsTable("stop_times.txt")
+ *   @Columnar
+ *   public interface GtfsStopTimeSchema extends GtfsEntity {
+ *   }
+ * </pre>
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.SOURCE)
+public @interface Columnar {}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares the columns of a GTFS file whose values a validator reads from entities.
+ *
+ * <p>With column projection, table loaders parse only the columns that are read by validators, as
+ * well as keys, indices and foreign keys. A validator that has no {@code ReadsColumns} annotation
+ * is assumed to read all columns of its tables. A validator that declares some files is assumed not
+ * to read any other file.
+ *
+ * <p>Column names are checked by the annotation processor against the GTFS schema.
+ *
+ * <p>Example.
+ *
+ * <pre>
+ *   @GtfsValidator
+ *   @ReadsColumns(file = "stop_times.txt", columns = {"trip_id", "shape_dist_traveled"})
+ *   public class StopTimeIncreasingDistanceValidator extends FileValidator {
+ *       @Inject GtfsStopTimeTableContainer table;
+ *   }
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(ReadsColumns.List.class)
+public @interface ReadsColumns {
+  /** Name of the file, e.g., "stop_times.txt". */
+  String file();
+
+  /** Names of the columns, e.g., "trip_id". */
+  String[] columns();
+
+  /** Container of several {@code ReadsColumns} annotations of a validator. */
+  @Retention(RetentionPolicy.RUNTIME)
+  @Target(ElementType.TYPE)
+  @interface List {
+    ReadsColumns[] value();
+  }
+}
@@ -17,19 +17,25 @@
 package org.mobilitydata.gtfsvalidator.input;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
 
+import javax.annotation.Nullable;
 import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.Reader;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.AccessDeniedException;
@@ -43,7 +49,7 @@ import java.util.Set;
  * GtfsInput provides a common interface for reading GTFS data, either from a ZIP archive or from a
  * directory.
  */
-public abstract class GtfsInput {
+public abstract class GtfsInput implements Closeable {
   /**
    * Creates a specific GtfsInput to read data from the given path.
    *
@@ -64,6 +70,40 @@ public abstract class GtfsInput {
     return new GtfsZipInMemoryInput(path.toString(), Files.readAllBytes(path));
   }
 
+  /**
+   * Creates a specific GtfsInput to read data from the given path. ZIP archives on the default file
+   * system are decompressed ahead of parsing on a dedicated pool of I/O threads.
+   *
+   * @param path the path to the resource
+   * @param numReadAheadThreads number of threads to decompress files of a ZIP archive, 0 disables
+   *     read-ahead
+   * @return the {@code GtfsInput} created after processing the GTFS archive
+   * @throws IOException any IO exception that occurred during loading
+   */
+  public static GtfsInput createFromPath(Path path, int numReadAheadThreads) throws IOException {
+    if (numReadAheadThreads > 0
+        && Files.isRegularFile(path)
+        && path.getFileSystem().equals(FileSystems.getDefault())) {
+      return new GtfsZipReadAheadInput(path, numReadAheadThreads);
+    }
+    return createFromPath(path);
+  }
+
+  /**
+   * Creates a specific GtfsInput to read data from the given path. A ZIP archive is read into
+   * memory at once, so that no disk I/O is left for the time the feed is loaded.
+   *
+   * @param path the path to the resource
+   * @return the {@code GtfsInput} created after processing the GTFS archive
+   * @throws IOException any IO exception that occurred during loading
+   */
+  public static GtfsInput createFromPathInMemory(Path path) throws IOException {
+    if (Files.isDirectory(path)) {
+      return new GtfsUnarchivedInput(path);
+    }
+    return new GtfsZipInMemoryInput(path.toString(), Files.readAllBytes(path));
+  }
+
   /**
    * Creates a specific GtfsInput to read data from the given URL.
    *
@@ -100,6 +140,70 @@ public abstract class GtfsInput {
     return new GtfsZipInMemoryInput(sourceUrl.toString(), outputStream.toByteArray());
   }
 
+  /**
+   * Creates a specific GtfsInput to read data from the given URL while it is being downloaded.
+   * Neither the archive nor its files are stored, so files are read in the order they appear in the
+   * archive.
+   *
+   * @param sourceUrl the fully qualified URL to download of the resource to download
+   * @return the {@code GtfsInput} that reads the GTFS archive from the HTTP response
+   * @throws IOException if the request failed
+   * @throws URISyntaxException if URL is malformed
+   */
+  public static GtfsInput createFromUrlAsStream(URL sourceUrl)
+      throws IOException, URISyntaxException {
+    CloseableHttpClient httpClient = HttpClients.createDefault();
+    try {
+      CloseableHttpResponse httpResponse = httpClient.execute(new HttpGet(sourceUrl.toURI()));
+      int statusCode = httpResponse.getStatusLine().getStatusCode();
+      if (statusCode != HttpStatus.SC_OK) {
+        httpResponse.close();
+        throw new FileNotFoundException(sourceUrl + " returned HTTP status " + statusCode);
+      }
+      return new GtfsZipStreamInput(
+          sourceUrl.toString(),
+          httpResponse.getEntity().getContent(),
+          () -> {
+            try {
+              httpResponse.close();
+            } finally {
+              httpClient.close();
+            }
+          });
+    } catch (IOException e) {
+      httpClient.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Creates a specific GtfsInput to read data from the given URL with HTTP range requests. Only the
+   * central directory of the archive is downloaded up front, each file is downloaded when it is
+   * opened.
+   *
+   * @param sourceUrl the fully qualified URL of the GTFS archive
+   * @param maxConnections the maximal number of files that are downloaded in parallel
+   * @return the {@code GtfsInput} that reads the GTFS archive from the server
+   * @throws IOException if the server does not support range requests or the archive is malformed
+   * @throws URISyntaxException if URL is malformed
+   */
+  public static GtfsInput createFromUrlWithRanges(URL sourceUrl, int maxConnections)
+      throws IOException, URISyntaxException {
+    return new GtfsZipRangeInput(sourceUrl, maxConnections);
+  }
+
+  /**
+   * Creates a specific GtfsInput to read a ZIP archive from a stream, e.g., from the standard
+   * input. Files are read in the order they appear in the archive.
+   *
+   * @param name name of the source to be used in error messages
+   * @param stream the stream with the GTFS archive
+   * @return the {@code GtfsInput} that reads the GTFS archive from the stream
+   */
+  public static GtfsInput createFromStream(String name, InputStream stream) {
+    return new GtfsZipStreamInput(name, stream);
+  }
+
   /**
    * Downloads data from network.
    *
@@ -158,6 +262,29 @@ public abstract class GtfsInput {
    */
   public abstract Set<String> getFilenames();
 
+  /**
+   * Lists files in the order in which they should be opened.
+   *
+   * <p>Inputs with random access return {@link #getFilenames()}. Streaming inputs return each file
+   * as soon as it arrives and may require it to be opened before the next one is returned.
+   *
+   * @return base names of all available files
+   */
+  public Iterable<String> getFilenamesInArrivalOrder() {
+    return getFilenames();
+  }
+
+  /**
+   * Tells whether each file must be opened before {@link #getFilenamesInArrivalOrder()} advances to
+   * the next one.
+   *
+   * <p>Inputs with random access return false, so that files may be opened only when they are
+   * about to be read.
+   */
+  public boolean opensFilesInArrivalOrder() {
+    return false;
+  }
+
   /**
    * Returns a stream to read data from a given file.
    *
@@ -166,4 +293,54 @@ public abstract class GtfsInput {
    * @throws IOException if no file could not be found at the specified location
    */
   public abstract InputStream getFile(String filename) throws IOException;
+
+  /**
+   * Returns a reader to read characters from a given file.
+   *
+   * <p>The default implementation decodes the stream returned by {@link #getFile} with the platform
+   * default charset.
+   *
+   * @param filename relative path to the file, e.g, "stops.txt"
+   * @return a reader to read the file data
+   * @throws IOException if no file could not be found at the specified location
+   */
+  public Reader getFileReader(String filename) throws IOException {
+    return new BufferedReader(new InputStreamReader(getFile(filename)));
+  }
+
+  /**
+   * Returns a fingerprint of the content of a given file. Files with equal fingerprints are
+   * expected to have the same content, so results of their validation may be reused.
+   *
+   * <p>The default implementation returns null which means that the content of the file cannot be
+   * identified without reading it, e.g., for streaming inputs.
+   *
+   * @param filename relative path to the file, e.g, "stops.txt"
+   * @return fingerprint of the file content or null if it is not available
+   * @throws IOException if the file could not be read
+   */
+  @Nullable
+  public String getFileFingerprint(String filename) throws IOException {
+    return null;
+  }
+
+  /**
+   * Returns a fingerprint of a file in a ZIP archive.
+   *
+   * <p>The CRC-32 checksum and size of the file are already stored in the archive, so the file does
+   * not need to be decompressed.
+   */
+  static String zipEntryFingerprint(long crc, long size) {
+    return String.format("crc32:%08x:%d", crc, size);
+  }
+
+  /**
+   * Releases resources held by this input, such as open archives or I/O threads.
+   *
+   * <p>Streams returned by {@link #getFile} should not be used after the input is closed.
+   *
+   * @throws IOException if an I/O error occurs
+   */
+  @Override
+  public void close() throws IOException {}
 }
@@ -16,8 +16,13 @@
 
 package org.mobilitydata.gtfsvalidator.input;
 
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
+
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Collections;
@@ -50,4 +55,24 @@ public class GtfsUnarchivedInput extends GtfsInput {
   public InputStream getFile(String filename) throws IOException {
     return Files.newInputStream(directory.resolve(filename));
   }
+
+  /**
+   * Returns a reader that decodes the file as UTF-8 straight from a memory mapping. A leading byte
+   * order mark is skipped.
+   */
+  @Override
+  public Reader getFileReader(String filename) throws IOException {
+    Path path = directory.resolve(filename);
+    if (!path.getFileSystem().equals(FileSystems.getDefault())) {
+      // Only files on the default file system can be mapped.
+      return super.getFileReader(filename);
+    }
+    return new MappedUtf8Reader(path);
+  }
+
+  /** Returns SHA-256 hash of the file content. */
+  @Override
+  public String getFileFingerprint(String filename) throws IOException {
+    return "sha256:" + MoreFiles.asByteSource(directory.resolve(filename)).hash(Hashing.sha256());
+  }
 }
@@ -44,13 +44,17 @@ public class GtfsZipFileInput extends GtfsInput {
   }
 
   static boolean isInsideZipDirectory(ZipEntry entry) {
+    return isInsideZipDirectory(entry.getName());
+  }
+
+  static boolean isInsideZipDirectory(String entryName) {
     // We do not use File.separator because the .zip file specification states:
     // All slashes MUST be forward slashes '/' as opposed to backwards slashes '\' for compatibility
     // with Amiga and
     // UNIX file systems etc.
     //
     // Directory names in end with '/'.
-    return entry.getName().contains("/");
+    return entryName.contains("/");
   }
 
   @Override
@@ -66,4 +70,18 @@ public class GtfsZipFileInput extends GtfsInput {
     }
     return zipFile.getInputStream(entry);
   }
+
+  @Override
+  public String getFileFingerprint(String filename) throws IOException {
+    ZipEntry entry = zipFile.getEntry(filename);
+    if (entry == null) {
+      throw new FileNotFoundException(Paths.get(zipFile.getName(), filename).toString());
+    }
+    return zipEntryFingerprint(entry.getCrc(), entry.getSize());
+  }
+
+  @Override
+  public void close() throws IOException {
+    zipFile.close();
+  }
 }
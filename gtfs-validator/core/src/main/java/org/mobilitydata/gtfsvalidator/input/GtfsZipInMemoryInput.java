@@ -20,28 +20,66 @@ import java.io.ByteArrayInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 import static org.mobilitydata.gtfsvalidator.input.GtfsZipFileInput.isInsideZipDirectory;
 
-/** Implements support for GTFS ZIP archives located at given {@code java.nio.file.Path}. */
+/**
+ * Implements support for GTFS ZIP archives located at given {@code java.nio.file.Path}.
+ *
+ * <p>The central directory of the archive is parsed once in the constructor, so that each file can
+ * be opened directly at its offset instead of scanning the archive from the beginning.
+ *
+ * <p>If the central directory cannot be read, e.g., because a download was cut short, the local
+ * headers are scanned from the beginning of the archive instead. Files stored before the damaged
+ * part can still be read then, and bytes that are not a ZIP archive at all give no files.
+ */
 public class GtfsZipInMemoryInput extends GtfsInput {
-  private final Set<String> filenames = new HashSet<>();
+  private final Map<String, ZipCentralDirectory.Entry> entries = new HashMap<>();
+  /** Names of files found by scanning local headers if the central directory is unreadable. */
+  private final Set<String> scannedFilenames = new HashSet<>();
+
   private final String path;
   private final byte[] bytes;
 
   public GtfsZipInMemoryInput(String path, byte[] bytes) throws IOException {
     this.path = path;
     this.bytes = bytes;
+    try {
+      readCentralDirectory();
+    } catch (ZipException e) {
+      entries.clear();
+      scanLocalHeaders();
+    }
+  }
 
+  private void readCentralDirectory() throws ZipException {
+    int tailOffset = Math.max(0, bytes.length - ZipCentralDirectory.MAX_END_RECORD_SEARCH);
+    byte[] tail = new byte[bytes.length - tailOffset];
+    System.arraycopy(bytes, tailOffset, tail, 0, tail.length);
+    ZipCentralDirectory.EndRecord endRecord = ZipCentralDirectory.findEndRecord(tail, tailOffset);
+    for (ZipCentralDirectory.Entry entry :
+        ZipCentralDirectory.parseEntries(
+            bytes, (int) endRecord.centralDirectoryOffset, (int) endRecord.centralDirectorySize)) {
+      if (!isInsideZipDirectory(entry.name)) {
+        entries.putIfAbsent(entry.name, entry);
+      }
+    }
+  }
+
+  private void scanLocalHeaders() throws IOException {
     ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(bytes));
     ZipEntry entry = zipInputStream.getNextEntry();
     while (entry != null) {
       if (!isInsideZipDirectory(entry)) {
-        filenames.add(entry.getName());
+        scannedFilenames.add(entry.getName());
       }
       entry = zipInputStream.getNextEntry();
     }
@@ -49,21 +87,51 @@ public class GtfsZipInMemoryInput extends GtfsInput {
 
   @Override
   public Set<String> getFilenames() {
-    return filenames;
+    if (!scannedFilenames.isEmpty()) {
+      return Collections.unmodifiableSet(scannedFilenames);
+    }
+    return Collections.unmodifiableSet(entries.keySet());
   }
 
   @Override
-  public InputStream getFile(String filename) throws IOException {
-    if (!filenames.contains(filename)) {
+  public String getFileFingerprint(String filename) throws IOException {
+    if (scannedFilenames.contains(filename)) {
+      // Checksums of a damaged archive are not trusted, so its files are never cached.
+      return null;
+    }
+    ZipCentralDirectory.Entry entry = entries.get(filename);
+    if (entry == null) {
       throw new FileNotFoundException(path + ":" + filename);
     }
-    ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(bytes));
-    ZipEntry entry = zipInputStream.getNextEntry();
-    for (; ; ) {
-      if (entry.getName().equals(filename)) {
-        return zipInputStream;
+    return entry.fingerprint();
+  }
+
+  @Override
+  public InputStream getFile(String filename) throws IOException {
+    if (scannedFilenames.contains(filename)) {
+      ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(bytes));
+      for (ZipEntry entry = zipInputStream.getNextEntry();
+          entry != null;
+          entry = zipInputStream.getNextEntry()) {
+        if (entry.getName().equals(filename)) {
+          return zipInputStream;
+        }
       }
-      entry = zipInputStream.getNextEntry();
     }
+    ZipCentralDirectory.Entry entry = entries.get(filename);
+    if (entry == null) {
+      throw new FileNotFoundException(path + ":" + filename);
+    }
+    if (entry.localHeaderOffset > bytes.length) {
+      throw new ZipException("Invalid local header offset for " + path + ":" + filename);
+    }
+    int dataOffset =
+        (int) entry.localHeaderOffset
+            + ZipCentralDirectory.localHeaderLength(bytes, (int) entry.localHeaderOffset);
+    if (dataOffset + entry.compressedSize > bytes.length) {
+      throw new ZipException("Truncated data for " + path + ":" + filename);
+    }
+    return ZipCentralDirectory.uncompressedStream(
+        new ByteArrayInputStream(bytes, dataOffset, (int) entry.compressedSize), entry);
   }
 }
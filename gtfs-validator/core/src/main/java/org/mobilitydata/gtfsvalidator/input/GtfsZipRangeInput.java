@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import com.google.common.io.ByteStreams;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import java.io.BufferedInputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.ZipException;
+
+import static org.mobilitydata.gtfsvalidator.input.GtfsZipFileInput.isInsideZipDirectory;
+
+/**
+ * Implements support for GTFS ZIP archives on an HTTP server that supports range requests.
+ *
+ * <p>Only the end of the archive and its central directory are downloaded when the input is
+ * created. Compressed data of a file is requested when the file is opened, so files that are never
+ * read are never downloaded. Several files may be downloaded in parallel, each over its own
+ * connection.
+ */
+public class GtfsZipRangeInput extends GtfsInput {
+  private final Map<String, ZipCentralDirectory.Entry> entries = new HashMap<>();
+  // Offset of the first byte after each entry, i.e., the next local header or the central
+  // directory.
+  private final Map<String, Long> entryEnds = new HashMap<>();
+  private final URI uri;
+  private final CloseableHttpClient httpClient;
+
+  /**
+   * Creates an input and downloads the central directory of the archive.
+   *
+   * @param sourceUrl the fully qualified URL of the archive
+   * @param maxConnections the maximal number of files that are downloaded in parallel
+   * @throws IOException if the server does not support range requests or the archive is malformed
+   * @throws URISyntaxException if URL is malformed
+   */
+  public GtfsZipRangeInput(URL sourceUrl, int maxConnections)
+      throws IOException, URISyntaxException {
+    uri = sourceUrl.toURI();
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnections);
+    httpClient = HttpClients.custom().setConnectionManager(connectionManager).build();
+    try {
+      readCentralDirectory();
+    } catch (IOException e) {
+      httpClient.close();
+      throw e;
+    }
+  }
+
+  private void readCentralDirectory() throws IOException {
+    byte[] tail;
+    long tailOffset;
+    try (CloseableHttpResponse response =
+        execute("bytes=-" + ZipCentralDirectory.MAX_END_RECORD_SEARCH)) {
+      tailOffset = parseContentRangeStart(response);
+      tail = ByteStreams.toByteArray(response.getEntity().getContent());
+    }
+    ZipCentralDirectory.EndRecord endRecord = ZipCentralDirectory.findEndRecord(tail, tailOffset);
+    byte[] centralDirectory;
+    if (endRecord.centralDirectoryOffset >= tailOffset) {
+      // The central directory is small enough to be already downloaded together with the end
+      // record.
+      int start = (int) (endRecord.centralDirectoryOffset - tailOffset);
+      centralDirectory = new byte[(int) endRecord.centralDirectorySize];
+      System.arraycopy(tail, start, centralDirectory, 0, centralDirectory.length);
+    } else {
+      try (CloseableHttpResponse response =
+          executeRange(endRecord.centralDirectoryOffset, endRecord.centralDirectorySize)) {
+        centralDirectory = new byte[(int) endRecord.centralDirectorySize];
+        ByteStreams.readFully(response.getEntity().getContent(), centralDirectory);
+      }
+    }
+
+    List<ZipCentralDirectory.Entry> sorted =
+        new ArrayList<>(
+            ZipCentralDirectory.parseEntries(centralDirectory, 0, centralDirectory.length));
+    sorted.sort(Comparator.comparingLong(entry -> entry.localHeaderOffset));
+    for (int i = 0; i < sorted.size(); ++i) {
+      ZipCentralDirectory.Entry entry = sorted.get(i);
+      if (entry.isDirectory() || isInsideZipDirectory(entry.name)) {
+        continue;
+      }
+      if (entries.putIfAbsent(entry.name, entry) == null) {
+        entryEnds.put(
+            entry.name,
+            i + 1 < sorted.size()
+                ? sorted.get(i + 1).localHeaderOffset
+                : endRecord.centralDirectoryOffset);
+      }
+    }
+  }
+
+  /**
+   * Returns offset of the first returned byte from the {@code Content-Range} header, e.g., 100 for
+   * {@code bytes 100-199/200}.
+   */
+  private long parseContentRangeStart(CloseableHttpResponse response) throws IOException {
+    Header contentRange = response.getFirstHeader(HttpHeaders.CONTENT_RANGE);
+    if (contentRange != null) {
+      String value = contentRange.getValue().trim();
+      int dash = value.indexOf('-');
+      if (value.startsWith("bytes ") && dash > 0) {
+        try {
+          return Long.parseLong(value.substring("bytes ".length(), dash).trim());
+        } catch (NumberFormatException e) {
+          // Reported below.
+        }
+      }
+    }
+    throw new ZipException(uri + ": invalid Content-Range header " + contentRange);
+  }
+
+  private CloseableHttpResponse executeRange(long offset, long length) throws IOException {
+    return execute("bytes=" + offset + "-" + (offset + length - 1));
+  }
+
+  private CloseableHttpResponse execute(String range) throws IOException {
+    HttpGet httpGet = new HttpGet(uri);
+    httpGet.setHeader(HttpHeaders.RANGE, range);
+    CloseableHttpResponse response = httpClient.execute(httpGet);
+    int statusCode = response.getStatusLine().getStatusCode();
+    if (statusCode != HttpStatus.SC_PARTIAL_CONTENT) {
+      // Do not download the whole archive if the server ignored the range.
+      response.close();
+      throw new IOException(uri + " does not support range requests: HTTP status " + statusCode);
+    }
+    return response;
+  }
+
+  @Override
+  public Set<String> getFilenames() {
+    return Collections.unmodifiableSet(entries.keySet());
+  }
+
+  @Override
+  public String getFileFingerprint(String filename) throws IOException {
+    ZipCentralDirectory.Entry entry = entries.get(filename);
+    if (entry == null) {
+      throw new FileNotFoundException(uri + ":" + filename);
+    }
+    return entry.fingerprint();
+  }
+
+  @Override
+  public InputStream getFile(String filename) throws IOException {
+    ZipCentralDirectory.Entry entry = entries.get(filename);
+    if (entry == null) {
+      throw new FileNotFoundException(uri + ":" + filename);
+    }
+    // Request the local header together with the data, so that every file takes a single request.
+    CloseableHttpResponse response =
+        executeRange(entry.localHeaderOffset, entryEnds.get(filename) - entry.localHeaderOffset);
+    try {
+      InputStream body = new BufferedInputStream(response.getEntity().getContent());
+      byte[] header = new byte[ZipCentralDirectory.LOCAL_HEADER_SIZE];
+      ByteStreams.readFully(body, header);
+      ByteStreams.skipFully(body, ZipCentralDirectory.localHeaderLength(header, 0) - header.length);
+      InputStream data =
+          ZipCentralDirectory.uncompressedStream(
+              ByteStreams.limit(body, entry.compressedSize), entry);
+      return new FilterInputStream(data) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            response.close();
+          }
+        }
+      };
+    } catch (IOException e) {
+      response.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    httpClient.close();
+  }
+}
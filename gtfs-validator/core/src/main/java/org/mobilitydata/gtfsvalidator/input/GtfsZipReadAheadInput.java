@@ -0,0 +1,297 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mobilitydata.gtfsvalidator.input.GtfsZipFileInput.isInsideZipDirectory;
+
+/**
+ * Implements support for GTFS ZIP archives that are decompressed ahead of parsing.
+ *
+ * <p>Each file is inflated on a separate pool of I/O threads into a bounded queue of buffers, so
+ * that decompression of a file overlaps with parsing of the same file on the loader thread. Every
+ * file is read through its own {@code FileChannel}, hence the I/O threads do not contend for a
+ * single shared {@code ZipFile}.
+ */
+public class GtfsZipReadAheadInput extends GtfsInput {
+  private static final int CHUNK_SIZE = 64 * 1024;
+  // Up to 1 MiB of uncompressed data is buffered ahead for each open file.
+  private static final int MAX_BUFFERED_CHUNKS = 16;
+  // How often a producer that waits to signal the end checks whether its stream was closed.
+  private static final long END_OFFER_TIMEOUT_MILLIS = 100;
+
+  private final Map<String, ZipCentralDirectory.Entry> entries = new HashMap<>();
+  private final Path path;
+  private final ExecutorService ioExecutor;
+  private final Set<ReadAheadStream> openStreams = ConcurrentHashMap.newKeySet();
+
+  public GtfsZipReadAheadInput(Path path, int numIoThreads) throws IOException {
+    this.path = path;
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long tailOffset = Math.max(0, size - ZipCentralDirectory.MAX_END_RECORD_SEARCH);
+      byte[] tail = readFully(channel, tailOffset, (int) (size - tailOffset));
+      ZipCentralDirectory.EndRecord endRecord = ZipCentralDirectory.findEndRecord(tail, tailOffset);
+      byte[] centralDirectory =
+          readFully(
+              channel, endRecord.centralDirectoryOffset, (int) endRecord.centralDirectorySize);
+      for (ZipCentralDirectory.Entry entry :
+          ZipCentralDirectory.parseEntries(centralDirectory, 0, centralDirectory.length)) {
+        if (!isInsideZipDirectory(entry.name)) {
+          entries.putIfAbsent(entry.name, entry);
+        }
+      }
+    }
+    ioExecutor =
+        Executors.newFixedThreadPool(
+            numIoThreads,
+            new ThreadFactoryBuilder().setNameFormat("zip-read-ahead-%d").setDaemon(true).build());
+  }
+
+  private static byte[] readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of ZIP archive");
+      }
+    }
+    return buffer.array();
+  }
+
+  @Override
+  public Set<String> getFilenames() {
+    return Collections.unmodifiableSet(entries.keySet());
+  }
+
+  @Override
+  public String getFileFingerprint(String filename) throws IOException {
+    ZipCentralDirectory.Entry entry = entries.get(filename);
+    if (entry == null) {
+      throw new FileNotFoundException(path + ":" + filename);
+    }
+    return entry.fingerprint();
+  }
+
+  @Override
+  public InputStream getFile(String filename) throws IOException {
+    ZipCentralDirectory.Entry entry = entries.get(filename);
+    if (entry == null) {
+      throw new FileNotFoundException(path + ":" + filename);
+    }
+    ReadAheadStream stream = new ReadAheadStream();
+    openStreams.add(stream);
+    stream.producer = ioExecutor.submit(() -> stream.fill(entry));
+    return stream;
+  }
+
+  /** Stops the I/O threads. Streams that are still being read fail with an exception. */
+  @Override
+  public void close() {
+    ioExecutor.shutdownNow();
+    for (ReadAheadStream stream : openStreams) {
+      stream.abort();
+    }
+  }
+
+  /** Opens a stream of uncompressed data of the given entry using a dedicated file handle. */
+  private InputStream openEntry(FileChannel channel, ZipCentralDirectory.Entry entry)
+      throws IOException {
+    byte[] header =
+        readFully(channel, entry.localHeaderOffset, ZipCentralDirectory.LOCAL_HEADER_SIZE);
+    long dataOffset = entry.localHeaderOffset + ZipCentralDirectory.localHeaderLength(header, 0);
+    InputStream compressed =
+        new BufferedInputStream(
+            ByteStreams.limit(
+                Channels.newInputStream(channel.position(dataOffset)), entry.compressedSize),
+            CHUNK_SIZE);
+    return ZipCentralDirectory.uncompressedStream(compressed, entry);
+  }
+
+  /** A chunk of uncompressed data. */
+  private static class Chunk {
+    // Signals the end of data. It is also put to the queue when the producer fails.
+    static final Chunk END = new Chunk(new byte[0]);
+
+    final byte[] data;
+    int length;
+
+    Chunk(byte[] data) {
+      this.data = data;
+    }
+  }
+
+  /**
+   * A stream that is filled by an I/O thread and consumed by a loader thread.
+   *
+   * <p>Buffers are recycled between the producer and the consumer, so the memory footprint of each
+   * stream is bounded by {@code MAX_BUFFERED_CHUNKS + 1} chunks.
+   */
+  private class ReadAheadStream extends InputStream {
+    private final BlockingQueue<Chunk> filled = new ArrayBlockingQueue<>(MAX_BUFFERED_CHUNKS);
+    private final BlockingQueue<Chunk> free = new ArrayBlockingQueue<>(MAX_BUFFERED_CHUNKS + 1);
+    private volatile IOException failure;
+    private volatile boolean closed = false;
+    private Future<?> producer;
+    private Chunk current;
+    private int position;
+    private boolean endReached = false;
+
+    /** Inflates the entry into the queue. Runs on an I/O thread. */
+    private void fill(ZipCentralDirectory.Entry entry) {
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+          InputStream in = openEntry(channel, entry)) {
+        while (!closed) {
+          Chunk chunk = free.poll();
+          if (chunk == null) {
+            chunk = new Chunk(new byte[CHUNK_SIZE]);
+          }
+          chunk.length = ByteStreams.read(in, chunk.data, 0, chunk.data.length);
+          if (chunk.length == 0) {
+            break;
+          }
+          filled.put(chunk);
+        }
+      } catch (IOException e) {
+        failure = e;
+      } catch (InterruptedException e) {
+        failure = new InterruptedIOException("Reading of " + entry.name + " was interrupted");
+        Thread.currentThread().interrupt();
+      } finally {
+        putEnd(entry);
+      }
+    }
+
+    /**
+     * Blocks until END is in the queue or the stream is closed. The consumer takes chunks until it
+     * gets END, so there is always room for it eventually.
+     */
+    private void putEnd(ZipCentralDirectory.Entry entry) {
+      try {
+        while (!closed
+            && !filled.offer(Chunk.END, END_OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          // Check again whether the consumer closed the stream without reading to the end.
+        }
+      } catch (InterruptedException e) {
+        // The input is being closed. The consumer must fail instead of seeing a truncated file, so
+        // make room for END.
+        if (failure == null) {
+          failure = new InterruptedIOException("Reading of " + entry.name + " was interrupted");
+        }
+        filled.clear();
+        filled.offer(Chunk.END);
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private boolean nextChunk() throws IOException {
+      if (endReached) {
+        return false;
+      }
+      if (current != null) {
+        free.offer(current);
+        current = null;
+      }
+      Chunk chunk;
+      try {
+        chunk = filled.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      if (chunk == Chunk.END) {
+        endReached = true;
+        if (failure != null) {
+          throw failure;
+        }
+        return false;
+      }
+      current = chunk;
+      position = 0;
+      return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if ((current == null || position == current.length) && !nextChunk()) {
+        return -1;
+      }
+      return current.data[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      if ((current == null || position == current.length) && !nextChunk()) {
+        return -1;
+      }
+      int n = Math.min(len, current.length - position);
+      System.arraycopy(current.data, position, b, off, n);
+      position += n;
+      return n;
+    }
+
+    /** Makes the consumer fail, even if the producer was never started. */
+    private void abort() {
+      if (failure == null) {
+        failure = new IOException("GTFS input is closed");
+      }
+      filled.clear();
+      filled.offer(Chunk.END);
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      openStreams.remove(this);
+      producer.cancel(true);
+      filled.clear();
+      free.clear();
+      current = null;
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.mobilitydata.gtfsvalidator.input.GtfsZipFileInput.isInsideZipDirectory;
+
+/**
+ * Implements support for GTFS ZIP archives that are read sequentially from a stream, such as an
+ * HTTP response or the standard input.
+ *
+ * <p>Files are discovered from their local headers as the archive arrives, so that parsing of a
+ * file starts while the rest of the archive is still being downloaded. Nothing but the file that is
+ * currently being read is kept in memory.
+ *
+ * <p>Because the archive cannot be rewound, files can only be read in the order returned by {@link
+ * #getFilenamesInArrivalOrder()}, each file at most once, and a file must be opened before the
+ * iteration advances to the next one. The iteration waits until the previously opened file is
+ * closed or read to the end.
+ */
+public class GtfsZipStreamInput extends GtfsInput {
+  private final String name;
+  private final ZipInputStream zipInputStream;
+  private final Closeable source;
+  private final Set<String> filenames = Collections.synchronizedSet(new LinkedHashSet<>());
+  private boolean iterationStarted = false;
+  private String currentFilename;
+  private EntryStream currentStream;
+
+  /**
+   * Creates an input that reads a ZIP archive from the given stream.
+   *
+   * @param name name of the source to be used in error messages, e.g., URL of the archive
+   * @param stream the stream with the ZIP archive
+   * @param source resource to release when the input is closed, e.g., an HTTP response
+   */
+  public GtfsZipStreamInput(String name, InputStream stream, Closeable source) {
+    this.name = name;
+    this.zipInputStream = new ZipInputStream(stream);
+    this.source = source;
+  }
+
+  public GtfsZipStreamInput(String name, InputStream stream) {
+    this(name, stream, stream);
+  }
+
+  /**
+   * Returns base names of files that have arrived so far. The set is complete when the iteration
+   * over {@link #getFilenamesInArrivalOrder()} is finished.
+   */
+  @Override
+  public Set<String> getFilenames() {
+    synchronized (filenames) {
+      return Collections.unmodifiableSet(new LinkedHashSet<>(filenames));
+    }
+  }
+
+  /**
+   * Returns files in the order they appear in the archive, waiting for each of them to arrive.
+   *
+   * <p>The returned iterable may be iterated only once. An {@link UncheckedIOException} is thrown
+   * if the archive cannot be read.
+   */
+  @Override
+  public synchronized Iterable<String> getFilenamesInArrivalOrder() {
+    if (iterationStarted) {
+      throw new IllegalStateException("Files of " + name + " may be iterated only once");
+    }
+    iterationStarted = true;
+    return () -> new ArrivalIterator();
+  }
+
+  @Override
+  public boolean opensFilesInArrivalOrder() {
+    return true;
+  }
+
+  /**
+   * Returns a stream to read the file that has just arrived.
+   *
+   * @param filename the name of the last file returned by {@link #getFilenamesInArrivalOrder()}
+   * @return a stream to read the file data
+   * @throws IOException if the file is not the current one or it was already opened
+   */
+  @Override
+  public synchronized InputStream getFile(String filename) throws IOException {
+    if (!filename.equals(currentFilename)) {
+      throw new FileNotFoundException(
+          name + ":" + filename + " is not available: files are read in archive order");
+    }
+    if (currentStream != null) {
+      throw new IOException(name + ":" + filename + " is already opened");
+    }
+    currentStream = new EntryStream(zipInputStream);
+    return currentStream;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      zipInputStream.close();
+    } finally {
+      source.close();
+    }
+  }
+
+  /**
+   * Waits until the consumer of the current file is done and advances to the next file in the
+   * archive.
+   *
+   * @return the name of the next file or null if the archive ended
+   */
+  private String advance() throws IOException {
+    EntryStream previous;
+    synchronized (this) {
+      previous = currentStream;
+    }
+    if (previous != null) {
+      previous.awaitDone();
+    }
+    for (; ; ) {
+      // getNextEntry() skips the rest of the previous entry if it was not read to the end.
+      ZipEntry entry = zipInputStream.getNextEntry();
+      if (entry == null) {
+        synchronized (this) {
+          currentFilename = null;
+          currentStream = null;
+        }
+        return null;
+      }
+      if (entry.isDirectory() || isInsideZipDirectory(entry.getName())) {
+        continue;
+      }
+      synchronized (this) {
+        currentFilename = entry.getName();
+        currentStream = null;
+      }
+      filenames.add(entry.getName());
+      return entry.getName();
+    }
+  }
+
+  private class ArrivalIterator implements Iterator<String> {
+    private String next;
+    private boolean finished = false;
+
+    @Override
+    public boolean hasNext() {
+      if (next != null) {
+        return true;
+      }
+      if (finished) {
+        return false;
+      }
+      try {
+        next = advance();
+      } catch (IOException e) {
+        finished = true;
+        throw new UncheckedIOException(e);
+      }
+      finished = next == null;
+      return !finished;
+    }
+
+    @Override
+    public String next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      String result = next;
+      next = null;
+      return result;
+    }
+  }
+
+  /**
+   * Reads the current ZIP entry. Closing it does not close the archive but lets the iteration
+   * advance to the next file.
+   *
+   * <p>Once the end of the entry is reached or the stream is closed, it never reads from the
+   * archive again: the archive may be positioned at the next entry by then.
+   */
+  private static class EntryStream extends FilterInputStream {
+    private final CountDownLatch done = new CountDownLatch(1);
+    private volatile boolean finished = false;
+
+    EntryStream(ZipInputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (finished) {
+        return -1;
+      }
+      int b = super.read();
+      if (b < 0) {
+        finish();
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (finished) {
+        return -1;
+      }
+      int n = super.read(b, off, len);
+      if (n < 0) {
+        finish();
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      return finished ? 0 : super.skip(n);
+    }
+
+    @Override
+    public int available() throws IOException {
+      return finished ? 0 : super.available();
+    }
+
+    @Override
+    public void close() {
+      finish();
+    }
+
+    private void finish() {
+      finished = true;
+      done.countDown();
+    }
+
+    void awaitDone() throws InterruptedIOException {
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for a file to be read");
+      }
+    }
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import com.google.common.base.Preconditions;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a UTF-8 file through a memory mapping.
+ *
+ * <p>Bytes are decoded straight from the mapped file into the caller's buffer, without copying them
+ * through an {@code InputStream} and an intermediate byte buffer. ASCII bytes, which make the vast
+ * majority of GTFS data, are converted to chars directly; other bytes are passed to a UTF-8
+ * decoder. Malformed input is replaced with U+FFFD as {@code InputStreamReader} does.
+ *
+ * <p>A leading byte order mark is skipped. Large files are mapped in consecutive windows, so files
+ * larger than 2 GiB are supported.
+ */
+final class MappedUtf8Reader extends Reader {
+  private static final int DEFAULT_WINDOW_SIZE = 1 << 30;
+  // Non-ASCII bytes are decoded in small slices, so that the fast path is resumed soon.
+  private static final int DECODER_SLICE_SIZE = 64;
+  // A UTF-8 sequence is at most 4 bytes long.
+  private static final int MAX_SEQUENCE_LENGTH = 4;
+
+  private final FileChannel channel;
+  private final long size;
+  private final int windowSize;
+  private final CharsetDecoder decoder =
+      StandardCharsets.UTF_8
+          .newDecoder()
+          .onMalformedInput(CodingErrorAction.REPLACE)
+          .onUnmappableCharacter(CodingErrorAction.REPLACE);
+  // The second half of a surrogate pair that did not fit into the caller's buffer.
+  private final CharBuffer pending = CharBuffer.allocate(2);
+  private MappedByteBuffer window;
+  // Offset of the window in the file.
+  private long windowOffset = 0;
+
+  MappedUtf8Reader(Path path) throws IOException {
+    this(path, DEFAULT_WINDOW_SIZE);
+  }
+
+  /** Creates a reader that maps the file in windows of the given size, for tests. */
+  MappedUtf8Reader(Path path, int windowSize) throws IOException {
+    // Any character must fit into a single window.
+    Preconditions.checkArgument(windowSize >= MAX_SEQUENCE_LENGTH, "Window is too small");
+    this.channel = FileChannel.open(path, StandardOpenOption.READ);
+    this.windowSize = windowSize;
+    try {
+      this.size = channel.size();
+      mapWindow(0);
+      skipByteOrderMark();
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    pending.flip();
+  }
+
+  private void mapWindow(long offset) throws IOException {
+    windowOffset = offset;
+    window =
+        channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(windowSize, size - offset));
+  }
+
+  private void skipByteOrderMark() {
+    if (window.remaining() >= 3
+        && window.get(0) == (byte) 0xEF
+        && window.get(1) == (byte) 0xBB
+        && window.get(2) == (byte) 0xBF) {
+      window.position(3);
+    }
+  }
+
+  /**
+   * Maps the next window if the current one has no more complete characters.
+   *
+   * @return false if the end of file is reached
+   */
+  private boolean ensureInput(int minBytes) throws IOException {
+    if (window.remaining() >= minBytes) {
+      return true;
+    }
+    long position = windowOffset + window.position();
+    if (windowOffset + window.limit() >= size) {
+      return window.hasRemaining();
+    }
+    mapWindow(position);
+    return window.hasRemaining();
+  }
+
+  @Override
+  public int read(char[] cbuf, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    int n = 0;
+    if (pending.hasRemaining()) {
+      cbuf[off + n++] = pending.get();
+    }
+    while (n < len) {
+      if (!ensureInput(1)) {
+        break;
+      }
+      // Fast path for ASCII.
+      int pos = window.position();
+      final int limit = window.limit();
+      while (n < len && pos < limit) {
+        byte b = window.get(pos);
+        if (b < 0) {
+          break;
+        }
+        cbuf[off + n++] = (char) b;
+        ++pos;
+      }
+      window.position(pos);
+      if (n < len && pos < limit) {
+        n += decodeSlice(cbuf, off + n, len - n);
+      }
+    }
+    return n == 0 ? -1 : n;
+  }
+
+  /** Decodes a few non-ASCII bytes. */
+  private int decodeSlice(char[] cbuf, int off, int len) throws IOException {
+    ensureInput(MAX_SEQUENCE_LENGTH);
+    ByteBuffer slice = window.duplicate();
+    slice.limit(Math.min(window.limit(), window.position() + DECODER_SLICE_SIZE));
+    boolean lastSlice = windowOffset + slice.limit() >= size;
+    CharBuffer out;
+    if (len >= 2) {
+      out = CharBuffer.wrap(cbuf, off, len);
+    } else {
+      // Leave room for a surrogate pair.
+      pending.clear();
+      out = pending;
+    }
+    int start = out.position();
+    CoderResult result = decoder.decode(slice, out, lastSlice);
+    if (result.isUnderflow() && lastSlice && !slice.hasRemaining()) {
+      decoder.flush(out);
+      decoder.reset();
+    }
+    window.position(slice.position());
+    if (out != pending) {
+      return out.position() - start;
+    }
+    pending.flip();
+    if (!pending.hasRemaining()) {
+      return 0;
+    }
+    cbuf[off] = pending.get();
+    return 1;
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+}
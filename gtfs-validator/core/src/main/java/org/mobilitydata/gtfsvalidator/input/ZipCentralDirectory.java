@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Parser for the central directory of a ZIP archive.
+ *
+ * <p>The central directory is stored at the end of the archive and lists all entries together with
+ * offsets of their local headers. Reading it once allows to open any entry directly, without
+ * scanning the archive from the beginning as {@code ZipInputStream} does.
+ *
+ * <p>See section 4.3 of https://pkware.cachefly.net/webdocs/casestudies/APPNOTE.TXT.
+ */
+final class ZipCentralDirectory {
+  static final int END_RECORD_SIZE = 22;
+  static final int LOCAL_HEADER_SIZE = 30;
+  // An archive comment is at most 0xFFFF bytes long.
+  static final int MAX_END_RECORD_SEARCH = END_RECORD_SIZE + 0xFFFF;
+
+  static final int METHOD_STORED = 0;
+  static final int METHOD_DEFLATED = 8;
+
+  private static final int END_RECORD_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_END_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_END_RECORD_SIGNATURE = 0x06064b50;
+  private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+  private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+  private static final int CENTRAL_HEADER_SIZE = 46;
+  private static final int ZIP64_END_LOCATOR_SIZE = 20;
+  private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+  private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+  private ZipCentralDirectory() {}
+
+  /** Location of the central directory as declared by the end of central directory record. */
+  static class EndRecord {
+    final long centralDirectoryOffset;
+    final long centralDirectorySize;
+    final long entryCount;
+
+    EndRecord(long centralDirectoryOffset, long centralDirectorySize, long entryCount) {
+      this.centralDirectoryOffset = centralDirectoryOffset;
+      this.centralDirectorySize = centralDirectorySize;
+      this.entryCount = entryCount;
+    }
+  }
+
+  /** A single file entry from the central directory. */
+  static class Entry {
+    final String name;
+    final int method;
+    final long crc;
+    final long compressedSize;
+    final long uncompressedSize;
+    final long localHeaderOffset;
+
+    Entry(
+        String name,
+        int method,
+        long crc,
+        long compressedSize,
+        long uncompressedSize,
+        long localHeaderOffset) {
+      this.name = name;
+      this.method = method;
+      this.crc = crc;
+      this.compressedSize = compressedSize;
+      this.uncompressedSize = uncompressedSize;
+      this.localHeaderOffset = localHeaderOffset;
+    }
+
+    boolean isDirectory() {
+      return name.endsWith("/");
+    }
+
+    String fingerprint() {
+      return GtfsInput.zipEntryFingerprint(crc, uncompressedSize);
+    }
+  }
+
+  /**
+   * Finds the end of central directory record in the tail of an archive.
+   *
+   * @param tail the last bytes of the archive, it should include at least {@link
+   *     #MAX_END_RECORD_SEARCH} bytes unless the archive is shorter
+   * @param tailOffset offset of {@code tail[0]} in the whole archive
+   * @return the end record
+   * @throws ZipException if the record cannot be found or it points outside the archive
+   */
+  static EndRecord findEndRecord(byte[] tail, long tailOffset) throws ZipException {
+    for (int i = tail.length - END_RECORD_SIZE; i >= 0; --i) {
+      if (readInt(tail, i) != END_RECORD_SIGNATURE) {
+        continue;
+      }
+      long entryCount = readShort(tail, i + 10);
+      long size = readUnsignedInt(tail, i + 12);
+      long offset = readUnsignedInt(tail, i + 16);
+      if (entryCount == 0xFFFF || size == ZIP64_MAGIC || offset == ZIP64_MAGIC) {
+        EndRecord zip64Record = findZip64EndRecord(tail, tailOffset, i);
+        if (zip64Record != null) {
+          return zip64Record;
+        }
+      }
+      if (offset + size > tailOffset + i) {
+        // This is likely a false signature inside the archive comment.
+        continue;
+      }
+      return new EndRecord(offset, size, entryCount);
+    }
+    throw new ZipException("End of central directory record not found");
+  }
+
+  @Nullable
+  private static EndRecord findZip64EndRecord(byte[] tail, long tailOffset, int endRecordPos)
+      throws ZipException {
+    int locatorPos = endRecordPos - ZIP64_END_LOCATOR_SIZE;
+    if (locatorPos < 0 || readInt(tail, locatorPos) != ZIP64_END_LOCATOR_SIGNATURE) {
+      return null;
+    }
+    long recordPos = readLong(tail, locatorPos + 8) - tailOffset;
+    if (recordPos < 0 || recordPos + 56 > locatorPos) {
+      throw new ZipException("ZIP64 end of central directory record is out of range");
+    }
+    int pos = (int) recordPos;
+    if (readInt(tail, pos) != ZIP64_END_RECORD_SIGNATURE) {
+      throw new ZipException("Invalid ZIP64 end of central directory record");
+    }
+    return new EndRecord(
+        readLong(tail, pos + 48), readLong(tail, pos + 40), readLong(tail, pos + 32));
+  }
+
+  /**
+   * Parses central directory file headers.
+   *
+   * @param buffer bytes of the central directory
+   * @param offset position of the first header in {@code buffer}
+   * @param length length of the central directory
+   * @return all entries in the order they are listed in the directory
+   * @throws ZipException if the central directory is malformed
+   */
+  static List<Entry> parseEntries(byte[] buffer, int offset, int length) throws ZipException {
+    List<Entry> entries = new ArrayList<>();
+    final int end = offset + length;
+    int pos = offset;
+    while (pos + CENTRAL_HEADER_SIZE <= end && readInt(buffer, pos) == CENTRAL_HEADER_SIGNATURE) {
+      int method = readShort(buffer, pos + 10);
+      long crc = readUnsignedInt(buffer, pos + 16);
+      long compressedSize = readUnsignedInt(buffer, pos + 20);
+      long uncompressedSize = readUnsignedInt(buffer, pos + 24);
+      int nameLength = readShort(buffer, pos + 28);
+      int extraLength = readShort(buffer, pos + 30);
+      int commentLength = readShort(buffer, pos + 32);
+      long localHeaderOffset = readUnsignedInt(buffer, pos + 42);
+      int namePos = pos + CENTRAL_HEADER_SIZE;
+      int extraPos = namePos + nameLength;
+      int next = extraPos + extraLength + commentLength;
+      if (next > end) {
+        throw new ZipException("Truncated central directory");
+      }
+      String name = new String(buffer, namePos, nameLength, StandardCharsets.UTF_8);
+
+      // Sizes and offsets that do not fit into 32 bits are stored in ZIP64 extra field, in this
+      // order and only if the corresponding header field is set to 0xFFFFFFFF.
+      int zip64Pos = findExtraField(buffer, extraPos, extraLength, ZIP64_EXTRA_FIELD_ID);
+      if (zip64Pos >= 0) {
+        int zip64End = zip64Pos + 4 + readShort(buffer, zip64Pos + 2);
+        int valuePos = zip64Pos + 4;
+        if (uncompressedSize == ZIP64_MAGIC && valuePos + 8 <= zip64End) {
+          uncompressedSize = readLong(buffer, valuePos);
+          valuePos += 8;
+        }
+        if (compressedSize == ZIP64_MAGIC && valuePos + 8 <= zip64End) {
+          compressedSize = readLong(buffer, valuePos);
+          valuePos += 8;
+        }
+        if (localHeaderOffset == ZIP64_MAGIC && valuePos + 8 <= zip64End) {
+          localHeaderOffset = readLong(buffer, valuePos);
+        }
+      }
+      entries.add(
+          new Entry(name, method, crc, compressedSize, uncompressedSize, localHeaderOffset));
+      pos = next;
+    }
+    return entries;
+  }
+
+  private static int findExtraField(byte[] buffer, int offset, int length, int id) {
+    int pos = offset;
+    final int end = offset + length;
+    while (pos + 4 <= end) {
+      int dataSize = readShort(buffer, pos + 2);
+      if (readShort(buffer, pos) == id) {
+        return pos + 4 + dataSize <= end ? pos : -1;
+      }
+      pos += 4 + dataSize;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the total length of a local file header, i.e. the distance from the header to the
+   * compressed data of the entry.
+   *
+   * @param buffer a buffer with at least {@link #LOCAL_HEADER_SIZE} bytes of the header
+   * @param offset position of the local header in the buffer
+   * @return length of the local header including file name and extra field
+   * @throws ZipException if there is no local header at the given position
+   */
+  static int localHeaderLength(byte[] buffer, int offset) throws ZipException {
+    if (offset < 0
+        || offset + LOCAL_HEADER_SIZE > buffer.length
+        || readInt(buffer, offset) != LOCAL_HEADER_SIGNATURE) {
+      throw new ZipException("Invalid local file header");
+    }
+    return LOCAL_HEADER_SIZE + readShort(buffer, offset + 26) + readShort(buffer, offset + 28);
+  }
+
+  /**
+   * Wraps a stream of compressed entry data into a stream that returns uncompressed data.
+   *
+   * @param compressed raw data of the entry as it is stored in the archive
+   * @param entry the entry that describes compression method
+   * @return a stream that returns uncompressed data
+   * @throws ZipException if the compression method is not supported
+   */
+  static InputStream uncompressedStream(InputStream compressed, Entry entry) throws ZipException {
+    switch (entry.method) {
+      case METHOD_STORED:
+        return compressed;
+      case METHOD_DEFLATED:
+        return new EntryInflaterInputStream(compressed);
+      default:
+        throw new ZipException(
+            "Unsupported compression method " + entry.method + " for " + entry.name);
+    }
+  }
+
+  static int readShort(byte[] buffer, int offset) {
+    return (buffer[offset] & 0xFF) | ((buffer[offset + 1] & 0xFF) << 8);
+  }
+
+  static int readInt(byte[] buffer, int offset) {
+    return readShort(buffer, offset) | (readShort(buffer, offset + 2) << 16);
+  }
+
+  static long readUnsignedInt(byte[] buffer, int offset) {
+    return readInt(buffer, offset) & 0xFFFFFFFFL;
+  }
+
+  static long readLong(byte[] buffer, int offset) {
+    return readUnsignedInt(buffer, offset) | (readUnsignedInt(buffer, offset + 4) << 32);
+  }
+
+  /**
+   * Inflates raw deflate data of a single entry.
+   *
+   * <p>Unlike plain {@code InflaterInputStream} with a custom {@code Inflater}, this stream
+   * releases native memory of the inflater when it is closed.
+   */
+  private static class EntryInflaterInputStream extends InflaterInputStream {
+    private boolean closed = false;
+
+    EntryInflaterInputStream(InputStream in) {
+      super(in, new Inflater(/* nowrap= */ true));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        inf.end();
+        super.close();
+      }
+    }
+  }
+}
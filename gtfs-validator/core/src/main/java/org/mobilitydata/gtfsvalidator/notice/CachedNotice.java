@@ -0,0 +1,39 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.notice;
+
+import java.util.Map;
+
+/**
+ * A notice restored from a cache of validation results.
+ *
+ * <p>Values of the context are kept as {@code JsonElement} objects exactly as they were exported,
+ * so the notice is exported to JSON in the same way as the original one.
+ */
+public class CachedNotice extends Notice {
+  private final String code;
+
+  public CachedNotice(String code, Map<String, Object> context) {
+    super(context);
+    this.code = code;
+  }
+
+  @Override
+  public String getCode() {
+    return code;
+  }
+}
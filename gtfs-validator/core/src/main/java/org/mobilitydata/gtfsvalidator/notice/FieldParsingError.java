@@ -25,6 +25,7 @@ import java.util.Map;
  * column type, or have values that conflict with others according to the requirements on the input.
  */
 public class FieldParsingError extends Notice {
+  public static final String CODE = "field_parsing_error";
 
   public FieldParsingError(
       String filename,
@@ -53,6 +54,6 @@ public class FieldParsingError extends Notice {
 
   @Override
   public String getCode() {
-    return "field_parsing_error";
+    return CODE;
   }
 }
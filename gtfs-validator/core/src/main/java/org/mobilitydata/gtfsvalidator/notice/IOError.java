@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.notice;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableMap;
+
+import java.io.IOException;
+
+/**
+ * The feed could not be read completely, e.g., the download of a streamed archive broke off.
+ *
+ * <p>This is a failure of the input rather than a problem of the feed, so files that were not
+ * received are not reported as missing.
+ */
+public class IOError extends Notice {
+  public static final String CODE = "i_o_error";
+
+  /** Creates a notice for a failure to read the list of files of the feed. */
+  public IOError(IOException exception) {
+    super(
+        ImmutableMap.of(
+            "exception",
+            exception.getClass().getSimpleName(),
+            "message",
+            Strings.nullToEmpty(exception.getMessage())));
+  }
+
+  /** Creates a notice for a failure to read a single file. */
+  public IOError(String filename, IOException exception) {
+    super(
+        ImmutableMap.of(
+            "filename",
+            filename,
+            "exception",
+            exception.getClass().getSimpleName(),
+            "message",
+            Strings.nullToEmpty(exception.getMessage())));
+  }
+
+  @Override
+  public String getCode() {
+    return CODE;
+  }
+}
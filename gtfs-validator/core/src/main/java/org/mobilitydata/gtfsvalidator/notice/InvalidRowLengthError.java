@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableMap;
 
 /** A row in the input file has a different number of values than specified by the CSV header. */
 public class InvalidRowLengthError extends Notice {
+  public static final String CODE = "invalid_row_length";
+
   public InvalidRowLengthError(String filename, long csvRowNumber, int rowLength, int headerCount) {
     super(
         ImmutableMap.of(
@@ -31,6 +33,6 @@ public class InvalidRowLengthError extends Notice {
 
   @Override
   public String getCode() {
-    return "invalid_row_length";
+    return CODE;
   }
 }
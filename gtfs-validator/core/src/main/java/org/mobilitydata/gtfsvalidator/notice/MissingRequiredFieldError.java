@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableMap;
 
 /** The given field has no value in some input row, even though values are required. */
 public class MissingRequiredFieldError extends Notice {
+  public static final String CODE = "missing_required_field";
+
   public MissingRequiredFieldError(String filename, long csvRowNumber, String fieldName) {
     super(
         ImmutableMap.of(
@@ -28,6 +30,6 @@ public class MissingRequiredFieldError extends Notice {
 
   @Override
   public String getCode() {
-    return "missing_required_field";
+    return CODE;
   }
 }
@@ -23,41 +23,155 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Container for validation notices (errors and warnings).
  *
  * <p>This class is not intentionally not thread-safe to increase performance. Each thread has it's
  * own NoticeContainer, and after execution is complete the results are merged.
+ *
+ * <p>A container may limit the number of notices it stores for each code. Notices above the limit
+ * are only counted in {@link OmittedNotices}, so a file with a systematically broken column does
+ * not exhaust the memory, while the total numbers of notices stay exact.
  */
 public class NoticeContainer {
+  /** Value of the limit of notices per code for containers that store all notices. */
+  public static final int UNLIMITED = Integer.MAX_VALUE;
+
   private static final int MAX_EXPORTS_PER_NOTICE_TYPE = 100000;
   private static final Gson DEFAULT_GSON = new GsonBuilder().serializeNulls().create();
 
+  private final int maxNoticesPerCode;
   private final List<Notice> notices = new ArrayList<>();
+  // Numbers of stored notices by code, only counted if the container has a limit.
+  private final Map<String, Integer> storedNoticeCounts = new HashMap<>();
+  // Omitted notices by code and file name.
+  private final Map<String, Map<String, OmittedNotices>> omittedNotices = new LinkedHashMap<>();
+
+  /** Creates a container that stores all notices. */
+  public NoticeContainer() {
+    this(UNLIMITED);
+  }
+
+  /**
+   * Creates a container that stores a limited number of notices for each code.
+   *
+   * @param maxNoticesPerCode maximal number of stored notices of each code, or {@link #UNLIMITED}
+   */
+  public NoticeContainer(int maxNoticesPerCode) {
+    this.maxNoticesPerCode = maxNoticesPerCode;
+  }
+
+  public int getMaxNoticesPerCode() {
+    return maxNoticesPerCode;
+  }
+
+  /**
+   * Tells if a notice with the given code would be stored by {@link #addNotice}. Callers that
+   * create many notices may check this first and call {@link #addOmittedNotice} instead of creating
+   * a notice that is not stored.
+   */
+  public boolean hasRoomFor(String code) {
+    return maxNoticesPerCode == UNLIMITED
+        || storedNoticeCounts.getOrDefault(code, 0) < maxNoticesPerCode;
+  }
 
   public void addNotice(Notice notice) {
+    if (maxNoticesPerCode != UNLIMITED) {
+      String code = notice.getCode();
+      int storedCount = storedNoticeCounts.getOrDefault(code, 0);
+      if (storedCount >= maxNoticesPerCode) {
+        Map<String, Object> context = notice.getContext();
+        Object filename = context.get("filename");
+        Object csvRowNumber = context.get("csvRowNumber");
+        getOmittedNotices(code, filename instanceof String ? (String) filename : null)
+            .add(csvRowNumber instanceof Number ? ((Number) csvRowNumber).longValue() : null);
+        return;
+      }
+      storedNoticeCounts.put(code, storedCount + 1);
+    }
     notices.add(notice);
   }
 
+  /**
+   * Counts a notice without storing it.
+   *
+   * @param code code of the notice
+   * @param filename name of the file of the notice
+   * @param csvRowNumber number of the row of the notice
+   */
+  public void addOmittedNotice(String code, @Nullable String filename, long csvRowNumber) {
+    getOmittedNotices(code, filename).add(csvRowNumber);
+  }
+
+  /** Adds notices that were omitted by another container, e.g., restored from a cache. */
+  public void addOmittedNotices(OmittedNotices other) {
+    getOmittedNotices(other.getCode(), other.getFilename()).addAll(other);
+  }
+
+  private OmittedNotices getOmittedNotices(String code, @Nullable String filename) {
+    return omittedNotices
+        .computeIfAbsent(code, k -> new LinkedHashMap<>())
+        .computeIfAbsent(filename, k -> new OmittedNotices(code, filename));
+  }
+
+  /** Returns the stored notices. */
   public List<Notice> getNotices() {
     return notices;
   }
 
+  /** Returns the notices that were counted but not stored. */
+  public List<OmittedNotices> getOmittedNotices() {
+    List<OmittedNotices> result = new ArrayList<>();
+    for (Map<String, OmittedNotices> omittedByFile : omittedNotices.values()) {
+      result.addAll(omittedByFile.values());
+    }
+    return result;
+  }
+
+  /** Returns total numbers of notices by code, including the omitted ones. */
+  public Map<String, Integer> countNoticesByCode() {
+    Map<String, Integer> counts = new TreeMap<>();
+    for (Notice notice : notices) {
+      counts.merge(notice.getCode(), 1, Integer::sum);
+    }
+    for (OmittedNotices omitted : getOmittedNotices()) {
+      counts.merge(omitted.getCode(), omitted.getCount(), Integer::sum);
+    }
+    return counts;
+  }
+
   public String exportJson() {
     JsonObject root = new JsonObject();
     JsonArray jsonNotices = new JsonArray();
     root.add("notices", jsonNotices);
 
-    ListMultimap<Integer, Notice> noticesByType = getNoticesByType();
-    for (Collection<Notice> noticesOfType : noticesByType.asMap().values()) {
+    ListMultimap<String, Notice> noticesByType = getNoticesByType();
+    SortedSet<String> codes = new TreeSet<>(noticesByType.keySet());
+    codes.addAll(omittedNotices.keySet());
+    for (String code : codes) {
+      Collection<Notice> noticesOfType = noticesByType.get(code);
+      Collection<OmittedNotices> omittedOfType =
+          omittedNotices.getOrDefault(code, Collections.emptyMap()).values();
+      int totalNotices = noticesOfType.size();
+      for (OmittedNotices omitted : omittedOfType) {
+        totalNotices += omitted.getCount();
+      }
       JsonObject noticesOfTypeJson = new JsonObject();
       jsonNotices.add(noticesOfTypeJson);
-      noticesOfTypeJson.addProperty("code", noticesOfType.iterator().next().getCode());
-      noticesOfTypeJson.addProperty("totalNotices", noticesOfType.size());
+      noticesOfTypeJson.addProperty("code", code);
+      noticesOfTypeJson.addProperty("totalNotices", totalNotices);
       JsonArray noticesArrayJson = new JsonArray();
       noticesOfTypeJson.add("notices", noticesArrayJson);
       int i = 0;
@@ -69,16 +183,30 @@ public class NoticeContainer {
         }
         noticesArrayJson.add(DEFAULT_GSON.toJsonTree(notice.getContext()));
       }
+      if (!omittedOfType.isEmpty()) {
+        JsonArray omittedArrayJson = new JsonArray();
+        noticesOfTypeJson.add("omittedNotices", omittedArrayJson);
+        for (OmittedNotices omitted : omittedOfType) {
+          JsonObject omittedJson = new JsonObject();
+          omittedJson.addProperty("filename", omitted.getFilename());
+          omittedJson.addProperty("count", omitted.getCount());
+          omittedJson.add(
+              "sampledCsvRowNumbers", DEFAULT_GSON.toJsonTree(omitted.getSampledCsvRowNumbers()));
+          omittedArrayJson.add(omittedJson);
+        }
+      }
     }
 
     return DEFAULT_GSON.toJson(root);
   }
 
-  private ListMultimap<Integer, Notice> getNoticesByType() {
-    ListMultimap<Integer, Notice> noticesByType =
+  private ListMultimap<String, Notice> getNoticesByType() {
+    // Notices are grouped by code rather than by class, so that notices restored from cache as
+    // {@code CachedNotice} are exported together with the original ones.
+    ListMultimap<String, Notice> noticesByType =
         MultimapBuilder.treeKeys().arrayListValues().build();
     for (Notice notice : notices) {
-      noticesByType.put(notice.getClass().hashCode(), notice);
+      noticesByType.put(notice.getCode(), notice);
     }
     return noticesByType;
   }
@@ -89,9 +217,17 @@ public class NoticeContainer {
    * <p>This is useful for multithreaded validation: each thread has its own notice container which
    * is merged into the global container when the thread finishes.
    *
+   * <p>The limit of this container applies to the added notices, so containers of consecutive
+   * chunks of a file may be merged in their order as if all notices were added to this container.
+   *
    * @param otherContainer a container to take the notices from
    */
   public void addAll(NoticeContainer otherContainer) {
-    notices.addAll(otherContainer.notices);
+    if (maxNoticesPerCode == UNLIMITED) {
+      notices.addAll(otherContainer.notices);
+    } else {
+      otherContainer.notices.forEach(this::addNotice);
+    }
+    otherContainer.getOmittedNotices().forEach(this::addOmittedNotices);
   }
 }
@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableMap;
 
 /** The values in the given column of the input rows are out of range. */
 public class NumberOutOfRangeError extends Notice {
+  public static final String CODE = "number_out_of_range";
+
   public NumberOutOfRangeError(
       String filename, long csvRowNumber, String fieldName, String fieldType, Object fieldValue) {
     super(
@@ -38,6 +40,6 @@ public class NumberOutOfRangeError extends Notice {
 
   @Override
   public String getCode() {
-    return "number_out_of_range";
+    return CODE;
   }
 }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.notice;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Notices of a single code and file that were counted but not stored, because the container reached
+ * its limit of notices per code.
+ *
+ * <p>Only the row numbers of the first omitted notices are kept as a sample, so the memory does not
+ * grow with the number of notices.
+ */
+public class OmittedNotices {
+  static final int MAX_SAMPLED_ROW_NUMBERS = 100;
+
+  private final String code;
+  @Nullable private final String filename;
+  private int count;
+  private final List<Long> sampledCsvRowNumbers = new ArrayList<>();
+
+  public OmittedNotices(
+      String code, @Nullable String filename, int count, List<Long> sampledCsvRowNumbers) {
+    this.code = code;
+    this.filename = filename;
+    this.count = count;
+    addSampledRowNumbers(sampledCsvRowNumbers);
+  }
+
+  OmittedNotices(String code, @Nullable String filename) {
+    this.code = code;
+    this.filename = filename;
+  }
+
+  public String getCode() {
+    return code;
+  }
+
+  /** Returns the name of the file of the notices or null if the notices have no file name. */
+  @Nullable
+  public String getFilename() {
+    return filename;
+  }
+
+  /** Returns the exact number of omitted notices. */
+  public int getCount() {
+    return count;
+  }
+
+  /** Returns row numbers of the first omitted notices that have a row number. */
+  public List<Long> getSampledCsvRowNumbers() {
+    return Collections.unmodifiableList(sampledCsvRowNumbers);
+  }
+
+  void add(@Nullable Long csvRowNumber) {
+    ++count;
+    if (csvRowNumber != null && sampledCsvRowNumbers.size() < MAX_SAMPLED_ROW_NUMBERS) {
+      sampledCsvRowNumbers.add(csvRowNumber);
+    }
+  }
+
+  void addAll(OmittedNotices other) {
+    count += other.count;
+    addSampledRowNumbers(other.sampledCsvRowNumbers);
+  }
+
+  private void addSampledRowNumbers(List<Long> csvRowNumbers) {
+    for (Long csvRowNumber : csvRowNumbers) {
+      if (sampledCsvRowNumbers.size() >= MAX_SAMPLED_ROW_NUMBERS) {
+        break;
+      }
+      sampledCsvRowNumbers.add(csvRowNumber);
+    }
+  }
+}
@@ -20,6 +20,8 @@ import com.google.common.collect.ImmutableMap;
 
 /** An enum has an unexpected value. */
 public class UnexpectedEnumValueError extends Notice {
+  public static final String CODE = "unexpected_enum_value";
+
   public UnexpectedEnumValueError(
       String filename, long csvRowNumber, String fieldName, int fieldValue) {
     super(
@@ -36,6 +38,6 @@ public class UnexpectedEnumValueError extends Notice {
 
   @Override
   public String getCode() {
-    return "unexpected_enum_value";
+    return CODE;
   }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+
+import javax.annotation.Nullable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Parses rows of a single CSV file, optionally splitting it into chunks that are parsed in
+ * parallel.
+ *
+ * <p>Large files, such as stop_times.txt and shapes.txt, make the most of a feed, so parsing them
+ * on a single thread leaves the other threads idle. In the chunked mode, the calling thread splits
+ * the file into chunks of complete rows and submits them to the executor. Entities and notices of
+ * the chunks are merged in the order of rows, so the result is the same as for sequential parsing.
+ * Containers of the chunks have the same limit of notices per code as the container of the file,
+ * which bounds the memory of the chunks that are not merged yet.
+ *
+ * <p>The calling thread parses the chunks that were not started by the executor yet, hence it is
+ * safe to parse a file on a task of the same fixed-size executor.
+ */
+public class ChunkedCsvParser {
+  private static final int DEFAULT_CHUNK_LENGTH = 1 << 20;
+
+  @Nullable private final Executor executor;
+  private final int parallelism;
+  private final int chunkLength;
+
+  /**
+   * Creates a parser.
+   *
+   * @param executor executor to parse the chunks or null to parse files sequentially
+   * @param parallelism number of threads of the executor, used to bound the number of chunks held
+   *     in memory
+   */
+  public ChunkedCsvParser(@Nullable Executor executor, int parallelism) {
+    this(executor, parallelism, DEFAULT_CHUNK_LENGTH);
+  }
+
+  /** Creates a parser with a given minimal number of characters in a chunk, for tests. */
+  ChunkedCsvParser(@Nullable Executor executor, int parallelism, int chunkLength) {
+    this.executor = executor;
+    this.parallelism = Math.max(parallelism, 1);
+    this.chunkLength = chunkLength;
+  }
+
+  /** Returns a parser that parses files on the calling thread. */
+  public static ChunkedCsvParser sequential() {
+    return new ChunkedCsvParser(null, 1);
+  }
+
+  /**
+   * Parser of rows of a table.
+   *
+   * <p>A single instance is used by one thread at a time but it may parse several chunks, so that
+   * its field caches are shared by them.
+   *
+   * @param <E> type of the parsed entities
+   */
+  public interface ChunkParser<E> {
+    /** Parses all rows of the file or chunk. */
+    List<E> parseChunk(CsvFile chunk, NoticeContainer noticeContainer);
+
+    /** Called once when all chunks are parsed. */
+    default void finish() {}
+  }
+
+  /**
+   * Parses the rows of a file.
+   *
+   * @param csvFile file with headers already read
+   * @param parserFactory creates parsers, at most one per concurrently parsed chunk
+   * @param noticeContainer receives notices of all rows in their order
+   * @return entities of all rows in their order
+   */
+  public <E> List<E> parse(
+      CsvFile csvFile,
+      Supplier<? extends ChunkParser<E>> parserFactory,
+      NoticeContainer noticeContainer) {
+    if (executor == null) {
+      ChunkParser<E> parser = parserFactory.get();
+      List<E> entities = parser.parseChunk(csvFile, noticeContainer);
+      parser.finish();
+      return entities;
+    }
+    List<E> entities = new ArrayList<>();
+    parse(csvFile, parserFactory, noticeContainer, entities::add);
+    return entities;
+  }
+
+  /**
+   * Parses the rows of a file and passes the entities to a consumer in the order of rows.
+   *
+   * <p>The file is split into chunks even by a sequential parser, which parses them on the calling
+   * thread, so that only the entities of a few chunks are held at once. This lets the consumer keep
+   * the entities in a more compact form, e.g., in columns.
+   *
+   * @param csvFile file with headers already read
+   * @param parserFactory creates parsers, at most one per concurrently parsed chunk
+   * @param noticeContainer receives notices of all rows in their order
+   * @param consumer receives entities of all rows in their order
+   */
+  public <E> void parse(
+      CsvFile csvFile,
+      Supplier<? extends ChunkParser<E>> parserFactory,
+      NoticeContainer noticeContainer,
+      Consumer<? super E> consumer) {
+    Executor chunkExecutor = executor == null ? MoreExecutors.directExecutor() : executor;
+    Queue<ChunkParser<E>> idleParsers = new ConcurrentLinkedQueue<>();
+    List<ChunkParser<E>> allParsers = new ArrayList<>();
+    Queue<FutureTask<ChunkResult<E>>> pendingChunks = new ArrayDeque<>();
+    try {
+      CsvFile chunk = csvFile.nextChunk(chunkLength);
+      while (chunk != null) {
+        final CsvFile currentChunk = chunk;
+        FutureTask<ChunkResult<E>> task =
+            new FutureTask<>(
+                () -> {
+                  ChunkParser<E> parser = idleParsers.poll();
+                  if (parser == null) {
+                    parser = parserFactory.get();
+                    synchronized (allParsers) {
+                      allParsers.add(parser);
+                    }
+                  }
+                  NoticeContainer chunkNotices =
+                      new NoticeContainer(noticeContainer.getMaxNoticesPerCode());
+                  List<E> chunkEntities = parser.parseChunk(currentChunk, chunkNotices);
+                  idleParsers.add(parser);
+                  return new ChunkResult<>(chunkEntities, chunkNotices);
+                });
+        pendingChunks.add(task);
+        chunk = csvFile.nextChunk(chunkLength);
+        if (chunk == null && pendingChunks.size() == 1) {
+          // A small file that fits into a single chunk.
+          task.run();
+        } else {
+          chunkExecutor.execute(task);
+        }
+        // Bound the number of chunks in memory.
+        while (pendingChunks.size() > 2 * parallelism) {
+          mergeChunk(pendingChunks.remove(), consumer, noticeContainer);
+        }
+      }
+      while (!pendingChunks.isEmpty()) {
+        mergeChunk(pendingChunks.remove(), consumer, noticeContainer);
+      }
+    } finally {
+      // Do not parse the rest of the file if a chunk failed.
+      for (FutureTask<ChunkResult<E>> task : pendingChunks) {
+        task.cancel(false);
+      }
+    }
+    for (ChunkParser<E> parser : allParsers) {
+      parser.finish();
+    }
+  }
+
+  private static <E> void mergeChunk(
+      FutureTask<ChunkResult<E>> task,
+      Consumer<? super E> consumer,
+      NoticeContainer noticeContainer) {
+    // Parse the chunk on this thread if no worker has started it yet.
+    task.run();
+    ChunkResult<E> result = Futures.getUnchecked(task);
+    result.entities.forEach(consumer);
+    noticeContainer.addAll(result.noticeContainer);
+  }
+
+  private static class ChunkResult<E> {
+    final List<E> entities;
+    final NoticeContainer noticeContainer;
+
+    ChunkResult(List<E> entities, NoticeContainer noticeContainer) {
+      this.entities = entities;
+      this.noticeContainer = noticeContainer;
+    }
+  }
+}
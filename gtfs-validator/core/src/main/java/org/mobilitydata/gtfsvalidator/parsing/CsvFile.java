@@ -16,46 +16,67 @@
 
 package org.mobilitydata.gtfsvalidator.parsing;
 
-import com.univocity.parsers.csv.CsvParser;
-import com.univocity.parsers.csv.CsvParserSettings;
-
 import javax.annotation.Nullable;
+import java.io.IOException;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 /**
  * Reading support for a CSV file in GTFS feed. The file normally has headers and 0 or several data
  * rows.
+ *
+ * <p>Rows are tokenized in place by {@link CsvTokenizer}: a {@link CsvRow} only refers to the
+ * current record and creates strings when they are requested. The same {@link CsvRow} instance is
+ * refilled for every row, hence a row may only be accessed until the file is advanced.
  */
 public class CsvFile implements Iterable<CsvRow> {
   private final boolean isEmpty;
-  private final CsvParser parser;
-  private final HashMap<String, Integer> columnIndices = new HashMap<>();
+  private final CsvTokenizer tokenizer;
+  private final CsvRow row;
+  private final Map<String, Integer> columnIndices;
   private final String filename;
   private String[] columnNames;
 
   public CsvFile(Reader reader, String filename) {
     this.filename = filename;
-    CsvParserSettings settings = new CsvParserSettings();
-    settings.getFormat().setLineSeparator("\n");
-    settings.getFormat().setDelimiter(',');
-    settings.setHeaderExtractionEnabled(true);
-    parser = new CsvParser(settings);
-    parser.beginParsing(reader);
-
-    columnNames = parser.getContext().headers();
-    isEmpty = columnNames == null;
+    tokenizer = new CsvTokenizer(reader);
+    row = new CsvRow(this, tokenizer);
+    columnIndices = new HashMap<>();
+
+    isEmpty = !advance();
     if (isEmpty) {
       // Do not leave them as null.
       columnNames = new String[] {};
       return;
     }
+    columnNames = new String[tokenizer.getValueCount()];
     for (int i = 0; i < columnNames.length; ++i) {
+      columnNames[i] = tokenizer.getValue(i);
       columnIndices.putIfAbsent(columnNames[i], i);
     }
   }
 
+  /** Creates a file for a chunk of rows of another file. */
+  private CsvFile(CsvFile file, CsvTokenizer chunkTokenizer) {
+    this.filename = file.filename;
+    this.tokenizer = chunkTokenizer;
+    this.row = new CsvRow(this, chunkTokenizer);
+    this.columnIndices = file.columnIndices;
+    this.columnNames = file.columnNames;
+    this.isEmpty = false;
+  }
+
+  private boolean advance() {
+    try {
+      return tokenizer.nextRecord();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
   /**
    * Tells if the file is empty, i.e. it has no rows and even no headers.
    *
@@ -78,18 +99,39 @@ public class CsvFile implements Iterable<CsvRow> {
     return new CsvFileIterator();
   }
 
+  /**
+   * Reads the following rows into a separate file with the same headers, so that the rows may be
+   * parsed on another thread.
+   *
+   * <p>A chunk consists of complete rows, even if they have quoted line breaks, and row numbers of
+   * the chunk are the same as in this file. The current row of this file may not be accessed after
+   * the call.
+   *
+   * @param minLength minimal number of characters in the chunk, unless the end of file is reached
+   * @return the chunk or null if the end of file was reached
+   */
+  @Nullable
+  public CsvFile nextChunk(int minLength) {
+    CsvTokenizer chunkTokenizer;
+    try {
+      chunkTokenizer = tokenizer.nextChunk(minLength);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return chunkTokenizer == null ? null : new CsvFile(this, chunkTokenizer);
+  }
+
   /**
    * Advances to the next row.
    *
+   * <p>This is a cursor that does not allocate anything per row: the same {@link CsvRow} is
+   * returned for all rows and refilled in place.
+   *
    * @return the next {@link CsvRow} or null if end of file was reached.
    */
   @Nullable
-  private CsvRow nextResult() {
-    String[] columnValues = parser.parseNext();
-    if (columnValues == null) {
-      return null;
-    }
-    return new CsvRow(this, parser.getContext().currentLine(), columnValues);
+  public CsvRow nextRow() {
+    return advance() ? row : null;
   }
 
   /**
@@ -121,29 +163,29 @@ public class CsvFile implements Iterable<CsvRow> {
     return columnNames[columnIndex];
   }
 
+  /**
+   * Iterator that tokenizes a row only when it is requested, so that the previous row stays valid
+   * until then.
+   */
   class CsvFileIterator implements Iterator<CsvRow> {
-    boolean started = false;
-    CsvRow nextRow = null;
+    boolean fetched = false;
+    CsvRow fetchedRow = null;
 
     @Override
     public boolean hasNext() {
-      if (started) {
-        return nextRow != null;
+      if (!fetched) {
+        fetched = true;
+        fetchedRow = nextRow();
       }
-      started = true;
-      nextRow = nextResult();
-      return nextRow != null;
+      return fetchedRow != null;
     }
 
     @Override
     @Nullable
     public CsvRow next() {
-      if (!started) {
-        hasNext();
-      }
-      CsvRow out = nextRow;
-      nextRow = nextResult();
-      return out;
+      hasNext();
+      fetched = false;
+      return fetchedRow;
     }
   }
 }
@@ -16,24 +16,25 @@
 
 package org.mobilitydata.gtfsvalidator.parsing;
 
-import com.google.common.base.Strings;
-
 import javax.annotation.Nullable;
 
-/** Read access to a data row in a CSV file. */
+/**
+ * Read access to a data row in a CSV file.
+ *
+ * <p>The row is a cursor on the current record of the tokenizer of its file: a file has a single
+ * instance that is refilled in place whenever the file advances to the next row.
+ */
 public class CsvRow {
   private final CsvFile csvFile;
-  private final long rowNumber;
-  private final String[] columnValues;
+  private final CsvTokenizer tokenizer;
 
-  public CsvRow(CsvFile csvFile, long rowNumber, String[] columnValues) {
+  CsvRow(CsvFile csvFile, CsvTokenizer tokenizer) {
     this.csvFile = csvFile;
-    this.rowNumber = rowNumber;
-    this.columnValues = columnValues;
+    this.tokenizer = tokenizer;
   }
 
   public long getRowNumber() {
-    return rowNumber;
+    return tokenizer.getRecordLineNumber();
   }
 
   public int getColumnIndex(String columnName) {
@@ -41,7 +42,7 @@ public class CsvRow {
   }
 
   public int getColumnCount() {
-    return columnValues.length;
+    return tokenizer.getValueCount();
   }
 
   public String getColumnName(int columnIndex) {
@@ -76,16 +77,46 @@ public class CsvRow {
    */
   @Nullable
   public String asString(int columnIndex) {
-    if (columnIndex < 0 || columnIndex >= columnValues.length) {
-      return null;
-    }
-    String s = columnValues[columnIndex];
-    // Univocity CSV parser already returns null for no explicit value and for an explicit empty
-    // string "".
-    // Here we just want to be sure that we always return null and never "".
-    if (Strings.isNullOrEmpty(s)) {
+    if (columnIndex < 0 || columnIndex >= tokenizer.getValueCount()) {
       return null;
     }
-    return s;
+    // The tokenizer returns null for no explicit value and for an explicit empty string "".
+    return tokenizer.getValue(columnIndex);
+  }
+
+  /**
+   * Tells if a value in this row is not empty, without creating a string. This is the same as
+   * {@code asString(columnIndex) != null}.
+   */
+  public boolean hasValue(int columnIndex) {
+    return columnIndex >= 0
+        && columnIndex < tokenizer.getValueCount()
+        && tokenizer.getValueStart(columnIndex) < tokenizer.getValueEnd(columnIndex);
+  }
+
+  /**
+   * Tells if a value in this row is not empty and is stored in {@link #getBuffer()} as is, so that
+   * it may be parsed without creating a string.
+   */
+  boolean hasVerbatimValue(int columnIndex) {
+    return columnIndex >= 0
+        && columnIndex < tokenizer.getValueCount()
+        && tokenizer.getValueStart(columnIndex) < tokenizer.getValueEnd(columnIndex)
+        && tokenizer.isVerbatim(columnIndex);
+  }
+
+  /** Returns the characters of this row. They are only valid until the file advances. */
+  char[] getBuffer() {
+    return tokenizer.getBuffer();
+  }
+
+  /** Returns the offset of the first character of a value in {@link #getBuffer()}. */
+  int getValueStart(int columnIndex) {
+    return tokenizer.getValueStart(columnIndex);
+  }
+
+  /** Returns the offset after the last character of a value in {@link #getBuffer()}. */
+  int getValueEnd(int columnIndex) {
+    return tokenizer.getValueEnd(columnIndex);
   }
 }
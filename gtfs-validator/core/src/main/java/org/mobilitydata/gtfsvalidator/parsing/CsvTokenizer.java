@@ -0,0 +1,434 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Splits CSV records into values without allocating them.
+ *
+ * <p>Characters are read into a reusable window and each value of the current record is described
+ * by its start and end offsets in that window. A {@code String} is only created when a caller asks
+ * for it with {@link #getValue(int)}.
+ *
+ * <p>The syntax follows the defaults of the Univocity parser that was used before:
+ *
+ * <ul>
+ *   <li>records are separated by {@code \n}; a trailing {@code \r} is trimmed as whitespace;
+ *   <li>leading and trailing whitespace of unquoted values is trimmed;
+ *   <li>a value is quoted only if its first non-whitespace character is {@code "}; a quote inside a
+ *       quoted value is escaped as {@code ""} and a quoted value may span several lines;
+ *   <li>blank lines and lines starting with {@code #} are skipped;
+ *   <li>a leading byte order mark is skipped.
+ * </ul>
+ *
+ * <p>Offsets of the current record are only valid until the next call to {@link #nextRecord()}.
+ */
+final class CsvTokenizer {
+  private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+  private static final char DELIMITER = ',';
+  private static final char QUOTE = '"';
+  private static final char COMMENT = '#';
+  private static final char NEWLINE = '\n';
+  private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+  // Value is the content of a quoted value that has escaped quotes.
+  private static final byte ESCAPED = 1;
+  // Value starts with an opening quote that was closed before the end of the value, e.g.,
+  // "abc"def. The closing quote and the rest of the value are kept as is.
+  private static final byte MALFORMED = 2;
+
+  private static final int RECORD = 0;
+  private static final int END = 1;
+  private static final int NEED_MORE_INPUT = 2;
+
+  // Null for chunks that were split from another tokenizer.
+  @Nullable private final Reader reader;
+  private char[] buffer;
+  // Start of the first record that was not parsed yet.
+  private int position = 0;
+  // End of valid characters in the buffer.
+  private int limit = 0;
+  private boolean started = false;
+  private boolean endOfInput = false;
+  // Number of line separators before position.
+  private long lineCount = 0;
+
+  // Line number of the last line of the current record, 1-based.
+  private long recordLineNumber = 0;
+  private int valueCount = 0;
+  private int[] valueStarts = new int[16];
+  private int[] valueEnds = new int[16];
+  private byte[] valueFlags = new byte[16];
+
+  CsvTokenizer(Reader reader) {
+    this(reader, DEFAULT_BUFFER_SIZE);
+  }
+
+  /** Creates a tokenizer with a given initial size of the window, for tests. */
+  CsvTokenizer(Reader reader, int bufferSize) {
+    this.reader = reader;
+    this.buffer = new char[Math.max(bufferSize, 1)];
+  }
+
+  /** Creates a tokenizer of complete records that were split from a file. */
+  private CsvTokenizer(char[] chunk, long lineCount) {
+    this.reader = null;
+    this.buffer = chunk;
+    this.limit = chunk.length;
+    this.started = true;
+    this.endOfInput = true;
+    this.lineCount = lineCount;
+  }
+
+  /**
+   * Advances to the next record.
+   *
+   * @return false if the end of input is reached
+   */
+  boolean nextRecord() throws IOException {
+    start();
+    while (true) {
+      switch (parseRecord()) {
+        case RECORD:
+          return true;
+        case END:
+          valueCount = 0;
+          return false;
+        default:
+          fill(position);
+      }
+    }
+  }
+
+  /**
+   * Splits the following records into a separate tokenizer, e.g., to parse them on another thread.
+   *
+   * <p>The chunk is copied from the window and contains complete records only, so quoted values
+   * that span several lines are never split. Line numbers of the chunk continue those of this
+   * tokenizer.
+   *
+   * @param minLength minimal number of characters in the chunk, unless the end of input is reached
+   * @return the chunk or null if the end of input is reached
+   */
+  @Nullable
+  CsvTokenizer nextChunk(int minLength) throws IOException {
+    start();
+    int chunkStart = position;
+    final long chunkLineCount = lineCount;
+    while (position - chunkStart < minLength) {
+      int result = parseRecord();
+      if (result == END) {
+        break;
+      }
+      if (result == NEED_MORE_INPUT) {
+        int shift = chunkStart;
+        fill(chunkStart);
+        chunkStart -= shift;
+      }
+    }
+    valueCount = 0;
+    if (position == chunkStart) {
+      return null;
+    }
+    return new CsvTokenizer(Arrays.copyOfRange(buffer, chunkStart, position), chunkLineCount);
+  }
+
+  private void start() throws IOException {
+    if (started) {
+      return;
+    }
+    started = true;
+    fill(0);
+    if (limit > 0 && buffer[0] == BYTE_ORDER_MARK) {
+      position = 1;
+    }
+  }
+
+  /** Returns the number of values in the current record. */
+  int getValueCount() {
+    return valueCount;
+  }
+
+  /**
+   * Returns the line number of the current record. A record with quoted line breaks is numbered
+   * after its last line.
+   */
+  long getRecordLineNumber() {
+    return recordLineNumber;
+  }
+
+  /** Returns the window that holds the current record. */
+  char[] getBuffer() {
+    return buffer;
+  }
+
+  /** Returns the offset of the first character of a value in {@link #getBuffer()}. */
+  int getValueStart(int index) {
+    return valueStarts[index];
+  }
+
+  /** Returns the offset after the last character of a value in {@link #getBuffer()}. */
+  int getValueEnd(int index) {
+    return valueEnds[index];
+  }
+
+  /**
+   * Tells if the characters between the offsets of a value are the value itself. This is false for
+   * quoted values that need to be unescaped.
+   */
+  boolean isVerbatim(int index) {
+    return valueFlags[index] == 0;
+  }
+
+  /**
+   * Returns a value of the current record.
+   *
+   * @return the value or null if it is empty
+   */
+  @Nullable
+  String getValue(int index) {
+    final int start = valueStarts[index];
+    final int end = valueEnds[index];
+    if (start == end) {
+      return null;
+    }
+    if (valueFlags[index] == 0) {
+      return new String(buffer, start, end - start);
+    }
+    return unescape(start, end, valueFlags[index]);
+  }
+
+  private String unescape(int start, int end, byte flags) {
+    StringBuilder builder = new StringBuilder(end - start);
+    int i = start;
+    if ((flags & MALFORMED) != 0) {
+      builder.append(QUOTE);
+      ++i;
+    }
+    while (i < end) {
+      char c = buffer[i];
+      if (c == QUOTE) {
+        if (i + 1 < end && buffer[i + 1] == QUOTE) {
+          builder.append(QUOTE);
+          i += 2;
+          continue;
+        }
+        // Closing quote of a malformed value: the rest is kept as is.
+        builder.append(buffer, i, end - i);
+        break;
+      }
+      builder.append(c);
+      ++i;
+    }
+    return builder.toString();
+  }
+
+  /**
+   * Parses a record that starts at {@link #position}.
+   *
+   * <p>The buffer is not modified, so parsing may be restarted from the same position when the
+   * record is not complete in the buffer.
+   */
+  private int parseRecord() {
+    final char[] buf = buffer;
+    final int limit = this.limit;
+    int pos = position;
+    long lines = lineCount;
+
+    // Skip blank lines and comments.
+    while (true) {
+      int p = pos;
+      if (p < limit && buf[p] == COMMENT) {
+        while (p < limit && buf[p] != NEWLINE) {
+          ++p;
+        }
+      } else {
+        while (p < limit && isWhitespace(buf[p])) {
+          ++p;
+        }
+      }
+      if (p == limit) {
+        if (!endOfInput) {
+          return NEED_MORE_INPUT;
+        }
+        if (p == pos || buf[pos] == COMMENT) {
+          position = limit;
+          return END;
+        }
+        // Univocity returns a single empty value for a blank last line without a line separator.
+        valueCount = 0;
+        addValue(limit, limit, (byte) 0);
+        recordLineNumber = lines + 1;
+        position = limit;
+        return RECORD;
+      }
+      if (buf[p] != NEWLINE) {
+        break;
+      }
+      pos = p + 1;
+      ++lines;
+      position = pos;
+      lineCount = lines;
+    }
+
+    valueCount = 0;
+    while (true) {
+      while (pos < limit && isWhitespace(buf[pos])) {
+        ++pos;
+      }
+      if (pos == limit && !endOfInput) {
+        return NEED_MORE_INPUT;
+      }
+      if (pos < limit && buf[pos] == QUOTE) {
+        final int contentStart = pos + 1;
+        byte flags = 0;
+        int q = contentStart;
+        boolean closed = false;
+        while (q < limit) {
+          char c = buf[q];
+          if (c == QUOTE) {
+            if (q + 1 == limit && !endOfInput) {
+              return NEED_MORE_INPUT;
+            }
+            if (q + 1 < limit && buf[q + 1] == QUOTE) {
+              flags = ESCAPED;
+              q += 2;
+              continue;
+            }
+            closed = true;
+            break;
+          }
+          if (c == NEWLINE) {
+            ++lines;
+          }
+          ++q;
+        }
+        if (!closed) {
+          if (!endOfInput) {
+            return NEED_MORE_INPUT;
+          }
+          if (contentStart == limit) {
+            // A single quote at the end of input is kept as is.
+            addValue(pos, limit, MALFORMED);
+          } else {
+            // Unclosed quote: the value runs to the end of input.
+            addValue(contentStart, limit, flags);
+          }
+          pos = limit;
+        } else {
+          int p = q + 1;
+          while (p < limit && isWhitespace(buf[p])) {
+            ++p;
+          }
+          if (p == limit && !endOfInput) {
+            return NEED_MORE_INPUT;
+          }
+          if (p == limit || buf[p] == DELIMITER || buf[p] == NEWLINE) {
+            addValue(contentStart, q, flags);
+            pos = p;
+          } else {
+            pos = findValueEnd(buf, p, limit);
+            if (pos == limit && !endOfInput) {
+              return NEED_MORE_INPUT;
+            }
+            addValue(contentStart - 1, trimEnd(buf, p, pos), (byte) (flags | MALFORMED));
+          }
+        }
+      } else {
+        final int start = pos;
+        pos = findValueEnd(buf, pos, limit);
+        if (pos == limit && !endOfInput) {
+          return NEED_MORE_INPUT;
+        }
+        addValue(start, trimEnd(buf, start, pos), (byte) 0);
+      }
+
+      if (pos < limit && buf[pos] == DELIMITER) {
+        ++pos;
+        continue;
+      }
+      recordLineNumber = lines + 1;
+      if (pos < limit) {
+        // Line separator.
+        ++pos;
+        ++lines;
+      }
+      position = pos;
+      lineCount = lines;
+      return RECORD;
+    }
+  }
+
+  private static boolean isWhitespace(char c) {
+    return c <= ' ' && c != NEWLINE;
+  }
+
+  private static int findValueEnd(char[] buf, int pos, int limit) {
+    while (pos < limit) {
+      char c = buf[pos];
+      if (c == DELIMITER || c == NEWLINE) {
+        break;
+      }
+      ++pos;
+    }
+    return pos;
+  }
+
+  private static int trimEnd(char[] buf, int start, int end) {
+    while (end > start && buf[end - 1] <= ' ') {
+      --end;
+    }
+    return end;
+  }
+
+  private void addValue(int start, int end, byte flags) {
+    if (valueCount == valueStarts.length) {
+      int newLength = valueCount * 2;
+      valueStarts = Arrays.copyOf(valueStarts, newLength);
+      valueEnds = Arrays.copyOf(valueEnds, newLength);
+      valueFlags = Arrays.copyOf(valueFlags, newLength);
+    }
+    valueStarts[valueCount] = start;
+    valueEnds[valueCount] = end;
+    valueFlags[valueCount] = flags;
+    ++valueCount;
+  }
+
+  /**
+   * Moves the characters from the given offset to the beginning of the window and reads more input
+   * after them. The window grows if it is already full.
+   */
+  private void fill(int keepFrom) throws IOException {
+    if (keepFrom > 0) {
+      System.arraycopy(buffer, keepFrom, buffer, 0, limit - keepFrom);
+      limit -= keepFrom;
+      position -= keepFrom;
+    } else if (limit == buffer.length) {
+      buffer = Arrays.copyOf(buffer, buffer.length * 2);
+    }
+    int n = reader.read(buffer, limit, buffer.length - limit);
+    if (n < 0) {
+      endOfInput = true;
+    } else {
+      limit += n;
+    }
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+/**
+ * Parses decimal numbers, such as coordinates and distances, directly from characters.
+ *
+ * <p>GTFS feeds write floats as plain decimals like {@code -33.870123}. Such a number is an integer
+ * significand divided by a power of ten. If both are exactly representable as doubles, a single
+ * division gives the correctly rounded result, the same as {@link Double#parseDouble}.
+ *
+ * <p>Coordinates are often written with 17 significant digits, which do not fit into a double. For
+ * up to 18 digits, the quotient is computed with about 100 bits of precision and then rounded. The
+ * result is correctly rounded unless the quotient is very close to a midpoint between two doubles.
+ * Such rare inputs, as well as exponents and other formats, are passed to {@link
+ * Double#parseDouble}.
+ *
+ * <p>Invalid numbers are rejected without throwing an exception: the syntax is checked before the
+ * JDK parser is called.
+ *
+ * <p>An instance holds the last parsed value, hence it must not be shared by threads.
+ */
+final class DoubleParser {
+  // Largest significand for which every smaller integer is exactly representable as a double.
+  private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+  // Significands are accumulated while they are below this limit, i.e., up to 18 digits.
+  private static final long MAX_SIGNIFICAND_BEFORE_DIGIT = 100_000_000_000_000_000L;
+  // Splits a double into two halves of 26 bits for exact multiplication.
+  private static final double SPLITTER = 134217729.0; // 2^27 + 1
+  // Bound on the relative error of the extended quotient, far above the actual error.
+  private static final double QUOTIENT_ERROR_BOUND = 0x1p-90;
+
+  // Powers of ten that are exactly representable as doubles.
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+    1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  private double value;
+
+  /** Returns the value found by the last successful call of {@link #parse}. */
+  double getValue() {
+    return value;
+  }
+
+  /**
+   * Parses a double from a range of characters. The accepted syntax is the same as for {@link
+   * Double#parseDouble}, including leading and trailing whitespace.
+   *
+   * @param chars array with the number
+   * @param start offset of the first character of the number
+   * @param end offset after the last character of the number
+   * @return false if the characters are not a number
+   */
+  boolean parse(char[] chars, int start, int end) {
+    while (start < end && chars[start] <= ' ') {
+      ++start;
+    }
+    while (end > start && chars[end - 1] <= ' ') {
+      --end;
+    }
+    int i = start;
+    boolean negative = false;
+    if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+      negative = chars[i] == '-';
+      ++i;
+    }
+    if (regionEquals(chars, i, end, "NaN")) {
+      value = Double.NaN;
+      return true;
+    }
+    if (regionEquals(chars, i, end, "Infinity")) {
+      value = negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+      return true;
+    }
+    if (end - i > 2 && chars[i] == '0' && (chars[i + 1] == 'x' || chars[i + 1] == 'X')) {
+      // Hexadecimal floats are too rare to check their syntax here.
+      try {
+        return parseWithJdk(chars, start, end);
+      } catch (NumberFormatException ex) {
+        return false;
+      }
+    }
+
+    long significand = 0;
+    int digitCount = 0;
+    int fractionDigitCount = 0;
+    boolean seenPoint = false;
+    boolean fitsSignificand = true;
+    for (; i < end; ++i) {
+      final char c = chars[i];
+      if (c >= '0' && c <= '9') {
+        ++digitCount;
+        if (significand >= MAX_SIGNIFICAND_BEFORE_DIGIT) {
+          fitsSignificand = false;
+        } else {
+          significand = significand * 10 + (c - '0');
+          if (seenPoint) {
+            ++fractionDigitCount;
+          }
+        }
+      } else if (c == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        break;
+      }
+    }
+    if (digitCount == 0) {
+      return false;
+    }
+    if (i < end) {
+      // An exponent and a type suffix are left to the JDK once their syntax is checked.
+      if (chars[i] == 'e' || chars[i] == 'E') {
+        ++i;
+        if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+          ++i;
+        }
+        final int exponentStart = i;
+        while (i < end && chars[i] >= '0' && chars[i] <= '9') {
+          ++i;
+        }
+        if (i == exponentStart) {
+          return false;
+        }
+      }
+      if (i < end && "fFdD".indexOf(chars[i]) >= 0) {
+        ++i;
+      }
+      return i == end && parseWithJdk(chars, start, end);
+    }
+    if (!fitsSignificand || fractionDigitCount >= POWERS_OF_TEN.length) {
+      return parseWithJdk(chars, start, end);
+    }
+    final double divisor = POWERS_OF_TEN[fractionDigitCount];
+    double quotient;
+    if (significand <= MAX_EXACT_SIGNIFICAND) {
+      quotient = (double) significand / divisor;
+    } else {
+      quotient = divideLargeSignificand(significand, divisor);
+      if (Double.isNaN(quotient)) {
+        return parseWithJdk(chars, start, end);
+      }
+    }
+    value = negative ? -quotient : quotient;
+    return true;
+  }
+
+  private static boolean regionEquals(char[] chars, int start, int end, String s) {
+    if (end - start != s.length()) {
+      return false;
+    }
+    for (int i = 0; i < s.length(); ++i) {
+      if (chars[start + i] != s.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Divides a significand that is not exactly representable as a double by a power of ten.
+   *
+   * <p>The significand is split into a sum of two doubles and the quotient is computed as a sum of
+   * two doubles using an exact product, which gives about 100 bits of precision.
+   *
+   * @return the correctly rounded quotient or NaN if it cannot be rounded safely
+   */
+  private static double divideLargeSignificand(long significand, double divisor) {
+    final double high = (double) significand;
+    final double low = (double) (significand - (long) high);
+    final double quotient = high / divisor;
+    // The remainder of a correctly rounded division is exactly representable.
+    final double product = quotient * divisor;
+    final double productError = twoProductError(quotient, divisor, product);
+    final double remainder = ((high - product) - productError) + low;
+    final double correction = remainder / divisor;
+
+    final double sum = quotient + correction;
+    final double sumError = correction - (sum - quotient);
+    // Rounding is ambiguous if the extended quotient is close to a midpoint between two doubles.
+    // Near powers of two the midpoints are not symmetric, so these are left to the JDK as well.
+    if (Math.abs(Math.abs(sumError) - Math.ulp(sum) / 2) <= sum * QUOTIENT_ERROR_BOUND
+        || (Double.doubleToRawLongBits(sum) & 0xfffffffffffffL) == 0) {
+      return Double.NaN;
+    }
+    return sum;
+  }
+
+  /** Returns {@code a * b - product} exactly, where {@code product} is {@code a * b} rounded. */
+  private static double twoProductError(double a, double b, double product) {
+    final double aSplit = SPLITTER * a;
+    final double aHigh = aSplit - (aSplit - a);
+    final double aLow = a - aHigh;
+    final double bSplit = SPLITTER * b;
+    final double bHigh = bSplit - (bSplit - b);
+    final double bLow = b - bHigh;
+    return ((aHigh * bHigh - product) + aHigh * bLow + aLow * bHigh) + aLow * bLow;
+  }
+
+  /** Parses a number whose syntax is already checked, so that the JDK does not throw. */
+  private boolean parseWithJdk(char[] chars, int start, int end) {
+    value = Double.parseDouble(new String(chars, start, end - start));
+    return true;
+  }
+}
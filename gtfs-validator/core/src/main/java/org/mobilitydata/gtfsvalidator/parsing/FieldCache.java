@@ -29,15 +29,44 @@ import java.util.Map;
  * caching.
  *
  * <p>All tables are read in parallel, that's why we create a separate set of caches for each table.
- * It is tempting to use the same cache for, e.g., trip_id in both trips.txt and stop_times.txt but
- * that would require synchronization that slows down the reading.
+ * IDs such as trip_id in both trips.txt and stop_times.txt are instead shared through the {@link
+ * IdDictionary} of the feed, which is synchronized only when a new ID is added.
+ *
+ * <p>Interning only pays off if values repeat. A column of mostly unique values, e.g., stop_id in
+ * stop_times.txt of some feeds, would keep a map entry for every row without sharing any object.
+ * That is why the cache samples its hit ratio over the first lookups and turns itself off if the
+ * ratio is too low: the map is dropped and further values are returned as is.
  *
  * @param <T> the type of the cached objects. It must be suitable as a key for hash maps.
  */
 public class FieldCache<T> {
-  private final Map<T, T> cache = new HashMap<>();
+  /** Number of lookups after which the cache decides if it stays enabled. */
+  public static final int DEFAULT_SAMPLE_SIZE = 10_000;
+
+  /** Minimal hit ratio over the sampled lookups for the cache to stay enabled. */
+  public static final double DEFAULT_MIN_HIT_RATIO = 0.25;
+
+  private final int sampleSize;
+  private final double minHitRatio;
+
+  @Nullable private Map<T, T> cache = new HashMap<>();
 
   private int lookupCount = 0;
+  private int missCount = 0;
+  private int bypassCount = 0;
+
+  public FieldCache() {
+    this(DEFAULT_SAMPLE_SIZE, DEFAULT_MIN_HIT_RATIO);
+  }
+
+  /**
+   * Creates a cache that turns itself off if its hit ratio is below {@code minHitRatio} after
+   * {@code sampleSize} lookups.
+   */
+  public FieldCache(int sampleSize, double minHitRatio) {
+    this.sampleSize = sampleSize;
+    this.minHitRatio = minHitRatio;
+  }
 
   /**
    * Adds the object to the cache if it is absent. Returns a reference to the given object in cache.
@@ -48,25 +77,54 @@ public class FieldCache<T> {
    * <p>Note that it is not the same as {@code Map.putIfAbsent()} which returns {@code null} if the
    * the object was not already in the map.
    *
+   * <p>If the cache was turned off, the object is returned as is.
+   *
    * @param obj object to store in cache.
    * @return reference to the object in cache.
    */
   public @Nullable T addIfAbsent(@Nullable T obj) {
+    if (cache == null) {
+      ++bypassCount;
+      return obj;
+    }
     ++lookupCount;
+    T inCache;
     if (obj == null) {
       // Do not store null in the cache.
-      return null;
+      inCache = null;
+    } else {
+      // Benchmarks show that computeIfAbsent() is about 20% more expensive than calling get() and
+      // put().
+      inCache = cache.get(obj);
+      if (inCache == null) {
+        inCache = obj;
+        cache.put(inCache, inCache);
+        ++missCount;
+      }
     }
-    // Benchmarks show that computeIfAbsent() is about 20% more expensive than calling get() and
-    // put().
-    T inCache = cache.get(obj);
-    if (inCache == null) {
-      inCache = obj;
-      cache.put(inCache, inCache);
+    if (lookupCount == sampleSize && getHitRatio() < minHitRatio) {
+      cache = null;
     }
     return inCache;
   }
 
+  /**
+   * Tells if the cache still interns objects, i.e., it was not turned off because of a low hit
+   * ratio over the sampled lookups.
+   */
+  public boolean isEnabled() {
+    return cache != null;
+  }
+
+  /**
+   * Returns amount of objects that were returned as is because the cache was turned off.
+   *
+   * <p>These are not counted as lookups.
+   */
+  public int getBypassCount() {
+    return bypassCount;
+  }
+
   /**
    * Returns amount of lookups using {@code addIfAbsent}.
    *
@@ -81,21 +139,24 @@ public class FieldCache<T> {
   /**
    * Returns cache size.
    *
+   * <p>This is 0 if the cache was turned off.
+   *
    * @return cache size.
    */
   public int getCacheSize() {
-    return cache.size();
+    return cache == null ? 0 : cache.size();
   }
 
   /**
    * Returns the amount of cache misses.
    *
-   * <p>This is the same as the cache size because objects are not removed from cache.
+   * <p>This is the number of objects added to the cache, including those dropped when the cache was
+   * turned off.
    *
    * @return amount of cache misses.
    */
   public int getCacheMisses() {
-    return cache.size();
+    return missCount;
   }
 
   /**
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.flogger.FluentLogger;
+import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import org.apache.commons.validator.routines.EmailValidator;
+import org.apache.commons.validator.routines.UrlValidator;
+
+import java.util.function.Predicate;
+
+/**
+ * Remembers which URLs, emails and phone numbers are valid.
+ *
+ * <p>Validation of these fields runs regular expressions or libphonenumber, while the same values,
+ * e.g., agency_url or route_url, repeat for thousands of rows. Unlike {@link FieldCache}, this
+ * cache is thread-safe and shared by all tables of a feed, so its size is bounded. A new cache is
+ * created for each validated feed, so that its statistics describe that feed only.
+ */
+public class FieldValidationCache {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final int DEFAULT_MAX_SIZE = 100_000;
+
+  private final PhoneNumberUtil phoneUtil = PhoneNumberUtil.getInstance();
+  private final Predicate<String> urlValidator;
+  private final Predicate<String> emailValidator;
+  private final Cache<String, Boolean> urls;
+  private final Cache<String, Boolean> emails;
+  // Keys are country codes followed by phone numbers.
+  private final Cache<String, Boolean> phoneNumbers;
+
+  /**
+   * Creates a cache.
+   *
+   * @param maxSize maximal number of values of each kind held by the cache
+   */
+  public FieldValidationCache(int maxSize) {
+    this(maxSize, UrlValidator.getInstance()::isValid, EmailValidator.getInstance()::isValid);
+  }
+
+  /** Creates a cache of the default size. */
+  public FieldValidationCache() {
+    this(DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Creates a cache with the given validators of URLs and emails, so that tests can count calls.
+   */
+  FieldValidationCache(
+      int maxSize, Predicate<String> urlValidator, Predicate<String> emailValidator) {
+    this.urlValidator = urlValidator;
+    this.emailValidator = emailValidator;
+    this.urls = createCache(maxSize);
+    this.emails = createCache(maxSize);
+    this.phoneNumbers = createCache(maxSize);
+  }
+
+  private static Cache<String, Boolean> createCache(int maxSize) {
+    return CacheBuilder.newBuilder().maximumSize(maxSize).recordStats().build();
+  }
+
+  public boolean isValidUrl(String url) {
+    return isValid(urls, url, urlValidator);
+  }
+
+  public boolean isValidEmail(String email) {
+    return isValid(emails, email, emailValidator);
+  }
+
+  /**
+   * Tells if a phone number is possible for a country.
+   *
+   * @param phoneNumber the phone number
+   * @param countryCode ISO 3166-1 alpha-2 code of the country of the feed
+   */
+  public boolean isPossiblePhoneNumber(String phoneNumber, String countryCode) {
+    return isValid(
+        phoneNumbers,
+        countryCode + phoneNumber,
+        key -> phoneUtil.isPossibleNumber(phoneNumber, countryCode));
+  }
+
+  private static boolean isValid(
+      Cache<String, Boolean> cache, String key, Predicate<String> validator) {
+    Boolean valid = cache.getIfPresent(key);
+    if (valid == null) {
+      // Two threads may validate the same value at once, which is harmless.
+      valid = validator.test(key);
+      cache.put(key, valid);
+    }
+    return valid;
+  }
+
+  /** Logs hit ratios of the cache in the same way as for the field caches of tables. */
+  public void logStatistics() {
+    logStatistics("URL", urls);
+    logStatistics("email", emails);
+    logStatistics("phone number", phoneNumbers);
+  }
+
+  private static void logStatistics(String kind, Cache<String, Boolean> cache) {
+    CacheStats stats = cache.stats();
+    logger.atInfo().log(
+        "Validation cache for %s: size = %d, lookup count = %d, hits = %.2f%%, misses = %.2f%%",
+        kind,
+        cache.size(),
+        stats.requestCount(),
+        stats.hitRate() * 100.0,
+        stats.missRate() * 100.0);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary of IDs shared by all tables of a single feed.
+ *
+ * <p>Unlike {@link FieldCache}, which is local to a table, the dictionary makes the same trip_id
+ * from trips.txt and stop_times.txt a single {@code String} object. Since a {@code String} caches
+ * its hash code and equality first compares references, looking up an ID of one table in the index
+ * of another table neither hashes nor compares characters again.
+ *
+ * <p>IDs are grouped by namespaces, which are named after the referenced column, e.g., "stop_id"
+ * for both stop_times.stop_id and stops.parent_station. Each ID gets a dense code within its
+ * namespace: 0 for the first ID added, 1 for the next one and so on. Codes depend on the order in
+ * which tables are parsed, so they must not leak into notices.
+ *
+ * <p>All tables are read in parallel, that's why the dictionary is thread-safe. Lookups of known
+ * IDs do not lock.
+ */
+public class IdDictionary {
+  private final Map<String, Namespace> namespaces = new ConcurrentHashMap<>();
+
+  /** Returns the namespace of the given name, creating it if needed. */
+  public Namespace namespace(String name) {
+    return namespaces.computeIfAbsent(name, Namespace::new);
+  }
+
+  /** Returns the number of IDs in each namespace, sorted by name. */
+  public Map<String, Integer> sizes() {
+    Map<String, Integer> sizes = new TreeMap<>();
+    for (Namespace namespace : namespaces.values()) {
+      sizes.put(namespace.getName(), namespace.size());
+    }
+    return sizes;
+  }
+
+  /** IDs that may refer to each other, e.g., all stop IDs of a feed. */
+  public static final class Namespace {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final String name;
+    private final Map<String, Integer> codes = new ConcurrentHashMap<>();
+    // Written under the lock on this namespace before the code is published in codes, so that a
+    // code obtained from codes can always be decoded.
+    private volatile String[] ids = new String[INITIAL_CAPACITY];
+    private int size = 0;
+
+    private Namespace(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /**
+     * Returns the instance of the ID that is shared by all tables, adding the ID if it is absent.
+     *
+     * <p>If this function is called for {@code null}, it returns {@code null}.
+     */
+    @Nullable
+    public String intern(@Nullable String id) {
+      return id == null ? null : decode(encode(id));
+    }
+
+    /** Returns the code of the ID, adding the ID if it is absent. */
+    public int encode(String id) {
+      Integer code = codes.get(id);
+      return code != null ? code : add(id);
+    }
+
+    /**
+     * Returns the code of the ID, adding the ID if it is absent, or -1 if the ID is empty. An empty
+     * ID is the default value of a missing ID, so it never gets a code.
+     */
+    public int encodeIfNotEmpty(String id) {
+      return id.isEmpty() ? -1 : encode(id);
+    }
+
+    /** Returns the code of the ID or -1 if the ID was never added. */
+    public int find(String id) {
+      Integer code = codes.get(id);
+      return code != null ? code : -1;
+    }
+
+    /** Returns the ID of the given code. */
+    public String decode(int code) {
+      return ids[code];
+    }
+
+    /** Returns the number of IDs, which is also the upper bound of codes. */
+    public synchronized int size() {
+      return size;
+    }
+
+    private synchronized int add(String id) {
+      Integer code = codes.get(id);
+      if (code != null) {
+        // Added by another thread since the unlocked lookup.
+        return code;
+      }
+      String[] current = ids;
+      if (size == current.length) {
+        current = Arrays.copyOf(current, current.length * 2);
+      }
+      current[size] = id;
+      ids = current;
+      codes.put(id, size);
+      return size++;
+    }
+  }
+}
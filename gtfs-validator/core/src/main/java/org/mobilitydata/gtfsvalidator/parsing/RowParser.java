@@ -16,9 +16,8 @@
 
 package org.mobilitydata.gtfsvalidator.parsing;
 
-import com.google.i18n.phonenumbers.PhoneNumberUtil;
-import org.apache.commons.validator.routines.EmailValidator;
-import org.apache.commons.validator.routines.UrlValidator;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
 import org.mobilitydata.gtfsvalidator.notice.FieldParsingError;
 import org.mobilitydata.gtfsvalidator.notice.InvalidRowLengthError;
@@ -33,9 +32,11 @@ import org.mobilitydata.gtfsvalidator.type.GtfsTime;
 
 import javax.annotation.Nullable;
 import java.math.BigDecimal;
+import java.time.DateTimeException;
 import java.time.ZoneId;
 import java.util.Currency;
 import java.util.Locale;
+import java.util.function.Supplier;
 
 /**
  * Parses cells of a CSV row as values of requested data types.
@@ -43,38 +44,53 @@ import java.util.Locale;
  * <p>Interface functions of this class receive an instance of {@code NoticeContainer}. If a cell
  * value cannot be parsed, these functions add a notice to the container, return null and don't
  * throw an exception.
+ *
+ * <p>Malformed values are detected without exceptions as well, so that feeds with a broken column
+ * are parsed about as fast as valid ones.
  */
 public class RowParser {
   public static final boolean REQUIRED = true;
   public static final boolean OPTIONAL = false;
+  // Returned by parseInt for invalid integers.
+  private static final long INVALID_INT = Long.MIN_VALUE;
+  private static final ImmutableSet<String> ZONE_IDS =
+      ImmutableSet.copyOf(ZoneId.getAvailableZoneIds());
+  private static final ImmutableMap<String, Currency> CURRENCIES =
+      Currency.getAvailableCurrencies().stream()
+          .collect(ImmutableMap.toImmutableMap(Currency::getCurrencyCode, c -> c));
   private final NoticeContainer noticeContainer;
-  private final GtfsFeedName feedName;
-  private final ValueParser<Integer> integerParser =
-      new ValueParser("integer") {
-        @Override
-        Integer parseString(String s) {
-          return Integer.parseInt(s);
-        }
-      };
-  private final ValueParser<Double> floatParser =
-      new ValueParser("float") {
-        @Override
-        Double parseString(String s) {
-          return Double.parseDouble(s);
-        }
-      };
+  private final String countryCode;
+  private final FieldValidationCache validationCache;
   private final ValueParser<BigDecimal> decimalParser =
       new ValueParser("decimal") {
         @Override
         BigDecimal parseString(String s) {
-          return new BigDecimal(s);
+          if (!isDecimal(s)) {
+            return null;
+          }
+          try {
+            return new BigDecimal(s);
+          } catch (NumberFormatException ex) {
+            // Exponent is out of the range of BigDecimal.
+            return null;
+          }
         }
       };
   private final ValueParser<ZoneId> timezoneParser =
       new ValueParser("timezone") {
         @Override
         ZoneId parseString(String s) {
-          return ZoneId.of(s);
+          if (ZONE_IDS.contains(s)) {
+            return ZoneId.of(s);
+          }
+          if (!isZoneOffset(s)) {
+            return null;
+          }
+          try {
+            return ZoneId.of(s);
+          } catch (DateTimeException ex) {
+            return null;
+          }
         }
       };
   private final ValueParser<Locale> languageCodeParser =
@@ -89,90 +105,85 @@ public class RowParser {
       new ValueParser("color") {
         @Override
         GtfsColor parseString(String s) {
-          return GtfsColor.fromString(s);
-        }
-      };
-  private final ValueParser<Double> latitudeParser =
-      new ValueParser("latitude") {
-        @Override
-        Double parseString(String s) {
-          double d = Double.parseDouble(s);
-          if (!(-90 <= d && d <= 90)) {
-            throw new IllegalArgumentException("Latitude must be within [-90, 90]" + s);
-          }
-          return d;
-        }
-      };
-  private final ValueParser<Double> longitudeParser =
-      new ValueParser("longitude") {
-        @Override
-        Double parseString(String s) {
-          double d = Double.parseDouble(s);
-          if (!(-180 <= d && d <= 180)) {
-            throw new IllegalArgumentException("Longitude must be within [-180, 180]" + s);
-          }
-          return d;
+          return GtfsColor.tryParse(s);
         }
       };
   private final ValueParser<Currency> currencyParser =
       new ValueParser("currency") {
         @Override
         Currency parseString(String s) {
-          return Currency.getInstance(s);
+          return CURRENCIES.get(s);
         }
       };
   private final ValueParser<GtfsDate> dateParser =
       new ValueParser("date") {
         @Override
         GtfsDate parseString(String s) {
-          return GtfsDate.fromString(s);
+          return GtfsDate.tryParse(s.toCharArray(), 0, s.length());
+        }
+
+        @Override
+        GtfsDate parseChars(char[] chars, int start, int end) {
+          return GtfsDate.tryParse(chars, start, end);
         }
       };
   private final ValueParser<GtfsTime> timeParser =
       new ValueParser("time") {
         @Override
         GtfsTime parseString(String s) {
-          return GtfsTime.fromString(s);
+          return GtfsTime.tryParse(s.toCharArray(), 0, s.length());
+        }
+
+        @Override
+        GtfsTime parseChars(char[] chars, int start, int end) {
+          return GtfsTime.tryParse(chars, start, end);
         }
       };
   private final ValueParser<String> emailParser =
       new ValueParser("email") {
         @Override
         String parseString(String s) {
-          if (!EmailValidator.getInstance().isValid(s)) {
-            throw new IllegalArgumentException("Invalid email " + s);
-          }
-          return s;
+          return validationCache.isValidEmail(s) ? s : null;
         }
       };
   private final ValueParser<String> urlParser =
       new ValueParser("URL") {
         @Override
         String parseString(String s) {
-          if (!UrlValidator.getInstance().isValid(s)) {
-            throw new IllegalArgumentException("Invalid URL " + s);
-          }
-          return s;
+          return validationCache.isValidUrl(s) ? s : null;
         }
       };
   private final ValueParser<String> phoneNumberParser =
       new ValueParser("phone number") {
-        private final PhoneNumberUtil phoneUtil = PhoneNumberUtil.getInstance();
-
         @Override
         String parseString(String s) {
-          if (!phoneUtil.isPossibleNumber(s, feedName.getISOAlpha2CountryCode())) {
-            throw new IllegalArgumentException("Invalid phone number " + s);
-          }
-          return s;
+          return validationCache.isPossiblePhoneNumber(s, countryCode) ? s : null;
         }
       };
+  private final DoubleParser doubleParser = new DoubleParser();
   private CsvRow row;
   private boolean parseErrorsInRow;
+  // Set by methods that return primitive values.
+  private boolean hasValue;
 
+  /** Creates a parser with a validation cache of its own. */
   public RowParser(GtfsFeedName feedName, NoticeContainer noticeContainer) {
-    this.feedName = feedName;
+    this(feedName, noticeContainer, new FieldValidationCache());
+  }
+
+  /**
+   * Creates a parser.
+   *
+   * @param validationCache cache of validated URLs, emails and phone numbers, shared by all parsers
+   *     of the feed
+   */
+  public RowParser(
+      GtfsFeedName feedName,
+      NoticeContainer noticeContainer,
+      FieldValidationCache validationCache) {
+    this.countryCode = feedName.getISOAlpha2CountryCode();
     this.noticeContainer = noticeContainer;
+    this.validationCache = validationCache;
   }
 
   public NoticeContainer getNoticeContainer() {
@@ -188,14 +199,25 @@ public class RowParser {
     return parseErrorsInRow;
   }
 
+  /**
+   * Tells if the last call of a method that returns a primitive, such as {@link
+   * #asIntegerValue(int, boolean)}, found a value. These methods return 0 if the value is missing
+   * or cannot be parsed.
+   */
+  public boolean hasValue() {
+    return hasValue;
+  }
+
   public void checkRowColumnCount(CsvFile csvFile) {
     if (row.getColumnCount() != csvFile.getColumnCount()) {
       addErrorInRow(
-          new InvalidRowLengthError(
-              csvFile.getFileName(),
-              row.getRowNumber(),
-              row.getColumnCount(),
-              csvFile.getColumnCount()));
+          InvalidRowLengthError.CODE,
+          () ->
+              new InvalidRowLengthError(
+                  csvFile.getFileName(),
+                  row.getRowNumber(),
+                  row.getColumnCount(),
+                  csvFile.getColumnCount()));
     }
   }
 
@@ -204,12 +226,28 @@ public class RowParser {
     String s = row.asString(columnIndex);
     if (required && s == null) {
       addErrorInRow(
-          new MissingRequiredFieldError(
-              row.getFileName(), row.getRowNumber(), row.getColumnName(columnIndex)));
+          MissingRequiredFieldError.CODE,
+          () ->
+              new MissingRequiredFieldError(
+                  row.getFileName(), row.getRowNumber(), row.getColumnName(columnIndex)));
     }
     return s;
   }
 
+  /**
+   * Reports a missing value of a required column that is not parsed, e.g., because of column
+   * projection. The value itself is not looked at.
+   */
+  public void checkRequiredValue(int columnIndex) {
+    if (!row.hasValue(columnIndex)) {
+      addErrorInRow(
+          MissingRequiredFieldError.CODE,
+          () ->
+              new MissingRequiredFieldError(
+                  row.getFileName(), row.getRowNumber(), row.getColumnName(columnIndex)));
+    }
+  }
+
   @Nullable
   public String asText(int columnIndex, boolean required) {
     return asString(columnIndex, required);
@@ -252,45 +290,61 @@ public class RowParser {
 
   @Nullable
   public Double asFloat(int columnIndex, boolean required) {
-    return floatParser.parseField(columnIndex, required);
+    double value = asFloatValue(columnIndex, required);
+    return hasValue ? value : null;
   }
 
   @Nullable
   public Double asFloat(int columnIndex, boolean required, NumberBounds bounds) {
-    Double value = asFloat(columnIndex, required);
-    if (value != null) {
+    double value = asFloatValue(columnIndex, required, bounds);
+    return hasValue ? value : null;
+  }
+
+  public double asFloatValue(int columnIndex, boolean required) {
+    return asDoubleValue(columnIndex, required, "float");
+  }
+
+  public double asFloatValue(int columnIndex, boolean required, NumberBounds bounds) {
+    double value = asFloatValue(columnIndex, required);
+    if (hasValue) {
       switch (bounds) {
         case POSITIVE:
           if (value <= 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "positive float",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "positive float",
+                        value));
           }
           break;
         case NON_NEGATIVE:
           if (value < 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "non-negative float",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "non-negative float",
+                        value));
           }
           break;
         case NON_ZERO:
           if (value == 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "non-zero float",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "non-zero float",
+                        value));
           }
           break;
       }
@@ -300,55 +354,221 @@ public class RowParser {
 
   @Nullable
   public Double asLatitude(int columnIndex, boolean required) {
-    return latitudeParser.parseField(columnIndex, required);
+    double value = asLatitudeValue(columnIndex, required);
+    return hasValue ? value : null;
+  }
+
+  public double asLatitudeValue(int columnIndex, boolean required) {
+    return asCoordinateValue(columnIndex, required, "latitude", 90);
   }
 
   @Nullable
   public Double asLongitude(int columnIndex, boolean required) {
-    return longitudeParser.parseField(columnIndex, required);
+    double value = asLongitudeValue(columnIndex, required);
+    return hasValue ? value : null;
+  }
+
+  public double asLongitudeValue(int columnIndex, boolean required) {
+    return asCoordinateValue(columnIndex, required, "longitude", 180);
+  }
+
+  private double asCoordinateValue(
+      int columnIndex, boolean required, String formatName, double maxAbsValue) {
+    double value = asDoubleValue(columnIndex, required, formatName);
+    if (hasValue && !(-maxAbsValue <= value && value <= maxAbsValue)) {
+      hasValue = false;
+      addFieldParsingError(columnIndex, formatName, row.asString(columnIndex));
+      return 0;
+    }
+    return value;
+  }
+
+  /**
+   * Parses a double. Values are parsed from the characters of the row when possible, so that no
+   * string is created.
+   */
+  private double asDoubleValue(int columnIndex, boolean required, String formatName) {
+    hasValue = false;
+    if (row.hasVerbatimValue(columnIndex)) {
+      hasValue =
+          doubleParser.parse(
+              row.getBuffer(), row.getValueStart(columnIndex), row.getValueEnd(columnIndex));
+    } else {
+      String s = asString(columnIndex, required);
+      if (s == null) {
+        return 0;
+      }
+      hasValue = doubleParser.parse(s.toCharArray(), 0, s.length());
+    }
+    if (!hasValue) {
+      addFieldParsingError(columnIndex, formatName, row.asString(columnIndex));
+      return 0;
+    }
+    return doubleParser.getValue();
+  }
+
+  /**
+   * Parses an int in the same way as {@link Integer#parseInt(String)} but without throwing
+   * exceptions.
+   */
+  private int asIntValue(int columnIndex, boolean required, String formatName) {
+    hasValue = false;
+    long value;
+    if (row.hasVerbatimValue(columnIndex)) {
+      value =
+          parseInt(row.getBuffer(), row.getValueStart(columnIndex), row.getValueEnd(columnIndex));
+    } else {
+      String s = asString(columnIndex, required);
+      if (s == null) {
+        return 0;
+      }
+      value = parseInt(s.toCharArray(), 0, s.length());
+    }
+    if (value == INVALID_INT) {
+      addFieldParsingError(columnIndex, formatName, row.asString(columnIndex));
+      return 0;
+    }
+    hasValue = true;
+    return (int) value;
+  }
+
+  /** Returns the int in a range of characters or {@link #INVALID_INT}. */
+  private static long parseInt(char[] chars, int start, int end) {
+    int i = start;
+    boolean negative = false;
+    if (i < end && (chars[i] == '-' || chars[i] == '+')) {
+      negative = chars[i] == '-';
+      ++i;
+    }
+    if (i == end) {
+      return INVALID_INT;
+    }
+    long value = 0;
+    for (; i < end; ++i) {
+      // Same as Integer.parseInt, digits of other scripts are accepted.
+      final int digit = Character.digit(chars[i], 10);
+      if (digit < 0) {
+        return INVALID_INT;
+      }
+      value = value * 10 + digit;
+      if (value > -(long) Integer.MIN_VALUE) {
+        return INVALID_INT;
+      }
+    }
+    if (negative) {
+      return -value;
+    }
+    return value > Integer.MAX_VALUE ? INVALID_INT : value;
+  }
+
+  /** Tells if the string has the syntax of {@link BigDecimal#BigDecimal(String)}. */
+  private static boolean isDecimal(String s) {
+    int i = 0;
+    final int length = s.length();
+    if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+      ++i;
+    }
+    int digitCount = 0;
+    boolean seenPoint = false;
+    for (; i < length; ++i) {
+      final char c = s.charAt(i);
+      if (Character.isDigit(c)) {
+        ++digitCount;
+      } else if (c == '.' && !seenPoint) {
+        seenPoint = true;
+      } else {
+        break;
+      }
+    }
+    if (digitCount == 0) {
+      return false;
+    }
+    if (i < length && (s.charAt(i) == 'e' || s.charAt(i) == 'E')) {
+      ++i;
+      if (i < length && (s.charAt(i) == '-' || s.charAt(i) == '+')) {
+        ++i;
+      }
+      final int exponentStart = i;
+      while (i < length && Character.isDigit(s.charAt(i))) {
+        ++i;
+      }
+      if (i == exponentStart) {
+        return false;
+      }
+    }
+    return i == length;
+  }
+
+  /**
+   * Tells if the string may be a zone offset, such as "+02:00" or "UTC+2", rather than a region ID.
+   * Region IDs that are not in the time zone database are rejected without calling {@link
+   * ZoneId#of(String)}.
+   */
+  private static boolean isZoneOffset(String s) {
+    return s.equals("Z")
+        || s.startsWith("+")
+        || s.startsWith("-")
+        || s.startsWith("UT")
+        || s.startsWith("GMT");
   }
 
   @Nullable
   public Integer asInteger(int columnIndex, boolean required) {
-    return integerParser.parseField(columnIndex, required);
+    int value = asIntegerValue(columnIndex, required);
+    return hasValue ? value : null;
   }
 
   @Nullable
   public Integer asInteger(int columnIndex, boolean required, NumberBounds bounds) {
-    Integer value = asInteger(columnIndex, required);
-    if (value != null) {
+    int value = asIntegerValue(columnIndex, required, bounds);
+    return hasValue ? value : null;
+  }
+
+  public int asIntegerValue(int columnIndex, boolean required) {
+    return asIntValue(columnIndex, required, "integer");
+  }
+
+  public int asIntegerValue(int columnIndex, boolean required, NumberBounds bounds) {
+    int value = asIntegerValue(columnIndex, required);
+    if (hasValue) {
       switch (bounds) {
         case POSITIVE:
           if (value <= 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "positive integer",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "positive integer",
+                        value));
           }
           break;
         case NON_NEGATIVE:
           if (value < 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "non-negative integer",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "non-negative integer",
+                        value));
           }
           break;
         case NON_ZERO:
           if (value == 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "non-zero integer",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "non-zero integer",
+                        value));
           }
           break;
       }
@@ -370,34 +590,40 @@ public class RowParser {
         case POSITIVE:
           if (compareToZero <= 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "positive decimal",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "positive decimal",
+                        value));
           }
           break;
         case NON_NEGATIVE:
           if (compareToZero < 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "non-negative decimal",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "non-negative decimal",
+                        value));
           }
           break;
         case NON_ZERO:
           if (compareToZero == 0) {
             addErrorInRow(
-                new NumberOutOfRangeError(
-                    row.getFileName(),
-                    row.getRowNumber(),
-                    row.getColumnName(columnIndex),
-                    "non-zero decimal",
-                    value));
+                NumberOutOfRangeError.CODE,
+                () ->
+                    new NumberOutOfRangeError(
+                        row.getFileName(),
+                        row.getRowNumber(),
+                        row.getColumnName(columnIndex),
+                        "non-zero decimal",
+                        value));
           }
           break;
       }
@@ -412,23 +638,21 @@ public class RowParser {
 
   @Nullable
   public <E> Integer asEnum(int columnIndex, boolean required, EnumCreator<E> enumCreator) {
-    String s = asString(columnIndex, required);
-    if (s == null) {
-      return null;
-    }
-    int i;
-    try {
-      i = Integer.parseInt(s);
-    } catch (Exception ex) {
-      addErrorInRow(
-          new FieldParsingError(
-              row.getFileName(), row.getRowNumber(), row.getColumnName(columnIndex), "enum", s));
-      return null;
+    int value = asEnumValue(columnIndex, required, enumCreator);
+    return hasValue ? value : null;
+  }
+
+  public <E> int asEnumValue(int columnIndex, boolean required, EnumCreator<E> enumCreator) {
+    final int i = asIntValue(columnIndex, required, "enum");
+    if (!hasValue) {
+      return 0;
     }
     if (enumCreator.convert(i) == null) {
       addErrorInRow(
-          new UnexpectedEnumValueError(
-              row.getFileName(), row.getRowNumber(), row.getColumnName(columnIndex), i));
+          UnexpectedEnumValueError.CODE,
+          () ->
+              new UnexpectedEnumValueError(
+                  row.getFileName(), row.getRowNumber(), row.getColumnName(columnIndex), i));
     }
     return i;
   }
@@ -443,9 +667,29 @@ public class RowParser {
     return dateParser.parseField(columnIndex, required);
   }
 
-  private void addErrorInRow(Notice error) {
+  private void addFieldParsingError(int columnIndex, String formatName, String value) {
+    addErrorInRow(
+        FieldParsingError.CODE,
+        () ->
+            new FieldParsingError(
+                row.getFileName(),
+                row.getRowNumber(),
+                row.getColumnName(columnIndex),
+                formatName,
+                value));
+  }
+
+  /**
+   * Reports an error in the current row. The notice is not created if the notice container has
+   * reached its limit for the code, since a broken column may produce an error in every row.
+   */
+  private void addErrorInRow(String code, Supplier<Notice> noticeSupplier) {
     parseErrorsInRow = true;
-    noticeContainer.addNotice(error);
+    if (noticeContainer.hasRoomFor(code)) {
+      noticeContainer.addNotice(noticeSupplier.get());
+    } else {
+      noticeContainer.addOmittedNotice(code, row.getFileName(), row.getRowNumber());
+    }
   }
 
   public enum NumberBounds {
@@ -466,25 +710,40 @@ public class RowParser {
       this.formatName = formatName;
     }
 
+    /**
+     * Parses a value.
+     *
+     * @return the value or null if it is invalid; exceptions are not used to report invalid values
+     */
+    @Nullable
     abstract T parseString(String s);
 
+    /**
+     * Parses a value that is stored in a range of characters. Parsers of frequent types override
+     * this to avoid creating a string.
+     */
+    @Nullable
+    T parseChars(char[] chars, int start, int end) {
+      return parseString(new String(chars, start, end - start));
+    }
+
     final T parseField(int columnIndex, boolean required) {
-      String s = asString(columnIndex, required);
-      if (s == null) {
-        return null;
+      T value;
+      if (row.hasVerbatimValue(columnIndex)) {
+        value =
+            parseChars(
+                row.getBuffer(), row.getValueStart(columnIndex), row.getValueEnd(columnIndex));
+      } else {
+        String s = asString(columnIndex, required);
+        if (s == null) {
+          return null;
+        }
+        value = parseString(s);
       }
-      try {
-        return parseString(s);
-      } catch (Exception ex) {
-        addErrorInRow(
-            new FieldParsingError(
-                row.getFileName(),
-                row.getRowNumber(),
-                row.getColumnName(columnIndex),
-                formatName,
-                s));
-        return null;
+      if (value == null) {
+        addFieldParsingError(columnIndex, formatName, row.asString(columnIndex));
       }
+      return value;
     }
   }
 }
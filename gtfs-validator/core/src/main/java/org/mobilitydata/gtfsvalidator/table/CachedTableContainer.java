@@ -0,0 +1,58 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stands for a table that was not loaded because its notices were taken from {@code
+ * ValidationResultCache}.
+ *
+ * <p>The container has no entities but it reports the number of entities that the table had when
+ * it was validated, so that the table is still listed in the totals of the feed.
+ */
+public class CachedTableContainer extends GtfsTableContainer<GtfsEntity> {
+  private final String gtfsFilename;
+  private final int entityCount;
+
+  public CachedTableContainer(String gtfsFilename, int entityCount) {
+    this.gtfsFilename = gtfsFilename;
+    this.entityCount = entityCount;
+  }
+
+  @Override
+  public Class<GtfsEntity> getEntityClass() {
+    return GtfsEntity.class;
+  }
+
+  @Override
+  public int entityCount() {
+    return entityCount;
+  }
+
+  /** Returns an empty list because the entities were never loaded. */
+  @Override
+  public List<GtfsEntity> getEntities() {
+    return Collections.emptyList();
+  }
+
+  @Override
+  public String gtfsFilename() {
+    return gtfsFilename;
+  }
+}
@@ -35,14 +35,24 @@ public class GtfsFeedContainer {
   public GtfsFeedContainer(List<GtfsTableContainer> tableContainerList) {
     for (GtfsTableContainer table : tableContainerList) {
       tables.put(table.gtfsFilename(), table);
-      tablesByClass.put(table.getClass(), table);
+      if (!(table instanceof CachedTableContainer)) {
+        tablesByClass.put(table.getClass(), table);
+      }
     }
   }
 
+  /**
+   * Returns the table for the given file. Tables that were not loaded because their results were
+   * cached are returned as {@link CachedTableContainer}.
+   */
   public GtfsTableContainer getTable(String filename) {
     return tables.get(filename);
   }
 
+  /**
+   * Returns the loaded table of the given class or null if the table was not loaded because its
+   * results were cached.
+   */
   public <T extends GtfsTableContainer> T getTable(Class<T> clazz) {
     return (T) tablesByClass.get(clazz);
   }
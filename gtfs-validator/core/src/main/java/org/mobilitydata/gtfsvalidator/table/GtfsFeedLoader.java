@@ -17,69 +17,75 @@
 package org.mobilitydata.gtfsvalidator.table;
 
 import com.google.common.flogger.FluentLogger;
-import com.google.common.reflect.ClassPath;
-import org.mobilitydata.gtfsvalidator.annotation.GtfsLoader;
 import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
 import org.mobilitydata.gtfsvalidator.input.GtfsInput;
+import org.mobilitydata.gtfsvalidator.notice.IOError;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.UnknownFileNotice;
+import org.mobilitydata.gtfsvalidator.parsing.ChunkedCsvParser;
+import org.mobilitydata.gtfsvalidator.parsing.FieldValidationCache;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
 import org.mobilitydata.gtfsvalidator.validator.FileValidator;
+import org.mobilitydata.gtfsvalidator.validator.GtfsComponentRegistry;
 import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
 
-import java.io.BufferedReader;
+import javax.annotation.Nullable;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Callable;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * Loader for a whole GTFS feed with all its CSV files.
  *
- * <p>The loader creates a {@code GtfsFeedContainer} object. Loaders for particular tables are
+ * <p>The loader creates a {@code GtfsFeedContainer} object. Loaders for particular tables are taken
+ * from registries generated by the annotation processor. Loaders that no registry covers may be
  * discovered dynamically based on {@code GtfsLoader} annotation.
  */
 public class GtfsFeedLoader {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final String MISSING_FILE_FINGERPRINT = "missing";
+  private static final int DEFAULT_MAX_NOTICES_PER_FILE = 100_000;
   private final HashMap<String, GtfsTableLoader> tableLoaders = new HashMap<>();
+  private final Map<Class<?>, String> tableNamesByContainerClass = new HashMap<>();
   private int numThreads = 1;
+  private boolean parseInChunks = false;
+  private int maxNoticesPerFile = DEFAULT_MAX_NOTICES_PER_FILE;
+  @Nullable private ExecutorService sharedExecutor;
+  @Nullable private ValidationResultCache resultCache;
 
   public GtfsFeedLoader() {
-    ClassPath classPath;
-    try {
-      classPath = ClassPath.from(getClass().getClassLoader());
-    } catch (IOException exception) {
-      throw new RuntimeException(exception);
-    }
-    for (ClassPath.ClassInfo classInfo :
-        classPath.getTopLevelClassesRecursive("org.mobilitydata.gtfsvalidator.table")) {
-      Class<?> clazz = classInfo.load();
-      if (!(clazz.isAnnotationPresent(GtfsLoader.class)
-          && GtfsTableLoader.class.isAssignableFrom(clazz))) {
-        continue;
-      }
-      GtfsTableLoader loader;
-      try {
-        loader = clazz.asSubclass(GtfsTableLoader.class).getConstructor().newInstance();
-      } catch (ReflectiveOperationException e) {
-        logger.atSevere().withCause(e).log(
-            "Possible bug in GTFS annotation processor: expected a constructor without parameters for %s",
-            clazz.getName());
-        continue;
+    this(false);
+  }
+
+  /**
+   * Creates a loader with table loaders from the generated registries.
+   *
+   * @param scanClassPath whether to also scan the class path for table loaders that no registry
+   *     covers
+   */
+  public GtfsFeedLoader(boolean scanClassPath) {
+    for (GtfsComponentRegistry registry : GtfsComponentRegistry.loadAll(scanClassPath)) {
+      for (GtfsTableLoader<?> loader : registry.createTableLoaders()) {
+        addTableLoader(loader);
       }
-      tableLoaders.put(loader.gtfsFilename(), loader);
     }
   }
 
-  private static Reader createFileReader(InputStream stream) {
-    return new BufferedReader(new InputStreamReader(stream));
+  private void addTableLoader(GtfsTableLoader<?> loader) {
+    tableLoaders.put(loader.gtfsFilename(), loader);
+    tableNamesByContainerClass.put(loader.getTableContainerClass(), loader.gtfsFilename());
   }
 
   public String listTableLoaders() {
@@ -90,84 +96,370 @@ public class GtfsFeedLoader {
     this.numThreads = numThreads;
   }
 
+  /**
+   * Makes the loader split large files into chunks that are parsed in parallel, so that the threads
+   * are not left idle while a single large table, e.g., stop_times.txt, is parsed.
+   */
+  public void setParseInChunks(boolean parseInChunks) {
+    this.parseInChunks = parseInChunks;
+  }
+
+  /**
+   * Limits the number of notices of each code that are stored for a single file while it is loaded.
+   * Further notices are only counted and a sample of their row numbers is kept, so a file with a
+   * broken column in every row does not exhaust the memory.
+   *
+   * @param maxNoticesPerFile the limit or {@link NoticeContainer#UNLIMITED}
+   */
+  public void setMaxNoticesPerFile(int maxNoticesPerFile) {
+    this.maxNoticesPerFile = maxNoticesPerFile;
+  }
+
+  public int getMaxNoticesPerFile() {
+    return maxNoticesPerFile;
+  }
+
+  /**
+   * Makes the loader run its tasks on the given executor instead of creating a new thread pool for
+   * each feed. The executor is not shut down by the loader.
+   *
+   * <p>Several feeds may be loaded at the same time on a shared executor. Feeds may even be loaded
+   * by tasks of the executor itself if it is a {@code ForkJoinPool}: the loader waits for the
+   * tables and validators of a feed through {@link ForkJoinPool#managedBlock}, so the pool starts
+   * spare threads while its workers are blocked and the tasks they wait for still get to run.
+   *
+   * @param sharedExecutor the executor or null to create a pool of {@link #setNumThreads} threads
+   *     for each feed
+   */
+  public void setExecutor(@Nullable ExecutorService sharedExecutor) {
+    this.sharedExecutor = sharedExecutor;
+  }
+
+  /**
+   * Enables reuse of validation results for files that did not change since a previous run.
+   *
+   * <p>Notices of a table are taken from the cache if a file with the same fingerprint was already
+   * validated. Such table is not even parsed unless a multi-file validator that depends on it has
+   * to be run because some other of its tables changed.
+   *
+   * @param resultCache the cache or null to validate all files
+   */
+  public void setResultCache(@Nullable ValidationResultCache resultCache) {
+    this.resultCache = resultCache;
+  }
+
   public GtfsFeedContainer loadAndValidate(
       GtfsInput gtfsInput,
       GtfsFeedName feedName,
       ValidatorLoader validatorLoader,
       NoticeContainer noticeContainer) {
-    logger.atInfo().log("Loading in %d threads", numThreads);
-    ExecutorService exec = Executors.newFixedThreadPool(numThreads);
-
-    List<Callable<TableAndNoticeContainers>> loaderCallables = new ArrayList<>();
-    Map<String, GtfsTableLoader> remainingLoaders =
-        (Map<String, GtfsTableLoader>) tableLoaders.clone();
-    for (String filename : gtfsInput.getFilenames()) {
-      GtfsTableLoader loader = remainingLoaders.remove(filename.toLowerCase());
-      if (loader == null) {
-        noticeContainer.addNotice(new UnknownFileNotice(filename));
-      } else {
-        loaderCallables.add(
-            () -> {
-              Reader reader = createFileReader(gtfsInput.getFile(filename));
-              NoticeContainer loaderNotices = new NoticeContainer();
-              GtfsTableContainer tableContainer;
-              try {
-                tableContainer = loader.load(reader, feedName, validatorLoader, loaderNotices);
-              } finally {
-                reader.close();
-              }
-              return new TableAndNoticeContainers(tableContainer, loaderNotices);
-            });
-      }
+    CachedResults cachedResults = findCachedResults(gtfsInput, feedName, validatorLoader);
+    ExecutorService exec;
+    if (sharedExecutor == null) {
+      logger.atInfo().log("Loading in %d threads", numThreads);
+      exec = Executors.newFixedThreadPool(numThreads);
+    } else {
+      exec = sharedExecutor;
     }
+
+    ChunkedCsvParser chunkedParser =
+        parseInChunks ? new ChunkedCsvParser(exec, numThreads) : ChunkedCsvParser.sequential();
+    IdDictionary idDictionary = new IdDictionary();
+    FieldValidationCache validationCache = new FieldValidationCache();
+
     ArrayList<GtfsTableContainer> tableContainers = new ArrayList<>();
     tableContainers.ensureCapacity(tableLoaders.size());
-    for (GtfsTableLoader loader : remainingLoaders.values()) {
-      tableContainers.add(loader.loadMissingFile(validatorLoader, noticeContainer));
-    }
+    Map<String, Future<TableAndNoticeContainers>> loaderFutures = new LinkedHashMap<>();
+    Map<String, GtfsTableLoader> remainingLoaders =
+        (Map<String, GtfsTableLoader>) tableLoaders.clone();
+    boolean inputComplete = true;
     try {
       try {
-        exec.invokeAll(loaderCallables)
-            .forEach(
-                f -> {
-                  try {
-                    TableAndNoticeContainers containers = f.get();
-                    tableContainers.add(containers.tableContainer);
-                    noticeContainer.addAll(containers.noticeContainer);
-                  } catch (ExecutionException | InterruptedException e) {
-                    e.printStackTrace();
-                  }
-                });
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+        // Streaming inputs need each file to be opened before the next one arrives, so that they
+        // can start parsing a file before the rest of the feed is received. Other inputs open
+        // files in the loader tasks, so that no I/O thread or connection is held by a file that
+        // waits for its turn.
+        boolean openInArrivalOrder = gtfsInput.opensFilesInArrivalOrder();
+        for (String filename : gtfsInput.getFilenamesInArrivalOrder()) {
+          String tableName = filename.toLowerCase();
+          GtfsTableLoader loader = remainingLoaders.remove(tableName);
+          if (loader == null) {
+            noticeContainer.addNotice(new UnknownFileNotice(filename));
+            continue;
+          }
+          ValidationResultCache.TableResult cachedTable =
+              cachedResults.skippedTables.get(tableName);
+          if (cachedTable != null) {
+            noticeContainer.addAll(cachedTable.getNotices());
+            tableContainers.add(
+                new CachedTableContainer(loader.gtfsFilename(), cachedTable.getEntityCount()));
+            continue;
+          }
+          String fingerprint = cachedResults.fingerprints.get(tableName);
+          Reader openedReader = null;
+          if (openInArrivalOrder) {
+            try {
+              openedReader = gtfsInput.getFileReader(filename);
+            } catch (IOException e) {
+              logger.atSevere().withCause(e).log("Cannot read %s", filename);
+              noticeContainer.addNotice(new IOError(filename, e));
+              continue;
+            }
+          }
+          Reader arrivedReader = openedReader;
+          loaderFutures.put(
+              filename,
+              exec.submit(
+                  () -> {
+                    Reader reader =
+                        arrivedReader != null ? arrivedReader : gtfsInput.getFileReader(filename);
+                    NoticeContainer loaderNotices = new NoticeContainer(maxNoticesPerFile);
+                    GtfsTableContainer tableContainer;
+                    try {
+                      tableContainer =
+                          loader.load(
+                              reader,
+                              feedName,
+                              validatorLoader,
+                              loaderNotices,
+                              chunkedParser,
+                              idDictionary,
+                              validationCache);
+                    } finally {
+                      reader.close();
+                    }
+                    if (fingerprint != null) {
+                      resultCache.putTable(
+                          tableKey(feedName, tableName, fingerprint),
+                          loaderNotices,
+                          tableContainer.entityCount());
+                    }
+                    return new TableAndNoticeContainers(tableContainer, loaderNotices);
+                  }));
+        }
+      } catch (UncheckedIOException e) {
+        logger.atSevere().withCause(e).log("Cannot read the list of files");
+        noticeContainer.addNotice(new IOError(e.getCause()));
+        inputComplete = false;
+      }
+      // Files that may still have been in the input when it failed are not reported as missing.
+      NoticeContainer missingFileNotices = inputComplete ? noticeContainer : new NoticeContainer();
+      for (GtfsTableLoader loader : remainingLoaders.values()) {
+        tableContainers.add(loader.loadMissingFile(validatorLoader, missingFileNotices));
+      }
+      for (Map.Entry<String, Future<TableAndNoticeContainers>> entry : loaderFutures.entrySet()) {
+        try {
+          TableAndNoticeContainers containers = await(entry.getValue());
+          tableContainers.add(containers.tableContainer);
+          noticeContainer.addAll(containers.noticeContainer);
+        } catch (ExecutionException e) {
+          IOException ioException = findIOException(e);
+          if (ioException == null) {
+            e.printStackTrace();
+            continue;
+          }
+          logger.atSevere().withCause(ioException).log("Cannot read %s", entry.getKey());
+          noticeContainer.addNotice(new IOError(entry.getKey(), ioException));
+        } catch (InterruptedException e) {
+          e.printStackTrace();
+        }
       }
       GtfsFeedContainer feed = new GtfsFeedContainer(tableContainers);
-      List<Callable<NoticeContainer>> validatorCallables = new ArrayList<>();
-      for (FileValidator validator : validatorLoader.createMultiFileValidators(feed)) {
-        validatorCallables.add(
-            () -> {
-              NoticeContainer validatorNotices = new NoticeContainer();
-              validator.validate(validatorNotices);
-              return validatorNotices;
-            });
+      validationCache.logStatistics();
+      logger.atInfo().log("IDs in dictionary: %s", idDictionary.sizes());
+      if (!inputComplete) {
+        // Cross-file checks against tables that never arrived would only report false errors.
+        logger.atWarning().log("Skipping multi-file validators because the input is incomplete");
+        return feed;
       }
-      try {
-        exec.invokeAll(validatorCallables)
-            .forEach(
-                container -> {
-                  try {
-                    noticeContainer.addAll(container.get());
-                  } catch (ExecutionException | InterruptedException e) {
-                    e.printStackTrace();
+      for (NoticeContainer cachedNotices : cachedResults.skippedValidators.values()) {
+        noticeContainer.addAll(cachedNotices);
+      }
+      List<Future<NoticeContainer>> validatorFutures = new ArrayList<>();
+      for (FileValidator validator :
+          validatorLoader.createMultiFileValidators(
+              feed, clazz -> !cachedResults.skippedValidators.containsKey(clazz))) {
+        String key = cachedResults.validatorKeys.get(validator.getClass());
+        validatorFutures.add(
+            exec.submit(
+                () -> {
+                  NoticeContainer validatorNotices = new NoticeContainer();
+                  validator.validate(validatorNotices);
+                  if (key != null) {
+                    resultCache.put(key, validatorNotices);
                   }
-                });
-      } catch (InterruptedException e) {
-        e.printStackTrace();
+                  return validatorNotices;
+                }));
+      }
+      for (Future<NoticeContainer> future : validatorFutures) {
+        try {
+          noticeContainer.addAll(await(future));
+        } catch (ExecutionException | InterruptedException e) {
+          e.printStackTrace();
+        }
       }
       return feed;
     } finally {
-      exec.shutdown();
+      if (exec != sharedExecutor) {
+        exec.shutdown();
+      }
+    }
+  }
+
+  /**
+   * Waits for a task of the executor. When called by a worker of a {@code ForkJoinPool}, the pool
+   * is told that the worker blocks, so that the task is not starved of threads.
+   */
+  private static <T> T await(Future<T> future) throws ExecutionException, InterruptedException {
+    ForkJoinPool.managedBlock(
+        new ForkJoinPool.ManagedBlocker() {
+          @Override
+          public boolean block() throws InterruptedException {
+            try {
+              future.get();
+            } catch (ExecutionException e) {
+              // Thrown again by get() below.
+            }
+            return true;
+          }
+
+          @Override
+          public boolean isReleasable() {
+            return future.isDone();
+          }
+        });
+    return future.get();
+  }
+
+  @Nullable
+  private static IOException findIOException(Throwable throwable) {
+    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+      if (cause instanceof IOException) {
+        return (IOException) cause;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Looks up the cache for results of unchanged files and decides which tables and validators may
+   * be skipped.
+   */
+  private CachedResults findCachedResults(
+      GtfsInput gtfsInput, GtfsFeedName feedName, ValidatorLoader validatorLoader) {
+    CachedResults cachedResults = new CachedResults();
+    if (resultCache == null) {
+      return cachedResults;
+    }
+    Set<String> presentTables = new HashSet<>();
+    Map<String, ValidationResultCache.TableResult> cachedTables = new HashMap<>();
+    for (String filename : gtfsInput.getFilenames()) {
+      String tableName = filename.toLowerCase();
+      if (!tableLoaders.containsKey(tableName)) {
+        continue;
+      }
+      presentTables.add(tableName);
+      String fingerprint;
+      try {
+        fingerprint = gtfsInput.getFileFingerprint(filename);
+      } catch (IOException e) {
+        logger.atWarning().withCause(e).log("Cannot get fingerprint of %s", filename);
+        continue;
+      }
+      if (fingerprint == null) {
+        continue;
+      }
+      cachedResults.fingerprints.put(tableName, fingerprint);
+      ValidationResultCache.TableResult cachedTable =
+          resultCache.getTable(tableKey(feedName, tableName, fingerprint));
+      if (cachedTable != null) {
+        cachedTables.put(tableName, cachedTable);
+      }
+    }
+
+    // Tables that are injected into validators which need to be run cannot be skipped.
+    Set<String> neededTables = new HashSet<>();
+    for (Class<? extends FileValidator> validatorClass :
+        validatorLoader.getMultiFileValidatorClasses()) {
+      List<Class<? extends GtfsTableContainer<?>>> dependencies =
+          validatorLoader.getMultiFileValidatorDependencies(validatorClass);
+      String key = validatorKey(validatorClass, dependencies, presentTables, cachedResults);
+      NoticeContainer notices = key == null ? null : resultCache.get(key);
+      if (notices != null) {
+        cachedResults.skippedValidators.put(validatorClass, notices);
+        continue;
+      }
+      if (key != null) {
+        cachedResults.validatorKeys.put(validatorClass, key);
+      }
+      for (Class<? extends GtfsTableContainer<?>> tableClass : dependencies) {
+        neededTables.add(tableNamesByContainerClass.get(tableClass));
+      }
+    }
+    for (Map.Entry<String, ValidationResultCache.TableResult> entry : cachedTables.entrySet()) {
+      if (!neededTables.contains(entry.getKey())) {
+        cachedResults.skippedTables.put(entry.getKey(), entry.getValue());
+      }
     }
+    logger.atInfo().log(
+        "Reusing cached results of %d tables and %d multi-file validators",
+        cachedResults.skippedTables.size(), cachedResults.skippedValidators.size());
+    return cachedResults;
+  }
+
+  private String tableKey(GtfsFeedName feedName, String tableName, String fingerprint) {
+    // Parsing depends on the feed name, e.g., phone numbers are parsed for the feed's country.
+    return String.join(
+        "\n",
+        "table",
+        feedName.getCountryFirstName(),
+        "max notices " + maxNoticesPerFile,
+        tableName,
+        fingerprint);
+  }
+
+  /**
+   * Returns the cache key for a multi-file validator or null if some of its tables have no
+   * fingerprint.
+   */
+  @Nullable
+  private String validatorKey(
+      Class<? extends FileValidator> validatorClass,
+      List<Class<? extends GtfsTableContainer<?>>> dependencies,
+      Set<String> presentTables,
+      CachedResults cachedResults) {
+    StringBuilder key =
+        new StringBuilder("validator\nmax notices ")
+            .append(maxNoticesPerFile)
+            .append('\n')
+            .append(validatorClass.getName());
+    for (Class<? extends GtfsTableContainer<?>> tableClass : dependencies) {
+      String tableName = tableNamesByContainerClass.get(tableClass);
+      if (tableName == null) {
+        return null;
+      }
+      String fingerprint =
+          presentTables.contains(tableName)
+              ? cachedResults.fingerprints.get(tableName)
+              : MISSING_FILE_FINGERPRINT;
+      if (fingerprint == null) {
+        return null;
+      }
+      key.append('\n').append(tableName).append('=').append(fingerprint);
+    }
+    return key.toString();
+  }
+
+  /** Results of a previous validation that are reused for unchanged files. */
+  private static class CachedResults {
+    // Fingerprints of input files, keyed by table name.
+    final Map<String, String> fingerprints = new HashMap<>();
+    // Notices and entity counts of tables that are not loaded, keyed by table name.
+    final Map<String, ValidationResultCache.TableResult> skippedTables = new HashMap<>();
+    // Notices of multi-file validators that are not run.
+    final Map<Class<? extends FileValidator>, NoticeContainer> skippedValidators = new HashMap<>();
+    // Cache keys to store results of multi-file validators that are run.
+    final Map<Class<? extends FileValidator>, String> validatorKeys = new HashMap<>();
   }
 
   static class TableAndNoticeContainers {
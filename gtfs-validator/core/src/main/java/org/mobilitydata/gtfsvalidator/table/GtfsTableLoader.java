@@ -18,6 +18,9 @@ package org.mobilitydata.gtfsvalidator.table;
 
 import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.parsing.ChunkedCsvParser;
+import org.mobilitydata.gtfsvalidator.parsing.FieldValidationCache;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
 import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
 
 import java.io.Reader;
@@ -34,17 +37,44 @@ import java.util.Set;
 public abstract class GtfsTableLoader<T extends GtfsEntity> {
   public abstract String gtfsFilename();
 
+  public abstract Class<? extends GtfsTableContainer<T>> getTableContainerClass();
+
   public abstract boolean isRequired();
 
   public abstract Set<String> getColumnNames();
 
   public abstract Set<String> getRequiredColumnNames();
 
+  public GtfsTableContainer<T> load(
+      Reader reader,
+      GtfsFeedName feedName,
+      ValidatorLoader validatorLoader,
+      NoticeContainer noticeContainer) {
+    return load(
+        reader,
+        feedName,
+        validatorLoader,
+        noticeContainer,
+        ChunkedCsvParser.sequential(),
+        new IdDictionary(),
+        new FieldValidationCache());
+  }
+
+  /**
+   * Loads the table, parsing its rows with the given parser.
+   *
+   * @param chunkedParser parses the rows either sequentially or in chunks on several threads
+   * @param idDictionary dictionary of IDs shared by all tables of the feed
+   * @param validationCache cache of validated field values shared by all tables of the feed
+   */
   public abstract GtfsTableContainer<T> load(
       Reader reader,
       GtfsFeedName feedName,
       ValidatorLoader validatorLoader,
-      NoticeContainer noticeContainer);
+      NoticeContainer noticeContainer,
+      ChunkedCsvParser chunkedParser,
+      IdDictionary idDictionary,
+      FieldValidationCache validationCache);
 
   public abstract GtfsTableContainer<T> loadMissingFile(
       ValidatorLoader validatorLoader, NoticeContainer noticeContainer);
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Index of rows of a table by a primary key that is an ID, e.g., stops by stop_id.
+ *
+ * <p>The row of each key is kept in an array by the code of the key in a namespace of {@link
+ * IdDictionary}. The empty key, which is the default value of a missing ID, has its own slot.
+ *
+ * <p>Rows are added on a single thread while the table is set up. Lookups may then be done from any
+ * thread.
+ */
+public final class PrimaryKeyIndex {
+  private final IdDictionary.Namespace namespace;
+  // Row of each code, shifted by one so that slot 0 holds the row of the empty key. -1 if no row
+  // has the code.
+  private int[] rowBySlot;
+
+  public PrimaryKeyIndex(IdDictionary.Namespace namespace) {
+    this.namespace = namespace;
+    this.rowBySlot = new int[namespace.size() + 1];
+    Arrays.fill(rowBySlot, -1);
+  }
+
+  public IdDictionary.Namespace getNamespace() {
+    return namespace;
+  }
+
+  /**
+   * Adds the row of the key unless another row already has the key.
+   *
+   * @return the row that already has the key or -1 if the row was added
+   */
+  public int putIfAbsent(String key, int row) {
+    int slot = namespace.encodeIfNotEmpty(key) + 1;
+    if (slot >= rowBySlot.length) {
+      int oldLength = rowBySlot.length;
+      rowBySlot = Arrays.copyOf(rowBySlot, Math.max(slot + 1, 2 * oldLength));
+      Arrays.fill(rowBySlot, oldLength, rowBySlot.length, -1);
+    }
+    int oldRow = rowBySlot[slot];
+    if (oldRow == -1) {
+      rowBySlot[slot] = row;
+    }
+    return oldRow;
+  }
+
+  /** Returns the row of the key or -1 if no row has the key. */
+  public int findRow(String key) {
+    if (key.isEmpty()) {
+      return rowOfSlot(0);
+    }
+    int code = namespace.find(key);
+    return code == -1 ? -1 : rowOfSlot(code + 1);
+  }
+
+  /** Returns the row of the code or -1 if no row has it. */
+  public int findRowByCode(int code) {
+    return rowOfSlot(code + 1);
+  }
+
+  private int rowOfSlot(int slot) {
+    return slot < rowBySlot.length ? rowBySlot[slot] : -1;
+  }
+
+  /** Returns a new set of the codes of all keys, e.g., to check foreign keys. */
+  public BitSet keyCodes() {
+    BitSet codes = new BitSet(rowBySlot.length - 1);
+    for (int slot = 1; slot < rowBySlot.length; ++slot) {
+      if (rowBySlot[slot] != -1) {
+        codes.set(slot - 1);
+      }
+    }
+    return codes;
+  }
+}
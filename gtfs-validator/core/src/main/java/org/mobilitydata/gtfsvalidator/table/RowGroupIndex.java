@@ -0,0 +1,499 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
+
+import javax.annotation.Nullable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Index of rows of a table grouped by an ID, e.g., stop times by trip_id.
+ *
+ * <p>Instead of a list for each key, the rows of all groups are stored in a single array, ordered
+ * by group and, within a group, by an optional sequence key. The group of each key is a range of
+ * that array. Groups are numbered in the order of their first row in the table.
+ *
+ * <p>Keys are given as codes of a namespace of {@link IdDictionary}, so the group of each code is
+ * kept in an array and no key is hashed while the index is built. Code -1 stands for rows without a
+ * key, which are found by the empty key, the default value of IDs.
+ *
+ * <p>Rows are numbers from 0 to the number of rows of the table, so the index may be used both for
+ * a list of entities and for columns. Lists returned for a group are views that map rows to
+ * entities on access.
+ */
+public final class RowGroupIndex {
+  // Groups are split into tasks of at least this many rows for parallel processing, so that small
+  // tables are processed on the calling thread.
+  static final int MIN_ROWS_PER_TASK = 1 << 14;
+
+  private final IdDictionary.Namespace namespace;
+  // Group of each code, shifted by one so that slot 0 holds rows without a key. -1 if no row has
+  // the
+  // code.
+  private final int[] groupBySlot;
+  private final int[] keyCodes;
+  // Rows of group g are rows[groupStarts[g]] to rows[groupStarts[g + 1] - 1].
+  private final int[] groupStarts;
+  private final int[] rows;
+
+  private RowGroupIndex(
+      IdDictionary.Namespace namespace,
+      int[] groupBySlot,
+      int[] keyCodes,
+      int[] groupStarts,
+      int[] rows) {
+    this.namespace = namespace;
+    this.groupBySlot = groupBySlot;
+    this.keyCodes = keyCodes;
+    this.groupStarts = groupStarts;
+    this.rows = rows;
+  }
+
+  /**
+   * Groups rows by key, keeping the order of rows within each group.
+   *
+   * @param namespace namespace of the codes of keys
+   * @param rowCount number of rows of the table
+   * @param codeOfRow returns the code of the key of a row or -1 if the row has no key
+   */
+  public static RowGroupIndex create(
+      IdDictionary.Namespace namespace, int rowCount, IntUnaryOperator codeOfRow) {
+    int[] groupBySlot = newSlots(namespace);
+    int[] keyCodes = new int[16];
+    int[] groupOfRow = new int[rowCount];
+    int[] groupSizes = new int[16];
+    int groupCount = 0;
+    for (int row = 0; row < rowCount; ++row) {
+      int code = codeOfRow.applyAsInt(row);
+      groupBySlot = ensureSlot(groupBySlot, code + 1);
+      int group = groupBySlot[code + 1];
+      if (group == -1) {
+        group = groupCount++;
+        groupBySlot[code + 1] = group;
+        if (group == keyCodes.length) {
+          keyCodes = Arrays.copyOf(keyCodes, keyCodes.length * 2);
+          groupSizes = Arrays.copyOf(groupSizes, groupSizes.length * 2);
+        }
+        keyCodes[group] = code;
+      }
+      groupOfRow[row] = group;
+      ++groupSizes[group];
+    }
+    int[] groupStarts = new int[groupCount + 1];
+    for (int group = 0; group < groupCount; ++group) {
+      groupStarts[group + 1] = groupStarts[group] + groupSizes[group];
+    }
+    // Counting sort, which keeps the order of rows within a group.
+    int[] nextPosition = Arrays.copyOf(groupStarts, groupCount);
+    int[] rows = new int[rowCount];
+    for (int row = 0; row < rowCount; ++row) {
+      rows[nextPosition[groupOfRow[row]]++] = row;
+    }
+    return new RowGroupIndex(
+        namespace, groupBySlot, Arrays.copyOf(keyCodes, groupCount), groupStarts, rows);
+  }
+
+  /**
+   * Groups rows by key and sorts each group by a sequence key, e.g., stop_sequence. Rows with the
+   * same sequence key keep their order.
+   *
+   * @param namespace namespace of the codes of keys
+   * @param rowCount number of rows of the table
+   * @param codeOfRow returns the code of the key of a row or -1 if the row has no key
+   * @param sequenceOfRow returns the sequence key of a row
+   */
+  public static RowGroupIndex create(
+      IdDictionary.Namespace namespace,
+      int rowCount,
+      IntUnaryOperator codeOfRow,
+      IntUnaryOperator sequenceOfRow) {
+    RowGroupIndex index = create(namespace, rowCount, codeOfRow);
+    int[] taskGroups = index.splitGroups(MIN_ROWS_PER_TASK);
+    // Tasks sort disjoint ranges of rows, each with its own scratch array.
+    IntStream.range(0, taskGroups.length - 1)
+        .parallel()
+        .forEach(task -> index.sortGroups(taskGroups[task], taskGroups[task + 1], sequenceOfRow));
+    return index;
+  }
+
+  /**
+   * Groups rows that are already grouped by key, so that each run of rows with the same key is a
+   * group. No rows are sorted.
+   *
+   * @param namespace namespace of the codes of keys
+   * @param rowCount number of rows of the table
+   * @param codeOfRow returns the code of the key of a row or -1 if the row has no key
+   * @return the index or null if rows of some key are not adjacent
+   */
+  @Nullable
+  public static RowGroupIndex createFromRuns(
+      IdDictionary.Namespace namespace, int rowCount, IntUnaryOperator codeOfRow) {
+    int[] groupBySlot = newSlots(namespace);
+    int[] keyCodes = new int[16];
+    int[] groupStarts = new int[16];
+    int groupCount = 0;
+    int runCode = 0;
+    for (int row = 0; row < rowCount; ++row) {
+      int code = codeOfRow.applyAsInt(row);
+      if (row > 0 && code == runCode) {
+        continue;
+      }
+      groupBySlot = ensureSlot(groupBySlot, code + 1);
+      if (groupBySlot[code + 1] != -1) {
+        // The key already had an earlier run.
+        return null;
+      }
+      int group = groupCount++;
+      groupBySlot[code + 1] = group;
+      if (group + 1 == groupStarts.length) {
+        keyCodes = Arrays.copyOf(keyCodes, keyCodes.length * 2);
+        groupStarts = Arrays.copyOf(groupStarts, groupStarts.length * 2);
+      }
+      keyCodes[group] = code;
+      groupStarts[group] = row;
+      runCode = code;
+    }
+    groupStarts[groupCount] = rowCount;
+    int[] rows = new int[rowCount];
+    for (int row = 0; row < rowCount; ++row) {
+      rows[row] = row;
+    }
+    return new RowGroupIndex(
+        namespace,
+        groupBySlot,
+        Arrays.copyOf(keyCodes, groupCount),
+        Arrays.copyOf(groupStarts, groupCount + 1),
+        rows);
+  }
+
+  /** Returns slots for all codes of the namespace, none of which has a group yet. */
+  private static int[] newSlots(IdDictionary.Namespace namespace) {
+    int[] slots = new int[namespace.size() + 1];
+    Arrays.fill(slots, -1);
+    return slots;
+  }
+
+  /** Grows the slots for codes that were added to the namespace since they were created. */
+  private static int[] ensureSlot(int[] slots, int slot) {
+    if (slot < slots.length) {
+      return slots;
+    }
+    int oldLength = slots.length;
+    int[] grown = Arrays.copyOf(slots, Math.max(slot + 1, 2 * oldLength));
+    Arrays.fill(grown, oldLength, grown.length, -1);
+    return grown;
+  }
+
+  /**
+   * Tells if the sequence key never decreases between adjacent rows with the same key. This takes a
+   * single pass with constant memory.
+   *
+   * @param rowCount number of rows of the table
+   * @param codeOfRow returns the code of the key of a row or -1 if the row has no key
+   * @param sequenceOfRow returns the sequence key of a row
+   */
+  public static boolean isSortedWithinRuns(
+      int rowCount, IntUnaryOperator codeOfRow, IntUnaryOperator sequenceOfRow) {
+    for (int row = 1; row < rowCount; ++row) {
+      if (sequenceOfRow.applyAsInt(row) < sequenceOfRow.applyAsInt(row - 1)
+          && codeOfRow.applyAsInt(row) == codeOfRow.applyAsInt(row - 1)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void sortGroups(int fromGroup, int toGroup, IntUnaryOperator sequenceOfRow) {
+    long[] scratch = new long[0];
+    for (int group = fromGroup; group < toGroup; ++group) {
+      int start = groupStarts[group];
+      int end = groupStarts[group + 1];
+      if (end - start < 2) {
+        continue;
+      }
+      if (scratch.length < end - start) {
+        scratch = new long[end - start];
+      }
+      // Sort (sequence, row) pairs packed into longs, so that no objects are created and ties are
+      // broken by row.
+      for (int i = start; i < end; ++i) {
+        scratch[i - start] = ((long) sequenceOfRow.applyAsInt(rows[i]) << 32) | rows[i];
+      }
+      Arrays.sort(scratch, 0, end - start);
+      for (int i = start; i < end; ++i) {
+        rows[i] = (int) scratch[i - start];
+      }
+    }
+  }
+
+  /**
+   * Splits groups into consecutive ranges of at least {@code minRows} rows, except for the last
+   * range.
+   *
+   * @return boundaries of ranges: range i has groups from result[i] to result[i + 1] - 1
+   */
+  private int[] splitGroups(int minRows) {
+    int[] boundaries = new int[Math.min(groupCount(), rows.length / minRows) + 2];
+    int rangeCount = 0;
+    int rangeStart = 0;
+    for (int group = 1; group < groupCount(); ++group) {
+      if (groupStarts[group] - groupStarts[rangeStart] >= minRows) {
+        boundaries[++rangeCount] = group;
+        rangeStart = group;
+      }
+    }
+    boundaries[++rangeCount] = groupCount();
+    return Arrays.copyOf(boundaries, rangeCount + 1);
+  }
+
+  /** Checks the rows of a single group and reports problems. */
+  public interface GroupChecker {
+    void check(int group, NoticeContainer noticeContainer);
+  }
+
+  /**
+   * Checks all groups on a fork-join pool.
+   *
+   * <p>Each task checks a range of groups and collects notices in its own container. Containers are
+   * merged in the order of groups, so notices are the same as if groups were checked one by one.
+   */
+  public void checkGroupsInParallel(NoticeContainer noticeContainer, GroupChecker checker) {
+    int[] taskGroups = splitGroups(MIN_ROWS_PER_TASK);
+    if (taskGroups.length <= 2) {
+      for (int group = 0; group < groupCount(); ++group) {
+        checker.check(group, noticeContainer);
+      }
+      return;
+    }
+    NoticeContainer[] taskNotices = new NoticeContainer[taskGroups.length - 1];
+    IntStream.range(0, taskNotices.length)
+        .parallel()
+        .forEach(
+            task -> {
+              NoticeContainer notices = new NoticeContainer(noticeContainer.getMaxNoticesPerCode());
+              for (int group = taskGroups[task]; group < taskGroups[task + 1]; ++group) {
+                checker.check(group, notices);
+              }
+              taskNotices[task] = notices;
+            });
+    for (NoticeContainer notices : taskNotices) {
+      noticeContainer.addAll(notices);
+    }
+  }
+
+  public IdDictionary.Namespace getNamespace() {
+    return namespace;
+  }
+
+  public int groupCount() {
+    return keyCodes.length;
+  }
+
+  /** Returns the key of the group, which is empty for rows without a key. */
+  public String groupKey(int group) {
+    int code = keyCodes[group];
+    return code == -1 ? "" : namespace.decode(code);
+  }
+
+  /** Returns the code of the key of the group or -1 for rows without a key. */
+  public int groupKeyCode(int group) {
+    return keyCodes[group];
+  }
+
+  /** Returns the position of the first row of the group in {@link #row(int)}. */
+  public int groupStart(int group) {
+    return groupStarts[group];
+  }
+
+  /** Returns the position after the last row of the group in {@link #row(int)}. */
+  public int groupEnd(int group) {
+    return groupStarts[group + 1];
+  }
+
+  /** Returns the row at the given position, where rows are ordered by group. */
+  public int row(int position) {
+    return rows[position];
+  }
+
+  /**
+   * Returns the group of the key or -1 if no row has the key. The empty key finds rows without a
+   * key.
+   */
+  public int findGroup(String key) {
+    if (key.isEmpty()) {
+      return groupOfSlot(0);
+    }
+    int code = namespace.find(key);
+    return code == -1 ? -1 : groupOfSlot(code + 1);
+  }
+
+  /** Returns the group of the code or -1 if no row has it. Code -1 finds rows without a key. */
+  public int findGroupByCode(int code) {
+    return groupOfSlot(code + 1);
+  }
+
+  private int groupOfSlot(int slot) {
+    return slot < groupBySlot.length ? groupBySlot[slot] : -1;
+  }
+
+  /** Returns a new set of the codes of all keys, e.g., to check foreign keys. */
+  public BitSet keyCodes() {
+    BitSet codes = new BitSet(namespace.size());
+    for (int code : keyCodes) {
+      if (code != -1) {
+        codes.set(code);
+      }
+    }
+    return codes;
+  }
+
+  /**
+   * Returns a view of the rows of the group.
+   *
+   * @param rowMapper returns the entity of a row
+   */
+  public <E> List<E> groupView(int group, IntFunction<E> rowMapper) {
+    return new GroupView<>(rows, groupStarts[group], groupStarts[group + 1], rowMapper);
+  }
+
+  /**
+   * Returns a view of the rows that have the key, which is empty if there are no such rows.
+   *
+   * @param rowMapper returns the entity of a row
+   */
+  public <E> List<E> get(String key, IntFunction<E> rowMapper) {
+    int group = findGroup(key);
+    return group == -1 ? Collections.emptyList() : groupView(group, rowMapper);
+  }
+
+  /**
+   * Returns an unmodifiable view of all groups by key, which iterates groups in the order of their
+   * first row.
+   *
+   * @param rowMapper returns the entity of a row
+   */
+  public <E> Map<String, List<E>> asMap(IntFunction<E> rowMapper) {
+    return new MapView<>(this, rowMapper);
+  }
+
+  private static final class GroupView<E> extends AbstractList<E> implements RandomAccess {
+    private final int[] rows;
+    private final int start;
+    private final int end;
+    private final IntFunction<E> rowMapper;
+
+    GroupView(int[] rows, int start, int end, IntFunction<E> rowMapper) {
+      this.rows = rows;
+      this.start = start;
+      this.end = end;
+      this.rowMapper = rowMapper;
+    }
+
+    @Override
+    public E get(int i) {
+      if (i < 0 || i >= end - start) {
+        throw new IndexOutOfBoundsException("Index: " + i + ", size: " + (end - start));
+      }
+      return rowMapper.apply(rows[start + i]);
+    }
+
+    @Override
+    public int size() {
+      return end - start;
+    }
+  }
+
+  private static final class MapView<E> extends AbstractMap<String, List<E>> {
+    private final RowGroupIndex index;
+    private final IntFunction<E> rowMapper;
+
+    MapView(RowGroupIndex index, IntFunction<E> rowMapper) {
+      this.index = index;
+      this.rowMapper = rowMapper;
+    }
+
+    private int findGroup(Object key) {
+      return key instanceof String ? index.findGroup((String) key) : -1;
+    }
+
+    @Override
+    public List<E> get(Object key) {
+      int group = findGroup(key);
+      return group == -1 ? null : index.groupView(group, rowMapper);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      return findGroup(key) != -1;
+    }
+
+    @Override
+    public int size() {
+      return index.groupCount();
+    }
+
+    @Override
+    public Set<Entry<String, List<E>>> entrySet() {
+      return new AbstractSet<Entry<String, List<E>>>() {
+        @Override
+        public Iterator<Entry<String, List<E>>> iterator() {
+          return new Iterator<Entry<String, List<E>>>() {
+            private int group = 0;
+
+            @Override
+            public boolean hasNext() {
+              return group < index.groupCount();
+            }
+
+            @Override
+            public Entry<String, List<E>> next() {
+              if (!hasNext()) {
+                throw new NoSuchElementException();
+              }
+              Entry<String, List<E>> entry =
+                  new SimpleImmutableEntry<>(
+                      index.groupKey(group), index.groupView(group, rowMapper));
+              ++group;
+              return entry;
+            }
+          };
+        }
+
+        @Override
+        public int size() {
+          return index.groupCount();
+        }
+      };
+    }
+  }
+}
@@ -0,0 +1,300 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import com.google.common.flogger.FluentLogger;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.mobilitydata.gtfsvalidator.notice.CachedNotice;
+import org.mobilitydata.gtfsvalidator.notice.Notice;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.notice.OmittedNotices;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On-disk cache of notices produced for unchanged input files.
+ *
+ * <p>The cache is content-addressed: the key of each entry is built from fingerprints of the files
+ * that were validated, so an entry never needs to be invalidated. Every entry is stored in a
+ * separate file named by the hash of its key, hence several processes may share a cache directory.
+ *
+ * <p>The cache is best-effort: entries that cannot be read or written are treated as missing.
+ *
+ * <p>An entry is a JSON array of notices. Notices that were omitted by a limited notice container
+ * are stored as elements with their count and sampled row numbers instead of a context. An entry of
+ * a table is a JSON object with the array of notices and the number of entities in the table.
+ */
+public class ValidationResultCache {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final Gson GSON = new GsonBuilder().serializeNulls().create();
+
+  private final Path directory;
+  private final String version;
+
+  /**
+   * Creates a cache in the given directory.
+   *
+   * @param directory the directory to keep the entries in, it is created if needed
+   * @param version description of the validator code, e.g., the list of validators; entries written
+   *     with a different version are never returned
+   * @throws IOException if the directory cannot be created
+   */
+  public ValidationResultCache(Path directory, String version) throws IOException {
+    this.directory = Files.createDirectories(directory);
+    this.version = version;
+  }
+
+  /**
+   * Returns notices stored for the given key.
+   *
+   * @param key the key built from fingerprints of validated files
+   * @return the stored notices or null if there is no entry for the key
+   */
+  @Nullable
+  public NoticeContainer get(String key) {
+    Path path = pathForKey(key);
+    JsonElement json = read(path);
+    if (json == null) {
+      return null;
+    }
+    NoticeContainer notices = parseNotices(json);
+    if (notices == null) {
+      logger.atWarning().log("Ignoring invalid cache entry %s", path);
+    }
+    return notices;
+  }
+
+  /**
+   * Returns notices and the number of entities stored for a table with the given key.
+   *
+   * @param key the key built from the fingerprint of the table file
+   * @return the stored results or null if there is no entry for the key
+   */
+  @Nullable
+  public TableResult getTable(String key) {
+    Path path = pathForKey(key);
+    JsonElement json = read(path);
+    if (json == null) {
+      return null;
+    }
+    NoticeContainer notices = null;
+    JsonObject jsonTable = json.isJsonObject() ? json.getAsJsonObject() : null;
+    if (jsonTable != null && isNumber(jsonTable.get("entityCount")) && jsonTable.has("notices")) {
+      notices = parseNotices(jsonTable.get("notices"));
+    }
+    if (notices == null) {
+      logger.atWarning().log("Ignoring invalid cache entry %s", path);
+      return null;
+    }
+    return new TableResult(notices, jsonTable.get("entityCount").getAsInt());
+  }
+
+  /** Returns the JSON stored in an entry or null if the entry is missing or unreadable. */
+  @Nullable
+  private static JsonElement read(Path path) {
+    try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      return JsonParser.parseReader(reader);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException | JsonParseException e) {
+      logger.atWarning().withCause(e).log("Ignoring unreadable cache entry %s", path);
+      return null;
+    }
+  }
+
+  /** Returns notices of a cache entry or null if the entry does not have the expected structure. */
+  @Nullable
+  private static NoticeContainer parseNotices(JsonElement json) {
+    if (!json.isJsonArray()) {
+      return null;
+    }
+    NoticeContainer notices = new NoticeContainer();
+    for (JsonElement element : json.getAsJsonArray()) {
+      if (!element.isJsonObject()) {
+        return null;
+      }
+      JsonObject jsonNotice = element.getAsJsonObject();
+      if (!isString(jsonNotice.get("code"))) {
+        return null;
+      }
+      if (jsonNotice.has("omittedCount")) {
+        OmittedNotices omitted = parseOmittedNotices(jsonNotice);
+        if (omitted == null) {
+          return null;
+        }
+        notices.addOmittedNotices(omitted);
+        continue;
+      }
+      JsonElement jsonContext = jsonNotice.get("context");
+      if (jsonContext == null || !jsonContext.isJsonObject()) {
+        return null;
+      }
+      Map<String, Object> context = new LinkedHashMap<>();
+      for (Map.Entry<String, JsonElement> entry : jsonContext.getAsJsonObject().entrySet()) {
+        context.put(entry.getKey(), entry.getValue());
+      }
+      notices.addNotice(new CachedNotice(jsonNotice.get("code").getAsString(), context));
+    }
+    return notices;
+  }
+
+  /**
+   * Stores notices for the given key.
+   *
+   * @param key the key built from fingerprints of validated files
+   * @param notices notices produced for the files
+   */
+  public void put(String key, NoticeContainer notices) {
+    write(pathForKey(key), toJson(notices));
+  }
+
+  /**
+   * Stores notices and the number of entities of a table for the given key.
+   *
+   * @param key the key built from the fingerprint of the table file
+   * @param notices notices produced while the table was loaded
+   * @param entityCount number of entities in the table
+   */
+  public void putTable(String key, NoticeContainer notices, int entityCount) {
+    JsonObject jsonTable = new JsonObject();
+    jsonTable.addProperty("entityCount", entityCount);
+    jsonTable.add("notices", toJson(notices));
+    write(pathForKey(key), jsonTable);
+  }
+
+  private static JsonArray toJson(NoticeContainer notices) {
+    JsonArray jsonNotices = new JsonArray();
+    for (Notice notice : notices.getNotices()) {
+      JsonObject jsonNotice = new JsonObject();
+      jsonNotice.addProperty("code", notice.getCode());
+      jsonNotice.add("context", GSON.toJsonTree(notice.getContext()));
+      jsonNotices.add(jsonNotice);
+    }
+    for (OmittedNotices omitted : notices.getOmittedNotices()) {
+      JsonObject jsonNotice = new JsonObject();
+      jsonNotice.addProperty("code", omitted.getCode());
+      jsonNotice.addProperty("filename", omitted.getFilename());
+      jsonNotice.addProperty("omittedCount", omitted.getCount());
+      jsonNotice.add("sampledCsvRowNumbers", GSON.toJsonTree(omitted.getSampledCsvRowNumbers()));
+      jsonNotices.add(jsonNotice);
+    }
+    return jsonNotices;
+  }
+
+  private void write(Path path, JsonElement json) {
+    Path tmpPath = null;
+    try {
+      // Write to a temporary file first, so that concurrent readers never see a partial entry.
+      tmpPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+      try (Writer writer = Files.newBufferedWriter(tmpPath, StandardCharsets.UTF_8)) {
+        GSON.toJson(json, writer);
+      }
+      try {
+        Files.move(tmpPath, path, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      logger.atWarning().withCause(e).log("Cannot write cache entry %s", path);
+      try {
+        if (tmpPath != null) {
+          Files.deleteIfExists(tmpPath);
+        }
+      } catch (IOException ignored) {
+        // The temporary file is never read, so it is harmless to leave it.
+      }
+    }
+  }
+
+  @Nullable
+  private static OmittedNotices parseOmittedNotices(JsonObject jsonNotice) {
+    JsonElement filename = jsonNotice.get("filename");
+    JsonElement omittedCount = jsonNotice.get("omittedCount");
+    JsonElement jsonRowNumbers = jsonNotice.get("sampledCsvRowNumbers");
+    if (filename == null
+        || !(filename.isJsonNull() || isString(filename))
+        || !isNumber(omittedCount)
+        || jsonRowNumbers == null
+        || !jsonRowNumbers.isJsonArray()) {
+      return null;
+    }
+    List<Long> sampledCsvRowNumbers = new ArrayList<>();
+    for (JsonElement rowNumber : jsonRowNumbers.getAsJsonArray()) {
+      if (!isNumber(rowNumber)) {
+        return null;
+      }
+      sampledCsvRowNumbers.add(rowNumber.getAsLong());
+    }
+    return new OmittedNotices(
+        jsonNotice.get("code").getAsString(),
+        filename.isJsonNull() ? null : filename.getAsString(),
+        omittedCount.getAsInt(),
+        sampledCsvRowNumbers);
+  }
+
+  private static boolean isString(@Nullable JsonElement element) {
+    return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+  }
+
+  private static boolean isNumber(@Nullable JsonElement element) {
+    return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber();
+  }
+
+  private Path pathForKey(String key) {
+    return directory.resolve(
+        Hashing.sha256().hashString(version + "\n" + key, StandardCharsets.UTF_8) + ".json");
+  }
+
+  /** Results stored for a table that did not change since a previous run. */
+  public static class TableResult {
+    private final NoticeContainer notices;
+    private final int entityCount;
+
+    public TableResult(NoticeContainer notices, int entityCount) {
+      this.notices = notices;
+      this.entityCount = entityCount;
+    }
+
+    public NoticeContainer getNotices() {
+      return notices;
+    }
+
+    public int getEntityCount() {
+      return entityCount;
+    }
+  }
+}
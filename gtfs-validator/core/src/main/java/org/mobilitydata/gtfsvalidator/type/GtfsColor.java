@@ -16,6 +16,8 @@
 
 package org.mobilitydata.gtfsvalidator.type;
 
+import javax.annotation.Nullable;
+
 /** Represents a GTFS color - a hexadecimal integer from 000000 to FFFFFF. */
 public class GtfsColor {
   private final int rgb;
@@ -25,10 +27,31 @@ public class GtfsColor {
   }
 
   public static GtfsColor fromString(String s) {
+    GtfsColor color = tryParse(s);
+    if (color == null) {
+      throw new IllegalArgumentException("Color must have 6 hexadecimal digits: " + s);
+    }
+    return color;
+  }
+
+  /**
+   * Same as {@link #fromString(String)} but returns null for invalid colors instead of throwing an
+   * exception.
+   */
+  @Nullable
+  public static GtfsColor tryParse(String s) {
     if (s.length() != 6) {
-      throw new IllegalArgumentException("Color must have 6 digits: " + s);
+      return null;
+    }
+    int rgb = 0;
+    for (int i = 0; i < 6; ++i) {
+      final int digit = Character.digit(s.charAt(i), 16);
+      if (digit < 0) {
+        return null;
+      }
+      rgb = (rgb << 4) | digit;
     }
-    return fromInt(Integer.parseInt(s, 16));
+    return fromInt(rgb);
   }
 
   public static GtfsColor fromInt(int i) {
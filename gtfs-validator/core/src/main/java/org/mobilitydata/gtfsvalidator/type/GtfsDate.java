@@ -16,66 +16,155 @@
 
 package org.mobilitydata.gtfsvalidator.type;
 
+import javax.annotation.Nullable;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 
-/** Represents GTFS date. */
+/**
+ * Represents GTFS date.
+ *
+ * <p>The date is stored as a number of days since 1970-01-01, so that dates are compact and
+ * comparing them is cheap.
+ */
 public class GtfsDate implements Comparable<GtfsDate> {
-  private final LocalDate localDate;
+  // Number of days from 0000-01-01 to 1970-01-01.
+  private static final int DAYS_0000_TO_1970 = 719528;
+  // Results of parsing that are far outside of the epoch days of years 0000 to 9999.
+  private static final int INVALID_FORMAT = Integer.MIN_VALUE;
+  private static final int INVALID_DATE = Integer.MIN_VALUE + 1;
+
+  private final int epochDay;
 
-  private GtfsDate(LocalDate localDate) {
-    this.localDate = localDate;
+  private GtfsDate(int epochDay) {
+    this.epochDay = epochDay;
   }
 
   public static GtfsDate fromLocalDate(LocalDate localDate) {
-    return new GtfsDate(localDate);
+    return fromEpochDay(localDate.toEpochDay());
   }
 
   public static GtfsDate fromEpochDay(long epochDay) {
-    return new GtfsDate(LocalDate.ofEpochDay(epochDay));
+    return new GtfsDate(Math.toIntExact(epochDay));
   }
 
   public static GtfsDate fromString(String yyyymmdd) {
-    if (yyyymmdd.length() != 8) {
-      throw new IllegalArgumentException("Date must have YYYYMMDD format: " + yyyymmdd);
+    return fromChars(yyyymmdd.toCharArray(), 0, yyyymmdd.length());
+  }
+
+  /**
+   * Returns a GtfsDate object from its representation in a range of characters, such as 20200901.
+   *
+   * @param chars array with the date in YYYYMMDD format
+   * @param start offset of the first character of the date
+   * @param end offset after the last character of the date
+   * @return GtfsDate object
+   * @throws IllegalArgumentException if the characters do not have YYYYMMDD format
+   * @throws DateTimeException if the month or the day is out of range
+   */
+  public static GtfsDate fromChars(char[] chars, int start, int end) {
+    final int epochDay = parseEpochDay(chars, start, end);
+    if (epochDay == INVALID_FORMAT) {
+      throw new IllegalArgumentException(
+          "Date must have YYYYMMDD format: " + new String(chars, start, end - start));
+    }
+    if (epochDay == INVALID_DATE) {
+      throw new DateTimeException("Invalid date: " + new String(chars, start, end - start));
     }
-    int year, month, day;
-    try {
-      year = Integer.parseInt(yyyymmdd.substring(0, 4));
-      month = Integer.parseInt(yyyymmdd.substring(4, 6));
-      day = Integer.parseInt(yyyymmdd.substring(6));
-    } catch (NumberFormatException ex) {
-      throw new IllegalArgumentException("Date must have YYYYMMDD format: " + yyyymmdd);
+    return new GtfsDate(epochDay);
+  }
+
+  /**
+   * Same as {@link #fromChars(char[], int, int)} but returns null for invalid dates instead of
+   * throwing an exception, so that malformed values are cheap to reject.
+   */
+  @Nullable
+  public static GtfsDate tryParse(char[] chars, int start, int end) {
+    final int epochDay = parseEpochDay(chars, start, end);
+    if (epochDay == INVALID_FORMAT || epochDay == INVALID_DATE) {
+      return null;
+    }
+    return new GtfsDate(epochDay);
+  }
+
+  /** Returns the epoch day of a date in YYYYMMDD format or one of the INVALID_* codes. */
+  private static int parseEpochDay(char[] chars, int start, int end) {
+    if (end - start != 8) {
+      return INVALID_FORMAT;
+    }
+    int value = 0;
+    for (int i = start; i < end; ++i) {
+      final int digit = chars[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return INVALID_FORMAT;
+      }
+      value = value * 10 + digit;
+    }
+    final int year = value / 10000;
+    final int month = value / 100 % 100;
+    final int day = value % 100;
+    if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+      return INVALID_DATE;
+    }
+    return toEpochDay(year, month, day);
+  }
+
+  private static boolean isLeapYear(int year) {
+    return (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+  }
+
+  private static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return isLeapYear(year) ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /** Same as {@link LocalDate#toEpochDay()} for non-negative years. */
+  private static int toEpochDay(int year, int month, int day) {
+    int total = 365 * year + (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+    total += (367 * month - 362) / 12 + day - 1;
+    if (month > 2) {
+      total -= isLeapYear(year) ? 1 : 2;
     }
-    return new GtfsDate(LocalDate.of(year, month, day));
+    return total - DAYS_0000_TO_1970;
   }
 
   public int getYear() {
-    return localDate.getYear();
+    return getLocalDate().getYear();
   }
 
   public int getMonth() {
-    return localDate.getMonthValue();
+    return getLocalDate().getMonthValue();
   }
 
   public int getDay() {
-    return localDate.getDayOfMonth();
+    return getLocalDate().getDayOfMonth();
   }
 
   public LocalDate getLocalDate() {
-    return localDate;
+    return LocalDate.ofEpochDay(epochDay);
   }
 
   public long toEpochDay() {
-    return localDate.toEpochDay();
+    return epochDay;
   }
 
   public String toYYYYMMDD() {
-    return String.format("%04d%02d%02d", getYear(), getMonth(), getDay());
+    LocalDate localDate = getLocalDate();
+    return String.format(
+        "%04d%02d%02d", localDate.getYear(), localDate.getMonthValue(), localDate.getDayOfMonth());
   }
 
   @Override
   public int compareTo(GtfsDate other) {
-    return localDate.compareTo(other.localDate);
+    return Integer.compare(epochDay, other.epochDay);
   }
 
   @Override
@@ -91,14 +180,14 @@ public class GtfsDate implements Comparable<GtfsDate> {
 
   @Override
   public int hashCode() {
-    return localDate.hashCode();
+    return Integer.hashCode(epochDay);
   }
 
   public boolean isAfter(GtfsDate other) {
-    return localDate.isAfter(other.localDate);
+    return epochDay > other.epochDay;
   }
 
   public boolean isBefore(GtfsDate other) {
-    return localDate.isBefore(other.localDate);
+    return epochDay < other.epochDay;
   }
 }
@@ -16,8 +16,7 @@
 
 package org.mobilitydata.gtfsvalidator.type;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import javax.annotation.Nullable;
 
 /**
  * Represents GTFS time.
@@ -26,7 +25,9 @@ import java.util.regex.Pattern;
  * days on which daylight savings time changes occur).
  */
 public class GtfsTime implements Comparable<GtfsTime> {
-  private static final Pattern HHMMCC_PATTERN = Pattern.compile("(\\d{1,3}):(\\d\\d):(\\d\\d)");
+  // Times of almost all trips are within the first 48 hours of the service day.
+  private static final int MAX_INTERNED_SECONDS = 48 * 3600;
+
   private final int secondsSinceMidnight;
 
   private GtfsTime(int secondsSinceMidnight) {
@@ -43,10 +44,18 @@ public class GtfsTime implements Comparable<GtfsTime> {
     if (second < 0 || second >= 60) {
       throw new IllegalArgumentException("Invalid second: " + second);
     }
-    return new GtfsTime(hour * 3600 + minute * 60 + second);
+    return fromSecondsSinceMidnight(hour * 3600 + minute * 60 + second);
   }
 
+  /**
+   * Returns a GtfsTime object for the given number of seconds.
+   *
+   * <p>Times up to 48:00:00 are shared instances, so that parsing them does not allocate.
+   */
   public static GtfsTime fromSecondsSinceMidnight(int secondsSinceMidnight) {
+    if (secondsSinceMidnight >= 0 && secondsSinceMidnight <= MAX_INTERNED_SECONDS) {
+      return InternedTimes.TIMES[secondsSinceMidnight];
+    }
     return new GtfsTime(secondsSinceMidnight);
   }
 
@@ -57,15 +66,68 @@ public class GtfsTime implements Comparable<GtfsTime> {
    * @return GtfsTime object
    */
   public static GtfsTime fromString(String time) {
-    Matcher matcher = HHMMCC_PATTERN.matcher(time);
-    if (!matcher.matches()) {
+    return fromChars(time.toCharArray(), 0, time.length());
+  }
+
+  /**
+   * Returns a GtfsTime object from its representation in a range of characters, such as 12:02:34.
+   *
+   * <p>Unlike {@link #fromString(String)}, this does not allocate memory for valid times up to
+   * 48:00:00.
+   *
+   * @param chars array with the time in H:MM:SS, HH:MM:SS or HHH:MM:SS format
+   * @param start offset of the first character of the time
+   * @param end offset after the last character of the time
+   * @return GtfsTime object
+   */
+  public static GtfsTime fromChars(char[] chars, int start, int end) {
+    GtfsTime time = tryParse(chars, start, end);
+    if (time == null) {
       throw new IllegalArgumentException(
-          "Time must have H:MM:SS, HH:MM:SS or HHH:MM:SS format: " + time);
+          "Time must have H:MM:SS, HH:MM:SS or HHH:MM:SS format with minutes and seconds below 60: "
+              + new String(chars, start, end - start));
+    }
+    return time;
+  }
+
+  /**
+   * Same as {@link #fromChars(char[], int, int)} but returns null for invalid times instead of
+   * throwing an exception, so that malformed values are cheap to reject.
+   */
+  @Nullable
+  public static GtfsTime tryParse(char[] chars, int start, int end) {
+    // The hour has 1 to 3 digits, followed by ":MM:SS".
+    final int hourLength = end - start - 6;
+    if (hourLength < 1
+        || hourLength > 3
+        || chars[start + hourLength] != ':'
+        || chars[start + hourLength + 3] != ':') {
+      return null;
     }
-    return fromHourMinuteSecond(
-        Integer.parseInt(matcher.group(1)),
-        Integer.parseInt(matcher.group(2)),
-        Integer.parseInt(matcher.group(3)));
+    int hour = 0;
+    for (int i = start; i < start + hourLength; ++i) {
+      final int digit = chars[i] - '0';
+      if (digit < 0 || digit > 9) {
+        return null;
+      }
+      hour = hour * 10 + digit;
+    }
+    final int minute = parseTwoDigits(chars, start + hourLength + 1);
+    final int second = parseTwoDigits(chars, start + hourLength + 4);
+    if (minute < 0 || minute >= 60 || second < 0 || second >= 60) {
+      return null;
+    }
+    return fromSecondsSinceMidnight(hour * 3600 + minute * 60 + second);
+  }
+
+  /** Returns a number of two digits or -1 if the characters are not digits. */
+  private static int parseTwoDigits(char[] chars, int index) {
+    final int tens = chars[index] - '0';
+    final int ones = chars[index + 1] - '0';
+    if (tens < 0 || tens > 9 || ones < 0 || ones > 9) {
+      return -1;
+    }
+    return tens * 10 + ones;
   }
 
   public int getSecondsSinceMidnight() {
@@ -116,4 +178,15 @@ public class GtfsTime implements Comparable<GtfsTime> {
   public boolean isBefore(GtfsTime other) {
     return secondsSinceMidnight < other.secondsSinceMidnight;
   }
+
+  /** Preallocated times from 00:00:00 to 48:00:00, shared by all feeds. */
+  private static class InternedTimes {
+    static final GtfsTime[] TIMES = new GtfsTime[MAX_INTERNED_SECONDS + 1];
+
+    static {
+      for (int i = 0; i < TIMES.length; ++i) {
+        TIMES[i] = new GtfsTime(i);
+      }
+    }
+  }
 }
@@ -0,0 +1,205 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.validator;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.reflect.ClassPath;
+import org.mobilitydata.gtfsvalidator.annotation.GtfsLoader;
+import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsEntity;
+import org.mobilitydata.gtfsvalidator.table.GtfsTableContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsTableLoader;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Registry of table loaders and validators that are found by scanning the class path.
+ *
+ * <p>It complements the generated registries with classes that they do not cover, e.g., validators
+ * from an outside jar that was compiled without the annotation processor. Classes that are covered
+ * by a generated registry are skipped by their names, so they are neither loaded through reflection
+ * nor instantiated.
+ *
+ * <p>The class path is walked at most once per process, however many registries are created.
+ */
+public final class ClassPathComponentRegistry implements GtfsComponentRegistry {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final String TABLE_PACKAGE = "org.mobilitydata.gtfsvalidator.table";
+  private static final String VALIDATOR_PACKAGE = "org.mobilitydata.gtfsvalidator.validator";
+  private static final Supplier<ClassPath> CLASS_PATH =
+      Suppliers.memoize(
+          () -> {
+            try {
+              return ClassPath.from(ClassPathComponentRegistry.class.getClassLoader());
+            } catch (IOException exception) {
+              throw new RuntimeException(exception);
+            }
+          });
+
+  private final List<GtfsComponentRegistry> registries;
+  private final Set<String> coveredClassNames = new HashSet<>();
+
+  /**
+   * Creates a registry of the classes that the given registries do not cover.
+   *
+   * @param registries generated registries
+   */
+  public ClassPathComponentRegistry(List<GtfsComponentRegistry> registries) {
+    this.registries = ImmutableList.copyOf(registries);
+    for (GtfsComponentRegistry registry : registries) {
+      coveredClassNames.addAll(registry.getClassNames());
+    }
+  }
+
+  /** Loads top-level classes of the given package that no registry covers. */
+  private List<Class<?>> loadUncoveredClasses(String packageName) {
+    List<Class<?>> classes = new ArrayList<>();
+    for (ClassPath.ClassInfo classInfo :
+        CLASS_PATH.get().getTopLevelClassesRecursive(packageName)) {
+      if (!coveredClassNames.contains(classInfo.getName())) {
+        classes.add(classInfo.load());
+      }
+    }
+    return classes;
+  }
+
+  private List<Class<? extends GtfsTableLoader>> loadTableLoaderClasses() {
+    List<Class<? extends GtfsTableLoader>> loaderClasses = new ArrayList<>();
+    for (Class<?> clazz : loadUncoveredClasses(TABLE_PACKAGE)) {
+      if (clazz.isAnnotationPresent(GtfsLoader.class)
+          && GtfsTableLoader.class.isAssignableFrom(clazz)) {
+        loaderClasses.add(clazz.asSubclass(GtfsTableLoader.class));
+      }
+    }
+    return loaderClasses;
+  }
+
+  /** Loads validator classes of the given kind that no registry covers. */
+  private List<Class<?>> loadValidatorClasses(Class<?> kind) {
+    List<Class<?>> validatorClasses = new ArrayList<>();
+    for (Class<?> clazz : loadUncoveredClasses(VALIDATOR_PACKAGE)) {
+      if (clazz.isAnnotationPresent(GtfsValidator.class) && kind.isAssignableFrom(clazz)) {
+        validatorClasses.add(clazz);
+      }
+    }
+    return validatorClasses;
+  }
+
+  @Override
+  public List<GtfsTableLoader<?>> createTableLoaders() {
+    List<GtfsTableLoader<?>> loaders = new ArrayList<>();
+    for (Class<? extends GtfsTableLoader> loaderClass : loadTableLoaderClasses()) {
+      try {
+        loaders.add(loaderClass.getConstructor().newInstance());
+      } catch (ReflectiveOperationException e) {
+        logger.atSevere().withCause(e).log(
+            "Possible bug in GTFS annotation processor: expected a constructor without parameters for %s",
+            loaderClass.getName());
+      }
+    }
+    return loaders;
+  }
+
+  @Override
+  public ListMultimap<Class<? extends GtfsEntity>, SingleEntityValidator<?>>
+      createSingleEntityValidators() {
+    ListMultimap<Class<? extends GtfsEntity>, SingleEntityValidator<?>> validators =
+        ArrayListMultimap.create();
+    for (Class<?> validatorClass : loadValidatorClasses(SingleEntityValidator.class)) {
+      for (Method method : validatorClass.getMethods()) {
+        // A child class of SingleEntityValidator has two `validate' methods:
+        // 1) the inherited void validate(GtfsEntity entity, NoticeContainer noticeContainer);
+        // 2) the type-specific void validate(Gtfs<name> entity, NoticeContainer noticeContainer).
+        // We need to skip the first one and use the second one.
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        if (method.getName().equals("validate")
+            && method.getParameterCount() == 2
+            && GtfsEntity.class.isAssignableFrom(parameterTypes[0])
+            && !parameterTypes[0].isAssignableFrom(GtfsEntity.class)
+            && parameterTypes[1].isAssignableFrom(NoticeContainer.class)) {
+          try {
+            validators.put(
+                parameterTypes[0].asSubclass(GtfsEntity.class),
+                validatorClass
+                    .asSubclass(SingleEntityValidator.class)
+                    .getConstructor()
+                    .newInstance());
+          } catch (ReflectiveOperationException e) {
+            logger.atSevere().withCause(e).log(
+                "Cannot instantiate validator %s", validatorClass.getCanonicalName());
+          }
+          break;
+        }
+      }
+    }
+    return validators;
+  }
+
+  @Override
+  public List<FileValidatorFactory> getFileValidatorFactories() {
+    List<Class<?>> validatorClasses = loadValidatorClasses(FileValidator.class);
+    if (validatorClasses.isEmpty()) {
+      return ImmutableList.of();
+    }
+    // Tables to inject are only looked up if some file validators are missing from the registries.
+    List<Class<? extends GtfsTableContainer<?>>> tableClasses = new ArrayList<>();
+    for (GtfsComponentRegistry registry : registries) {
+      for (GtfsTableLoader<?> loader : registry.createTableLoaders()) {
+        tableClasses.add(loader.getTableContainerClass());
+      }
+    }
+    for (GtfsTableLoader<?> loader : createTableLoaders()) {
+      tableClasses.add(loader.getTableContainerClass());
+    }
+    List<FileValidatorFactory> factories = new ArrayList<>();
+    for (Class<?> validatorClass : validatorClasses) {
+      try {
+        factories.add(
+            FileValidatorFactory.reflective(
+                validatorClass.asSubclass(FileValidator.class), tableClasses));
+      } catch (InstantiationException e) {
+        logger.atSevere().withCause(e).log(
+            "Cannot instantiate validator %s", validatorClass.getCanonicalName());
+      }
+    }
+    return factories;
+  }
+
+  @Override
+  public Set<String> getClassNames() {
+    ImmutableSet.Builder<String> classNames = ImmutableSet.builder();
+    for (Class<?> loaderClass : loadTableLoaderClasses()) {
+      classNames.add(loaderClass.getName());
+    }
+    for (Class<?> validatorClass : loadValidatorClasses(Object.class)) {
+      classNames.add(validatorClass.getName());
+    }
+    return classNames.build();
+  }
+}
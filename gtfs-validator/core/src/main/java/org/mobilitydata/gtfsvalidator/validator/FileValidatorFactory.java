@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.validator;
+
+import com.google.common.collect.ImmutableList;
+import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.table.GtfsTableContainer;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Creates instances of a {@code FileValidator} and injects tables into them.
+ *
+ * <p>Factories of validators that are compiled together with the annotation processor are generated
+ * and call the constructor and assign the fields directly. Other validators are created through
+ * reflection.
+ */
+public final class FileValidatorFactory {
+  /** Creates a validator from the tables to inject. */
+  public interface Creator {
+    FileValidator create(List<GtfsTableContainer<?>> tables) throws ReflectiveOperationException;
+  }
+
+  private final Class<? extends FileValidator> validatorClass;
+  private final List<Class<? extends GtfsTableContainer<?>>> dependencies;
+  private final Creator creator;
+
+  /**
+   * Creates a factory.
+   *
+   * @param validatorClass class of the validator
+   * @param dependencies classes of tables that are injected into the validator
+   * @param creator function that creates the validator from tables in the order of {@code
+   *     dependencies}
+   */
+  public FileValidatorFactory(
+      Class<? extends FileValidator> validatorClass,
+      List<Class<? extends GtfsTableContainer<?>>> dependencies,
+      Creator creator) {
+    this.validatorClass = validatorClass;
+    this.dependencies = ImmutableList.copyOf(dependencies);
+    this.creator = creator;
+  }
+
+  /**
+   * Creates a factory that discovers {@code @Inject} fields and sets them through reflection.
+   *
+   * @param validatorClass class of the validator
+   * @param tableClasses classes of all tables that can be injected
+   * @throws InstantiationException if the validator injects a table that is not in {@code
+   *     tableClasses}
+   */
+  static FileValidatorFactory reflective(
+      Class<? extends FileValidator> validatorClass,
+      Collection<Class<? extends GtfsTableContainer<?>>> tableClasses)
+      throws InstantiationException {
+    List<Field> fields = new ArrayList<>();
+    List<Class<? extends GtfsTableContainer<?>>> dependencies = new ArrayList<>();
+    for (Field field : validatorClass.getDeclaredFields()) {
+      if (field.isAnnotationPresent(Inject.class)
+          && GtfsTableContainer.class.isAssignableFrom(field.getType())) {
+        fields.add(field);
+        dependencies.add(findTableClass(tableClasses, field.getType()));
+      }
+    }
+    return new FileValidatorFactory(
+        validatorClass,
+        dependencies,
+        tables -> {
+          FileValidator validator = validatorClass.getConstructor().newInstance();
+          for (int i = 0; i < fields.size(); ++i) {
+            fields.get(i).set(validator, tables.get(i));
+          }
+          return validator;
+        });
+  }
+
+  /**
+   * Returns the element of {@code tableClasses} that is the given type. Unlike a cast of the field
+   * type, this keeps the type argument of {@code GtfsTableContainer} checked.
+   */
+  private static Class<? extends GtfsTableContainer<?>> findTableClass(
+      Collection<Class<? extends GtfsTableContainer<?>>> tableClasses, Class<?> type)
+      throws InstantiationException {
+    for (Class<? extends GtfsTableContainer<?>> tableClass : tableClasses) {
+      if (tableClass.equals(type)) {
+        return tableClass;
+      }
+    }
+    throw new InstantiationException("Cannot find a loader of " + type.getSimpleName());
+  }
+
+  public Class<? extends FileValidator> getValidatorClass() {
+    return validatorClass;
+  }
+
+  /** Returns classes of tables that are injected into the validator. */
+  public List<Class<? extends GtfsTableContainer<?>>> getDependencies() {
+    return dependencies;
+  }
+
+  /**
+   * Creates a validator.
+   *
+   * @param tables tables to inject, in the order of {@link #getDependencies()}
+   * @return the validator
+   * @throws ReflectiveOperationException if the validator cannot be instantiated
+   */
+  public FileValidator create(List<GtfsTableContainer<?>> tables)
+      throws ReflectiveOperationException {
+    return creator.create(tables);
+  }
+}
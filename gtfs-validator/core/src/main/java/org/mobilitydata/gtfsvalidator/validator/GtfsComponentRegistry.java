@@ -0,0 +1,78 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.validator;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import org.mobilitydata.gtfsvalidator.table.GtfsEntity;
+import org.mobilitydata.gtfsvalidator.table.GtfsTableLoader;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * Table loaders and validators that were discovered at compile time.
+ *
+ * <p>An implementation is generated by the annotation processor for every compilation unit with
+ * {@code @GtfsTable} schemas or {@code @GtfsValidator} classes and registered as a service, so that
+ * {@code GtfsFeedLoader} and {@code ValidatorLoader} instantiate them directly. The class path is
+ * scanned for classes that no registry covers only on request or if there is no registry at all,
+ * see {@link ClassPathComponentRegistry}.
+ */
+public interface GtfsComponentRegistry {
+  /** Creates loaders of all tables. */
+  List<GtfsTableLoader<?>> createTableLoaders();
+
+  /** Creates single-entity validators, keyed by the class of entities that they validate. */
+  ListMultimap<Class<? extends GtfsEntity>, SingleEntityValidator<?>>
+      createSingleEntityValidators();
+
+  /** Returns factories of all file validators. */
+  List<FileValidatorFactory> getFileValidatorFactories();
+
+  /**
+   * Returns binary names of table loaders and validators that the registry covers, so that they can
+   * be told apart from other classes without creating the components.
+   */
+  Set<String> getClassNames();
+
+  /**
+   * Returns the registries that are available on the class path.
+   *
+   * @return registries or an empty list if no code was compiled with the annotation processor
+   */
+  static List<GtfsComponentRegistry> loadAll() {
+    return ImmutableList.copyOf(ServiceLoader.load(GtfsComponentRegistry.class));
+  }
+
+  /**
+   * Returns the registries that are available on the class path, followed by a {@link
+   * ClassPathComponentRegistry} if requested or if there is no registry.
+   *
+   * @param scanClassPath whether to scan the class path for table loaders and validators that no
+   *     registry covers, e.g., from a jar that was compiled without the annotation processor
+   */
+  static List<GtfsComponentRegistry> loadAll(boolean scanClassPath) {
+    List<GtfsComponentRegistry> registries = new ArrayList<>(loadAll());
+    if (scanClassPath || registries.isEmpty()) {
+      registries.add(new ClassPathComponentRegistry(registries));
+    }
+    return registries;
+  }
+}
@@ -17,107 +17,81 @@
 package org.mobilitydata.gtfsvalidator.validator;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ListMultimap;
 import com.google.common.flogger.FluentLogger;
-import com.google.common.reflect.ClassPath;
-import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
-import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsEntity;
 import org.mobilitydata.gtfsvalidator.table.GtfsFeedContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsTableContainer;
 
-import java.io.IOException;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
 
 /**
  * A {@code ValidatorLoader} object locates all validators registered with {@code @GtfsValidator}
  * annotation and provides convenient methods to invoke them on a single entity of file.
+ *
+ * <p>Validators are taken from registries generated by the annotation processor. The class path may
+ * also be scanned for validators that no registry covers, e.g., when they were compiled without the
+ * processor.
  */
 public class ValidatorLoader {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
   private final ListMultimap<Class<? extends GtfsEntity>, SingleEntityValidator<?>>
       singleEntityValidators = ArrayListMultimap.create();
-  private final ListMultimap<Class<? extends GtfsTableContainer>, Class<? extends FileValidator>>
-      singleFileValidators = ArrayListMultimap.create();
-  private final List<Class<? extends FileValidator>> multiFileValidators = new ArrayList<>();
+  private final ListMultimap<Class<?>, FileValidatorFactory> singleFileValidators =
+      ArrayListMultimap.create();
+  private final List<FileValidatorFactory> multiFileValidators = new ArrayList<>();
+  private final Map<Class<? extends FileValidator>, FileValidatorFactory>
+      multiFileValidatorsByClass = new HashMap<>();
+  private boolean columnProjection = false;
 
   public ValidatorLoader() {
-    List<Class<? extends SingleEntityValidator>> singleEntityValidatorClasses = new ArrayList<>();
-    List<Class<? extends FileValidator>> fileValidatorClasses = new ArrayList<>();
-    ClassPath classPath;
-    try {
-      classPath = ClassPath.from(ClassLoader.getSystemClassLoader());
-    } catch (IOException exception) {
-      throw new RuntimeException(exception);
-    }
-    for (ClassPath.ClassInfo classInfo :
-        classPath.getTopLevelClassesRecursive("org.mobilitydata.gtfsvalidator.validator")) {
-      Class<?> clazz = classInfo.load();
-      if (clazz.isAnnotationPresent(GtfsValidator.class)) {
-        if (SingleEntityValidator.class.isAssignableFrom(clazz)) {
-          singleEntityValidatorClasses.add((Class<? extends SingleEntityValidator>) clazz);
-        } else if (FileValidator.class.isAssignableFrom(clazz)) {
-          fileValidatorClasses.add((Class<? extends FileValidator>) clazz);
-        }
-      }
-    }
+    this(false);
+  }
 
-    for (Class<? extends SingleEntityValidator> validatorClass : singleEntityValidatorClasses) {
-      for (Method method : validatorClass.getMethods()) {
-        // A child class of SingleEntityValidator has two `validate' methods:
-        // 1) the inherited void validate(GtfsEntity entity, NoticeContainer noticeContainer);
-        // 2) the type-specific void validate(Gtfs<name> entity, NoticeContainer noticeContainer).
-        // We need to skip the first one and use the second one.
-        Class<?>[] parameterTypes = method.getParameterTypes();
-        if (method.getName().equals("validate")
-            && method.getParameterCount() == 2
-            && GtfsEntity.class.isAssignableFrom(parameterTypes[0])
-            && !parameterTypes[0].isAssignableFrom(GtfsEntity.class)
-            && parameterTypes[1].isAssignableFrom(NoticeContainer.class)) {
-          try {
-            singleEntityValidators.put(
-                (Class<? extends GtfsEntity>) parameterTypes[0],
-                ((Class<? extends SingleEntityValidator>) validatorClass)
-                    .getConstructor()
-                    .newInstance());
-          } catch (ReflectiveOperationException e) {
-            logger.atSevere().withCause(e).log(
-                "Cannot instantiate validator %s", validatorClass.getCanonicalName());
-          }
-          break;
-        }
-      }
-    }
+  /**
+   * Loads validators from the generated registries.
+   *
+   * @param scanClassPath whether to also scan the class path for validators that no registry
+   *     covers
+   */
+  public ValidatorLoader(boolean scanClassPath) {
+    this(GtfsComponentRegistry.loadAll(scanClassPath));
+  }
 
-    for (Class<? extends FileValidator> validatorClass : fileValidatorClasses) {
-      List<Field> tableInjectableFields = new ArrayList<>();
-      for (Field field : validatorClass.getDeclaredFields()) {
-        if (isTableInjectableField(field)) {
-          tableInjectableFields.add(field);
-        }
-      }
-      if (tableInjectableFields.size() == 1) {
-        singleFileValidators.put(
-            (Class<? extends GtfsTableContainer>) tableInjectableFields.get(0).getType(),
-            validatorClass);
+  /**
+   * Loads validators from the given registries.
+   *
+   * @param registries registries to take validators from
+   */
+  ValidatorLoader(List<GtfsComponentRegistry> registries) {
+    List<FileValidatorFactory> fileValidatorFactories = new ArrayList<>();
+    for (GtfsComponentRegistry registry : registries) {
+      singleEntityValidators.putAll(registry.createSingleEntityValidators());
+      fileValidatorFactories.addAll(registry.getFileValidatorFactories());
+    }
+    for (FileValidatorFactory factory : fileValidatorFactories) {
+      if (factory.getDependencies().size() == 1) {
+        singleFileValidators.put(factory.getDependencies().get(0), factory);
       } else {
-        multiFileValidators.add(validatorClass);
+        multiFileValidators.add(factory);
+        multiFileValidatorsByClass.put(factory.getValidatorClass(), factory);
       }
     }
   }
 
-  private static boolean isTableInjectableField(Field field) {
-    return field.isAnnotationPresent(Inject.class)
-        && GtfsTableContainer.class.isAssignableFrom(field.getType());
-  }
-
   public <T extends GtfsEntity> List<SingleEntityValidator<T>> getSingleEntityValidators(
       Class<T> clazz) {
     return (List<SingleEntityValidator<T>>) (List<?>) singleEntityValidators.get(clazz);
@@ -132,70 +106,147 @@ public class ValidatorLoader {
 
   public <T extends GtfsEntity> void invokeSingleFileValidators(
       GtfsTableContainer<T> table, NoticeContainer noticeContainer) {
-    for (Class<? extends FileValidator> validatorClass :
-        singleFileValidators.get(table.getClass())) {
+    for (FileValidatorFactory factory : singleFileValidators.get(table.getClass())) {
       FileValidator validator;
       try {
-        validator = createValidator(validatorClass, table);
+        validator = factory.create(ImmutableList.of(table));
       } catch (ReflectiveOperationException e) {
         logger.atSevere().withCause(e).log(
-            "Cannot instantiate validator %s", validatorClass.getCanonicalName());
+            "Cannot instantiate validator %s", factory.getValidatorClass().getCanonicalName());
         continue;
       }
       validator.validate(noticeContainer);
     }
   }
 
-  private FileValidator createValidator(
-      Class<? extends FileValidator> clazz, GtfsTableContainer table)
-      throws ReflectiveOperationException {
-    FileValidator validator = clazz.getConstructor().newInstance();
-    for (Field field : clazz.getDeclaredFields()) {
-      if (!isTableInjectableField(field)) {
-        continue;
-      }
-      if (!field.getType().isAssignableFrom(table.getClass())) {
-        throw new InstantiationException(
-            "Cannot inject a field of type " + field.getType().getSimpleName());
-      }
-      field.set(validator, table);
-    }
-    return validator;
-  }
-
-  private FileValidator createValidator(
-      Class<? extends FileValidator> clazz, GtfsFeedContainer feed)
+  private FileValidator createValidator(FileValidatorFactory factory, GtfsFeedContainer feed)
       throws ReflectiveOperationException {
-    FileValidator validator = clazz.getConstructor().newInstance();
-    for (Field field : clazz.getDeclaredFields()) {
-      if (!isTableInjectableField(field)) {
-        continue;
-      }
-      GtfsTableContainer table =
-          feed.getTable((Class<? extends GtfsTableContainer>) field.getType());
+    List<GtfsTableContainer<?>> tables = new ArrayList<>();
+    for (Class<? extends GtfsTableContainer<?>> tableClass : factory.getDependencies()) {
+      GtfsTableContainer<?> table = feed.getTable(tableClass);
       if (table == null) {
         throw new InstantiationException(
-            "Cannot find " + field.getType().getSimpleName() + " in feed container");
+            "Cannot find " + tableClass.getSimpleName() + " in feed container");
       }
-      field.set(validator, table);
+      tables.add(table);
     }
-    return validator;
+    return factory.create(tables);
   }
 
   public List<FileValidator> createMultiFileValidators(GtfsFeedContainer feed) {
+    return createMultiFileValidators(feed, validatorClass -> true);
+  }
+
+  /**
+   * Creates multi-file validators that pass the given filter.
+   *
+   * <p>Tables that are injected into the selected validators must be present in the feed.
+   *
+   * @param feed the feed to take tables from
+   * @param filter predicate that selects validator classes to instantiate
+   * @return the created validators
+   */
+  public List<FileValidator> createMultiFileValidators(
+      GtfsFeedContainer feed, Predicate<Class<? extends FileValidator>> filter) {
     ArrayList<FileValidator> validators = new ArrayList<>();
     validators.ensureCapacity(multiFileValidators.size());
-    for (Class<? extends FileValidator> validatorClass : multiFileValidators) {
+    for (FileValidatorFactory factory : multiFileValidators) {
+      if (!filter.test(factory.getValidatorClass())) {
+        continue;
+      }
       try {
-        validators.add(createValidator(validatorClass, feed));
+        validators.add(createValidator(factory, feed));
       } catch (ReflectiveOperationException e) {
         logger.atSevere().withCause(e).log(
-            "Cannot instantiate validator %s", validatorClass.getCanonicalName());
+            "Cannot instantiate validator %s", factory.getValidatorClass().getCanonicalName());
       }
     }
     return validators;
   }
 
+  /**
+   * Returns classes of all multi-file validators.
+   *
+   * @return classes of validators that are created by {@link #createMultiFileValidators}
+   */
+  public List<Class<? extends FileValidator>> getMultiFileValidatorClasses() {
+    List<Class<? extends FileValidator>> classes = new ArrayList<>();
+    for (FileValidatorFactory factory : multiFileValidators) {
+      classes.add(factory.getValidatorClass());
+    }
+    return Collections.unmodifiableList(classes);
+  }
+
+  /**
+   * Returns tables that a multi-file validator depends on.
+   *
+   * @param validatorClass class of a multi-file validator
+   * @return classes of tables that are injected into the validator
+   */
+  public List<Class<? extends GtfsTableContainer<?>>> getMultiFileValidatorDependencies(
+      Class<? extends FileValidator> validatorClass) {
+    FileValidatorFactory factory = multiFileValidatorsByClass.get(validatorClass);
+    return factory == null ? Collections.emptyList() : factory.getDependencies();
+  }
+
+  /**
+   * Makes table loaders parse only the columns that are read by validators, see {@link
+   * ReadsColumns}. Values of other columns are neither parsed nor validated, except that missing
+   * values of required columns are still reported.
+   */
+  public void setColumnProjection(boolean columnProjection) {
+    this.columnProjection = columnProjection;
+  }
+
+  public boolean getColumnProjection() {
+    return columnProjection;
+  }
+
+  /**
+   * Returns the columns of a table that must be parsed for the validators, not counting keys,
+   * indices and foreign keys, which are always parsed.
+   *
+   * @param filename name of the file of the table, e.g., "stops.txt"
+   * @param tableClass class of the table container
+   * @param entityClass class of the entities of the table
+   * @return names of the columns or null if all columns must be parsed, i.e., if column projection
+   *     is disabled or some validator of the table does not declare the columns it reads
+   */
+  @Nullable
+  public Set<String> getProjectedColumns(
+      String filename,
+      Class<? extends GtfsTableContainer<?>> tableClass,
+      Class<? extends GtfsEntity> entityClass) {
+    if (!columnProjection) {
+      return null;
+    }
+    List<Class<?>> validatorClasses = new ArrayList<>();
+    for (SingleEntityValidator<?> validator : singleEntityValidators.get(entityClass)) {
+      validatorClasses.add(validator.getClass());
+    }
+    for (FileValidatorFactory factory : singleFileValidators.get(tableClass)) {
+      validatorClasses.add(factory.getValidatorClass());
+    }
+    for (FileValidatorFactory factory : multiFileValidators) {
+      if (factory.getDependencies().contains(tableClass)) {
+        validatorClasses.add(factory.getValidatorClass());
+      }
+    }
+    Set<String> columns = new HashSet<>();
+    for (Class<?> validatorClass : validatorClasses) {
+      ReadsColumns[] declarations = validatorClass.getAnnotationsByType(ReadsColumns.class);
+      if (declarations.length == 0) {
+        return null;
+      }
+      for (ReadsColumns declaration : declarations) {
+        if (declaration.file().equals(filename)) {
+          Collections.addAll(columns, declaration.columns());
+        }
+      }
+    }
+    return columns;
+  }
+
   public String listValidators() {
     StringBuilder builder = new StringBuilder();
     if (!singleEntityValidators.isEmpty()) {
@@ -211,20 +262,19 @@ public class ValidatorLoader {
     }
     if (!singleFileValidators.isEmpty()) {
       builder.append("Single-file validators\n");
-      for (Map.Entry<
-              Class<? extends GtfsTableContainer>, Collection<Class<? extends FileValidator>>>
-          entry : singleFileValidators.asMap().entrySet()) {
+      for (Map.Entry<Class<?>, Collection<FileValidatorFactory>> entry :
+          singleFileValidators.asMap().entrySet()) {
         builder.append("\t").append(entry.getKey().getSimpleName()).append(": ");
-        for (Class<? extends FileValidator> validatorClass : entry.getValue()) {
-          builder.append(validatorClass.getSimpleName()).append(" ");
+        for (FileValidatorFactory factory : entry.getValue()) {
+          builder.append(factory.getValidatorClass().getSimpleName()).append(" ");
         }
         builder.append("\n");
       }
     }
     if (!multiFileValidators.isEmpty()) {
       builder.append("Multi-file validators\n").append("\t");
-      for (Class<? extends FileValidator> validatorClass : multiFileValidators) {
-        builder.append(validatorClass.getSimpleName()).append(" ");
+      for (FileValidatorFactory factory : multiFileValidators) {
+        builder.append(factory.getValidatorClass().getSimpleName()).append(" ");
       }
       builder.append("\n");
     }
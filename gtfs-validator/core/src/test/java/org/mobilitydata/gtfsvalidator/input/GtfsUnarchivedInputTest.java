@@ -24,6 +24,8 @@ import org.junit.runners.JUnit4;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -52,4 +54,20 @@ public class GtfsUnarchivedInputTest {
     GtfsInput gtfsInput = GtfsInput.createFromPath(rootDir.toPath());
     assertThat(gtfsInput.getFilenames()).containsExactly("noext");
   }
+
+  @Test
+  public void fingerprintDependsOnContent() throws IOException {
+    File rootDir = tmpDir.newFolder("unarchived");
+    Files.write(
+        rootDir.toPath().resolve("stops.txt"), "stop_id\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(rootDir.toPath().resolve("copy.txt"), "stop_id\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(
+        rootDir.toPath().resolve("agency.txt"), "agency_id\n".getBytes(StandardCharsets.UTF_8));
+
+    GtfsInput gtfsInput = GtfsInput.createFromPath(rootDir.toPath());
+    assertThat(gtfsInput.getFileFingerprint("stops.txt"))
+        .isEqualTo(gtfsInput.getFileFingerprint("copy.txt"));
+    assertThat(gtfsInput.getFileFingerprint("stops.txt"))
+        .isNotEqualTo(gtfsInput.getFileFingerprint("agency.txt"));
+  }
 }
@@ -25,6 +25,8 @@ import org.junit.runners.JUnit4;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -65,4 +67,28 @@ public class GtfsZipFileInputTest {
     GtfsInput gtfsInput = GtfsInput.createFromPath(zipFile.toPath());
     assertThat(gtfsInput.getFilenames()).containsExactly("noext");
   }
+
+  @Test
+  public void fingerprintDoesNotDependOnArchive() throws IOException {
+    File zipFile = tmpDir.newFile("archived.zip");
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile));
+
+    out.putNextEntry(new ZipEntry("stops.txt"));
+    out.write("stop_id\n".getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+
+    out.putNextEntry(new ZipEntry("agency.txt"));
+    out.write("agency_id\n".getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+
+    out.close();
+
+    GtfsInput gtfsInput = GtfsInput.createFromPath(zipFile.toPath());
+    GtfsInput inMemoryInput =
+        new GtfsZipInMemoryInput(zipFile.getPath(), Files.readAllBytes(zipFile.toPath()));
+    assertThat(gtfsInput.getFileFingerprint("stops.txt"))
+        .isEqualTo(inMemoryInput.getFileFingerprint("stops.txt"));
+    assertThat(gtfsInput.getFileFingerprint("stops.txt"))
+        .isNotEqualTo(gtfsInput.getFileFingerprint("agency.txt"));
+  }
 }
@@ -20,9 +20,15 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import com.google.common.io.ByteStreams;
+
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -81,4 +87,71 @@ public class GtfsZipInMemoryInputTest {
     GtfsInput gtfsInput = new GtfsZipInMemoryInput("archived.zip", byteStream.toByteArray());
     assertThat(gtfsInput.getFilenames()).containsExactly("noext");
   }
+
+  @Test
+  public void readFilesInAnyOrder() throws IOException {
+    ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+    ZipOutputStream out = new ZipOutputStream(byteStream);
+    out.setComment("archive comment");
+
+    out.putNextEntry(new ZipEntry("agency.txt"));
+    out.write("agency_id\nagency1\n".getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+
+    byte[] stored = "stop_id\nstop1\n".getBytes(StandardCharsets.UTF_8);
+    ZipEntry storedEntry = new ZipEntry("stops.txt");
+    storedEntry.setMethod(ZipEntry.STORED);
+    storedEntry.setSize(stored.length);
+    CRC32 crc = new CRC32();
+    crc.update(stored);
+    storedEntry.setCrc(crc.getValue());
+    out.putNextEntry(storedEntry);
+    out.write(stored);
+    out.closeEntry();
+
+    out.close();
+
+    GtfsInput gtfsInput = new GtfsZipInMemoryInput("archived.zip", byteStream.toByteArray());
+    assertThat(gtfsInput.getFilenames()).containsExactly("agency.txt", "stops.txt");
+    assertThat(readFile(gtfsInput, "stops.txt")).isEqualTo("stop_id\nstop1\n");
+    assertThat(readFile(gtfsInput, "agency.txt")).isEqualTo("agency_id\nagency1\n");
+    // The same file may be opened several times.
+    assertThat(readFile(gtfsInput, "stops.txt")).isEqualTo("stop_id\nstop1\n");
+  }
+
+  @Test
+  public void notAnArchiveHasNoFiles() throws IOException {
+    GtfsInput gtfsInput =
+        new GtfsZipInMemoryInput("archived.zip", "not a zip file".getBytes(StandardCharsets.UTF_8));
+    assertThat(gtfsInput.getFilenames()).isEmpty();
+  }
+
+  @Test
+  public void truncatedArchiveKeepsCompleteFiles() throws IOException {
+    ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+    ZipOutputStream out = new ZipOutputStream(byteStream);
+    out.putNextEntry(new ZipEntry("agency.txt"));
+    out.write("agency_id\nagency1\n".getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+    out.flush();
+    int firstEntryEnd = byteStream.size();
+    out.putNextEntry(new ZipEntry("stops.txt"));
+    out.write("stop_id\nstop1\n".getBytes(StandardCharsets.UTF_8));
+    out.closeEntry();
+    out.close();
+    // The central directory and the local header of stops.txt are cut off.
+    byte[] truncated = Arrays.copyOf(byteStream.toByteArray(), firstEntryEnd);
+
+    GtfsInput gtfsInput = new GtfsZipInMemoryInput("archived.zip", truncated);
+    assertThat(gtfsInput.getFilenames()).containsExactly("agency.txt");
+    assertThat(readFile(gtfsInput, "agency.txt")).isEqualTo("agency_id\nagency1\n");
+    assertThat(gtfsInput.getFileFingerprint("agency.txt")).isNull();
+    assertThrows(FileNotFoundException.class, () -> gtfsInput.getFile("stops.txt"));
+  }
+
+  private static String readFile(GtfsInput gtfsInput, String filename) throws IOException {
+    try (InputStream stream = gtfsInput.getFile(filename)) {
+      return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+    }
+  }
 }
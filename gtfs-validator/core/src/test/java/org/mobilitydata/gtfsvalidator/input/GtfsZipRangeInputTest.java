@@ -0,0 +1,183 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+@RunWith(JUnit4.class)
+public class GtfsZipRangeInputTest {
+  private static final int SHAPES_SIZE = 1024 * 1024;
+
+  private final AtomicLong bytesServed = new AtomicLong();
+  private byte[] zip;
+  private HttpServer server;
+
+  private static byte[] createZip() throws IOException {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(zip)) {
+      out.putNextEntry(new ZipEntry("agency.txt"));
+      out.write("agency_id\n".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+      // Make shapes.txt incompressible, so that downloading it would be noticeable.
+      byte[] shapes = new byte[SHAPES_SIZE];
+      new Random(1).nextBytes(shapes);
+      out.putNextEntry(new ZipEntry("shapes.txt"));
+      out.write(shapes);
+      out.closeEntry();
+      ZipEntry stored = new ZipEntry("stops.txt");
+      byte[] stops = "stop_id\nstop1\n".getBytes(StandardCharsets.UTF_8);
+      stored.setMethod(ZipEntry.STORED);
+      stored.setSize(stops.length);
+      CRC32 crc = new CRC32();
+      crc.update(stops);
+      stored.setCrc(crc.getValue());
+      out.putNextEntry(stored);
+      out.write(stops);
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("nested/file.txt"));
+      out.closeEntry();
+    }
+    return zip.toByteArray();
+  }
+
+  @Before
+  public void startServer() throws IOException {
+    zip = createZip();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext("/gtfs.zip", this::serveRange);
+    server.createContext(
+        "/no_ranges.zip",
+        exchange -> {
+          exchange.sendResponseHeaders(200, zip.length);
+          try (OutputStream body = exchange.getResponseBody()) {
+            body.write(zip);
+          }
+        });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  /** Serves a single range in the form of {@code bytes=first-last} or {@code bytes=-suffix}. */
+  private void serveRange(HttpExchange exchange) throws IOException {
+    String range = exchange.getRequestHeaders().getFirst("Range").substring("bytes=".length());
+    int dash = range.indexOf('-');
+    int first;
+    int last;
+    if (dash == 0) {
+      first = Math.max(0, zip.length - Integer.parseInt(range.substring(1)));
+      last = zip.length - 1;
+    } else {
+      first = Integer.parseInt(range.substring(0, dash));
+      last = Math.min(zip.length - 1, Integer.parseInt(range.substring(dash + 1)));
+    }
+    int length = last - first + 1;
+    exchange
+        .getResponseHeaders()
+        .set("Content-Range", "bytes " + first + "-" + last + "/" + zip.length);
+    exchange.sendResponseHeaders(206, length);
+    try (OutputStream body = exchange.getResponseBody()) {
+      body.write(zip, first, length);
+    }
+    bytesServed.addAndGet(length);
+  }
+
+  private URL serverUrl(String path) throws IOException {
+    return new URL("http", "localhost", server.getAddress().getPort(), path);
+  }
+
+  @Test
+  public void downloadOnlyOpenedFiles() throws Exception {
+    try (GtfsInput gtfsInput = GtfsInput.createFromUrlWithRanges(serverUrl("/gtfs.zip"), 2)) {
+      assertThat(gtfsInput.getFilenames()).containsExactly("agency.txt", "shapes.txt", "stops.txt");
+      assertThat(readAll(gtfsInput.getFile("agency.txt"))).isEqualTo("agency_id\n");
+      assertThat(readAll(gtfsInput.getFile("stops.txt"))).isEqualTo("stop_id\nstop1\n");
+      assertThrows(FileNotFoundException.class, () -> gtfsInput.getFile("missing.txt"));
+    }
+    assertThat(bytesServed.get()).isLessThan((long) SHAPES_SIZE);
+  }
+
+  @Test
+  public void readFilesInParallel() throws Exception {
+    ExecutorService exec = Executors.newFixedThreadPool(3);
+    try (GtfsInput gtfsInput = GtfsInput.createFromUrlWithRanges(serverUrl("/gtfs.zip"), 3)) {
+      List<Future<byte[]>> contents = new ArrayList<>();
+      for (String filename : new String[] {"shapes.txt", "agency.txt", "stops.txt"}) {
+        contents.add(
+            exec.submit(
+                () -> {
+                  try (InputStream in = gtfsInput.getFile(filename)) {
+                    return ByteStreams.toByteArray(in);
+                  }
+                }));
+      }
+      assertThat(contents.get(0).get()).hasLength(SHAPES_SIZE);
+      assertThat(new String(contents.get(1).get(), StandardCharsets.UTF_8))
+          .isEqualTo("agency_id\n");
+      assertThat(new String(contents.get(2).get(), StandardCharsets.UTF_8))
+          .isEqualTo("stop_id\nstop1\n");
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public void serverWithoutRanges() {
+    assertThrows(
+        IOException.class, () -> GtfsInput.createFromUrlWithRanges(serverUrl("/no_ranges.zip"), 1));
+  }
+
+  private static String readAll(InputStream stream) throws IOException {
+    try (InputStream in = stream) {
+      return new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+    }
+  }
+}
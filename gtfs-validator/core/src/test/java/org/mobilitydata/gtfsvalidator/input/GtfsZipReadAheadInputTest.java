@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+@RunWith(JUnit4.class)
+public class GtfsZipReadAheadInputTest {
+
+  @Rule public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+  @Test
+  public void readLargeFile() throws IOException {
+    // Make the file much larger than the read-ahead buffer.
+    StringBuilder content = new StringBuilder("stop_id,stop_name\n");
+    for (int i = 0; i < 200000; ++i) {
+      content.append("stop").append(i).append(",Stop ").append(i).append('\n');
+    }
+    File zipFile = tmpDir.newFile("archived.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      out.putNextEntry(new ZipEntry("stops.txt"));
+      out.write(content.toString().getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("agency.txt"));
+      out.write("agency_id\n".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("nested/file.txt"));
+      out.closeEntry();
+    }
+
+    try (GtfsInput gtfsInput = GtfsInput.createFromPath(zipFile.toPath(), 2)) {
+      assertThat(gtfsInput).isInstanceOf(GtfsZipReadAheadInput.class);
+      assertThat(gtfsInput.getFilenames()).containsExactly("stops.txt", "agency.txt");
+      try (InputStream stops = gtfsInput.getFile("stops.txt");
+          InputStream agency = gtfsInput.getFile("agency.txt")) {
+        assertThat(readAll(agency)).isEqualTo("agency_id\n");
+        assertThat(readAll(stops)).isEqualTo(content.toString());
+      }
+      assertThrows(FileNotFoundException.class, () -> gtfsInput.getFile("missing.txt"));
+    }
+  }
+
+  @Test
+  public void closeStreamBeforeEnd() throws IOException {
+    File zipFile = tmpDir.newFile("archived.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      out.putNextEntry(new ZipEntry("shapes.txt"));
+      out.write(new byte[10 * 1024 * 1024]);
+      out.closeEntry();
+    }
+
+    try (GtfsInput gtfsInput = new GtfsZipReadAheadInput(zipFile.toPath(), 1)) {
+      InputStream shapes = gtfsInput.getFile("shapes.txt");
+      assertThat(shapes.read()).isEqualTo(0);
+      shapes.close();
+      // The I/O thread is released and can serve another request.
+      assertThat(ByteStreams.toByteArray(gtfsInput.getFile("shapes.txt")))
+          .hasLength(10 * 1024 * 1024);
+    }
+  }
+
+  @Test
+  public void producerBlocksWhileConsumerIsSlow() throws Exception {
+    // Exactly fills the queue, so that the producer has to wait to signal the end.
+    int size = 16 * 64 * 1024;
+    File zipFile = tmpDir.newFile("archived.zip");
+    try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zipFile))) {
+      out.putNextEntry(new ZipEntry("shapes.txt"));
+      out.write(new byte[size]);
+      out.closeEntry();
+    }
+
+    try (GtfsInput gtfsInput = new GtfsZipReadAheadInput(zipFile.toPath(), 1)) {
+      InputStream shapes = gtfsInput.getFile("shapes.txt");
+      Thread producer = awaitReadAheadThreadState(Thread.State.TIMED_WAITING);
+      // A spinning producer would stay runnable.
+      Thread.sleep(200);
+      assertThat(producer.getState()).isEqualTo(Thread.State.TIMED_WAITING);
+      assertThat(ByteStreams.toByteArray(shapes)).hasLength(size);
+    }
+  }
+
+  private static Thread awaitReadAheadThreadState(Thread.State state) throws InterruptedException {
+    for (int attempt = 0; attempt < 100; ++attempt) {
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        if (thread.getName().startsWith("zip-read-ahead-") && thread.getState() == state) {
+          return thread;
+        }
+      }
+      Thread.sleep(50);
+    }
+    throw new AssertionError("No read-ahead thread in state " + state);
+  }
+
+  @Test
+  public void directoryIsNotReadAhead() throws IOException {
+    File rootDir = tmpDir.newFolder("unarchived");
+    tmpDir.newFile("unarchived/stops.txt");
+
+    try (GtfsInput gtfsInput = GtfsInput.createFromPath(rootDir.toPath(), 2)) {
+      assertThat(gtfsInput).isInstanceOf(GtfsUnarchivedInput.class);
+    }
+  }
+
+  private static String readAll(InputStream stream) throws IOException {
+    return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+  }
+}
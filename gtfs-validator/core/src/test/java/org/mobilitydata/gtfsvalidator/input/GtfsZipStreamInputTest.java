@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+@RunWith(JUnit4.class)
+public class GtfsZipStreamInputTest {
+  private static final String STOPS_CONTENT = createStopsContent();
+
+  private HttpServer server;
+
+  private static String createStopsContent() {
+    // Make the file larger than any buffer along the way.
+    StringBuilder content = new StringBuilder("stop_id,stop_name\n");
+    for (int i = 0; i < 100000; ++i) {
+      content.append("stop").append(i).append(",Stop ").append(i).append('\n');
+    }
+    return content.toString();
+  }
+
+  private static byte[] createZip() throws IOException {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(zip)) {
+      out.putNextEntry(new ZipEntry("agency.txt"));
+      out.write("agency_id\n".getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("nested/"));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("nested/file.txt"));
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("unknown.txt"));
+      out.write(new byte[100000]);
+      out.closeEntry();
+      out.putNextEntry(new ZipEntry("stops.txt"));
+      out.write(STOPS_CONTENT.getBytes(StandardCharsets.UTF_8));
+      out.closeEntry();
+    }
+    return zip.toByteArray();
+  }
+
+  @Before
+  public void startServer() throws IOException {
+    byte[] zip = createZip();
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/gtfs.zip",
+        exchange -> {
+          // Chunked response without Content-Length, sent in small pieces.
+          exchange.sendResponseHeaders(200, 0);
+          try (OutputStream body = exchange.getResponseBody()) {
+            for (int i = 0; i < zip.length; i += 4096) {
+              body.write(zip, i, Math.min(4096, zip.length - i));
+              body.flush();
+            }
+          }
+        });
+    server.start();
+  }
+
+  @After
+  public void stopServer() {
+    server.stop(0);
+  }
+
+  private URL serverUrl(String path) throws IOException {
+    return new URL("http", "localhost", server.getAddress().getPort(), path);
+  }
+
+  @Test
+  public void readFromUrlOnAnotherThread() throws Exception {
+    ExecutorService exec = Executors.newSingleThreadExecutor();
+    try (GtfsInput gtfsInput = GtfsInput.createFromUrlAsStream(serverUrl("/gtfs.zip"))) {
+      List<String> filenames = new ArrayList<>();
+      List<Future<String>> contents = new ArrayList<>();
+      for (String filename : gtfsInput.getFilenamesInArrivalOrder()) {
+        filenames.add(filename);
+        if (filename.equals("unknown.txt")) {
+          // Files that are not opened are skipped.
+          continue;
+        }
+        InputStream stream = gtfsInput.getFile(filename);
+        contents.add(
+            exec.submit(
+                () -> {
+                  try (InputStream in = stream) {
+                    return readAll(in);
+                  }
+                }));
+      }
+
+      assertThat(filenames).containsExactly("agency.txt", "unknown.txt", "stops.txt").inOrder();
+      assertThat(gtfsInput.getFilenames())
+          .containsExactly("agency.txt", "unknown.txt", "stops.txt");
+      assertThat(contents.get(0).get()).isEqualTo("agency_id\n");
+      assertThat(contents.get(1).get()).isEqualTo(STOPS_CONTENT);
+    } finally {
+      exec.shutdown();
+    }
+  }
+
+  @Test
+  public void filesAreReadInArchiveOrder() throws IOException {
+    try (GtfsInput gtfsInput =
+        GtfsInput.createFromStream("stdin", new ByteArrayInputStream(createZip()))) {
+      Iterator<String> filenames = gtfsInput.getFilenamesInArrivalOrder().iterator();
+      assertThat(filenames.next()).isEqualTo("agency.txt");
+      assertThrows(FileNotFoundException.class, () -> gtfsInput.getFile("stops.txt"));
+
+      InputStream agency = gtfsInput.getFile("agency.txt");
+      assertThrows(IOException.class, () -> gtfsInput.getFile("agency.txt"));
+      agency.close();
+
+      assertThat(filenames.next()).isEqualTo("unknown.txt");
+      assertThat(filenames.next()).isEqualTo("stops.txt");
+      assertThat(readAll(gtfsInput.getFile("stops.txt"))).isEqualTo(STOPS_CONTENT);
+      assertThat(filenames.hasNext()).isFalse();
+      assertThrows(IllegalStateException.class, () -> gtfsInput.getFilenamesInArrivalOrder());
+    }
+  }
+
+  @Test
+  public void invalidArchive() throws IOException {
+    byte[] zip = createZip();
+    byte[] truncated = new byte[zip.length / 2];
+    System.arraycopy(zip, 0, truncated, 0, truncated.length);
+    try (GtfsInput gtfsInput =
+        GtfsInput.createFromStream("stdin", new ByteArrayInputStream(truncated))) {
+      // The stream ends in the middle of stops.txt.
+      assertThrows(
+          IOException.class,
+          () -> {
+            for (String filename : gtfsInput.getFilenamesInArrivalOrder()) {
+              try (InputStream stream = gtfsInput.getFile(filename)) {
+                ByteStreams.exhaust(stream);
+              }
+            }
+          });
+    }
+  }
+
+  @Test
+  public void missingUrl() {
+    assertThrows(
+        FileNotFoundException.class,
+        () -> GtfsInput.createFromUrlAsStream(serverUrl("/missing.zip")));
+  }
+
+  private static String readAll(InputStream stream) throws IOException {
+    return new String(ByteStreams.toByteArray(stream), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.input;
+
+import com.google.common.io.CharStreams;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class MappedUtf8ReaderTest {
+  private static final String TEXT =
+      "stop_id,stop_name\ns1,Gare de l'Est \u00E9\ns2,\u6771\u4EAC \uD83D\uDE87\n";
+
+  @Rule public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+  private Path writeFile(byte[] content) throws IOException {
+    return Files.write(tmpDir.newFile().toPath(), content);
+  }
+
+  @Test
+  public void decodeUtf8() throws IOException {
+    Path path = writeFile(TEXT.getBytes(StandardCharsets.UTF_8));
+    try (Reader reader = new MappedUtf8Reader(path)) {
+      assertThat(CharStreams.toString(reader)).isEqualTo(TEXT);
+    }
+  }
+
+  @Test
+  public void decodeAcrossWindows() throws IOException {
+    Path path = writeFile(TEXT.getBytes(StandardCharsets.UTF_8));
+    // Multi-byte characters are split between windows of every size.
+    for (int windowSize = 4; windowSize <= 8; ++windowSize) {
+      try (Reader reader = new MappedUtf8Reader(path, windowSize)) {
+        assertThat(CharStreams.toString(reader)).isEqualTo(TEXT);
+      }
+    }
+  }
+
+  @Test
+  public void readOneCharAtATime() throws IOException {
+    Path path = writeFile(TEXT.getBytes(StandardCharsets.UTF_8));
+    StringBuilder builder = new StringBuilder();
+    try (Reader reader = new MappedUtf8Reader(path, 5)) {
+      for (int c = reader.read(); c >= 0; c = reader.read()) {
+        builder.append((char) c);
+      }
+    }
+    assertThat(builder.toString()).isEqualTo(TEXT);
+  }
+
+  @Test
+  public void skipByteOrderMark() throws IOException {
+    Path path = writeFile("\uFEFFstop_id\n".getBytes(StandardCharsets.UTF_8));
+    try (Reader reader = new MappedUtf8Reader(path)) {
+      assertThat(CharStreams.toString(reader)).isEqualTo("stop_id\n");
+    }
+  }
+
+  @Test
+  public void replaceMalformedInput() throws IOException {
+    Path path = writeFile(new byte[] {'a', (byte) 0xFF, 'b', (byte) 0xE6});
+    try (Reader reader = new MappedUtf8Reader(path)) {
+      assertThat(CharStreams.toString(reader)).isEqualTo("a\uFFFDb\uFFFD");
+    }
+  }
+
+  @Test
+  public void emptyFile() throws IOException {
+    Path path = writeFile(new byte[0]);
+    try (Reader reader = new MappedUtf8Reader(path)) {
+      assertThat(reader.read()).isEqualTo(-1);
+    }
+  }
+}
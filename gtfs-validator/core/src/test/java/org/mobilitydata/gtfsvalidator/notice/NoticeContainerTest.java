@@ -64,6 +64,55 @@ public class NoticeContainerTest {
     assertThat(c1.getNotices()).containsExactly(n1, n2);
   }
 
+  @Test
+  public void noticesAboveLimitAreCounted() {
+    NoticeContainer container = new NoticeContainer(2);
+    for (int i = 2; i <= 5; ++i) {
+      assertThat(container.hasRoomFor(MissingRequiredFieldError.CODE)).isEqualTo(i < 4);
+      container.addNotice(new MissingRequiredFieldError("stops.txt", i, "stop_id"));
+    }
+    container.addOmittedNotice(MissingRequiredFieldError.CODE, "stops.txt", 6);
+    container.addNotice(new MissingRequiredFileError("agency.txt"));
+
+    assertThat(container.getNotices()).hasSize(3);
+    assertThat(container.countNoticesByCode())
+        .containsExactly(MissingRequiredFieldError.CODE, 5, "missing_required_file", 1);
+    assertThat(container.exportJson())
+        .isEqualTo(
+            "{\"notices\":["
+                + "{\"code\":\"missing_required_field\",\"totalNotices\":5,\"notices\":["
+                + "{\"filename\":\"stops.txt\",\"csvRowNumber\":2,\"fieldName\":\"stop_id\"},"
+                + "{\"filename\":\"stops.txt\",\"csvRowNumber\":3,\"fieldName\":\"stop_id\"}],"
+                + "\"omittedNotices\":[{\"filename\":\"stops.txt\",\"count\":3,"
+                + "\"sampledCsvRowNumbers\":[4,5,6]}]},"
+                + "{\"code\":\"missing_required_file\",\"totalNotices\":1,\"notices\":"
+                + "[{\"filename\":\"agency.txt\"}]}]}");
+  }
+
+  @Test
+  public void addAllAppliesLimit() {
+    NoticeContainer chunk1 = new NoticeContainer(2);
+    NoticeContainer chunk2 = new NoticeContainer(2);
+    for (int i = 2; i <= 4; ++i) {
+      chunk1.addNotice(new MissingRequiredFieldError("stops.txt", i, "stop_id"));
+      chunk2.addNotice(new MissingRequiredFieldError("stops.txt", i + 3, "stop_id"));
+    }
+    NoticeContainer merged = new NoticeContainer(2);
+    merged.addAll(chunk1);
+    merged.addAll(chunk2);
+
+    assertThat(merged.getNotices()).containsExactlyElementsIn(chunk1.getNotices()).inOrder();
+    OmittedNotices omitted = merged.getOmittedNotices().get(0);
+    assertThat(omitted.getCount()).isEqualTo(4);
+    assertThat(omitted.getSampledCsvRowNumbers()).containsExactly(4L, 5L, 6L, 7L).inOrder();
+
+    // A container without a limit keeps the omitted notices of every file.
+    NoticeContainer feed = new NoticeContainer();
+    feed.addAll(merged);
+    feed.addAll(merged);
+    assertThat(feed.countNoticesByCode()).containsExactly(MissingRequiredFieldError.CODE, 12);
+  }
+
   private static class TestNotice extends Notice {
     private final String code;
 
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class ChunkedCsvParserTest {
+  private static final GtfsFeedName FEED_NAME = GtfsFeedName.parseString("au-sydney-buses");
+
+  /** Formats rows as "rowNumber:stop_id:stop_name" and reports rows with a wrong length. */
+  private static class TestChunkParser implements ChunkedCsvParser.ChunkParser<String> {
+    @Override
+    public List<String> parseChunk(CsvFile chunk, NoticeContainer noticeContainer) {
+      RowParser rowParser = new RowParser(FEED_NAME, noticeContainer);
+      List<String> entities = new ArrayList<>();
+      for (CsvRow row : chunk) {
+        rowParser.setRow(row);
+        rowParser.checkRowColumnCount(chunk);
+        entities.add(row.getRowNumber() + ":" + row.asString(0) + ":" + row.asString(1));
+      }
+      return entities;
+    }
+  }
+
+  private static String createFile() {
+    StringBuilder builder = new StringBuilder("stop_id,stop_name\n");
+    for (int i = 0; i < 300; ++i) {
+      if (i % 7 == 0) {
+        builder.append("s").append(i).append(",\"Stop\n").append(i).append("\"\n");
+      } else if (i % 11 == 0) {
+        builder.append("s").append(i).append('\n');
+      } else {
+        builder.append("s").append(i).append(",Stop ").append(i).append('\n');
+      }
+    }
+    return builder.toString();
+  }
+
+  private static List<String> parse(
+      ChunkedCsvParser chunkedParser, String input, NoticeContainer noticeContainer) {
+    CsvFile csvFile = new CsvFile(new StringReader(input), "stops.txt");
+    return chunkedParser.parse(csvFile, TestChunkParser::new, noticeContainer);
+  }
+
+  @Test
+  public void chunksAreMergedInRowOrder() throws Exception {
+    String input = createFile();
+    NoticeContainer expectedNotices = new NoticeContainer();
+    List<String> expectedEntities = parse(ChunkedCsvParser.sequential(), input, expectedNotices);
+    assertThat(expectedEntities).hasSize(300);
+    assertThat(expectedEntities.get(7)).isEqualTo("11:s7:Stop\n7");
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      for (int chunkLength : new int[] {1, 10, 100, 1 << 20}) {
+        NoticeContainer noticeContainer = new NoticeContainer();
+        List<String> entities =
+            parse(new ChunkedCsvParser(executor, 3, chunkLength), input, noticeContainer);
+        assertThat(entities).containsExactlyElementsIn(expectedEntities).inOrder();
+        assertThat(noticeContainer.getNotices())
+            .containsExactlyElementsIn(expectedNotices.getNotices())
+            .inOrder();
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void limitedNoticesAreSameAsForSequentialParsing() throws Exception {
+    String input = createFile();
+    NoticeContainer expectedNotices = new NoticeContainer(5);
+    parse(ChunkedCsvParser.sequential(), input, expectedNotices);
+    assertThat(expectedNotices.getNotices()).hasSize(5);
+    assertThat(expectedNotices.getOmittedNotices().get(0).getCount()).isGreaterThan(0);
+
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      for (int chunkLength : new int[] {1, 10, 100}) {
+        NoticeContainer noticeContainer = new NoticeContainer(5);
+        parse(new ChunkedCsvParser(executor, 3, chunkLength), input, noticeContainer);
+        assertThat(noticeContainer.exportJson()).isEqualTo(expectedNotices.exportJson());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void sequentialParserPassesChunksToConsumer() throws Exception {
+    String input = createFile();
+    NoticeContainer expectedNotices = new NoticeContainer();
+    List<String> expectedEntities = parse(ChunkedCsvParser.sequential(), input, expectedNotices);
+
+    NoticeContainer noticeContainer = new NoticeContainer();
+    List<String> entities = new ArrayList<>();
+    new ChunkedCsvParser(null, 1, 10)
+        .parse(
+            new CsvFile(new StringReader(input), "stops.txt"),
+            TestChunkParser::new,
+            noticeContainer,
+            entities::add);
+    assertThat(entities).containsExactlyElementsIn(expectedEntities).inOrder();
+    assertThat(noticeContainer.getNotices())
+        .containsExactlyElementsIn(expectedNotices.getNotices())
+        .inOrder();
+  }
+
+  @Test
+  public void parseOnTaskOfSingleThreadExecutor() throws Exception {
+    String input = createFile();
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      List<String> entities =
+          executor
+              .submit(
+                  () -> parse(new ChunkedCsvParser(executor, 1, 10), input, new NoticeContainer()))
+              .get();
+      assertThat(entities).hasSize(300);
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -139,4 +139,61 @@ public class CsvFileTest {
     assertThat(row.asString(2)).isNull();
     assertThat(row.asString(3)).isEqualTo("b");
   }
+
+  @Test
+  public void rowNumbersCountSkippedLines() throws IOException {
+    Reader reader = new StringReader("\uFEFFstop_id,stop_name\n\n\"s1\",\"First\nstop\"\n\ns2,\n");
+    CsvFile csvFile = new CsvFile(reader, "stops.txt");
+
+    assertThat(csvFile.getColumnName(0)).isEqualTo("stop_id");
+    Iterator<CsvRow> iterator = csvFile.iterator();
+    CsvRow row = iterator.next();
+    assertThat(row.getRowNumber()).isEqualTo(4);
+    assertThat(row.asString(1)).isEqualTo("First\nstop");
+    row = iterator.next();
+    assertThat(row.getRowNumber()).isEqualTo(6);
+    assertThat(row.getColumnCount()).isEqualTo(2);
+    assertThat(row.asString(1)).isNull();
+    assertThat(iterator.hasNext()).isEqualTo(false);
+  }
+
+  @Test
+  public void chunksHaveCompleteRows() throws IOException {
+    Reader reader =
+        new StringReader("stop_id,stop_name\ns1,\"First\nstop\"\n\ns2,Second\ns3,Third");
+    CsvFile csvFile = new CsvFile(reader, "stops.txt");
+
+    CsvFile chunk = csvFile.nextChunk(5);
+    assertThat(chunk.getColumnIndex("stop_name")).isEqualTo(1);
+    Iterator<CsvRow> iterator = chunk.iterator();
+    CsvRow row = iterator.next();
+    assertThat(row.getRowNumber()).isEqualTo(3);
+    assertThat(row.asString(1)).isEqualTo("First\nstop");
+    assertThat(iterator.hasNext()).isEqualTo(false);
+
+    chunk = csvFile.nextChunk(1000);
+    iterator = chunk.iterator();
+    assertThat(iterator.next().getRowNumber()).isEqualTo(5);
+    row = iterator.next();
+    assertThat(row.getRowNumber()).isEqualTo(6);
+    assertThat(row.asString(0)).isEqualTo("s3");
+    assertThat(iterator.hasNext()).isEqualTo(false);
+
+    assertThat(csvFile.nextChunk(5)).isNull();
+  }
+
+  @Test
+  public void nextRowRefillsSameRow() throws IOException {
+    Reader reader = new StringReader("stop_id,stop_name\ns1,First\ns2\n");
+    CsvFile csvFile = new CsvFile(reader, "stops.txt");
+
+    CsvRow row = csvFile.nextRow();
+    assertThat(row.getRowNumber()).isEqualTo(2);
+    assertThat(row.asString(1)).isEqualTo("First");
+    assertThat(csvFile.nextRow()).isSameInstanceAs(row);
+    assertThat(row.getRowNumber()).isEqualTo(3);
+    assertThat(row.getColumnCount()).isEqualTo(1);
+    assertThat(row.asString(0)).isEqualTo("s2");
+    assertThat(csvFile.nextRow()).isNull();
+  }
 }
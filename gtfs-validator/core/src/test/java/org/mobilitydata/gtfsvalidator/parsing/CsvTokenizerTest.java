@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class CsvTokenizerTest {
+
+  /** Tokenizes the input and formats each record as "line:[values]". */
+  private static List<String> tokenize(String input, int bufferSize) throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(input), bufferSize);
+    List<String> records = new ArrayList<>();
+    while (tokenizer.nextRecord()) {
+      String[] values = new String[tokenizer.getValueCount()];
+      for (int i = 0; i < values.length; ++i) {
+        values[i] = tokenizer.getValue(i);
+      }
+      records.add(tokenizer.getRecordLineNumber() + ":" + Arrays.toString(values));
+    }
+    return records;
+  }
+
+  private static void assertTokenized(String input, String... expected) throws IOException {
+    // Small windows force records to be split across refills.
+    for (int bufferSize : new int[] {1, 2, 3, 7, 1 << 16}) {
+      assertThat(tokenize(input, bufferSize)).containsExactlyElementsIn(expected).inOrder();
+    }
+  }
+
+  @Test
+  public void emptyInput() throws IOException {
+    assertTokenized("");
+    assertTokenized(" \n\r\n");
+  }
+
+  @Test
+  public void trimsUnquotedValues() throws IOException {
+    assertTokenized("a, b ,\t\n c,d\r\n", "1:[a, b, null]", "2:[c, d]");
+  }
+
+  @Test
+  public void lastRecordWithoutLineSeparator() throws IOException {
+    assertTokenized("a,b\nc,d", "1:[a, b]", "2:[c, d]");
+  }
+
+  @Test
+  public void skipsBlankLinesAndComments() throws IOException {
+    assertTokenized("#h\na\n\n  \n#x,y\n #z\n", "2:[a]", "6:[#z]");
+    // Same as Univocity: a blank last line without a line separator is an empty record.
+    assertTokenized("a\n ", "1:[a]", "2:[null]");
+  }
+
+  @Test
+  public void skipsByteOrderMark() throws IOException {
+    assertTokenized("\uFEFFa,b\n", "1:[a, b]");
+  }
+
+  @Test
+  public void quotedValues() throws IOException {
+    assertTokenized(
+        "\"a,b\",\" c \",\"\",\"d\"\"e\",\"\"\"\" ,x\n", "1:[a,b,  c , null, d\"e, \", x]");
+  }
+
+  @Test
+  public void quotedLineBreaksAreCountedInRowNumbers() throws IOException {
+    assertTokenized("\"a\nb\",c\r\nd\n", "2:[a\nb, c]", "3:[d]");
+  }
+
+  @Test
+  public void malformedQuotes() throws IOException {
+    assertTokenized(
+        "\"a\"b,\"a\"\"b\"c,x\"y\",\"a\"  b\n", "1:[\"a\"b, \"a\"b\"c, x\"y\", \"a\"  b]");
+  }
+
+  @Test
+  public void unclosedQuoteRunsToEndOfInput() throws IOException {
+    assertTokenized("a\n\"b,c\nd\n", "1:[a]", "4:[b,c\nd\n]");
+  }
+
+  @Test
+  public void offsetsOfVerbatimValues() throws IOException {
+    CsvTokenizer tokenizer = new CsvTokenizer(new StringReader(" ab ,\"c\"\"d\"\n"));
+    assertThat(tokenizer.nextRecord()).isTrue();
+    assertThat(tokenizer.getValueCount()).isEqualTo(2);
+    assertThat(tokenizer.isVerbatim(0)).isTrue();
+    assertThat(
+            new String(
+                tokenizer.getBuffer(),
+                tokenizer.getValueStart(0),
+                tokenizer.getValueEnd(0) - tokenizer.getValueStart(0)))
+        .isEqualTo("ab");
+    assertThat(tokenizer.isVerbatim(1)).isFalse();
+    assertThat(tokenizer.nextRecord()).isFalse();
+  }
+}
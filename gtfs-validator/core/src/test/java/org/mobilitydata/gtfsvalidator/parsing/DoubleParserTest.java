@@ -0,0 +1,142 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+@RunWith(JUnit4.class)
+public class DoubleParserTest {
+
+  private static boolean parses(String s) {
+    char[] chars = ("," + s + ",").toCharArray();
+    return new DoubleParser().parse(chars, 1, chars.length - 1);
+  }
+
+  private static double parse(String s) {
+    char[] chars = ("," + s + ",").toCharArray();
+    DoubleParser parser = new DoubleParser();
+    assertThat(parser.parse(chars, 1, chars.length - 1)).isTrue();
+    return parser.getValue();
+  }
+
+  private static void assertSameAsJdk(String s) {
+    assertThat(Double.doubleToRawLongBits(parse(s)))
+        .isEqualTo(Double.doubleToRawLongBits(Double.parseDouble(s)));
+  }
+
+  @Test
+  public void plainDecimals() {
+    for (String s :
+        new String[] {
+          "0",
+          "-0",
+          "-0.0",
+          "+1.5",
+          "1.",
+          ".5",
+          "37.7749295",
+          "-122.4194155",
+          "0.1",
+          "0.3",
+          "123456.000000",
+          "9007199254740993",
+          "0.0000000000000000000000001",
+          "179.99999999999999",
+          "37.99537473400005",
+          "-121.78034555599999"
+        }) {
+      assertSameAsJdk(s);
+    }
+  }
+
+  @Test
+  public void midpointsBetweenDoubles() {
+    // 2^53 + 1 and 2^54 + 2 are exactly between two doubles.
+    for (String s :
+        new String[] {
+          "9007199254740993",
+          "9007199254740993.0",
+          "900719925474099.30",
+          "18014398509481986",
+          "1801439850948198.6",
+          "9007199254740995",
+          "90071992547409.9500"
+        }) {
+      assertSameAsJdk(s);
+    }
+  }
+
+  @Test
+  public void otherFormatsFallBackToJdk() {
+    for (String s :
+        new String[] {
+          "1e3", "-2.5E-3", "1.e+5", " 1.5\t", "NaN", "-Infinity", "0x1p3", "1d", "2.5E3f"
+        }) {
+      assertSameAsJdk(s);
+    }
+  }
+
+  @Test
+  public void invalidNumbers() {
+    for (String s :
+        new String[] {
+          "",
+          "-",
+          ".",
+          "1.2.3",
+          "1,5",
+          "abc",
+          "--1",
+          "1e",
+          "1e+",
+          "e5",
+          "1ee5",
+          "1f5",
+          "NaNd",
+          "infinity",
+          "0x",
+          "0xg"
+        }) {
+      assertThat(parses(s)).isFalse();
+      assertThrows(NumberFormatException.class, () -> Double.parseDouble(s));
+    }
+  }
+
+  @Test
+  public void randomCoordinatesAreCorrectlyRounded() {
+    Random random = new Random(1);
+    for (int i = 0; i < 100000; ++i) {
+      StringBuilder builder = new StringBuilder();
+      if (random.nextBoolean()) {
+        builder.append('-');
+      }
+      builder.append(random.nextInt(181)).append('.');
+      int fractionDigits = 1 + random.nextInt(17);
+      for (int j = 0; j < fractionDigits; ++j) {
+        builder.append((char) ('0' + random.nextInt(10)));
+      }
+      assertSameAsJdk(builder.toString());
+    }
+  }
+}
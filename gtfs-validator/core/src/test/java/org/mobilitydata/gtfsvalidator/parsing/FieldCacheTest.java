@@ -158,4 +158,43 @@ public class FieldCacheTest {
     assertThat(cache.getCacheSize()).isEqualTo(3);
     assertThat(cache.getLookupCount()).isEqualTo(5);
   }
+
+  @Test
+  public void turnsOffWithLowHitRatio() {
+    FieldCache<String> cache = new FieldCache<>(4, 0.5);
+    String s1 = "s1";
+    cache.addIfAbsent(s1);
+    cache.addIfAbsent("s2");
+    cache.addIfAbsent("s3");
+    assertThat(cache.addIfAbsent(new String("s1"))).isSameInstanceAs(s1);
+
+    // Only 1 hit in 4 lookups.
+    assertThat(cache.isEnabled()).isFalse();
+    assertThat(cache.getCacheSize()).isEqualTo(0);
+    assertThat(cache.getLookupCount()).isEqualTo(4);
+    assertThat(cache.getCacheHits()).isEqualTo(1);
+    assertThat(cache.getCacheMisses()).isEqualTo(3);
+
+    String s1Copy = new String("s1");
+    assertThat(cache.addIfAbsent(s1Copy)).isSameInstanceAs(s1Copy);
+    assertThat(cache.getLookupCount()).isEqualTo(4);
+    assertThat(cache.getBypassCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void staysEnabledWithHighHitRatio() {
+    FieldCache<String> cache = new FieldCache<>(4, 0.5);
+    String s1 = "s1";
+    cache.addIfAbsent(s1);
+    cache.addIfAbsent(new String("s1"));
+    cache.addIfAbsent(new String("s1"));
+    cache.addIfAbsent("s2");
+
+    // 2 hits in 4 lookups.
+    assertThat(cache.isEnabled()).isTrue();
+    assertThat(cache.addIfAbsent(new String("s1"))).isSameInstanceAs(s1);
+    assertThat(cache.getCacheSize()).isEqualTo(2);
+    assertThat(cache.getLookupCount()).isEqualTo(5);
+    assertThat(cache.getBypassCount()).isEqualTo(0);
+  }
 }
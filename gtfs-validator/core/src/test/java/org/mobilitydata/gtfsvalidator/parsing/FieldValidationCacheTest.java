@@ -0,0 +1,88 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class FieldValidationCacheTest {
+  @Test
+  public void repeatedLookupsGiveSameResults() {
+    FieldValidationCache cache = new FieldValidationCache(2);
+    for (int i = 0; i < 3; ++i) {
+      assertThat(cache.isValidUrl("http://www.bart.gov")).isTrue();
+      assertThat(cache.isValidUrl("invalid")).isFalse();
+      assertThat(cache.isValidEmail("info@bart.gov")).isTrue();
+      assertThat(cache.isValidEmail("invalid")).isFalse();
+    }
+  }
+
+  @Test
+  public void repeatedValuesAreNotValidatedAgain() {
+    AtomicInteger urlCalls = new AtomicInteger();
+    AtomicInteger emailCalls = new AtomicInteger();
+    FieldValidationCache cache =
+        new FieldValidationCache(
+            10,
+            url -> {
+              urlCalls.incrementAndGet();
+              return url.startsWith("http");
+            },
+            email -> {
+              emailCalls.incrementAndGet();
+              return email.contains("@");
+            });
+    for (int i = 0; i < 5; ++i) {
+      assertThat(cache.isValidUrl("http://www.bart.gov")).isTrue();
+      assertThat(cache.isValidUrl("invalid")).isFalse();
+      assertThat(cache.isValidEmail("info@bart.gov")).isTrue();
+    }
+
+    assertThat(urlCalls.get()).isEqualTo(2);
+    assertThat(emailCalls.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void separateCachesValidateSeparately() {
+    AtomicInteger urlCalls = new AtomicInteger();
+    Predicate<String> urlValidator =
+        url -> {
+          urlCalls.incrementAndGet();
+          return true;
+        };
+    new FieldValidationCache(10, urlValidator, email -> true).isValidUrl("http://www.bart.gov");
+    new FieldValidationCache(10, urlValidator, email -> true).isValidUrl("http://www.bart.gov");
+
+    assertThat(urlCalls.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void phoneNumbersAreCachedPerCountry() {
+    FieldValidationCache cache = new FieldValidationCache(10);
+    // A US number is too long for France.
+    assertThat(cache.isPossiblePhoneNumber("(650) 253-0000", "US")).isTrue();
+    assertThat(cache.isPossiblePhoneNumber("(650) 253-0000", "FR")).isFalse();
+    assertThat(cache.isPossiblePhoneNumber("(650) 253-0000", "US")).isTrue();
+  }
+}
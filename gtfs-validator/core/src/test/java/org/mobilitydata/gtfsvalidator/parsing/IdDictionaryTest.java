@@ -0,0 +1,104 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.parsing;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class IdDictionaryTest {
+  @Test
+  public void internSharesInstanceWithinNamespace() {
+    IdDictionary dictionary = new IdDictionary();
+    String trip1 = new String("t1");
+
+    assertThat(dictionary.namespace("trip_id").intern(trip1)).isSameInstanceAs(trip1);
+    assertThat(dictionary.namespace("trip_id").intern(new String("t1"))).isSameInstanceAs(trip1);
+    assertThat(dictionary.namespace("stop_id").intern(new String("t1"))).isNotSameInstanceAs(trip1);
+    assertThat(dictionary.namespace("trip_id").intern(null)).isNull();
+  }
+
+  @Test
+  public void codesAreDense() {
+    IdDictionary.Namespace stops = new IdDictionary().namespace("stop_id");
+
+    assertThat(stops.encode("s1")).isEqualTo(0);
+    assertThat(stops.encode("s2")).isEqualTo(1);
+    assertThat(stops.encode("s1")).isEqualTo(0);
+    assertThat(stops.find("s2")).isEqualTo(1);
+    assertThat(stops.find("s3")).isEqualTo(-1);
+    assertThat(stops.decode(1)).isEqualTo("s2");
+    assertThat(stops.size()).isEqualTo(2);
+  }
+
+  @Test
+  public void emptyIdHasNoCode() {
+    IdDictionary.Namespace stops = new IdDictionary().namespace("stop_id");
+
+    assertThat(stops.encodeIfNotEmpty("")).isEqualTo(-1);
+    assertThat(stops.encodeIfNotEmpty("s1")).isEqualTo(0);
+    assertThat(stops.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void sizes() {
+    IdDictionary dictionary = new IdDictionary();
+    dictionary.namespace("trip_id").encode("t1");
+    dictionary.namespace("stop_id").encode("s1");
+    dictionary.namespace("stop_id").encode("s2");
+
+    assertThat(dictionary.sizes()).containsExactly("stop_id", 2, "trip_id", 1).inOrder();
+  }
+
+  @Test
+  public void concurrentEncodingGivesEachIdOneCode() throws InterruptedException {
+    IdDictionary.Namespace stops = new IdDictionary().namespace("stop_id");
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 4; ++t) {
+      threads.add(
+          new Thread(
+              () -> {
+                for (int i = 0; i < 1000; ++i) {
+                  stops.encode("s" + i);
+                }
+              }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    assertThat(stops.size()).isEqualTo(1000);
+    Set<Integer> codes = new HashSet<>();
+    for (int i = 0; i < 1000; ++i) {
+      int code = stops.find("s" + i);
+      assertThat(stops.decode(code)).isEqualTo("s" + i);
+      codes.add(code);
+    }
+    assertThat(codes).hasSize(1000);
+  }
+}
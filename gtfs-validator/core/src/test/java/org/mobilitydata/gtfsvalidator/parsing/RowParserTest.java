@@ -20,6 +20,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.notice.MissingRequiredFieldError;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.type.GtfsColor;
 import org.mobilitydata.gtfsvalidator.type.GtfsDate;
@@ -40,6 +41,9 @@ public class RowParserTest {
     NoticeContainer noticeContainer = new NoticeContainer();
     CsvRow csvRow = Mockito.mock(CsvRow.class);
     Mockito.when(csvRow.asString(0)).thenReturn(cellValue);
+    Mockito.when(csvRow.hasValue(0)).thenReturn(cellValue != null);
+    Mockito.when(csvRow.getFileName()).thenReturn("stops.txt");
+    Mockito.when(csvRow.getColumnName(0)).thenReturn("stop_id");
     RowParser parser = new RowParser(GtfsFeedName.parseString(feedName), noticeContainer);
     parser.setRow(csvRow);
     return parser;
@@ -208,4 +212,67 @@ public class RowParserTest {
     assertThat(createParser("181").asLongitude(0, true)).isNull();
     assertThat(createParser("invalid").asLongitude(0, true)).isNull();
   }
+
+  @Test
+  public void primitiveValues() {
+    RowParser parser = createParser("-12");
+    assertThat(parser.asIntegerValue(0, true)).isEqualTo(-12);
+    assertThat(parser.hasValue()).isTrue();
+    assertThat(parser.asFloatValue(0, true)).isEqualTo(-12.0);
+    assertThat(parser.hasValue()).isTrue();
+    assertThat(parser.asLatitudeValue(0, true)).isEqualTo(-12.0);
+    assertThat(parser.hasValue()).isTrue();
+    assertThat(parser.getNoticeContainer().getNotices()).isEmpty();
+
+    parser = createParser("abc");
+    assertThat(parser.asIntegerValue(0, true)).isEqualTo(0);
+    assertThat(parser.hasValue()).isFalse();
+    assertThat(parser.hasParseErrorsInRow()).isTrue();
+
+    parser = createParser(null);
+    assertThat(parser.asFloatValue(0, false)).isEqualTo(0.0);
+    assertThat(parser.hasValue()).isFalse();
+    assertThat(parser.hasParseErrorsInRow()).isFalse();
+    assertThat(parser.asEnumValue(0, false, i -> i)).isEqualTo(0);
+    assertThat(parser.hasValue()).isFalse();
+  }
+
+  @Test
+  public void invalidValuesAreRejected() {
+    assertThat(createParser("12:3x:00").asTime(0, true)).isNull();
+    assertThat(createParser("20201340").asDate(0, true)).isNull();
+    assertThat(createParser("Europe/Nowhere").asTimezone(0, true)).isNull();
+    assertThat(createParser("UTC+25:00").asTimezone(0, true)).isNull();
+    assertThat(createParser("XYZ").asCurrencyCode(0, true)).isNull();
+    assertThat(createParser("1.2.3").asDecimal(0, true)).isNull();
+    assertThat(createParser("1e").asDecimal(0, true)).isNull();
+    assertThat(createParser("2147483648").asInteger(0, true)).isNull();
+    assertThat(createParser("-").asInteger(0, true)).isNull();
+    assertThat(createParser("ff00gg").asColor(0, true)).isNull();
+    assertThat(createParser("1,5").asFloat(0, true)).isNull();
+  }
+
+  @Test
+  public void validValuesInOtherFormats() {
+    assertThat(createParser("+01:00").asTimezone(0, true)).isEqualTo(ZoneId.of("+01:00"));
+    assertThat(createParser("America/Montreal").asTimezone(0, true))
+        .isEqualTo(ZoneId.of("America/Montreal"));
+    assertThat(createParser("-2.5E-3").asDecimal(0, true)).isEqualTo(new BigDecimal("-2.5E-3"));
+    assertThat(createParser("-2147483648").asInteger(0, true)).isEqualTo(Integer.MIN_VALUE);
+    assertThat(createParser("+7").asInteger(0, true)).isEqualTo(7);
+    assertThat(createParser("1e3").asFloat(0, true)).isEqualTo(1000.0);
+  }
+
+  @Test
+  public void checkRequiredValue() {
+    RowParser parser = createParser("abc");
+    parser.checkRequiredValue(0);
+    assertThat(parser.hasParseErrorsInRow()).isFalse();
+
+    parser = createParser(null);
+    parser.checkRequiredValue(0);
+    assertThat(parser.hasParseErrorsInRow()).isTrue();
+    assertThat(parser.getNoticeContainer().getNotices().get(0).getCode())
+        .isEqualTo(MissingRequiredFieldError.CODE);
+  }
 }
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class PrimaryKeyIndexTest {
+  @Test
+  public void firstRowOfKeyIsKept() {
+    IdDictionary.Namespace stopIds = new IdDictionary().namespace("stop_id");
+    PrimaryKeyIndex index = new PrimaryKeyIndex(stopIds);
+
+    assertThat(index.putIfAbsent("s1", 0)).isEqualTo(-1);
+    assertThat(index.putIfAbsent("s2", 1)).isEqualTo(-1);
+    assertThat(index.putIfAbsent("s1", 2)).isEqualTo(0);
+
+    assertThat(index.findRow("s1")).isEqualTo(0);
+    assertThat(index.findRow("s2")).isEqualTo(1);
+    assertThat(index.findRow("s3")).isEqualTo(-1);
+    assertThat(index.findRowByCode(stopIds.find("s2"))).isEqualTo(1);
+  }
+
+  @Test
+  public void emptyKeyHasNoCode() {
+    IdDictionary.Namespace stopIds = new IdDictionary().namespace("stop_id");
+    PrimaryKeyIndex index = new PrimaryKeyIndex(stopIds);
+
+    assertThat(index.findRow("")).isEqualTo(-1);
+    assertThat(index.putIfAbsent("", 0)).isEqualTo(-1);
+    assertThat(index.putIfAbsent("", 1)).isEqualTo(0);
+
+    assertThat(index.findRow("")).isEqualTo(0);
+    assertThat(stopIds.size()).isEqualTo(0);
+    assertThat(index.keyCodes().isEmpty()).isTrue();
+  }
+
+  @Test
+  public void keyCodes() {
+    IdDictionary.Namespace stopIds = new IdDictionary().namespace("stop_id");
+    stopIds.encode("s0");
+    PrimaryKeyIndex index = new PrimaryKeyIndex(stopIds);
+    index.putIfAbsent("s1", 0);
+    index.putIfAbsent("s2", 1);
+
+    assertThat(index.keyCodes().stream().toArray())
+        .asList()
+        .containsExactly(stopIds.find("s1"), stopIds.find("s2"));
+  }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.notice.EmptyFileNotice;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class RowGroupIndexTest {
+  private static final List<String> TRIP_IDS = Arrays.asList("t2", "t1", "t2", "t3", "t1", "t2");
+  private static final int[] STOP_SEQUENCES = {3, 2, 1, 1, 1, 2};
+
+  private final IdDictionary.Namespace tripIds = new IdDictionary().namespace("trip_id");
+
+  private static String describeRow(int row) {
+    return TRIP_IDS.get(row) + ":" + STOP_SEQUENCES[row];
+  }
+
+  /** Returns the code of the trip ID of each row. */
+  private IntUnaryOperator codeOfRow(List<String> tripIds) {
+    return row -> this.tripIds.encodeIfNotEmpty(tripIds.get(row));
+  }
+
+  @Test
+  public void groupsAreInOrderOfFirstRow() {
+    RowGroupIndex index = RowGroupIndex.create(tripIds, TRIP_IDS.size(), codeOfRow(TRIP_IDS));
+
+    assertThat(index.groupCount()).isEqualTo(3);
+    assertThat(index.groupKey(0)).isEqualTo("t2");
+    assertThat(index.groupKey(1)).isEqualTo("t1");
+    assertThat(index.groupKey(2)).isEqualTo("t3");
+    assertThat(index.findGroup("t1")).isEqualTo(1);
+    assertThat(index.findGroup("t4")).isEqualTo(-1);
+    // Rows of a group keep their order.
+    assertThat(index.get("t2", Integer::valueOf)).containsExactly(0, 2, 5).inOrder();
+    assertThat(index.get("t4", Integer::valueOf)).isEmpty();
+  }
+
+  @Test
+  public void groupsAreSortedBySequence() {
+    RowGroupIndex index =
+        RowGroupIndex.create(
+            tripIds, TRIP_IDS.size(), codeOfRow(TRIP_IDS), row -> STOP_SEQUENCES[row]);
+
+    assertThat(index.get("t2", RowGroupIndexTest::describeRow))
+        .containsExactly("t2:1", "t2:2", "t2:3")
+        .inOrder();
+    assertThat(index.get("t1", RowGroupIndexTest::describeRow))
+        .containsExactly("t1:1", "t1:2")
+        .inOrder();
+    assertThat(index.groupStart(1)).isEqualTo(3);
+    assertThat(index.groupEnd(1)).isEqualTo(5);
+    assertThat(index.row(index.groupStart(1))).isEqualTo(4);
+  }
+
+  @Test
+  public void createFromRuns() {
+    List<String> tripIds = Arrays.asList("t2", "t2", "t1", "t3", "t3", "t3");
+    RowGroupIndex index =
+        RowGroupIndex.createFromRuns(this.tripIds, tripIds.size(), codeOfRow(tripIds));
+
+    assertThat(index.groupCount()).isEqualTo(3);
+    assertThat(index.groupKey(1)).isEqualTo("t1");
+    assertThat(index.get("t2", Integer::valueOf)).containsExactly(0, 1).inOrder();
+    assertThat(index.get("t3", Integer::valueOf)).containsExactly(3, 4, 5).inOrder();
+    assertThat(index.findGroup("t4")).isEqualTo(-1);
+  }
+
+  @Test
+  public void createFromRunsFailsIfKeyHasSeveralRuns() {
+    assertThat(RowGroupIndex.createFromRuns(tripIds, TRIP_IDS.size(), codeOfRow(TRIP_IDS)))
+        .isNull();
+  }
+
+  @Test
+  public void isSortedWithinRuns() {
+    List<String> tripIds = Arrays.asList("t1", "t1", "t2", "t2");
+
+    assertThat(
+            RowGroupIndex.isSortedWithinRuns(
+                tripIds.size(), codeOfRow(tripIds), row -> new int[] {1, 2, 1, 1}[row]))
+        .isTrue();
+    assertThat(
+            RowGroupIndex.isSortedWithinRuns(
+                tripIds.size(), codeOfRow(tripIds), row -> new int[] {1, 2, 2, 1}[row]))
+        .isFalse();
+  }
+
+  @Test
+  public void asMap() {
+    Map<String, List<Integer>> map =
+        RowGroupIndex.create(tripIds, TRIP_IDS.size(), codeOfRow(TRIP_IDS)).asMap(Integer::valueOf);
+
+    assertThat(map).hasSize(3);
+    assertThat(map.keySet()).containsExactly("t2", "t1", "t3").inOrder();
+    assertThat(map.get("t3")).containsExactly(3);
+    assertThat(map.get("t4")).isNull();
+    assertThat(map.containsKey("t1")).isTrue();
+  }
+
+  @Test
+  public void largeIndexIsSortedInEveryGroup() {
+    int rowCount = 5 * RowGroupIndex.MIN_ROWS_PER_TASK;
+    RowGroupIndex index =
+        RowGroupIndex.create(tripIds, rowCount, row -> row % 1000, row -> (row * 7919) % 100003);
+
+    assertThat(index.groupCount()).isEqualTo(1000);
+    int positions = 0;
+    for (int group = 0; group < index.groupCount(); ++group) {
+      for (int i = index.groupStart(group); i < index.groupEnd(group); ++i) {
+        assertThat(index.row(i) % 1000).isEqualTo(index.groupKeyCode(group));
+        if (i > index.groupStart(group)) {
+          assertThat((index.row(i) * 7919) % 100003)
+              .isGreaterThan((index.row(i - 1) * 7919) % 100003);
+        }
+        ++positions;
+      }
+    }
+    assertThat(positions).isEqualTo(rowCount);
+  }
+
+  @Test
+  public void checkGroupsInParallelKeepsOrderOfGroups() {
+    int rowCount = 5 * RowGroupIndex.MIN_ROWS_PER_TASK;
+    RowGroupIndex index = RowGroupIndex.create(tripIds, rowCount, row -> row / 100);
+    NoticeContainer expectedNotices = new NoticeContainer();
+    for (int group = 0; group < index.groupCount(); ++group) {
+      expectedNotices.addNotice(new EmptyFileNotice("file" + index.groupKeyCode(group)));
+    }
+
+    NoticeContainer noticeContainer = new NoticeContainer();
+    index.checkGroupsInParallel(
+        noticeContainer,
+        (group, notices) ->
+            notices.addNotice(new EmptyFileNotice("file" + index.groupKeyCode(group))));
+
+    assertThat(noticeContainer.getNotices())
+        .containsExactlyElementsIn(expectedNotices.getNotices())
+        .inOrder();
+  }
+
+  @Test
+  public void empty() {
+    RowGroupIndex index = RowGroupIndex.create(tripIds, 0, row -> -1);
+
+    assertThat(index.groupCount()).isEqualTo(0);
+    assertThat(index.get("t1", Integer::valueOf)).isEmpty();
+    assertThat(index.asMap(Integer::valueOf)).isEmpty();
+  }
+
+  @Test
+  public void rowsWithoutKeyAreFoundByEmptyKey() {
+    List<String> tripIds = Arrays.asList("t1", "", "t2", "");
+    RowGroupIndex index = RowGroupIndex.create(this.tripIds, tripIds.size(), codeOfRow(tripIds));
+
+    assertThat(index.groupKey(1)).isEmpty();
+    assertThat(index.groupKeyCode(1)).isEqualTo(-1);
+    assertThat(index.get("", Integer::valueOf)).containsExactly(1, 3).inOrder();
+    assertThat(index.findGroupByCode(-1)).isEqualTo(1);
+    assertThat(index.findGroupByCode(this.tripIds.find("t2"))).isEqualTo(2);
+  }
+
+  @Test
+  public void keyCodes() {
+    List<String> tripIds = Arrays.asList("t1", "", "t2");
+    tripIds.forEach(this.tripIds::encodeIfNotEmpty);
+    this.tripIds.encode("t3");
+    RowGroupIndex index = RowGroupIndex.create(this.tripIds, tripIds.size(), codeOfRow(tripIds));
+
+    assertThat(index.keyCodes().stream().toArray())
+        .asList()
+        .containsExactly(this.tripIds.find("t1"), this.tripIds.find("t2"));
+    assertThat(index.findGroup("t3")).isEqualTo(-1);
+  }
+}
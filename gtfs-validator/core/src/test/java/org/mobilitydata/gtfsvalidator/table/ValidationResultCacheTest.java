@@ -0,0 +1,141 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.notice.DuplicateKeyError;
+import org.mobilitydata.gtfsvalidator.notice.FieldParsingError;
+import org.mobilitydata.gtfsvalidator.notice.MissingRequiredFileError;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.notice.OmittedNotices;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class ValidationResultCacheTest {
+  @Rule public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+  @Test
+  public void restoredNoticesAreExportedAsOriginal() throws IOException {
+    ValidationResultCache cache = new ValidationResultCache(tmpDir.getRoot().toPath(), "v1");
+    NoticeContainer notices = new NoticeContainer();
+    notices.addNotice(new DuplicateKeyError("stops.txt", 3, 2, "stop_id", "s1"));
+    notices.addNotice(new MissingRequiredFileError("agency.txt"));
+    notices.addNotice(new DuplicateKeyError("stops.txt", 5, 2, "stop_id", "s1"));
+    cache.put("table\nstops.txt\ncrc32:1234abcd:100", notices);
+
+    NoticeContainer restored = cache.get("table\nstops.txt\ncrc32:1234abcd:100");
+    assertThat(restored.getNotices()).hasSize(3);
+    assertThat(restored.getNotices().get(0).getCode()).isEqualTo("duplicate_key");
+    assertThat(restored.exportJson()).isEqualTo(notices.exportJson());
+  }
+
+  @Test
+  public void omittedNoticesAreRestored() throws IOException {
+    ValidationResultCache cache = new ValidationResultCache(tmpDir.getRoot().toPath(), "v1");
+    NoticeContainer notices = new NoticeContainer(1);
+    for (int i = 2; i <= 4; ++i) {
+      notices.addNotice(new FieldParsingError("stops.txt", i, "stop_lat", "latitude", "abc"));
+    }
+    cache.put("key", notices);
+
+    NoticeContainer restored = cache.get("key");
+    assertThat(restored.getNotices()).hasSize(1);
+    assertThat(restored.getOmittedNotices()).hasSize(1);
+    OmittedNotices omitted = restored.getOmittedNotices().get(0);
+    assertThat(omitted.getFilename()).isEqualTo("stops.txt");
+    assertThat(omitted.getCount()).isEqualTo(2);
+    assertThat(omitted.getSampledCsvRowNumbers()).containsExactly(3L, 4L).inOrder();
+    assertThat(restored.exportJson()).isEqualTo(notices.exportJson());
+  }
+
+  @Test
+  public void tableResultsAreRestored() throws IOException {
+    ValidationResultCache cache = new ValidationResultCache(tmpDir.getRoot().toPath(), "v1");
+    NoticeContainer notices = new NoticeContainer();
+    notices.addNotice(new DuplicateKeyError("stops.txt", 3, 2, "stop_id", "s1"));
+    cache.putTable("table", notices, 42);
+
+    ValidationResultCache.TableResult restored = cache.getTable("table");
+    assertThat(restored.getEntityCount()).isEqualTo(42);
+    assertThat(restored.getNotices().exportJson()).isEqualTo(notices.exportJson());
+    // Entries of tables and validators have different structure.
+    assertThat(cache.get("table")).isNull();
+    cache.put("validator", notices);
+    assertThat(cache.getTable("validator")).isNull();
+  }
+
+  @Test
+  public void missingEntry() throws IOException {
+    ValidationResultCache cache = new ValidationResultCache(tmpDir.getRoot().toPath(), "v1");
+    cache.put("key", new NoticeContainer());
+
+    assertThat(cache.get("key").getNotices()).isEmpty();
+    assertThat(cache.get("other key")).isNull();
+    // Entries of another version of the validator are not reused.
+    assertThat(new ValidationResultCache(tmpDir.getRoot().toPath(), "v2").get("key")).isNull();
+  }
+
+  /** Stores an entry for the key and replaces its file with the given content. */
+  private ValidationResultCache cacheWithEntry(String key, String content) throws IOException {
+    Path directory = tmpDir.newFolder().toPath();
+    ValidationResultCache cache = new ValidationResultCache(directory, "v1");
+    NoticeContainer notices = new NoticeContainer();
+    notices.addNotice(new MissingRequiredFileError("agency.txt"));
+    cache.put(key, notices);
+    try (Stream<Path> entries = Files.list(directory)) {
+      for (Path entry : (Iterable<Path>) entries::iterator) {
+        Files.write(entry, content.getBytes(StandardCharsets.UTF_8));
+      }
+    }
+    return cache;
+  }
+
+  @Test
+  public void invalidEntryIsIgnored() throws IOException {
+    assertThat(cacheWithEntry("key", "[{\"code\":").get("key")).isNull();
+  }
+
+  @Test
+  public void entryWithMissingFieldsIsIgnored() throws IOException {
+    String[] contents = {
+      "{}",
+      "[1]",
+      "[{\"context\":{}}]",
+      "[{\"code\":\"missing_required_file\"}]",
+      "[{\"code\":\"missing_required_file\",\"context\":[]}]",
+      "[{\"code\":\"duplicate_key\",\"omittedCount\":2}]",
+      "[{\"code\":\"duplicate_key\",\"filename\":null,\"omittedCount\":\"many\","
+          + "\"sampledCsvRowNumbers\":[]}]",
+      "[{\"code\":\"duplicate_key\",\"filename\":null,\"omittedCount\":2,"
+          + "\"sampledCsvRowNumbers\":[\"row\"]}]"
+    };
+    for (String content : contents) {
+      assertThat(cacheWithEntry("key", content).get("key")).isNull();
+    }
+  }
+}
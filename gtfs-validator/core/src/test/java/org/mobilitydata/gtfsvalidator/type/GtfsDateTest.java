@@ -20,7 +20,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 
 import static com.google.common.truth.Truth.assertThat;
 import static org.junit.Assert.assertThrows;
@@ -36,4 +38,37 @@ public class GtfsDateTest {
     assertThrows(IllegalArgumentException.class, () -> GtfsDate.fromString("qwerty"));
     assertThrows(IllegalArgumentException.class, () -> GtfsDate.fromString("today"));
   }
+
+  @Test
+  public void fromStringInvalidDate() {
+    assertThrows(DateTimeException.class, () -> GtfsDate.fromString("20201301"));
+    assertThrows(DateTimeException.class, () -> GtfsDate.fromString("20200431"));
+    assertThrows(DateTimeException.class, () -> GtfsDate.fromString("20190229"));
+    assertThrows(DateTimeException.class, () -> GtfsDate.fromString("20200100"));
+    assertThrows(IllegalArgumentException.class, () -> GtfsDate.fromString("2020-1-1"));
+  }
+
+  @Test
+  public void epochDayMatchesLocalDate() {
+    LocalDate date = LocalDate.of(1900, 1, 1);
+    while (date.getYear() < 2101) {
+      GtfsDate gtfsDate = GtfsDate.fromString(date.format(DateTimeFormatter.BASIC_ISO_DATE));
+      assertThat(gtfsDate.toEpochDay()).isEqualTo(date.toEpochDay());
+      assertThat(gtfsDate.getLocalDate()).isEqualTo(date);
+      date = date.plusDays(1);
+    }
+    assertThat(GtfsDate.fromString("00000101").getLocalDate()).isEqualTo(LocalDate.of(0, 1, 1));
+    assertThat(GtfsDate.fromString("99991231").getLocalDate())
+        .isEqualTo(LocalDate.of(9999, 12, 31));
+  }
+
+  @Test
+  public void compare() {
+    GtfsDate first = GtfsDate.fromString("20200229");
+    GtfsDate second = GtfsDate.fromLocalDate(LocalDate.of(2020, 3, 1));
+    assertThat(first.isBefore(second)).isTrue();
+    assertThat(second.isAfter(first)).isTrue();
+    assertThat(first).isEqualTo(GtfsDate.fromEpochDay(first.toEpochDay()));
+    assertThat(second.toYYYYMMDD()).isEqualTo("20200301");
+  }
 }
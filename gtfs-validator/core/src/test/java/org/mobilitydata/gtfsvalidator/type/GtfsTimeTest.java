@@ -40,4 +40,31 @@ public class GtfsTimeTest {
     assertThrows(IllegalArgumentException.class, () -> GtfsTime.fromString("1234:00:12"));
     assertThrows(IllegalArgumentException.class, () -> GtfsTime.fromString("prefix4:00:12suffix"));
   }
+
+  @Test
+  public void fromStringInvalidMinuteOrSecond() {
+    assertThrows(IllegalArgumentException.class, () -> GtfsTime.fromString("12:60:00"));
+    assertThrows(IllegalArgumentException.class, () -> GtfsTime.fromString("12:00:60"));
+    assertThrows(IllegalArgumentException.class, () -> GtfsTime.fromString("12:0a:00"));
+    assertThrows(IllegalArgumentException.class, () -> GtfsTime.fromString("12-00:00"));
+  }
+
+  @Test
+  public void fromChars() {
+    char[] chars = "x,25:01:02,y".toCharArray();
+    assertThat(GtfsTime.fromChars(chars, 2, 10).getSecondsSinceMidnight())
+        .isEqualTo(25 * 3600 + 60 + 2);
+    assertThrows(IllegalArgumentException.class, () -> GtfsTime.fromChars(chars, 0, 10));
+  }
+
+  @Test
+  public void usualTimesAreShared() {
+    assertThat(GtfsTime.fromString("47:59:59")).isSameInstanceAs(GtfsTime.fromString("47:59:59"));
+    assertThat(GtfsTime.fromHourMinuteSecond(8, 0, 0))
+        .isSameInstanceAs(GtfsTime.fromSecondsSinceMidnight(8 * 3600));
+
+    GtfsTime late = GtfsTime.fromString("100:00:00");
+    assertThat(late).isEqualTo(GtfsTime.fromSecondsSinceMidnight(100 * 3600));
+    assertThat(late.toHHMMSS()).isEqualTo("100:00:00");
+  }
 }
@@ -17,13 +17,16 @@
 package org.mobilitydata.gtfsvalidator.cli;
 
 import com.beust.jcommander.Parameter;
+import com.beust.jcommander.validators.PositiveInteger;
 
 /** Command-line arguments for GTFS Validator CLI. */
 public class Arguments {
 
   @Parameter(
       names = {"-i", "--input"},
-      description = "Location of the input GTFS ZIP or unarchived directory")
+      description =
+          "Location of the input GTFS ZIP or unarchived directory "
+              + "(`-` to read a GTFS ZIP from the standard input)")
   private String input;
 
   @Parameter(
@@ -37,6 +40,42 @@ public class Arguments {
       description = "Number of threads to use")
   private int numThreads = 1;
 
+  @Parameter(
+      names = {"--parse_in_chunks"},
+      description =
+          "Split large files into chunks that are parsed in parallel, "
+              + "instead of parsing each file on a single thread")
+  private boolean parseInChunks = false;
+
+  @Parameter(
+      names = {"--read_ahead_threads"},
+      description =
+          "Number of threads to decompress files of the input ZIP archive ahead of parsing "
+              + "(0 to decompress on the loader threads)")
+  private int numReadAheadThreads = 0;
+
+  @Parameter(
+      names = {"--max_notices_per_file"},
+      description =
+          "Maximal number of notices of each type that are kept for a single file, "
+              + "further notices are only counted",
+      validateWith = PositiveInteger.class)
+  private int maxNoticesPerFile = 100000;
+
+  @Parameter(
+      names = {"--project_columns"},
+      description =
+          "Parse only the columns that are read by validators, "
+              + "as well as keys and required columns that are checked for presence")
+  private boolean projectColumns = false;
+
+  @Parameter(
+      names = {"--scan_class_path"},
+      description =
+          "Scan the class path for validators and table loaders that were compiled without the "
+              + "annotation processor, e.g., from an outside jar")
+  private boolean scanClassPath = false;
+
   @Parameter(
       names = {"-f", "--feed_name"},
       description =
@@ -56,6 +95,40 @@ public class Arguments {
               + "downloaded from network (if not provided, the ZIP will be stored in memory)")
   private String storageDirectory;
 
+  @Parameter(
+      names = {"--stream"},
+      description =
+          "Validate the GTFS archive downloaded from network while it is being received, "
+              + "without storing it")
+  private boolean stream = false;
+
+  @Parameter(
+      names = {"--range_requests"},
+      description =
+          "Download only the needed parts of the GTFS archive from network "
+              + "with HTTP range requests, one connection per thread; applies only to --url")
+  private boolean rangeRequests = false;
+
+  @Parameter(
+      names = {"--cache_directory"},
+      description =
+          "Directory to cache validation results of files, so that only changed files "
+              + "are validated again in the next runs; ignored unless the validator runs from "
+              + "a jar")
+  private String cacheDirectory;
+
+  @Parameter(
+      names = {"--batch"},
+      description =
+          "Directory of GTFS ZIPs and unarchived feeds or manifest with a feed name and a path or URL "
+              + "on each line, to validate many feeds in one run")
+  private String batch;
+
+  @Parameter(
+      names = {"--concurrent_feeds"},
+      description = "Number of feeds of a batch that are validated at the same time")
+  private int numConcurrentFeeds = 2;
+
   public String getInput() {
     return input;
   }
@@ -68,6 +141,26 @@ public class Arguments {
     return numThreads;
   }
 
+  public boolean getParseInChunks() {
+    return parseInChunks;
+  }
+
+  public int getNumReadAheadThreads() {
+    return numReadAheadThreads;
+  }
+
+  public int getMaxNoticesPerFile() {
+    return maxNoticesPerFile;
+  }
+
+  public boolean getProjectColumns() {
+    return projectColumns;
+  }
+
+  public boolean getScanClassPath() {
+    return scanClassPath;
+  }
+
   public String getFeedName() {
     return feedName;
   }
@@ -79,4 +172,24 @@ public class Arguments {
   public String getStorageDirectory() {
     return storageDirectory;
   }
+
+  public boolean getStream() {
+    return stream;
+  }
+
+  public boolean getRangeRequests() {
+    return rangeRequests;
+  }
+
+  public String getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  public String getBatch() {
+    return batch;
+  }
+
+  public int getNumConcurrentFeeds() {
+    return numConcurrentFeeds;
+  }
 }
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.cli;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Splitter;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.input.GtfsInput;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsFeedLoader;
+import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Validates many feeds in a single run.
+ *
+ * <p>Validators and table loaders are discovered only once and all feeds are validated on a shared
+ * work-stealing pool, so that the threads stay busy when a feed is down to its last large table.
+ * The archive of the next feed is read into memory on a separate thread while the current feeds are
+ * being validated.
+ *
+ * <p>A report is written to {@code <output_base>/<feed id>/report.json} for each feed and the
+ * aggregate summary is written to {@code <output_base>/summary.json}.
+ */
+public class BatchValidator {
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+  private static final String ZIP_EXTENSION = ".zip";
+
+  private final ValidatorLoader validatorLoader;
+  private final GtfsFeedLoader feedLoader;
+  private final Path outputBase;
+  private final int numThreads;
+  private final int numConcurrentFeeds;
+
+  /**
+   * Creates a validator of feeds.
+   *
+   * @param numThreads number of threads shared by all feeds
+   * @param numConcurrentFeeds number of feeds that are validated at the same time; one more archive
+   *     is kept in memory ahead of them
+   */
+  public BatchValidator(
+      ValidatorLoader validatorLoader,
+      GtfsFeedLoader feedLoader,
+      Path outputBase,
+      int numThreads,
+      int numConcurrentFeeds) {
+    this.validatorLoader = validatorLoader;
+    this.feedLoader = feedLoader;
+    this.outputBase = outputBase;
+    this.numThreads = numThreads;
+    this.numConcurrentFeeds = numConcurrentFeeds;
+  }
+
+  /** A feed to be validated in a batch. */
+  public static class Feed {
+    // Unique name of the output directory of the feed.
+    final String id;
+    final String feedName;
+    // Path or URL of the feed.
+    final String location;
+
+    Feed(String id, String feedName, String location) {
+      this.id = id;
+      this.feedName = feedName;
+      this.location = location;
+    }
+  }
+
+  /**
+   * Lists the feeds of a batch.
+   *
+   * <p>The batch is either a directory or a manifest file. Every ZIP archive and subdirectory of a
+   * directory is a feed that is named after its file name, e.g., {@code us-bart.zip}. Each line of
+   * a manifest is a feed name followed by the path or URL of the feed. Relative paths are resolved
+   * against the directory of the manifest; blank lines and lines starting with {@code #} are
+   * ignored.
+   *
+   * @param batch the directory or manifest
+   * @param defaultFeedName feed name for files of a directory that are not named as feeds, may be
+   *     null
+   * @return feeds with unique identifiers
+   */
+  public static List<Feed> listFeeds(Path batch, String defaultFeedName) throws IOException {
+    List<Feed> feeds = new ArrayList<>();
+    Set<String> ids = new HashSet<>();
+    if (Files.isDirectory(batch)) {
+      List<Path> paths = new ArrayList<>();
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(batch)) {
+        stream.forEach(paths::add);
+      }
+      Collections.sort(paths);
+      for (Path path : paths) {
+        String filename = path.getFileName().toString();
+        if (filename.startsWith(".")) {
+          continue;
+        }
+        String id;
+        if (Files.isDirectory(path)) {
+          id = filename;
+        } else if (filename.toLowerCase().endsWith(ZIP_EXTENSION)) {
+          id = filename.substring(0, filename.length() - ZIP_EXTENSION.length());
+        } else {
+          continue;
+        }
+        String feedName =
+            GtfsFeedName.isValidCountryFirstFeedName(id) || defaultFeedName == null
+                ? id
+                : defaultFeedName;
+        feeds.add(new Feed(uniqueId(id, ids), feedName, path.toString()));
+      }
+      return feeds;
+    }
+    Splitter splitter = Splitter.onPattern("\\s+").limit(2).omitEmptyStrings().trimResults();
+    int lineNumber = 0;
+    for (String line : Files.readAllLines(batch, StandardCharsets.UTF_8)) {
+      ++lineNumber;
+      line = line.trim();
+      if (line.isEmpty() || line.startsWith("#")) {
+        continue;
+      }
+      List<String> columns = splitter.splitToList(line);
+      if (columns.size() != 2) {
+        throw new IOException(
+            String.format(
+                "%s:%d: expected a feed name and a location, got: %s", batch, lineNumber, line));
+      }
+      String location = columns.get(1);
+      if (!isUrl(location) && batch.getParent() != null) {
+        location = batch.getParent().resolve(location).toString();
+      }
+      feeds.add(new Feed(uniqueId(columns.get(0), ids), columns.get(0), location));
+    }
+    return feeds;
+  }
+
+  private static String uniqueId(String id, Set<String> ids) {
+    String unique = id;
+    for (int i = 2; !ids.add(unique); ++i) {
+      unique = id + "-" + i;
+    }
+    return unique;
+  }
+
+  private static boolean isUrl(String location) {
+    return location.startsWith("http://") || location.startsWith("https://");
+  }
+
+  /**
+   * Validates the feeds and writes their reports and the summary.
+   *
+   * <p>A feed that cannot be read or validated is recorded as failed in the summary and does not
+   * stop the rest of the batch.
+   */
+  public void validate(List<Feed> feeds) throws IOException, InterruptedException {
+    ForkJoinPool pool = new ForkJoinPool(numThreads);
+    ExecutorService prefetchExecutor =
+        Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("feed-prefetch-%d").setDaemon(true).build());
+    // Bounds the number of archives held in memory.
+    Semaphore slots = new Semaphore(numConcurrentFeeds);
+    FeedResult[] results = new FeedResult[feeds.size()];
+    List<Future<?>> validations = new ArrayList<>();
+    feedLoader.setExecutor(pool);
+    try {
+      Future<GtfsInput> next =
+          feeds.isEmpty() ? null : prefetchExecutor.submit(() -> open(feeds.get(0)));
+      for (int i = 0; i < feeds.size(); ++i) {
+        slots.acquire();
+        Feed feed = feeds.get(i);
+        Future<GtfsInput> current = next;
+        if (i + 1 < feeds.size()) {
+          Feed nextFeed = feeds.get(i + 1);
+          next = prefetchExecutor.submit(() -> open(nextFeed));
+        }
+        GtfsInput gtfsInput;
+        try {
+          gtfsInput = current.get();
+        } catch (ExecutionException e) {
+          logger.atSevere().withCause(e.getCause()).log("Cannot read feed %s", feed.location);
+          results[i] = FeedResult.failed(feed, e.getCause());
+          slots.release();
+          continue;
+        }
+        final int index = i;
+        validations.add(
+            pool.submit(
+                () -> {
+                  try {
+                    results[index] = validateFeed(feed, gtfsInput);
+                  } finally {
+                    slots.release();
+                  }
+                }));
+      }
+      for (Future<?> validation : validations) {
+        try {
+          validation.get();
+        } catch (ExecutionException e) {
+          // validateFeed() reports failures in its result.
+          logger.atSevere().withCause(e.getCause()).log("Feed validation failed");
+        }
+      }
+    } finally {
+      feedLoader.setExecutor(null);
+      prefetchExecutor.shutdownNow();
+      pool.shutdown();
+    }
+    Files.createDirectories(outputBase);
+    Files.write(
+        outputBase.resolve("summary.json"),
+        exportSummary(results).getBytes(StandardCharsets.UTF_8));
+  }
+
+  private GtfsInput open(Feed feed) throws Exception {
+    if (isUrl(feed.location)) {
+      return GtfsInput.createFromUrlInMemory(new URL(feed.location));
+    }
+    // Reading the whole archive now lets the prefetch thread do the disk I/O.
+    return GtfsInput.createFromPathInMemory(Paths.get(feed.location));
+  }
+
+  private FeedResult validateFeed(Feed feed, GtfsInput gtfsInput) {
+    final long startNanos = System.nanoTime();
+    try (GtfsInput input = gtfsInput) {
+      NoticeContainer noticeContainer = new NoticeContainer();
+      feedLoader.loadAndValidate(
+          input, GtfsFeedName.parseString(feed.feedName), validatorLoader, noticeContainer);
+      Path outputDirectory = outputBase.resolve(feed.id);
+      Files.createDirectories(outputDirectory);
+      Files.write(
+          outputDirectory.resolve("report.json"),
+          noticeContainer.exportJson().getBytes(StandardCharsets.UTF_8));
+      logger.atInfo().log("Validated feed %s", feed.id);
+      return FeedResult.validated(
+          feed, noticeContainer.countNoticesByCode(), (System.nanoTime() - startNanos) / 1e9);
+    } catch (IOException | RuntimeException e) {
+      logger.atSevere().withCause(e).log("Cannot validate feed %s", feed.location);
+      return FeedResult.failed(feed, e);
+    }
+  }
+
+  private static String exportSummary(FeedResult[] results) throws IOException {
+    ObjectMapper mapper = new ObjectMapper();
+    ObjectNode root = mapper.createObjectNode();
+    ArrayNode feedsJson = root.putArray("feeds");
+    Map<String, Integer> totalCounts = new TreeMap<>();
+    int failedFeeds = 0;
+    for (FeedResult result : results) {
+      ObjectNode feedJson = feedsJson.addObject();
+      feedJson.put("id", result.feed.id);
+      feedJson.put("feedName", result.feed.feedName);
+      feedJson.put("location", result.feed.location);
+      if (result.error != null) {
+        ++failedFeeds;
+        feedJson.put("error", result.error);
+        continue;
+      }
+      feedJson.put("validationSeconds", result.seconds);
+      ObjectNode countsJson = feedJson.putObject("noticeCounts");
+      result.noticeCounts.forEach(countsJson::put);
+      result.noticeCounts.forEach((code, count) -> totalCounts.merge(code, count, Integer::sum));
+    }
+    root.put("failedFeeds", failedFeeds);
+    ObjectNode totalsJson = root.putObject("totalNoticeCounts");
+    totalCounts.forEach(totalsJson::put);
+    return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+  }
+
+  /** Outcome of a single feed. */
+  private static class FeedResult {
+    final Feed feed;
+    final Map<String, Integer> noticeCounts = new TreeMap<>();
+    double seconds;
+    String error;
+
+    FeedResult(Feed feed) {
+      this.feed = feed;
+    }
+
+    static FeedResult validated(Feed feed, Map<String, Integer> noticeCounts, double seconds) {
+      FeedResult result = new FeedResult(feed);
+      result.noticeCounts.putAll(noticeCounts);
+      result.seconds = seconds;
+      return result;
+    }
+
+    static FeedResult failed(Feed feed, Throwable error) {
+      FeedResult result = new FeedResult(feed);
+      result.error = String.valueOf(error);
+      return result;
+    }
+  }
+}
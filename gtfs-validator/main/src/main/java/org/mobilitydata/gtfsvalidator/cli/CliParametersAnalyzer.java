@@ -28,6 +28,14 @@ public class CliParametersAnalyzer {
    * @return true if CLI parameter combination is legal, otherwise return false
    */
   public boolean isValid(Arguments args) {
+    if (args.getBatch() != null) {
+      if (args.getInput() != null || args.getUrl() != null) {
+        logger.atSevere().log(
+            "CLI parameter '--batch' cannot be provided together with '--input' or '--url'");
+        return false;
+      }
+      return true;
+    }
     if (args.getInput() == null && args.getUrl() == null) {
       logger.atSevere().log(
           "One of the two following CLI parameter must be provided: '--input' and '--url'");
@@ -44,6 +52,19 @@ public class CliParametersAnalyzer {
           "CLI parameter '--storage_directory' must not be provided if '--url' is not provided");
       return false;
     }
+    if (args.getStream()) {
+      if (args.getUrl() == null) {
+        logger.atSevere().log(
+            "CLI parameter '--stream' must not be provided if '--url' is not provided");
+        return false;
+      }
+      if (args.getStorageDirectory() != null) {
+        logger.atSevere().log(
+            "The two following CLI parameters cannot be provided at the same time:"
+                + " '--stream' and '--storage_directory'");
+        return false;
+      }
+    }
     return true;
   }
 }
@@ -17,24 +17,35 @@
 package org.mobilitydata.gtfsvalidator.cli;
 
 import com.beust.jcommander.JCommander;
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
+import com.google.common.collect.Ordering;
+import com.google.common.hash.Hashing;
+import com.google.common.io.MoreFiles;
 import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
 import org.mobilitydata.gtfsvalidator.input.GtfsInput;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsFeedContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsFeedLoader;
+import org.mobilitydata.gtfsvalidator.table.ValidationResultCache;
 import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
 
+import javax.annotation.Nullable;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.util.List;
 
 /** The main entry point for GTFS Validator CLI. */
 public class Main {
+  private static final String STDIN_INPUT = "-";
 
   public static void main(String[] argv) {
     Arguments args = new Arguments();
@@ -44,8 +55,33 @@ public class Main {
       System.exit(1);
     }
 
-    ValidatorLoader validatorLoader = new ValidatorLoader();
-    GtfsFeedLoader feedLoader = new GtfsFeedLoader();
+    ValidatorLoader validatorLoader = new ValidatorLoader(args.getScanClassPath());
+    validatorLoader.setColumnProjection(args.getProjectColumns());
+    GtfsFeedLoader feedLoader = new GtfsFeedLoader(args.getScanClassPath());
+
+    feedLoader.setNumThreads(args.getNumThreads());
+    feedLoader.setParseInChunks(args.getParseInChunks());
+    feedLoader.setMaxNoticesPerFile(args.getMaxNoticesPerFile());
+    if (args.getCacheDirectory() != null) {
+      try {
+        String cacheVersion = cacheVersion(validatorLoader, feedLoader);
+        if (cacheVersion == null) {
+          System.err.println(
+              "Not using the cache: validator code is not loaded from a jar, so its version "
+                  + "cannot be told apart from other builds");
+        } else {
+          feedLoader.setResultCache(
+              new ValidationResultCache(Paths.get(args.getCacheDirectory()), cacheVersion));
+        }
+      } catch (IOException | URISyntaxException e) {
+        e.printStackTrace();
+        return;
+      }
+    }
+    if (args.getBatch() != null) {
+      validateBatch(args, validatorLoader, feedLoader);
+      return;
+    }
 
     GtfsFeedName feedName = GtfsFeedName.parseString(args.getFeedName());
     System.out.println("Feed name: " + feedName.getCountryFirstName());
@@ -59,19 +95,26 @@ public class Main {
 
     final long startNanos = System.nanoTime();
     // Input.
-    feedLoader.setNumThreads(args.getNumThreads());
     NoticeContainer noticeContainer = new NoticeContainer();
     GtfsFeedContainer feedContainer;
     GtfsInput gtfsInput;
     try {
       if (args.getInput() == null) {
-        if (Strings.isNullOrEmpty(args.getStorageDirectory())) {
+        if (args.getStream()) {
+          gtfsInput = GtfsInput.createFromUrlAsStream(new URL(args.getUrl()));
+        } else if (args.getRangeRequests()) {
+          gtfsInput =
+              GtfsInput.createFromUrlWithRanges(new URL(args.getUrl()), args.getNumThreads());
+        } else if (Strings.isNullOrEmpty(args.getStorageDirectory())) {
           gtfsInput = GtfsInput.createFromUrlInMemory(new URL(args.getUrl()));
         } else {
           gtfsInput = GtfsInput.createFromUrl(new URL(args.getUrl()), args.getStorageDirectory());
         }
+      } else if (args.getInput().equals(STDIN_INPUT)) {
+        gtfsInput = GtfsInput.createFromStream("stdin", System.in);
       } else {
-        gtfsInput = GtfsInput.createFromPath(Paths.get(args.getInput()));
+        gtfsInput =
+            GtfsInput.createFromPath(Paths.get(args.getInput()), args.getNumReadAheadThreads());
       }
     } catch (IOException | URISyntaxException | InterruptedException e) {
       e.printStackTrace();
@@ -79,6 +122,11 @@ public class Main {
     }
     feedContainer =
         feedLoader.loadAndValidate(gtfsInput, feedName, validatorLoader, noticeContainer);
+    try {
+      gtfsInput.close();
+    } catch (IOException exception) {
+      exception.printStackTrace();
+    }
 
     // Output.
     new File(args.getOutputBase()).mkdirs();
@@ -95,4 +143,82 @@ public class Main {
         String.format("Validation took %.3f seconds", (endNanos - startNanos) / 1e9));
     System.out.println(feedContainer.tableTotals());
   }
+
+  private static void validateBatch(
+      Arguments args, ValidatorLoader validatorLoader, GtfsFeedLoader feedLoader) {
+    System.out.println("Batch: " + args.getBatch());
+    System.out.println("Output: " + args.getOutputBase());
+    System.out.println("Table loaders: " + feedLoader.listTableLoaders());
+    System.out.println("Validators:");
+    System.out.println(validatorLoader.listValidators());
+
+    final long startNanos = System.nanoTime();
+    List<BatchValidator.Feed> feeds;
+    try {
+      feeds = BatchValidator.listFeeds(Paths.get(args.getBatch()), args.getFeedName());
+      new BatchValidator(
+              validatorLoader,
+              feedLoader,
+              Paths.get(args.getOutputBase()),
+              args.getNumThreads(),
+              args.getNumConcurrentFeeds())
+          .validate(feeds);
+    } catch (IOException | InterruptedException e) {
+      e.printStackTrace();
+      return;
+    }
+    final long endNanos = System.nanoTime();
+    System.out.println(
+        String.format(
+            "Validation of %d feeds took %.3f seconds",
+            feeds.size(), (endNanos - startNanos) / 1e9));
+  }
+
+  /**
+   * Describes the validator code, so that cached results of other versions are not reused.
+   *
+   * <p>The implementation version is not enough because development builds share it, so the
+   * checksums of the jars with the code are used instead. Returns null if the code is not loaded
+   * from jars, e.g., from the classes directory of an IDE, which makes the cache unusable.
+   *
+   * <p>Validators and table loaders are sorted because their listing order is not stable.
+   */
+  @Nullable
+  private static String cacheVersion(ValidatorLoader validatorLoader, GtfsFeedLoader feedLoader)
+      throws IOException, URISyntaxException {
+    StringBuilder checksums = new StringBuilder();
+    // The command line and the validators may come from different jars unless it is a fat jar.
+    for (Class<?> clazz : new Class<?>[] {Main.class, GtfsFeedLoader.class}) {
+      String checksum = jarChecksum(clazz);
+      if (checksum == null) {
+        return null;
+      }
+      checksums.append(checksum).append('\n');
+    }
+    Splitter splitter = Splitter.on(CharMatcher.whitespace()).omitEmptyStrings();
+    return checksums
+        + Strings.nullToEmpty(Main.class.getPackage().getImplementationVersion())
+        + "\n"
+        + Ordering.natural().sortedCopy(splitter.split(validatorLoader.listValidators()))
+        + "\n"
+        + Ordering.natural().sortedCopy(splitter.split(feedLoader.listTableLoaders()))
+        + "\ncolumn projection "
+        + validatorLoader.getColumnProjection()
+        + "\nmax notices per file "
+        + feedLoader.getMaxNoticesPerFile();
+  }
+
+  /** Returns the checksum of the jar that the class was loaded from or null if it is not a jar. */
+  @Nullable
+  private static String jarChecksum(Class<?> clazz) throws IOException, URISyntaxException {
+    CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+    if (codeSource == null || codeSource.getLocation() == null) {
+      return null;
+    }
+    Path path = Paths.get(codeSource.getLocation().toURI());
+    if (!Files.isRegularFile(path)) {
+      return null;
+    }
+    return "sha256:" + MoreFiles.asByteSource(path).hash(Hashing.sha256());
+  }
 }
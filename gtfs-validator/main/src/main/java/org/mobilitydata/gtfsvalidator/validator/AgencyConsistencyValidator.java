@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.InconsistentAgencyFieldNotice;
 import org.mobilitydata.gtfsvalidator.notice.MissingRequiredFieldError;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
@@ -41,6 +42,7 @@ import java.util.Locale;
  * </ul>
  */
 @GtfsValidator
+@ReadsColumns(file = "agency.txt", columns = {"agency_id", "agency_lang", "agency_timezone"})
 public class AgencyConsistencyValidator extends FileValidator {
   @Inject GtfsAgencyTableContainer agencyTable;
 
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Map;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.AmbiguousStopStationTransfersNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsLocationType;
@@ -47,6 +48,8 @@ abstract class TransferIdentifier {
  * <p>Generated notices: {@link AmbiguousStopStationTransfersNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "transfers.txt", columns = {"from_stop_id", "to_stop_id"})
+@ReadsColumns(file = "stops.txt", columns = {"location_type", "parent_station", "stop_id"})
 public class AmbiguousStopStationTransfersValidator extends FileValidator {
   @Inject GtfsTransferTableContainer transferTable;
   @Inject GtfsStopTableContainer stopTable;
@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Map;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.BlockTripsWithInconsistentRouteTypesNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsRouteTableContainer;
@@ -51,6 +52,8 @@ abstract class TripRouteTypeIdentifier {
  * <p>Generated notices: {@link BlockTripsWithInconsistentRouteTypesNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "trips.txt", columns = {"block_id", "route_id", "trip_id"})
+@ReadsColumns(file = "routes.txt", columns = {"route_id", "route_type"})
 public class BlockTripsWithInconsistentRouteTypesValidator extends FileValidator {
   @Inject GtfsTripTableContainer tripTable;
   @Inject GtfsRouteTableContainer routeTable;
@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.CalendarHasNoActiveDaysNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsCalendar;
@@ -30,6 +31,18 @@ import org.mobilitydata.gtfsvalidator.table.GtfsCalendarTableContainer;
  * <p>Generated notices: {@link CalendarHasNoActiveDaysNotice}.
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "calendar.txt",
+    columns = {
+      "friday",
+      "monday",
+      "saturday",
+      "service_id",
+      "sunday",
+      "thursday",
+      "tuesday",
+      "wednesday"
+    })
 public class CalendarHasNoActiveDaysValidator extends FileValidator {
   private final static GtfsCalendarService NOT_AVAILABLE = GtfsCalendarService.NOT_AVAILABLE;
 
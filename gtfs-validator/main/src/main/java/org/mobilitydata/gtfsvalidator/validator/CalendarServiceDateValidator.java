@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.StartAndEndDateOutOfOrderNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsCalendar;
@@ -29,6 +30,7 @@ import org.mobilitydata.gtfsvalidator.table.GtfsCalendarTableContainer;
  * <p>Generated notice: {@link StartAndEndDateOutOfOrderNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "calendar.txt", columns = {"end_date", "service_id", "start_date"})
 public class CalendarServiceDateValidator extends FileValidator {
   @Inject GtfsCalendarTableContainer calendarTable;
 
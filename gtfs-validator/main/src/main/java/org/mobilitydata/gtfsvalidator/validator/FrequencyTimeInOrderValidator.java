@@ -17,6 +17,7 @@
 package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.StartAndEndTimeOutOfOrderNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsFrequency;
@@ -31,6 +32,7 @@ import static org.mobilitydata.gtfsvalidator.table.GtfsFrequencyTableLoader.FILE
  * <p>Generated notice: {@link StartAndEndTimeOutOfOrderNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "frequencies.txt", columns = {"end_time", "start_time", "trip_id"})
 public class FrequencyTimeInOrderValidator extends SingleEntityValidator<GtfsFrequency> {
   @Override
   public void validate(GtfsFrequency frequency, NoticeContainer noticeContainer) {
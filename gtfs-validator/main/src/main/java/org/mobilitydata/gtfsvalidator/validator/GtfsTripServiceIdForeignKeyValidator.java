@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.ForeignKeyError;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsCalendarDateTableContainer;
@@ -34,6 +35,9 @@ import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
  * <p>Generated notice: {@link ForeignKeyError}.
  */
 @GtfsValidator
+@ReadsColumns(file = "trips.txt", columns = "service_id")
+@ReadsColumns(file = "calendar.txt", columns = "service_id")
+@ReadsColumns(file = "calendar_dates.txt", columns = "service_id")
 public class GtfsTripServiceIdForeignKeyValidator extends FileValidator {
   @Inject GtfsTripTableContainer tripContainer;
   @Inject GtfsCalendarTableContainer calendarContainer;
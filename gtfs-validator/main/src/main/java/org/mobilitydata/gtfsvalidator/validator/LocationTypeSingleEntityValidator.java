@@ -17,6 +17,7 @@
 package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.LocationWithoutParentStationNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.PlatformWithoutParentStationNotice;
@@ -36,6 +37,9 @@ import org.mobilitydata.gtfsvalidator.table.GtfsStop;
  * </ul>
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "stops.txt",
+    columns = {"location_type", "parent_station", "platform_code", "stop_id"})
 public class LocationTypeSingleEntityValidator extends SingleEntityValidator<GtfsStop> {
   private boolean requiresParentStation(GtfsLocationType locationType) {
     return locationType == GtfsLocationType.ENTRANCE
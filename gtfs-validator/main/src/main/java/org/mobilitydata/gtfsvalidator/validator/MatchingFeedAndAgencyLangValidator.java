@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.FeedInfoLangAndAgencyLangMismatchNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsAgencyTableContainer;
@@ -43,6 +44,8 @@ import java.util.Set;
  * <p>Generated notice: {@link FeedInfoLangAndAgencyLangMismatchNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "feed_info.txt", columns = "feed_lang")
+@ReadsColumns(file = "agency.txt", columns = "agency_lang")
 public class MatchingFeedAndAgencyLangValidator extends FileValidator {
   @Inject GtfsFeedInfoTableContainer feedInfoTable;
   @Inject GtfsAgencyTableContainer agencyTable;
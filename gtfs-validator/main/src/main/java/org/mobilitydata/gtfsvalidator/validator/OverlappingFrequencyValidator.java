@@ -1,8 +1,8 @@
 package org.mobilitydata.gtfsvalidator.validator;
 
-import com.google.common.collect.Multimaps;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.OverlappingFrequencyNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsFrequency;
@@ -26,12 +26,15 @@ import java.util.List;
  * <p>Generated notice: {@link OverlappingFrequencyNotice}.
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "frequencies.txt",
+    columns = {"end_time", "headway_secs", "start_time", "trip_id"})
 public class OverlappingFrequencyValidator extends FileValidator {
   @Inject GtfsFrequencyTableContainer table;
 
   @Override
   public void validate(NoticeContainer noticeContainer) {
-    for (List<GtfsFrequency> unorderedList : Multimaps.asMap(table.byTripIdMap()).values()) {
+    for (List<GtfsFrequency> unorderedList : table.byTripIdMap().values()) {
       List<GtfsFrequency> frequencyList = new ArrayList<>(unorderedList);
       Collections.sort(
           frequencyList,
@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.WrongParentLocationTypeNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsLocationType;
@@ -30,6 +31,7 @@ import org.mobilitydata.gtfsvalidator.table.GtfsStopTableContainer;
  * <p>Generated notice: {@link WrongParentLocationTypeNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "stops.txt", columns = {"location_type", "parent_station", "stop_id"})
 public class ParentLocationTypeValidator extends FileValidator {
   @Inject GtfsStopTableContainer stopTable;
 
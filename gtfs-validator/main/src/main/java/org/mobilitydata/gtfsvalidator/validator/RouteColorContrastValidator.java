@@ -17,6 +17,7 @@
 package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.RouteColorContrastNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsRoute;
@@ -27,6 +28,7 @@ import org.mobilitydata.gtfsvalidator.table.GtfsRoute;
  * <p>Generated notice: {@link RouteColorContrastNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "routes.txt", columns = {"route_color", "route_id", "route_text_color"})
 public class RouteColorContrastValidator extends SingleEntityValidator<GtfsRoute> {
   /**
    * The maximum difference between the luma of the route display color and text color, beyond which
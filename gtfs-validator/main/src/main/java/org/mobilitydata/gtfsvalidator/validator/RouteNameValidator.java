@@ -17,6 +17,7 @@
 package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.*;
 import org.mobilitydata.gtfsvalidator.table.GtfsRoute;
 
@@ -33,6 +34,9 @@ import org.mobilitydata.gtfsvalidator.table.GtfsRoute;
  * </ul>
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "routes.txt",
+    columns = {"route_desc", "route_id", "route_long_name", "route_short_name"})
 public class RouteNameValidator extends SingleEntityValidator<GtfsRoute> {
   private static final int MAX_SHORT_NAME_LENGTH = 12;
 
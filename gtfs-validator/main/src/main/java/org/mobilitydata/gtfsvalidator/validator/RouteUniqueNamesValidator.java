@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Optional;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.RouteUniqueNamesNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsRoute;
@@ -63,6 +64,9 @@ abstract class RouteNoticeInfo {
  * <p>Generated notices: {@link RouteUniqueNamesNotice}.
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "routes.txt",
+    columns = {"agency_id", "route_id", "route_long_name", "route_short_name", "route_type"})
 public class RouteUniqueNamesValidator extends FileValidator {
   @Inject GtfsRouteTableContainer routeTable;
 
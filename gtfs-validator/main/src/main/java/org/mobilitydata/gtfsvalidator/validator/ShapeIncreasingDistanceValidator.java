@@ -16,15 +16,14 @@
 
 package org.mobilitydata.gtfsvalidator.validator;
 
-import com.google.common.collect.Multimaps;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.DecreasingShapeDistanceNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
-import org.mobilitydata.gtfsvalidator.table.GtfsShape;
+import org.mobilitydata.gtfsvalidator.table.GtfsShapeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsShapeTableContainer;
-
-import java.util.List;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 
 /**
  * Validates that shape_dist_traveled along a shape in "shapes.txt" are not decreasing.
@@ -32,28 +31,33 @@ import java.util.List;
  * <p>Generated notice: {@link DecreasingShapeDistanceNotice}.
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "shapes.txt",
+    columns = {"shape_dist_traveled", "shape_id", "shape_pt_sequence"})
 public class ShapeIncreasingDistanceValidator extends FileValidator {
   @Inject GtfsShapeTableContainer table;
 
   @Override
   public void validate(NoticeContainer noticeContainer) {
-    for (List<GtfsShape> shapeList : Multimaps.asMap(table.byShapeIdMap()).values()) {
-      // GtfsShape objects are sorted based on @SequenceKey annotation on shape_pt_sequence field.
-      for (int i = 1; i < shapeList.size(); ++i) {
-        GtfsShape prev = shapeList.get(i - 1);
-        GtfsShape curr = shapeList.get(i);
-        if (prev.hasShapeDistTraveled()
-            && curr.hasShapeDistTraveled()
-            && prev.shapeDistTraveled() > curr.shapeDistTraveled()) {
+    GtfsShapeColumns columns = table.getColumns();
+    RowGroupIndex byShapeId = table.byShapeIdIndex();
+    for (int group = 0; group < byShapeId.groupCount(); ++group) {
+      // Rows are sorted based on @SequenceKey annotation on shape_pt_sequence field.
+      for (int i = byShapeId.groupStart(group) + 1; i < byShapeId.groupEnd(group); ++i) {
+        int prev = byShapeId.row(i - 1);
+        int curr = byShapeId.row(i);
+        if (columns.hasShapeDistTraveled(prev)
+            && columns.hasShapeDistTraveled(curr)
+            && columns.shapeDistTraveled(prev) > columns.shapeDistTraveled(curr)) {
           noticeContainer.addNotice(
               new DecreasingShapeDistanceNotice(
-                  curr.shapeId(),
-                  curr.csvRowNumber(),
-                  curr.shapeDistTraveled(),
-                  curr.shapePtSequence(),
-                  prev.csvRowNumber(),
-                  prev.shapeDistTraveled(),
-                  prev.shapePtSequence()));
+                  columns.shapeId(curr),
+                  columns.csvRowNumber(curr),
+                  columns.shapeDistTraveled(curr),
+                  columns.shapePtSequence(curr),
+                  columns.csvRowNumber(prev),
+                  columns.shapeDistTraveled(prev),
+                  columns.shapePtSequence(prev)));
         }
       }
     }
@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.UnusedShapeNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsShape;
@@ -33,6 +34,8 @@ import java.util.Set;
  * <p>Generated notice: {@link UnusedShapeNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "trips.txt", columns = "shape_id")
+@ReadsColumns(file = "shapes.txt", columns = "shape_id")
 public class ShapeUsageValidator extends FileValidator {
   @Inject GtfsTripTableContainer tripTable;
 
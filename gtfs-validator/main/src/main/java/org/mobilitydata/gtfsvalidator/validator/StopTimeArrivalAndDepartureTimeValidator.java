@@ -16,18 +16,17 @@
 
 package org.mobilitydata.gtfsvalidator.validator;
 
-import com.google.common.collect.Multimaps;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.StopTimeWithArrivalBeforePreviousDepartureTimeNotice;
 import org.mobilitydata.gtfsvalidator.notice.StopTimeWithDepartureBeforeArrivalTimeNotice;
 import org.mobilitydata.gtfsvalidator.notice.StopTimeWithOnlyArrivalOrDepartureTimeNotice;
-import org.mobilitydata.gtfsvalidator.table.GtfsStopTime;
+import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableLoader;
-
-import java.util.List;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 
 /**
  * Validates departure_time and arrival_time fields in "stop_times.txt".
@@ -43,53 +42,59 @@ import java.util.List;
  * </ul>
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "stop_times.txt",
+    columns = {"arrival_time", "departure_time", "stop_sequence", "trip_id"})
 public class StopTimeArrivalAndDepartureTimeValidator extends FileValidator {
   @Inject GtfsStopTimeTableContainer table;
 
   @Override
   public void validate(NoticeContainer noticeContainer) {
-    for (List<GtfsStopTime> stopTimeList : Multimaps.asMap(table.byTripIdMap()).values()) {
+    // Stop times are read by row from columns, so that no GtfsStopTime objects are created.
+    GtfsStopTimeColumns columns = table.getColumns();
+    RowGroupIndex byTripId = table.byTripIdIndex();
+    for (int group = 0; group < byTripId.groupCount(); ++group) {
       int previousDepartureRow = -1;
-      for (int i = 0; i < stopTimeList.size(); ++i) {
-        GtfsStopTime stopTime = stopTimeList.get(i);
-        final boolean hasDeparture = stopTime.hasDepartureTime();
-        final boolean hasArrival = stopTime.hasArrivalTime();
+      for (int i = byTripId.groupStart(group); i < byTripId.groupEnd(group); ++i) {
+        int row = byTripId.row(i);
+        final boolean hasDeparture = columns.hasDepartureTime(row);
+        final boolean hasArrival = columns.hasArrivalTime(row);
         if (hasArrival != hasDeparture) {
           noticeContainer.addNotice(
               new StopTimeWithOnlyArrivalOrDepartureTimeNotice(
-                  stopTime.csvRowNumber(),
-                  stopTime.tripId(),
-                  stopTime.stopSequence(),
+                  columns.csvRowNumber(row),
+                  columns.tripId(row),
+                  columns.stopSequence(row),
                   hasArrival
                       ? GtfsStopTimeTableLoader.ARRIVAL_TIME_FIELD_NAME
                       : GtfsStopTimeTableLoader.DEPARTURE_TIME_FIELD_NAME));
         }
         if (hasDeparture && hasArrival) {
-          if (stopTime.departureTime().isBefore(stopTime.arrivalTime())) {
+          if (columns.departureTimeSecondsSinceMidnight(row)
+              < columns.arrivalTimeSecondsSinceMidnight(row)) {
             noticeContainer.addNotice(
                 new StopTimeWithDepartureBeforeArrivalTimeNotice(
-                    stopTime.csvRowNumber(),
-                    stopTime.tripId(),
-                    stopTime.stopSequence(),
-                    stopTime.departureTime(),
-                    stopTime.arrivalTime()));
+                    columns.csvRowNumber(row),
+                    columns.tripId(row),
+                    columns.stopSequence(row),
+                    columns.departureTime(row),
+                    columns.arrivalTime(row)));
           }
         }
         if (hasArrival
             && previousDepartureRow != -1
-            && stopTime
-                .arrivalTime()
-                .isBefore(stopTimeList.get(previousDepartureRow).departureTime())) {
+            && columns.arrivalTimeSecondsSinceMidnight(row)
+                < columns.departureTimeSecondsSinceMidnight(previousDepartureRow)) {
           noticeContainer.addNotice(
               new StopTimeWithArrivalBeforePreviousDepartureTimeNotice(
-                  stopTime.csvRowNumber(),
-                  stopTimeList.get(previousDepartureRow).csvRowNumber(),
-                  stopTime.tripId(),
-                  stopTime.arrivalTime(),
-                  stopTimeList.get(previousDepartureRow).departureTime()));
+                  columns.csvRowNumber(row),
+                  columns.csvRowNumber(previousDepartureRow),
+                  columns.tripId(row),
+                  columns.arrivalTime(row),
+                  columns.departureTime(previousDepartureRow)));
         }
         if (hasDeparture) {
-          previousDepartureRow = i;
+          previousDepartureRow = row;
         }
       }
     }
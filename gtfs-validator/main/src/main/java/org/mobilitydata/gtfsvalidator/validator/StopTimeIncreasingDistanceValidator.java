@@ -16,14 +16,14 @@
 
 package org.mobilitydata.gtfsvalidator.validator;
 
-import com.google.common.collect.Multimaps;
-import java.util.List;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.DecreasingStopTimeDistanceNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
-import org.mobilitydata.gtfsvalidator.table.GtfsStopTime;
+import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 
 /**
  * Validates that for each trip, stop times have increasing `shape_dist_travelled` values.
@@ -31,29 +31,35 @@ import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
  * <p>Generated notice: {@link DecreasingStopTimeDistanceNotice}.
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "stop_times.txt",
+    columns = {"shape_dist_traveled", "stop_sequence", "trip_id"})
 public class StopTimeIncreasingDistanceValidator extends FileValidator {
   @Inject GtfsStopTimeTableContainer table;
 
   @Override
   public void validate(NoticeContainer noticeContainer) {
-    for (List<GtfsStopTime> stopTimeList : Multimaps.asMap(table.byTripIdMap()).values()) {
-      // GtfsStopTime objects are sorted based on @SequenceKey annotation on stop_sequence field.
-      for (int i = 1; i < stopTimeList.size(); ++i) {
-        GtfsStopTime prev = stopTimeList.get(i - 1);
-        GtfsStopTime curr = stopTimeList.get(i);
+    // Stop times are read by row from columns, so that no GtfsStopTime objects are created.
+    GtfsStopTimeColumns columns = table.getColumns();
+    RowGroupIndex byTripId = table.byTripIdIndex();
+    for (int group = 0; group < byTripId.groupCount(); ++group) {
+      // Rows are sorted based on @SequenceKey annotation on stop_sequence field.
+      for (int i = byTripId.groupStart(group) + 1; i < byTripId.groupEnd(group); ++i) {
+        int prev = byTripId.row(i - 1);
+        int curr = byTripId.row(i);
         // If distance traveled is decreasing - generate error notice
-        if (prev.hasShapeDistTraveled()
-            && curr.hasShapeDistTraveled()
-            && prev.shapeDistTraveled() > curr.shapeDistTraveled()) {
+        if (columns.hasShapeDistTraveled(prev)
+            && columns.hasShapeDistTraveled(curr)
+            && columns.shapeDistTraveled(prev) > columns.shapeDistTraveled(curr)) {
           noticeContainer.addNotice(
               new DecreasingStopTimeDistanceNotice(
-                  curr.tripId(),
-                  curr.csvRowNumber(),
-                  curr.stopSequence(),
-                  curr.shapeDistTraveled(),
-                  prev.csvRowNumber(),
-                  prev.stopSequence(),
-                  prev.shapeDistTraveled()));
+                  columns.tripId(curr),
+                  columns.csvRowNumber(curr),
+                  columns.stopSequence(curr),
+                  columns.shapeDistTraveled(curr),
+                  columns.csvRowNumber(prev),
+                  columns.stopSequence(prev),
+                  columns.shapeDistTraveled(prev)));
         }
       }
     }
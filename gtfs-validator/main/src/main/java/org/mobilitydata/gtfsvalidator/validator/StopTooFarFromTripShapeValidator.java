@@ -18,10 +18,8 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import static org.locationtech.spatial4j.context.SpatialContext.GEO;
 
-import com.google.common.collect.Multimaps;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.locationtech.spatial4j.distance.DistanceUtils;
@@ -31,17 +29,19 @@ import org.locationtech.spatial4j.shape.ShapeFactory;
 import org.locationtech.spatial4j.shape.SpatialRelation;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.StopTooFarFromTripShapeNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsLocationType;
-import org.mobilitydata.gtfsvalidator.table.GtfsShape;
+import org.mobilitydata.gtfsvalidator.table.GtfsShapeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsShapeTableContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsStop;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTableContainer;
-import org.mobilitydata.gtfsvalidator.table.GtfsStopTime;
+import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsTrip;
 import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 
 /**
  * Validates that a stop is within a distance threshold for a trip shape.
@@ -49,6 +49,10 @@ import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
  * <p>Generated notice: {@link StopTooFarFromTripShapeNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "stop_times.txt", columns = {"stop_id", "stop_sequence", "trip_id"})
+@ReadsColumns(file = "trips.txt", columns = {"shape_id", "trip_id"})
+@ReadsColumns(file = "shapes.txt", columns = {"shape_id", "shape_pt_lat", "shape_pt_lon"})
+@ReadsColumns(file = "stops.txt", columns = {"location_type", "stop_id", "stop_lat", "stop_lon"})
 public class StopTooFarFromTripShapeValidator extends FileValidator {
   // Spatial operation buffer values
   static final double TRIP_BUFFER_METERS = 100;
@@ -62,12 +66,18 @@ public class StopTooFarFromTripShapeValidator extends FileValidator {
   /**
    * Create the trip shape polygon from the Gtfs shapes data and a given distance threshold from a
    * stop to a trip shape.
+   *
+   * @param group group of the shape points in {@code byShapeId} or -1 if the shape has no points
    */
-  private static Shape createTripShapePolygonGivenThreshold(List<GtfsShape> shapeList) {
+  private static Shape createTripShapePolygonGivenThreshold(
+      GtfsShapeColumns shapes, RowGroupIndex byShapeId, int group) {
     // Create a polyline from the Gtfs shapes data.
     ShapeFactory.LineStringBuilder lineBuilder = getShapeFactory().lineString();
-    for (GtfsShape shape : shapeList) {
-      lineBuilder.pointXY(shape.shapePtLon(), shape.shapePtLat());
+    if (group != -1) {
+      for (int i = byShapeId.groupStart(group); i < byShapeId.groupEnd(group); ++i) {
+        int row = byShapeId.row(i);
+        lineBuilder.pointXY(shapes.shapePtLon(row), shapes.shapePtLat(row));
+      }
     }
     Shape shapeLine = lineBuilder.build();
     // Create the buffered version of the trip as a polygon considering distance threshold.
@@ -83,25 +93,27 @@ public class StopTooFarFromTripShapeValidator extends FileValidator {
   public void validate(NoticeContainer noticeContainer) {
     // Cache for previously tested shape_id and stop_id pairs - no need to test them more than once.
     final Map<String, Set<String>> testedCache = new HashMap<>();
-    // Go through the pair of tripId and the corresponding stop time list one by one.
-    for (Map.Entry<String, List<GtfsStopTime>> tripIdStopTimeListEntry :
-        Multimaps.asMap(stopTimeTable.byTripIdMap()).entrySet()) {
-      final String tripId = tripIdStopTimeListEntry.getKey();
-      final List<GtfsStopTime> stopTimeList = tripIdStopTimeListEntry.getValue();
+    // Stop times and shapes are read by row from columns, so that no entities are created.
+    GtfsStopTimeColumns stopTimes = stopTimeTable.getColumns();
+    RowGroupIndex byTripId = stopTimeTable.byTripIdIndex();
+    GtfsShapeColumns shapes = shapeTable.getColumns();
+    RowGroupIndex byShapeId = shapeTable.byShapeIdIndex();
+    // Go through the trips of stop times one by one.
+    for (int group = 0; group < byTripId.groupCount(); ++group) {
+      final String tripId = byTripId.groupKey(group);
       final GtfsTrip trip = tripTable.byTripId(tripId);
       if (trip == null || trip.shapeId() == null) {
         // This rule only applies when all necessary fields exist.
         continue;
       }
-      final List<GtfsShape> shapeList = shapeTable.byShapeId(trip.shapeId());
-      if (shapeList == null) {
-        continue;
-      }
       // Get the trip shape polygon given the Gtfs shapes data and TRIP_BUFFER_DEGREES.
-      Shape tripShapeGivenThreshold = createTripShapePolygonGivenThreshold(shapeList);
+      Shape tripShapeGivenThreshold =
+          createTripShapePolygonGivenThreshold(
+              shapes, byShapeId, byShapeId.findGroup(trip.shapeId()));
       // Check if each stop is within the buffer polygon.
-      for (GtfsStopTime stopTime : stopTimeList) {
-        GtfsStop stop = stopTable.byStopId(stopTime.stopId());
+      for (int i = byTripId.groupStart(group); i < byTripId.groupEnd(group); ++i) {
+        int stopTime = byTripId.row(i);
+        GtfsStop stop = stopTable.byStopId(stopTimes.stopId(stopTime));
         if (stop == null) {
           continue;
         }
@@ -128,7 +140,7 @@ public class StopTooFarFromTripShapeValidator extends FileValidator {
           noticeContainer.addNotice(
               new StopTooFarFromTripShapeNotice(
                   stop.stopId(),
-                  stopTime.stopSequence(),
+                  stopTimes.stopSequence(stopTime),
                   trip.tripId(),
                   trip.shapeId(),
                   TRIP_BUFFER_METERS));
@@ -19,6 +19,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 import static org.locationtech.spatial4j.context.SpatialContext.GEO;
 
 import java.lang.Double;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import org.locationtech.spatial4j.distance.DistanceCalculator;
@@ -27,6 +28,7 @@ import org.locationtech.spatial4j.shape.Point;
 import org.locationtech.spatial4j.shape.ShapeFactory;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.StopsTooCloseNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsStop;
@@ -38,6 +40,7 @@ import org.mobilitydata.gtfsvalidator.table.GtfsStopTableContainer;
  * <p>Generated notice: {@link StopsTooCloseNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "stops.txt", columns = {"stop_id", "stop_lat", "stop_lon"})
 public class StopsTooCloseValidator extends FileValidator {
   private static final int KILOMETER_TO_METER_CONVERSION_FACTOR = 1000;
 
@@ -63,7 +66,8 @@ public class StopsTooCloseValidator extends FileValidator {
 
   @Override
   public void validate(NoticeContainer noticeContainer) {
-    List<GtfsStop> allStops = stopTable.getEntities();
+    // Sorts a copy, since indices of the table refer to its entities by position.
+    List<GtfsStop> allStops = new ArrayList<>(stopTable.getEntities());
     Collections.sort(
         allStops, (stop1, stop2) -> { return Double.compare(stop1.stopLat(), stop2.stopLat()); });
 
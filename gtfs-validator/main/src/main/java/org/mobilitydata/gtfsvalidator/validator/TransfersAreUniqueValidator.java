@@ -21,6 +21,7 @@ import java.util.HashMap;
 import java.util.Map;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.TransfersAreUniqueNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsTransfer;
@@ -44,6 +45,7 @@ abstract class FromToStopIdentifier {
  * <p>Generated notices: {@link TransfersAreUniqueNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "transfers.txt", columns = {"from_stop_id", "to_stop_id"})
 public class TransfersAreUniqueValidator extends FileValidator {
   @Inject GtfsTransferTableContainer transferTable;
 
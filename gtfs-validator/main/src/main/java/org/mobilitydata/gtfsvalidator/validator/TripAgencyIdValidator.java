@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.MissingRequiredFieldError;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsAgencyTableContainer;
@@ -32,6 +33,8 @@ import org.mobilitydata.gtfsvalidator.table.GtfsRouteTableLoader;
  * <p>Generated notice: {@link MissingRequiredFieldError}.
  */
 @GtfsValidator
+@ReadsColumns(file = "agency.txt", columns = "agency_id")
+@ReadsColumns(file = "routes.txt", columns = "agency_id")
 public class TripAgencyIdValidator extends FileValidator {
   @Inject GtfsAgencyTableContainer agencyTable;
 
@@ -16,15 +16,16 @@
 
 package org.mobilitydata.gtfsvalidator.validator;
 
-import java.util.List;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.MissingTripEdgeStopTimeNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
-import org.mobilitydata.gtfsvalidator.table.GtfsStopTime;
+import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsTrip;
 import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 
 /**
  * Validates that trip edges (first and last stops) for a trip define both arrival and departure
@@ -33,6 +34,10 @@ import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
  * <p>Generated notice: {@link MissingTripEdgeStopTimeNotice} each time this is false.
  */
 @GtfsValidator
+@ReadsColumns(file = "trips.txt", columns = "trip_id")
+@ReadsColumns(
+    file = "stop_times.txt",
+    columns = {"arrival_time", "departure_time", "stop_sequence", "trip_id"})
 public class TripEdgeArrivalDepartureTimeValidator extends FileValidator {
   @Inject GtfsTripTableContainer tripTable;
 
@@ -40,32 +45,38 @@ public class TripEdgeArrivalDepartureTimeValidator extends FileValidator {
 
   @Override
   public void validate(NoticeContainer noticeContainer) {
+    GtfsStopTimeColumns stopTimes = stopTimeTable.getColumns();
+    RowGroupIndex byTripId = stopTimeTable.byTripIdIndex();
     for (GtfsTrip trip : tripTable.getEntities()) {
       final String tripId = trip.tripId();
-      List<GtfsStopTime> stopTimesForTrip = stopTimeTable.byTripId(tripId);
+      int group = byTripId.findGroup(tripId);
 
-      if (stopTimesForTrip.isEmpty()) {
+      if (group == -1) {
         return;
       }
 
-      GtfsStopTime tripFirstStop = stopTimesForTrip.get(0);
-      GtfsStopTime tripLastStop = stopTimesForTrip.get(stopTimesForTrip.size() - 1);
+      int tripFirstStop = byTripId.row(byTripId.groupStart(group));
+      int tripLastStop = byTripId.row(byTripId.groupEnd(group) - 1);
 
-      if (!tripFirstStop.hasArrivalTime()) {
+      if (!stopTimes.hasArrivalTime(tripFirstStop)) {
         noticeContainer.addNotice(new MissingTripEdgeStopTimeNotice(
-            "arrival_time", tripId, tripFirstStop.csvRowNumber(), tripFirstStop.stopSequence()));
+            "arrival_time", tripId, stopTimes.csvRowNumber(tripFirstStop),
+            stopTimes.stopSequence(tripFirstStop)));
       }
-      if (!tripFirstStop.hasDepartureTime()) {
+      if (!stopTimes.hasDepartureTime(tripFirstStop)) {
         noticeContainer.addNotice(new MissingTripEdgeStopTimeNotice(
-            "departure_time", tripId, tripFirstStop.csvRowNumber(), tripFirstStop.stopSequence()));
+            "departure_time", tripId, stopTimes.csvRowNumber(tripFirstStop),
+            stopTimes.stopSequence(tripFirstStop)));
       }
-      if (!tripLastStop.hasArrivalTime()) {
+      if (!stopTimes.hasArrivalTime(tripLastStop)) {
         noticeContainer.addNotice(new MissingTripEdgeStopTimeNotice(
-            "arrival_time", tripId, tripLastStop.csvRowNumber(), tripLastStop.stopSequence()));
+            "arrival_time", tripId, stopTimes.csvRowNumber(tripLastStop),
+            stopTimes.stopSequence(tripLastStop)));
       }
-      if (!tripLastStop.hasDepartureTime()) {
+      if (!stopTimes.hasDepartureTime(tripLastStop)) {
         noticeContainer.addNotice(new MissingTripEdgeStopTimeNotice(
-            "departure_time", tripId, tripLastStop.csvRowNumber(), tripLastStop.stopSequence()));
+            "departure_time", tripId, stopTimes.csvRowNumber(tripLastStop),
+            stopTimes.stopSequence(tripLastStop)));
       }
     }
   }
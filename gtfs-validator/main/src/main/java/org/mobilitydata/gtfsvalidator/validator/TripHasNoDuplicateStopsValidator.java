@@ -19,19 +19,20 @@ package org.mobilitydata.gtfsvalidator.validator;
 import com.google.auto.value.AutoValue;
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.notice.TripWithDuplicateStopNotice;
 import org.mobilitydata.gtfsvalidator.table.GtfsStop;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTableContainer;
-import org.mobilitydata.gtfsvalidator.table.GtfsStopTime;
+import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsTrip;
 import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 
 /**
  * Uses AutoValue to compare duplicate stop information easier.
@@ -60,6 +61,9 @@ abstract class DuplicateStopIdentifier {
  * <p>Generated notice: {@link TripWithDuplicateStopNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "trips.txt", columns = {"route_id", "trip_id"})
+@ReadsColumns(file = "stops.txt", columns = {"stop_id", "stop_name"})
+@ReadsColumns(file = "stop_times.txt", columns = {"stop_id", "trip_id"})
 public class TripHasNoDuplicateStopsValidator extends FileValidator {
   @Inject GtfsTripTableContainer tripTable;
 
@@ -70,9 +74,14 @@ public class TripHasNoDuplicateStopsValidator extends FileValidator {
   @Override
   public void validate(NoticeContainer noticeContainer) {
     Set<DuplicateStopIdentifier> seenDuplicateStops = new HashSet<>();
+    GtfsStopTimeColumns stopTimes = stopTimeTable.getColumns();
+    RowGroupIndex byTripId = stopTimeTable.byTripIdIndex();
     for (GtfsTrip trip : tripTable.getEntities()) {
       final String tripId = trip.tripId();
-      List<GtfsStopTime> stopTimesForTrip = stopTimeTable.byTripId(tripId);
+      int group = byTripId.findGroup(tripId);
+      if (group == -1) {
+        continue;
+      }
 
       // Save the information about the previous stop to compare
       String prevStopName = null;
@@ -80,8 +89,8 @@ public class TripHasNoDuplicateStopsValidator extends FileValidator {
       long prevCsvRowNumber = -1;
 
       // Iterate through the stops consecutively based on time
-      for (GtfsStopTime stopTime : stopTimesForTrip) {
-        GtfsStop stop = stopTable.byStopId(stopTime.stopId());
+      for (int i = byTripId.groupStart(group); i < byTripId.groupEnd(group); ++i) {
+        GtfsStop stop = stopTable.byStopId(stopTimes.stopId(byTripId.row(i)));
         if (prevStopName != null) {
           // Create the key with the route and the stop id's alphabetically
           DuplicateStopIdentifier duplicateStopIdentifier = null;
@@ -18,6 +18,7 @@ package org.mobilitydata.gtfsvalidator.validator;
 
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.MeaninglessTripNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
@@ -30,6 +31,8 @@ import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
  * <p>Generated notice: {@link MeaninglessTripNotice}.
  */
 @GtfsValidator
+@ReadsColumns(file = "trips.txt", columns = "trip_id")
+@ReadsColumns(file = "stop_times.txt", columns = "trip_id")
 public class TripNumberOfStopsValidator extends FileValidator {
   @Inject GtfsTripTableContainer tripTable;
 
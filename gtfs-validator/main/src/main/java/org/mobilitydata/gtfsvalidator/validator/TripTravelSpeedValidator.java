@@ -27,14 +27,16 @@ import org.locationtech.spatial4j.shape.Point;
 import org.locationtech.spatial4j.shape.ShapeFactory;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.FastTravelBetweenStopsNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsStop;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTableContainer;
-import org.mobilitydata.gtfsvalidator.table.GtfsStopTime;
+import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeColumns;
 import org.mobilitydata.gtfsvalidator.table.GtfsStopTimeTableContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsTrip;
 import org.mobilitydata.gtfsvalidator.table.GtfsTripTableContainer;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 import org.mobilitydata.gtfsvalidator.type.GtfsTime;
 
 /**
@@ -43,6 +45,11 @@ import org.mobilitydata.gtfsvalidator.type.GtfsTime;
  * <p>Generated notice: {@link FastTravelBetweenStopsNotice}.
  */
 @GtfsValidator
+@ReadsColumns(
+    file = "stop_times.txt",
+    columns = {"arrival_time", "departure_time", "stop_id", "stop_sequence", "trip_id"})
+@ReadsColumns(file = "trips.txt", columns = "trip_id")
+@ReadsColumns(file = "stops.txt", columns = {"stop_id", "stop_lat", "stop_lon"})
 public class TripTravelSpeedValidator extends FileValidator {
   private final static float METER_PER_SECOND_TO_KMH_CONVERSION_FACTOR = 3.6f;
   private final static int FAST_SPEED_METERS_PER_SECOND = 42; // approx 150 km/h
@@ -75,9 +82,14 @@ public class TripTravelSpeedValidator extends FileValidator {
 
   @Override
   public void validate(NoticeContainer noticeContainer) {
+    GtfsStopTimeColumns stopTimes = stopTimeTable.getColumns();
+    RowGroupIndex byTripId = stopTimeTable.byTripIdIndex();
     for (GtfsTrip trip : tripTable.getEntities()) {
       final String tripId = trip.tripId();
-      List<GtfsStopTime> stopTimesForTrip = stopTimeTable.byTripId(tripId);
+      int group = byTripId.findGroup(tripId);
+      if (group == -1) {
+        continue;
+      }
 
       // Save the information about the previous stop to compare
       GtfsTime prevStopDepartureTime = null;
@@ -89,12 +101,13 @@ public class TripTravelSpeedValidator extends FileValidator {
       final List<Integer> prevStopAccumulatedStopSequence = new ArrayList<>();
 
       // Iterate through the stops consecutively based on time
-      for (GtfsStopTime stopTime : stopTimesForTrip) {
-        GtfsStop currentStop = stopTable.byStopId(stopTime.stopId());
+      for (int i = byTripId.groupStart(group); i < byTripId.groupEnd(group); ++i) {
+        int stopTime = byTripId.row(i);
+        GtfsStop currentStop = stopTable.byStopId(stopTimes.stopId(stopTime));
         double currentStopLat = currentStop.stopLat();
         double currentStopLon = currentStop.stopLon();
 
-        GtfsTime currentArrivalTime = stopTime.arrivalTime();
+        GtfsTime currentArrivalTime = stopTimes.arrivalTime(stopTime);
         double distanceFromPreviousStopMeter = 0;
 
         boolean sameArrivalAndDeparture = false;
@@ -116,7 +129,7 @@ public class TripTravelSpeedValidator extends FileValidator {
             double distanceMeter = distanceFromPreviousStopMeter + prevStopAccumulatedDistanceMeter;
             double speedMeterPerSecond = distanceMeter / durationSecond;
             if (speedMeterPerSecond > FAST_SPEED_METERS_PER_SECOND) {
-              prevStopAccumulatedStopSequence.add(stopTime.stopSequence());
+              prevStopAccumulatedStopSequence.add(stopTimes.stopSequence(stopTime));
               noticeContainer.addNotice(new FastTravelBetweenStopsNotice(tripId,
                   speedMeterPerSecond * METER_PER_SECOND_TO_KMH_CONVERSION_FACTOR,
                   new ArrayList<>(prevStopAccumulatedStopSequence)));
@@ -132,10 +145,10 @@ public class TripTravelSpeedValidator extends FileValidator {
           prevStopAccumulatedStopSequence.clear();
         }
 
-        prevStopDepartureTime = stopTime.departureTime();
+        prevStopDepartureTime = stopTimes.departureTime(stopTime);
         prevStopLatitude = currentStopLat;
         prevStopLongitude = currentStopLon;
-        prevStopAccumulatedStopSequence.add(stopTime.stopSequence());
+        prevStopAccumulatedStopSequence.add(stopTimes.stopSequence(stopTime));
       }
     }
   }
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.cli;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.input.GtfsInput;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsFeedContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsFeedLoader;
+import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+@RunWith(JUnit4.class)
+public class BatchValidatorTest {
+  @Rule public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+  private static List<String> describe(List<BatchValidator.Feed> feeds) {
+    return feeds.stream()
+        .map(feed -> feed.id + " " + feed.feedName + " " + feed.location)
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void listFeedsOfDirectory() throws IOException {
+    Path batch = tmpDir.newFolder("batch").toPath();
+    Files.createFile(batch.resolve("us-bart.zip"));
+    Files.createFile(batch.resolve("agency.ZIP"));
+    Files.createDirectory(batch.resolve("nl-openov"));
+    Files.createFile(batch.resolve("README.txt"));
+    Files.createFile(batch.resolve(".hidden.zip"));
+
+    assertThat(describe(BatchValidator.listFeeds(batch, "ca-default")))
+        .containsExactly(
+            "agency ca-default " + batch.resolve("agency.ZIP"),
+            "nl-openov nl-openov " + batch.resolve("nl-openov"),
+            "us-bart us-bart " + batch.resolve("us-bart.zip"))
+        .inOrder();
+  }
+
+  @Test
+  public void listFeedsOfManifest() throws IOException {
+    Path manifest = tmpDir.newFile("feeds.txt").toPath();
+    Files.write(
+        manifest,
+        ("# Nightly feeds\n"
+                + "us-bart bart.zip\n"
+                + "\n"
+                + "  us-bart   https://example.com/gtfs.zip  \n"
+                + "nl-openov /data/openov\n")
+            .getBytes(StandardCharsets.UTF_8));
+
+    assertThat(describe(BatchValidator.listFeeds(manifest, null)))
+        .containsExactly(
+            "us-bart us-bart " + manifest.getParent().resolve("bart.zip"),
+            "us-bart-2 us-bart https://example.com/gtfs.zip",
+            "nl-openov nl-openov /data/openov")
+        .inOrder();
+  }
+
+  @Test
+  public void listFeedsOfManifestWithoutLocation() throws IOException {
+    Path manifest = tmpDir.newFile("feeds.txt").toPath();
+    Files.write(manifest, "us-bart\n".getBytes(StandardCharsets.UTF_8));
+
+    assertThrows(IOException.class, () -> BatchValidator.listFeeds(manifest, null));
+  }
+
+  /**
+   * Loader that records how many feeds are validated at once and fails for one feed name, as a
+   * validator with a bug would.
+   */
+  private static class TrackingFeedLoader extends GtfsFeedLoader {
+    final AtomicInteger activeFeeds = new AtomicInteger();
+    final AtomicInteger maxActiveFeeds = new AtomicInteger();
+    private final String failingFeedName;
+
+    TrackingFeedLoader(String failingFeedName) {
+      this.failingFeedName = failingFeedName;
+    }
+
+    @Override
+    public GtfsFeedContainer loadAndValidate(
+        GtfsInput gtfsInput,
+        GtfsFeedName feedName,
+        ValidatorLoader validatorLoader,
+        NoticeContainer noticeContainer) {
+      if (feedName.getCountryFirstName().equals(failingFeedName)) {
+        throw new IllegalStateException("Validator failed");
+      }
+      maxActiveFeeds.accumulateAndGet(activeFeeds.incrementAndGet(), Math::max);
+      try {
+        // Give other feeds the time to start.
+        Thread.sleep(200);
+        return super.loadAndValidate(gtfsInput, feedName, validatorLoader, noticeContainer);
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      } finally {
+        activeFeeds.decrementAndGet();
+      }
+    }
+  }
+
+  /** Creates a feed directory that only has agency.txt. */
+  private Path createFeed(String name) throws IOException {
+    Path feed = tmpDir.newFolder(name).toPath();
+    Files.write(
+        feed.resolve("agency.txt"),
+        "agency_name,agency_url,agency_timezone\nAgency,https://example.com,America/Toronto\n"
+            .getBytes(StandardCharsets.UTF_8));
+    return feed;
+  }
+
+  private static List<String> feedIds(JsonNode summary) {
+    List<String> ids = new ArrayList<>();
+    summary.get("feeds").forEach(feed -> ids.add(feed.get("id").asText()));
+    return ids;
+  }
+
+  @Test
+  public void validateWritesReportsAndSummary() throws Exception {
+    Path manifest = tmpDir.newFile("feeds.txt").toPath();
+    Files.write(
+        manifest,
+        ("us-bart "
+                + createFeed("bart")
+                + "\n"
+                + "nl-openov "
+                + createFeed("openov")
+                + "\n"
+                + "fr-paris "
+                + tmpDir.getRoot().toPath().resolve("missing.zip")
+                + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+    Path outputBase = tmpDir.getRoot().toPath().resolve("output");
+
+    new BatchValidator(new ValidatorLoader(), new GtfsFeedLoader(), outputBase, 2, 2)
+        .validate(BatchValidator.listFeeds(manifest, null));
+
+    assertThat(Files.isRegularFile(outputBase.resolve("us-bart").resolve("report.json"))).isTrue();
+    assertThat(Files.isRegularFile(outputBase.resolve("nl-openov").resolve("report.json")))
+        .isTrue();
+    // A feed that cannot be read gets no report but does not stop the batch.
+    assertThat(Files.exists(outputBase.resolve("fr-paris"))).isFalse();
+    JsonNode summary = new ObjectMapper().readTree(outputBase.resolve("summary.json").toFile());
+    assertThat(feedIds(summary)).containsExactly("us-bart", "nl-openov", "fr-paris").inOrder();
+    assertThat(summary.get("failedFeeds").asInt()).isEqualTo(1);
+    assertThat(summary.get("feeds").get(2).has("error")).isTrue();
+    // Each feed lacks the same required files, so the totals are twice the counts of one feed.
+    JsonNode bartCounts = summary.get("feeds").get(0).get("noticeCounts");
+    assertThat(bartCounts.get("missing_required_file").asInt()).isGreaterThan(0);
+    assertThat(summary.get("totalNoticeCounts").get("missing_required_file").asInt())
+        .isEqualTo(2 * bartCounts.get("missing_required_file").asInt());
+  }
+
+  @Test
+  public void failingFeedDoesNotStopOthers() throws Exception {
+    Path manifest = tmpDir.newFile("feeds.txt").toPath();
+    Files.write(
+        manifest,
+        ("us-bart "
+                + createFeed("bart")
+                + "\n"
+                + "ca-toronto "
+                + createFeed("toronto")
+                + "\n"
+                + "nl-openov "
+                + createFeed("openov")
+                + "\n")
+            .getBytes(StandardCharsets.UTF_8));
+    Path outputBase = tmpDir.getRoot().toPath().resolve("output");
+
+    new BatchValidator(
+            new ValidatorLoader(), new TrackingFeedLoader("ca-toronto"), outputBase, 2, 2)
+        .validate(BatchValidator.listFeeds(manifest, null));
+
+    assertThat(Files.isRegularFile(outputBase.resolve("us-bart").resolve("report.json"))).isTrue();
+    assertThat(Files.isRegularFile(outputBase.resolve("nl-openov").resolve("report.json")))
+        .isTrue();
+    assertThat(Files.exists(outputBase.resolve("ca-toronto"))).isFalse();
+    JsonNode summary = new ObjectMapper().readTree(outputBase.resolve("summary.json").toFile());
+    assertThat(summary.get("failedFeeds").asInt()).isEqualTo(1);
+    assertThat(summary.get("feeds").get(1).get("error").asText()).contains("Validator failed");
+    assertThat(summary.get("feeds").get(0).has("error")).isFalse();
+    assertThat(summary.get("feeds").get(2).has("error")).isFalse();
+  }
+
+  @Test
+  public void numberOfConcurrentFeedsIsBounded() throws Exception {
+    StringBuilder manifestContent = new StringBuilder();
+    for (int i = 0; i < 6; ++i) {
+      manifestContent.append("us-bart ").append(createFeed("bart" + i)).append('\n');
+    }
+    Path manifest = tmpDir.newFile("feeds.txt").toPath();
+    Files.write(manifest, manifestContent.toString().getBytes(StandardCharsets.UTF_8));
+    TrackingFeedLoader feedLoader = new TrackingFeedLoader(null);
+
+    new BatchValidator(
+            new ValidatorLoader(), feedLoader, tmpDir.getRoot().toPath().resolve("output"), 4, 2)
+        .validate(BatchValidator.listFeeds(manifest, null));
+
+    // There are more threads than concurrent feeds, so the bound is reached but not exceeded.
+    assertThat(feedLoader.maxActiveFeeds.get()).isEqualTo(2);
+  }
+}
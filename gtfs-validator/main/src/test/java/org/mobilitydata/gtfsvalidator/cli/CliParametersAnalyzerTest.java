@@ -64,6 +64,8 @@ public class CliParametersAnalyzerTest {
     verify(mockArguments, times(1)).getUrl();
     //noinspection ResultOfMethodCallIgnored because object is mocked
     verify(mockArguments, times(2)).getInput();
+    //noinspection ResultOfMethodCallIgnored because object is mocked
+    verify(mockArguments, times(1)).getBatch();
     verifyNoMoreInteractions(mockArguments, mockHandler);
   }
 
@@ -83,6 +85,8 @@ public class CliParametersAnalyzerTest {
     verify(mockArguments, times(1)).getUrl();
     //noinspection ResultOfMethodCallIgnored because object is mocked
     verify(mockArguments, times(1)).getInput();
+    //noinspection ResultOfMethodCallIgnored because object is mocked
+    verify(mockArguments, times(1)).getBatch();
     verifyNoMoreInteractions(mockArguments, mockHandler);
   }
 
@@ -101,6 +105,10 @@ public class CliParametersAnalyzerTest {
     verify(mockArguments, times(2)).getInput();
     //noinspection ResultOfMethodCallIgnored because object is mocked
     verify(mockArguments, times(1)).getStorageDirectory();
+    //noinspection ResultOfMethodCallIgnored because object is mocked
+    verify(mockArguments, times(1)).getStream();
+    //noinspection ResultOfMethodCallIgnored because object is mocked
+    verify(mockArguments, times(1)).getBatch();
     verifyNoMoreInteractions(mockArguments, mockHandler);
   }
 
@@ -121,6 +129,8 @@ public class CliParametersAnalyzerTest {
     verify(mockArguments, times(1)).getUrl();
     //noinspection ResultOfMethodCallIgnored because object is mocked
     verify(mockArguments, times(1)).getInput();
+    //noinspection ResultOfMethodCallIgnored because object is mocked
+    verify(mockArguments, times(1)).getBatch();
     verifyNoMoreInteractions(mockArguments, mockHandler);
   }
 
@@ -139,6 +149,66 @@ public class CliParametersAnalyzerTest {
     verify(mockArguments, times(2)).getInput();
     //noinspection ResultOfMethodCallIgnored because object is mocked
     verify(mockArguments, times(1)).getStorageDirectory();
+    //noinspection ResultOfMethodCallIgnored because object is mocked
+    verify(mockArguments, times(1)).getStream();
+    //noinspection ResultOfMethodCallIgnored because object is mocked
+    verify(mockArguments, times(1)).getBatch();
     verifyNoMoreInteractions(mockArguments, mockHandler);
   }
+
+  @Test
+  public void provideStreamAndStorageDirectoryCliParametersShouldReturnFalse() {
+    Arguments mockArguments = mock(Arguments.class);
+    when(mockArguments.getUrl()).thenReturn("url to dataset");
+    when(mockArguments.getInput()).thenReturn(null);
+    when(mockArguments.getStorageDirectory()).thenReturn("storage.zip");
+    when(mockArguments.getStream()).thenReturn(true);
+
+    CliParametersAnalyzer underTest = new CliParametersAnalyzer();
+    assertThat(underTest.isValid(mockArguments)).isFalse();
+    verify(mockHandler).publish(logRecordCaptor.capture());
+    assertThat(logRecordCaptor.getValue().getMessage())
+        .contains(
+            "The two following CLI parameters cannot be "
+                + "provided at the same time: '--stream' and '--storage_directory'");
+  }
+
+  @Test
+  public void provideStreamAndInputCliParametersShouldReturnFalse() {
+    Arguments mockArguments = mock(Arguments.class);
+    when(mockArguments.getUrl()).thenReturn(null);
+    when(mockArguments.getInput()).thenReturn("dataset.zip");
+    when(mockArguments.getStream()).thenReturn(true);
+
+    CliParametersAnalyzer underTest = new CliParametersAnalyzer();
+    assertThat(underTest.isValid(mockArguments)).isFalse();
+    verify(mockHandler).publish(logRecordCaptor.capture());
+    assertThat(logRecordCaptor.getValue().getMessage())
+        .contains("CLI parameter '--stream' must not be provided if '--url' is not provided");
+  }
+
+  @Test
+  public void provideBatchWithoutInputCliParameterShouldReturnTrue() {
+    Arguments mockArguments = mock(Arguments.class);
+    when(mockArguments.getBatch()).thenReturn("feeds.txt");
+    when(mockArguments.getUrl()).thenReturn(null);
+    when(mockArguments.getInput()).thenReturn(null);
+
+    CliParametersAnalyzer underTest = new CliParametersAnalyzer();
+    assertThat(underTest.isValid(mockArguments)).isTrue();
+  }
+
+  @Test
+  public void provideBatchAndInputCliParametersShouldReturnFalse() {
+    Arguments mockArguments = mock(Arguments.class);
+    when(mockArguments.getBatch()).thenReturn("feeds.txt");
+    when(mockArguments.getUrl()).thenReturn(null);
+    when(mockArguments.getInput()).thenReturn("path to dataset");
+
+    CliParametersAnalyzer underTest = new CliParametersAnalyzer();
+    assertThat(underTest.isValid(mockArguments)).isFalse();
+    verify(mockHandler).publish(logRecordCaptor.capture());
+    assertThat(logRecordCaptor.getValue().getMessage())
+        .contains("CLI parameter '--batch' cannot be provided together with '--input' or '--url'");
+  }
 }
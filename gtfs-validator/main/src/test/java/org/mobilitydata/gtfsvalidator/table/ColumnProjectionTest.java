@@ -0,0 +1,123 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import com.google.common.collect.ImmutableSet;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.notice.MissingRequiredFieldError;
+import org.mobilitydata.gtfsvalidator.notice.Notice;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Loads tables with column projection, as with {@code --project_columns}. */
+@RunWith(JUnit4.class)
+public class ColumnProjectionTest {
+  private static final GtfsFeedName FEED_NAME = GtfsFeedName.parseString("au-sydney-buses");
+
+  private static List<Object> missingRequiredFields(NoticeContainer noticeContainer) {
+    List<Object> fieldNames = new ArrayList<>();
+    for (Notice notice : noticeContainer.getNotices()) {
+      if (notice.getCode().equals(MissingRequiredFieldError.CODE)) {
+        fieldNames.add(notice.getContext().get("fieldName"));
+      }
+    }
+    return fieldNames;
+  }
+
+  @Test
+  public void skippedColumnsOfAgency() throws IOException {
+    ValidatorLoader validatorLoader = new ValidatorLoader();
+    validatorLoader.setColumnProjection(true);
+    // No validator reads agency_name, agency_url or agency_phone.
+    assertThat(
+            validatorLoader.getProjectedColumns(
+                GtfsAgencyTableLoader.FILENAME, GtfsAgencyTableContainer.class, GtfsAgency.class))
+        .containsNoneOf("agency_name", "agency_url", "agency_phone");
+    NoticeContainer noticeContainer = new NoticeContainer();
+
+    GtfsAgencyTableContainer table =
+        (GtfsAgencyTableContainer)
+            new GtfsAgencyTableLoader()
+                .load(
+                    new StringReader(
+                        "agency_id,agency_name,agency_url,agency_timezone,agency_phone\n"
+                            + "a1,Buses,https://example.com,Australia/Sydney,(02) 9999 9999\n"
+                            + "a2,,https://example.com,Australia/Sydney,\n"),
+                    FEED_NAME,
+                    validatorLoader,
+                    noticeContainer);
+
+    GtfsAgency agency = table.byAgencyId("a1");
+    assertThat(agency).isNotNull();
+    assertThat(agency.hasAgencyName()).isFalse();
+    assertThat(agency.hasAgencyUrl()).isFalse();
+    assertThat(agency.hasAgencyPhone()).isFalse();
+    // Parsed columns are still set.
+    assertThat(agency.agencyTimezone().getId()).isEqualTo("Australia/Sydney");
+    // A required column that is not parsed is still checked for presence, so the row of a2 has
+    // an error.
+    assertThat(missingRequiredFields(noticeContainer)).containsExactly("agency_name");
+  }
+
+  @Test
+  public void keysAndForeignKeysAreAlwaysParsed() throws IOException {
+    // As if the validators of trips read no column at all.
+    ValidatorLoader validatorLoader =
+        new ValidatorLoader() {
+          @Override
+          public Set<String> getProjectedColumns(
+              String filename,
+              Class<? extends GtfsTableContainer<?>> tableClass,
+              Class<? extends GtfsEntity> entityClass) {
+            return ImmutableSet.of();
+          }
+        };
+    NoticeContainer noticeContainer = new NoticeContainer();
+
+    GtfsTripTableContainer table =
+        (GtfsTripTableContainer)
+            new GtfsTripTableLoader()
+                .load(
+                    new StringReader(
+                        "route_id,service_id,trip_id,trip_headsign,block_id,shape_id\n"
+                            + "r1,weekdays,t1,Central,b1,shape1\n"
+                            + "r1,,t2,Central,b1,shape1\n"),
+                    FEED_NAME,
+                    validatorLoader,
+                    noticeContainer);
+
+    GtfsTrip trip = table.byTripId("t1");
+    assertThat(trip).isNotNull();
+    assertThat(trip.routeId()).isEqualTo("r1");
+    assertThat(trip.shapeId()).isEqualTo("shape1");
+    assertThat(table.byBlockId("b1")).containsExactly(trip);
+    assertThat(trip.hasServiceId()).isFalse();
+    assertThat(trip.hasTripHeadsign()).isFalse();
+    assertThat(missingRequiredFields(noticeContainer)).containsExactly("service_id");
+  }
+}
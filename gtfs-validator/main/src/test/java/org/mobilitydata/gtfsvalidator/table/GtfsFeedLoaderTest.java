@@ -0,0 +1,276 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import com.google.common.base.CharMatcher;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.input.GtfsInput;
+import org.mobilitydata.gtfsvalidator.notice.IOError;
+import org.mobilitydata.gtfsvalidator.notice.Notice;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Loads whole feeds with {@code GtfsFeedLoader}. */
+@RunWith(JUnit4.class)
+public class GtfsFeedLoaderTest {
+  private static final GtfsFeedName FEED_NAME = GtfsFeedName.parseString("au-sydney-buses");
+
+  @Rule public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+  private HttpServer server;
+
+  private static byte[] createZip(String[]... files) throws IOException {
+    ByteArrayOutputStream zip = new ByteArrayOutputStream();
+    try (ZipOutputStream out = new ZipOutputStream(zip)) {
+      for (String[] file : files) {
+        out.putNextEntry(new ZipEntry(file[0]));
+        out.write(file[1].getBytes(StandardCharsets.UTF_8));
+        out.closeEntry();
+      }
+    }
+    return zip.toByteArray();
+  }
+
+  private static String createStopsContent() {
+    StringBuilder content = new StringBuilder("stop_id,stop_name,stop_lat,stop_lon\n");
+    for (int i = 0; i < 100000; ++i) {
+      content.append("stop").append(i).append(",Stop ").append(i).append(",-33.8,151.2\n");
+    }
+    return content.toString();
+  }
+
+  /** Serves the archive but drops the connection after half of it, as a failing network would. */
+  private URL serveTruncated(byte[] zip) throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.createContext(
+        "/gtfs.zip",
+        exchange -> {
+          exchange.sendResponseHeaders(200, zip.length);
+          OutputStream body = exchange.getResponseBody();
+          body.write(zip, 0, zip.length / 2);
+          body.flush();
+          // Closing with fewer bytes than announced makes the server drop the connection.
+          exchange.close();
+        });
+    server.start();
+    return new URL("http", "localhost", server.getAddress().getPort(), "/gtfs.zip");
+  }
+
+  @After
+  public void stopServer() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void brokenDownloadIsNotReportedAsMissingFiles() throws Exception {
+    byte[] zip =
+        createZip(
+            new String[] {
+              "agency.txt",
+              "agency_name,agency_url,agency_timezone\nAgency,https://example.com,Australia/Sydney\n"
+            },
+            new String[] {"stops.txt", createStopsContent()},
+            new String[] {"routes.txt", "route_id,route_short_name,route_type\nr1,1,3\n"});
+    NoticeContainer noticeContainer = new NoticeContainer();
+    GtfsFeedContainer feed;
+    try (GtfsInput gtfsInput = GtfsInput.createFromUrlAsStream(serveTruncated(zip))) {
+      feed =
+          new GtfsFeedLoader()
+              .loadAndValidate(gtfsInput, FEED_NAME, new ValidatorLoader(), noticeContainer);
+    }
+
+    assertThat(noticeContainer.countNoticesByCode()).containsKey(IOError.CODE);
+    assertThat(noticeContainer.countNoticesByCode()).doesNotContainKey("missing_required_file");
+    assertThat(feed.getTable(GtfsAgencyTableContainer.class).entityCount()).isEqualTo(1);
+  }
+
+  /** Delegates to another input and records the threads that open files. */
+  private static class ThreadRecordingInput extends GtfsInput {
+    private final GtfsInput delegate;
+    private final Set<Thread> openingThreads = ConcurrentHashMap.newKeySet();
+
+    ThreadRecordingInput(GtfsInput delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Set<String> getFilenames() {
+      return delegate.getFilenames();
+    }
+
+    @Override
+    public InputStream getFile(String filename) throws IOException {
+      openingThreads.add(Thread.currentThread());
+      return delegate.getFile(filename);
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+
+  @Test
+  public void randomAccessFilesAreOpenedByLoaderTasks() throws Exception {
+    Path feedDirectory = tmpDir.newFolder("feed").toPath();
+    writeFile(
+        feedDirectory,
+        "agency.txt",
+        "agency_name,agency_url,agency_timezone\nAgency,https://example.com,Australia/Sydney\n");
+    writeFile(feedDirectory, "routes.txt", "route_id,route_short_name,route_type\nr1,1,3\n");
+    NoticeContainer noticeContainer = new NoticeContainer();
+    GtfsFeedContainer feed;
+    try (ThreadRecordingInput gtfsInput =
+        new ThreadRecordingInput(GtfsInput.createFromPath(feedDirectory))) {
+      GtfsFeedLoader feedLoader = new GtfsFeedLoader();
+      feedLoader.setNumThreads(2);
+      feed =
+          feedLoader.loadAndValidate(gtfsInput, FEED_NAME, new ValidatorLoader(), noticeContainer);
+      assertThat(gtfsInput.openingThreads).isNotEmpty();
+      assertThat(gtfsInput.openingThreads).doesNotContain(Thread.currentThread());
+    }
+    assertThat(feed.getTable(GtfsRouteTableContainer.class).entityCount()).isEqualTo(1);
+  }
+
+  private static void writeFile(Path directory, String filename, String content)
+      throws IOException {
+    Files.write(directory.resolve(filename), content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns a value from the context of each notice with the given code as a string. Notices read
+   * from the cache hold JSON elements in their context, so quotes of JSON strings are removed.
+   */
+  private static List<String> contextValues(
+      NoticeContainer noticeContainer, String code, String contextKey) {
+    List<String> values = new ArrayList<>();
+    for (Notice notice : noticeContainer.getNotices()) {
+      if (notice.getCode().equals(code)) {
+        values.add(
+            CharMatcher.is('"').trimFrom(String.valueOf(notice.getContext().get(contextKey))));
+      }
+    }
+    return values;
+  }
+
+  private static GtfsFeedContainer loadWithCache(
+      Path feedDirectory, ValidationResultCache resultCache, NoticeContainer noticeContainer)
+      throws IOException {
+    GtfsFeedLoader feedLoader = new GtfsFeedLoader();
+    feedLoader.setResultCache(resultCache);
+    try (GtfsInput gtfsInput = GtfsInput.createFromPath(feedDirectory)) {
+      return feedLoader.loadAndValidate(
+          gtfsInput, FEED_NAME, new ValidatorLoader(), noticeContainer);
+    }
+  }
+
+  @Test
+  public void cachedResultsAreReusedForUnchangedFiles() throws Exception {
+    Path feedDirectory = tmpDir.newFolder("feed").toPath();
+    writeFile(
+        feedDirectory,
+        "agency.txt",
+        "agency_id,agency_name,agency_url,agency_timezone\n"
+            + "a1,Agency,https://example.com,Australia/Sydney\n");
+    // The latitude is out of range, which is reported while stops.txt is parsed.
+    writeFile(
+        feedDirectory,
+        "stops.txt",
+        "stop_id,stop_name,stop_lat,stop_lon\n" + "s1,Stop,100,151.2\n");
+    // Agency a2 does not exist.
+    writeFile(
+        feedDirectory,
+        "routes.txt",
+        "route_id,agency_id,route_short_name,route_type\n" + "r1,a2,1,3\n");
+    writeFile(feedDirectory, "trips.txt", "route_id,service_id,trip_id\n" + "r1,weekdays,t1\n");
+    // The service has no active days, which is reported by a multi-file validator.
+    writeFile(
+        feedDirectory,
+        "calendar.txt",
+        "service_id,monday,tuesday,wednesday,thursday,friday,saturday,sunday,"
+            + "start_date,end_date\n"
+            + "weekdays,0,0,0,0,0,0,0,20210101,20211231\n");
+    ValidationResultCache resultCache =
+        new ValidationResultCache(tmpDir.newFolder("cache").toPath(), "test");
+
+    NoticeContainer firstNotices = new NoticeContainer();
+    GtfsFeedContainer firstFeed = loadWithCache(feedDirectory, resultCache, firstNotices);
+    assertThat(firstFeed.getTable(GtfsStopTableContainer.class)).isNotNull();
+    assertThat(firstFeed.getTable(GtfsCalendarTableContainer.class).entityCount()).isEqualTo(1);
+    assertThat(contextValues(firstNotices, "foreign_key_error", "fieldValue"))
+        .containsExactly("a2");
+    assertThat(contextValues(firstNotices, "field_parsing_error", "fieldValue"))
+        .containsExactly("100");
+    assertThat(contextValues(firstNotices, "calendar_has_no_active_days", "serviceId"))
+        .containsExactly("weekdays");
+
+    writeFile(
+        feedDirectory,
+        "routes.txt",
+        "route_id,agency_id,route_short_name,route_type\n" + "r1,a1,1,3\n");
+    NoticeContainer secondNotices = new NoticeContainer();
+    GtfsFeedContainer secondFeed = loadWithCache(feedDirectory, resultCache, secondNotices);
+
+    // The changed table and the tables of validators that depend on it are parsed again, and
+    // those validators see the fixed reference.
+    assertThat(secondFeed.getTable(GtfsRouteTableContainer.class).entityCount()).isEqualTo(1);
+    assertThat(secondFeed.getTable(GtfsAgencyTableContainer.class).entityCount()).isEqualTo(1);
+    assertThat(contextValues(secondNotices, "foreign_key_error", "fieldValue")).isEmpty();
+    // Unchanged tables that no re-run validator needs are not parsed at all, yet their notices and
+    // those of their validators are still reported from the cache.
+    assertThat(secondFeed.getTable(GtfsStopTableContainer.class)).isNull();
+    assertThat(secondFeed.getTable(GtfsCalendarTableContainer.class)).isNull();
+    // They are still listed in the totals with the number of entities they had.
+    assertThat(secondFeed.getTable("calendar.txt")).isInstanceOf(CachedTableContainer.class);
+    assertThat(secondFeed.tableTotals()).isEqualTo(firstFeed.tableTotals());
+    assertThat(contextValues(secondNotices, "field_parsing_error", "fieldValue"))
+        .containsExactly("100");
+    assertThat(contextValues(secondNotices, "calendar_has_no_active_days", "serviceId"))
+        .containsExactly("weekdays");
+    // Skipped tables are not reported as missing.
+    assertThat(contextValues(secondNotices, "missing_required_file", "filename"))
+        .containsExactly("stop_times.txt");
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
+import org.mobilitydata.gtfsvalidator.type.GtfsTime;
+
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Stores stop times in GtfsStopTimeColumns, which is generated for columnar tables. */
+@RunWith(JUnit4.class)
+public class GtfsStopTimeColumnsTest {
+  private static GtfsStopTime stopTime(String tripId, int stopSequence) {
+    return new GtfsStopTime.Builder()
+        .setCsvRowNumber(stopSequence + 2)
+        .setTripId(tripId)
+        .setStopId("s" + stopSequence)
+        .setStopSequence(stopSequence)
+        .build();
+  }
+
+  private static GtfsStopTimeColumns columnsOf(
+      IdDictionary idDictionary, GtfsStopTime... stopTimes) {
+    GtfsStopTimeColumns columns = new GtfsStopTimeColumns(idDictionary);
+    for (GtfsStopTime stopTime : stopTimes) {
+      columns.add(stopTime);
+    }
+    return columns;
+  }
+
+  @Test
+  public void entityRoundTrip() {
+    GtfsStopTime stopTime =
+        new GtfsStopTime.Builder()
+            .setCsvRowNumber(5)
+            .setTripId("t1")
+            .setArrivalTime(GtfsTime.fromString("08:00:00"))
+            .setDepartureTime(GtfsTime.fromString("25:01:02"))
+            .setStopId("s1")
+            .setStopSequence(3)
+            .setStopHeadsign("Downtown")
+            .setPickupType(2)
+            .setDropOffType(1)
+            .setContinuousPickup(0)
+            .setContinuousDropOff(3)
+            .setShapeDistTraveled(12.5)
+            .setTimepoint(0)
+            .build();
+    GtfsStopTimeColumns columns = columnsOf(new IdDictionary(), stopTime);
+
+    assertThat(columns.size()).isEqualTo(1);
+    GtfsStopTime copy = columns.entity(0);
+    assertThat(copy.csvRowNumber()).isEqualTo(5);
+    assertThat(copy.tripId()).isEqualTo("t1");
+    assertThat(copy.arrivalTime()).isEqualTo(GtfsTime.fromString("08:00:00"));
+    assertThat(copy.departureTime()).isEqualTo(GtfsTime.fromString("25:01:02"));
+    assertThat(copy.stopId()).isEqualTo("s1");
+    assertThat(copy.stopSequence()).isEqualTo(3);
+    assertThat(copy.stopHeadsign()).isEqualTo("Downtown");
+    assertThat(copy.pickupType()).isEqualTo(GtfsPickupDropOff.MUST_PHONE);
+    assertThat(copy.dropOffType()).isEqualTo(GtfsPickupDropOff.NOT_AVAILABLE);
+    assertThat(copy.continuousPickup()).isEqualTo(GtfsContinuousPickupDropOff.ALLOWED);
+    assertThat(copy.continuousDropOff())
+        .isEqualTo(GtfsContinuousPickupDropOff.ON_REQUEST_TO_DRIVER);
+    assertThat(copy.shapeDistTraveled()).isEqualTo(12.5);
+    assertThat(copy.timepoint()).isEqualTo(GtfsStopTimesTimepoint.APPROXIMATE);
+    assertThat(copy.hasContinuousPickup()).isTrue();
+    assertThat(copy.hasTimepoint()).isTrue();
+  }
+
+  @Test
+  public void columnGettersReadStoredValues() {
+    IdDictionary idDictionary = new IdDictionary();
+    GtfsStopTimeColumns columns =
+        columnsOf(
+            idDictionary,
+            new GtfsStopTime.Builder()
+                .setTripId("t1")
+                .setArrivalTime(GtfsTime.fromString("08:00:00"))
+                .setStopId("s1")
+                .setPickupType(7)
+                .build());
+
+    assertThat(columns.tripIdCode(0)).isEqualTo(idDictionary.namespace("trip_id").find("t1"));
+    assertThat(columns.tripIdNamespace()).isSameInstanceAs(idDictionary.namespace("trip_id"));
+    assertThat(columns.arrivalTimeSecondsSinceMidnight(0)).isEqualTo(8 * 3600);
+    // An unrecognized value is kept, so that the entity of the row has it too.
+    assertThat(columns.pickupType(0)).isEqualTo(GtfsPickupDropOff.UNRECOGNIZED);
+    assertThat(columns.pickupTypeValue(0)).isEqualTo(7);
+    assertThat(columns.entity(0).pickupTypeValue()).isEqualTo(7);
+  }
+
+  @Test
+  public void missingFieldsHaveDefaults() {
+    GtfsStopTimeColumns columns =
+        columnsOf(new IdDictionary(), new GtfsStopTime.Builder().setCsvRowNumber(2).build());
+
+    assertThat(columns.hasTripId(0)).isFalse();
+    assertThat(columns.tripId(0)).isEqualTo(GtfsStopTime.DEFAULT_TRIP_ID);
+    assertThat(columns.tripIdCode(0)).isEqualTo(-1);
+    assertThat(columns.hasArrivalTime(0)).isFalse();
+    assertThat(columns.arrivalTime(0)).isEqualTo(GtfsStopTime.DEFAULT_ARRIVAL_TIME);
+    assertThat(columns.hasStopSequence(0)).isFalse();
+    assertThat(columns.stopSequence(0)).isEqualTo(GtfsStopTime.DEFAULT_STOP_SEQUENCE);
+    assertThat(columns.hasStopHeadsign(0)).isFalse();
+    assertThat(columns.stopHeadsign(0)).isEqualTo(GtfsStopTime.DEFAULT_STOP_HEADSIGN);
+    assertThat(columns.hasContinuousPickup(0)).isFalse();
+    assertThat(columns.continuousPickup(0)).isEqualTo(GtfsContinuousPickupDropOff.NOT_AVAILABLE);
+    assertThat(columns.hasShapeDistTraveled(0)).isFalse();
+    assertThat(columns.shapeDistTraveled(0)).isEqualTo(GtfsStopTime.DEFAULT_SHAPE_DIST_TRAVELED);
+
+    GtfsStopTime copy = columns.entity(0);
+    assertThat(copy.hasTripId()).isFalse();
+    assertThat(copy.hasArrivalTime()).isFalse();
+    assertThat(copy.hasStopSequence()).isFalse();
+    assertThat(copy.hasContinuousPickup()).isFalse();
+    assertThat(copy.continuousPickup()).isEqualTo(GtfsContinuousPickupDropOff.NOT_AVAILABLE);
+  }
+
+  @Test
+  public void uncommittedRowIsOverwritten() {
+    GtfsStopTimeColumns columns = new GtfsStopTimeColumns(new IdDictionary());
+    columns.startRow(2);
+    columns.setTripId("t1");
+    columns.setStopSequence(1);
+    columns.setStopHeadsign("Downtown");
+    columns.startRow(3);
+    columns.setTripId("t2");
+    columns.commitRow();
+
+    assertThat(columns.size()).isEqualTo(1);
+    assertThat(columns.csvRowNumber(0)).isEqualTo(3);
+    assertThat(columns.tripId(0)).isEqualTo("t2");
+    assertThat(columns.hasStopSequence(0)).isFalse();
+    assertThat(columns.hasStopHeadsign(0)).isFalse();
+  }
+
+  @Test
+  public void nullLeavesFieldMissing() {
+    GtfsStopTimeColumns columns = new GtfsStopTimeColumns(new IdDictionary());
+    columns.startRow(2);
+    columns.setStopId(null);
+    columns.setArrivalTime(null);
+    columns.commitRow();
+
+    assertThat(columns.hasStopId(0)).isFalse();
+    assertThat(columns.stopIdCode(0)).isEqualTo(-1);
+    assertThat(columns.hasArrivalTime(0)).isFalse();
+  }
+
+  @Test
+  public void sortedWithinRuns() {
+    IdDictionary idDictionary = new IdDictionary();
+    assertThat(
+            columnsOf(
+                    idDictionary,
+                    stopTime("t1", 1),
+                    stopTime("t1", 2),
+                    stopTime("t2", 0),
+                    stopTime("t1", 0))
+                .isSortedWithinRuns())
+        .isTrue();
+    assertThat(columnsOf(idDictionary, stopTime("t1", 2), stopTime("t1", 1)).isSortedWithinRuns())
+        .isFalse();
+    assertThat(new GtfsStopTimeColumns(idDictionary).isSortedWithinRuns()).isTrue();
+  }
+
+  @Test
+  public void addAllAppendsRowsInOrder() {
+    IdDictionary idDictionary = new IdDictionary();
+    GtfsStopTimeColumns columns = columnsOf(idDictionary, stopTime("t1", 1));
+    columns.addAll(columnsOf(idDictionary, stopTime("t1", 2), stopTime("t2", 1)));
+    columns.addAll(new GtfsStopTimeColumns(idDictionary));
+
+    assertThat(columns.size()).isEqualTo(3);
+    assertThat(
+            columns.asEntityList().stream().map(GtfsStopTime::stopId).collect(Collectors.toList()))
+        .containsExactly("s1", "s2", "s1")
+        .inOrder();
+    assertThat(columns.tripId(2)).isEqualTo("t2");
+    assertThat(columns.isSortedWithinRuns()).isTrue();
+  }
+
+  @Test
+  public void addAllDetectsUnsortedRows() {
+    IdDictionary idDictionary = new IdDictionary();
+    // Unsorted at the boundary of the chunks.
+    GtfsStopTimeColumns columns = columnsOf(idDictionary, stopTime("t1", 2));
+    columns.addAll(columnsOf(idDictionary, stopTime("t1", 1)));
+    assertThat(columns.isSortedWithinRuns()).isFalse();
+
+    // Unsorted within the appended chunk.
+    columns = columnsOf(idDictionary, stopTime("t0", 5));
+    columns.addAll(columnsOf(idDictionary, stopTime("t1", 2), stopTime("t1", 1)));
+    assertThat(columns.isSortedWithinRuns()).isFalse();
+  }
+}
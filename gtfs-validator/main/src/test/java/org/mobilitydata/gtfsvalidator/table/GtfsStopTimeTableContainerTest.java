@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.notice.DuplicateKeyError;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Groups rows of GtfsStopTimeTableContainer by trip_id. */
+@RunWith(JUnit4.class)
+public class GtfsStopTimeTableContainerTest {
+  private static GtfsStopTime stopTime(long csvRowNumber, String tripId, int stopSequence) {
+    GtfsStopTime.Builder builder =
+        new GtfsStopTime.Builder().setCsvRowNumber(csvRowNumber).setStopSequence(stopSequence);
+    if (!tripId.isEmpty()) {
+      builder.setTripId(tripId);
+    }
+    return builder.build();
+  }
+
+  private static GtfsStopTimeTableContainer tableOf(GtfsStopTime... stopTimes) {
+    return GtfsStopTimeTableContainer.forEntities(
+        ImmutableList.copyOf(stopTimes), new NoticeContainer());
+  }
+
+  private static List<Long> csvRowNumbers(List<GtfsStopTime> stopTimes) {
+    return stopTimes.stream().map(GtfsStopTime::csvRowNumber).collect(Collectors.toList());
+  }
+
+  @Test
+  public void groupsOfSortedRowsKeepTheirOrder() {
+    GtfsStopTimeTableContainer table =
+        tableOf(stopTime(2, "t1", 1), stopTime(3, "t1", 2), stopTime(4, "t2", 1));
+
+    assertThat(table.getColumns().isSortedWithinRuns()).isTrue();
+    assertThat(csvRowNumbers(table.byTripId("t1"))).containsExactly(2L, 3L).inOrder();
+    assertThat(csvRowNumbers(table.byTripId("t2"))).containsExactly(4L);
+  }
+
+  @Test
+  public void groupsOfUnsortedRowsAreSortedByStopSequence() {
+    GtfsStopTimeTableContainer table =
+        tableOf(
+            stopTime(2, "t1", 3),
+            stopTime(3, "t2", 1),
+            stopTime(4, "t1", 1),
+            stopTime(5, "t1", 2),
+            stopTime(6, "t2", 0));
+
+    assertThat(csvRowNumbers(table.byTripId("t1"))).containsExactly(4L, 5L, 2L).inOrder();
+    assertThat(csvRowNumbers(table.byTripId("t2"))).containsExactly(6L, 3L).inOrder();
+  }
+
+  @Test
+  public void rowsWithTheSameStopSequenceKeepTheirOrder() {
+    GtfsStopTimeTableContainer table =
+        tableOf(stopTime(2, "t1", 5), stopTime(3, "t1", 1), stopTime(4, "t1", 1));
+
+    assertThat(csvRowNumbers(table.byTripId("t1"))).containsExactly(3L, 4L, 2L).inOrder();
+  }
+
+  @Test
+  public void tripsOfSeparateRunsAreMerged() {
+    GtfsStopTimeTableContainer table =
+        tableOf(stopTime(2, "t1", 1), stopTime(3, "t2", 1), stopTime(4, "t1", 2));
+
+    assertThat(csvRowNumbers(table.byTripId("t1"))).containsExactly(2L, 4L).inOrder();
+  }
+
+  @Test
+  public void mapIteratesGroupsInOrderOfTheirFirstRow() {
+    GtfsStopTimeTableContainer table =
+        tableOf(stopTime(2, "t2", 1), stopTime(3, "t1", 1), stopTime(4, "t2", 2));
+
+    assertThat(table.byTripIdMap().keySet()).containsExactly("t2", "t1").inOrder();
+    assertThat(csvRowNumbers(table.byTripIdMap().get("t2"))).containsExactly(2L, 4L).inOrder();
+  }
+
+  @Test
+  public void emptyKeyFindsRowsWithoutTripId() {
+    GtfsStopTimeTableContainer table =
+        tableOf(stopTime(2, "t1", 1), stopTime(3, "", 2), stopTime(4, "", 1));
+
+    assertThat(csvRowNumbers(table.byTripId(""))).containsExactly(4L, 3L).inOrder();
+    assertThat(table.byTripId("unknown")).isEmpty();
+  }
+
+  @Test
+  public void emptyTableHasNoGroups() {
+    GtfsStopTimeTableContainer table = tableOf();
+
+    assertThat(table.byTripId("")).isEmpty();
+    assertThat(table.byTripId("t1")).isEmpty();
+    assertThat(table.byTripIdMap()).isEmpty();
+    assertThat(GtfsStopTimeTableContainer.forMissingFile().byTripId("t1")).isEmpty();
+  }
+
+  @Test
+  public void duplicateStopSequenceIsReportedWithoutAccessors() {
+    NoticeContainer noticeContainer = new NoticeContainer();
+    GtfsStopTimeTableContainer.forEntities(
+        ImmutableList.of(stopTime(2, "t1", 1), stopTime(3, "t2", 1), stopTime(4, "t1", 1)),
+        noticeContainer);
+
+    assertThat(noticeContainer.getNotices())
+        .containsExactly(
+            new DuplicateKeyError("stop_times.txt", 2, 4, "trip_id", "t1", "stop_sequence", 1));
+  }
+
+  @Test
+  public void loaderReportsDuplicateStopSequence() {
+    NoticeContainer noticeContainer = new NoticeContainer();
+    new GtfsStopTimeTableLoader()
+        .load(
+            new StringReader(
+                "trip_id,stop_id,stop_sequence\n"
+                    + "t1,s1,2\n"
+                    + "t1,s2,1\n"
+                    + "t2,s1,1\n"
+                    + "t1,s3,2\n"),
+            GtfsFeedName.parseString("au-sydney-buses"),
+            new ValidatorLoader(),
+            noticeContainer);
+
+    assertThat(noticeContainer.getNotices())
+        .containsExactly(
+            new DuplicateKeyError("stop_times.txt", 2, 5, "trip_id", "t1", "stop_sequence", 2));
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.table;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
+import org.mobilitydata.gtfsvalidator.notice.DuplicateKeyError;
+import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.validator.ValidatorLoader;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/** Builds indices of GtfsTripTableContainer. */
+@RunWith(JUnit4.class)
+public class GtfsTripTableContainerTest {
+  private static final GtfsFeedName FEED_NAME = GtfsFeedName.parseString("au-sydney-buses");
+  private static final int NUM_TRIPS = 20000;
+  private static final int NUM_SHAPES = 100;
+
+  private static GtfsTripTableContainer loadTrips() throws IOException {
+    StringBuilder content = new StringBuilder("route_id,service_id,trip_id,shape_id\n");
+    for (int i = 0; i < NUM_TRIPS; ++i) {
+      content.append("r1,weekdays,t").append(i).append(",shape").append(i % NUM_SHAPES);
+      content.append('\n');
+    }
+    return (GtfsTripTableContainer)
+        new GtfsTripTableLoader()
+            .load(
+                new StringReader(content.toString()),
+                FEED_NAME,
+                new ValidatorLoader(),
+                new NoticeContainer());
+  }
+
+  private static GtfsTrip trip(String tripId, String blockId) {
+    GtfsTrip.Builder builder = new GtfsTrip.Builder().setTripId(tripId);
+    if (!blockId.isEmpty()) {
+      builder.setBlockId(blockId);
+    }
+    return builder.build();
+  }
+
+  private static List<String> tripIds(List<GtfsTrip> trips) {
+    return trips.stream().map(GtfsTrip::tripId).collect(Collectors.toList());
+  }
+
+  @Test
+  public void groupsKeepTheOrderOfRows() {
+    GtfsTripTableContainer table =
+        GtfsTripTableContainer.forEntities(
+            ImmutableList.of(trip("t1", "b2"), trip("t2", "b1"), trip("t3", "b2")),
+            new NoticeContainer());
+
+    assertThat(tripIds(table.byBlockId("b2"))).containsExactly("t1", "t3").inOrder();
+    assertThat(tripIds(table.byBlockId("b1"))).containsExactly("t2");
+    assertThat(table.byBlockIdMap().keySet()).containsExactly("b2", "b1").inOrder();
+  }
+
+  @Test
+  public void emptyKeyFindsRowsWithoutIndexedValue() {
+    GtfsTripTableContainer table =
+        GtfsTripTableContainer.forEntities(
+            ImmutableList.of(trip("t1", "b1"), trip("t2", ""), trip("t3", "")),
+            new NoticeContainer());
+
+    assertThat(tripIds(table.byBlockId(""))).containsExactly("t2", "t3").inOrder();
+    assertThat(table.byBlockId("unknown")).isEmpty();
+    // No trip lacks trip_id.
+    assertThat(table.byTripId("")).isNull();
+    assertThat(table.byTripId("t2").tripId()).isEqualTo("t2");
+  }
+
+  @Test
+  public void emptyKeyFindsRowWithoutPrimaryKey() {
+    GtfsTripTableContainer table =
+        GtfsTripTableContainer.forEntities(
+            ImmutableList.of(trip("t1", ""), new GtfsTrip.Builder().setCsvRowNumber(3).build()),
+            new NoticeContainer());
+
+    assertThat(table.byTripId("").csvRowNumber()).isEqualTo(3);
+  }
+
+  @Test
+  public void concurrentCallersGetTheSameIndex() throws IOException {
+    GtfsTripTableContainer table = loadTrips();
+    Set<RowGroupIndex> indices = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    // Workers of the pool that builds the index in parallel also ask for it.
+    IntStream.range(0, 64)
+        .parallel()
+        .mapToObj(i -> table.byShapeIdIndex())
+        .forEach(
+            index -> {
+              synchronized (indices) {
+                indices.add(index);
+              }
+            });
+
+    assertThat(indices).hasSize(1);
+    assertThat(table.byShapeIdIndex()).isSameInstanceAs(indices.iterator().next());
+    assertThat(table.byShapeId("shape7")).hasSize(NUM_TRIPS / NUM_SHAPES);
+    assertThat(table.byShapeId("shape7").get(0).tripId()).isEqualTo("t7");
+  }
+
+  @Test
+  public void duplicateTripIdIsReportedWithoutAccessors() {
+    NoticeContainer noticeContainer = new NoticeContainer();
+    new GtfsTripTableLoader()
+        .load(
+            new StringReader("route_id,service_id,trip_id,shape_id\nr1,s1,t1,\nr1,s1,t1,\n"),
+            FEED_NAME,
+            new ValidatorLoader(),
+            noticeContainer);
+
+    // Duplicate primary keys are reported with the row of the duplicate first.
+    assertThat(noticeContainer.getNotices())
+        .containsExactly(new DuplicateKeyError("trips.txt", 3, 2, "trip_id", "t1"));
+  }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.validator;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Multimaps;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mobilitydata.gtfsvalidator.table.GtfsAgencyTableContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsEntity;
+import org.mobilitydata.gtfsvalidator.table.GtfsFeedInfoTableContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsFrequency;
+import org.mobilitydata.gtfsvalidator.table.GtfsFrequencyTableContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsTableLoader;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(JUnit4.class)
+public class ValidatorLoaderTest {
+  private static ImmutableMultiset<String> listedNames(ValidatorLoader loader) {
+    return ImmutableMultiset.copyOf(
+        Splitter.on(CharMatcher.whitespace()).omitEmptyStrings().split(loader.listValidators()));
+  }
+
+  @Test
+  public void generatedRegistryIsFound() {
+    assertThat(GtfsComponentRegistry.loadAll()).isNotEmpty();
+  }
+
+  @Test
+  public void generatedRegistryMatchesClassPathScan() {
+    ValidatorLoader generated = new ValidatorLoader();
+    ValidatorLoader scanned =
+        new ValidatorLoader(ImmutableList.of(new ClassPathComponentRegistry(ImmutableList.of())));
+
+    assertThat(listedNames(generated)).isEqualTo(listedNames(scanned));
+    assertThat(generated.getMultiFileValidatorClasses())
+        .containsExactlyElementsIn(scanned.getMultiFileValidatorClasses());
+    for (Class<? extends FileValidator> validatorClass : scanned.getMultiFileValidatorClasses()) {
+      assertThat(generated.getMultiFileValidatorDependencies(validatorClass))
+          .containsExactlyElementsIn(scanned.getMultiFileValidatorDependencies(validatorClass))
+          .inOrder();
+    }
+  }
+
+  @Test
+  public void validatorsMissingFromRegistryAreScanned() {
+    GtfsComponentRegistry generated = new GeneratedGtfsComponentRegistry();
+    // As if RouteNameValidator and MatchingFeedAndAgencyLangValidator came from an outside jar.
+    GtfsComponentRegistry incomplete =
+        new GtfsComponentRegistry() {
+          @Override
+          public List<GtfsTableLoader<?>> createTableLoaders() {
+            return generated.createTableLoaders();
+          }
+
+          @Override
+          public ListMultimap<Class<? extends GtfsEntity>, SingleEntityValidator<?>>
+              createSingleEntityValidators() {
+            return ArrayListMultimap.create(
+                Multimaps.filterValues(
+                    generated.createSingleEntityValidators(),
+                    validator -> !(validator instanceof RouteNameValidator)));
+          }
+
+          @Override
+          public List<FileValidatorFactory> getFileValidatorFactories() {
+            List<FileValidatorFactory> factories = new ArrayList<>();
+            for (FileValidatorFactory factory : generated.getFileValidatorFactories()) {
+              if (!factory.getValidatorClass().equals(MatchingFeedAndAgencyLangValidator.class)) {
+                factories.add(factory);
+              }
+            }
+            return factories;
+          }
+
+          @Override
+          public Set<String> getClassNames() {
+            Set<String> classNames = new HashSet<>(generated.getClassNames());
+            classNames.remove(RouteNameValidator.class.getName());
+            classNames.remove(MatchingFeedAndAgencyLangValidator.class.getName());
+            return classNames;
+          }
+        };
+
+    ValidatorLoader loader =
+        new ValidatorLoader(
+            ImmutableList.of(
+                incomplete, new ClassPathComponentRegistry(ImmutableList.of(incomplete))));
+
+    assertThat(listedNames(loader)).isEqualTo(listedNames(new ValidatorLoader()));
+    assertThat(loader.getMultiFileValidatorDependencies(MatchingFeedAndAgencyLangValidator.class))
+        .containsExactly(GtfsFeedInfoTableContainer.class, GtfsAgencyTableContainer.class)
+        .inOrder();
+  }
+
+  @Test
+  public void classPathIsScannedOnlyOnRequest() {
+    assertThat(Iterables.transform(GtfsComponentRegistry.loadAll(false), Object::getClass))
+        .doesNotContain(ClassPathComponentRegistry.class);
+    assertThat(Iterables.transform(GtfsComponentRegistry.loadAll(true), Object::getClass))
+        .contains(ClassPathComponentRegistry.class);
+    // Nothing is missing from the generated registry.
+    assertThat(
+            new ClassPathComponentRegistry(ImmutableList.of(new GeneratedGtfsComponentRegistry()))
+                .getClassNames())
+        .isEmpty();
+  }
+
+  @Test
+  public void registryListsNamesOfItsComponents() {
+    GtfsComponentRegistry generated = new GeneratedGtfsComponentRegistry();
+    Set<String> classNames = new HashSet<>();
+    for (GtfsTableLoader<?> loader : generated.createTableLoaders()) {
+      classNames.add(loader.getClass().getName());
+    }
+    for (SingleEntityValidator<?> validator : generated.createSingleEntityValidators().values()) {
+      classNames.add(validator.getClass().getName());
+    }
+    for (FileValidatorFactory factory : generated.getFileValidatorFactories()) {
+      classNames.add(factory.getValidatorClass().getName());
+    }
+    assertThat(generated.getClassNames()).containsAtLeastElementsIn(classNames);
+  }
+
+  @Test
+  public void multiFileValidatorDependencies() {
+    assertThat(
+            new ValidatorLoader()
+                .getMultiFileValidatorDependencies(MatchingFeedAndAgencyLangValidator.class))
+        .containsExactly(GtfsFeedInfoTableContainer.class, GtfsAgencyTableContainer.class)
+        .inOrder();
+  }
+
+  @Test
+  public void projectedColumnsAreReadByValidators() {
+    ValidatorLoader loader = new ValidatorLoader();
+    loader.setColumnProjection(true);
+
+    assertThat(
+            loader.getProjectedColumns(
+                "frequencies.txt", GtfsFrequencyTableContainer.class, GtfsFrequency.class))
+        .containsExactly("end_time", "headway_secs", "start_time", "trip_id");
+  }
+
+  @Test
+  public void noProjectedColumnsWithoutColumnProjection() {
+    assertThat(
+            new ValidatorLoader()
+                .getProjectedColumns(
+                    "frequencies.txt", GtfsFrequencyTableContainer.class, GtfsFrequency.class))
+        .isNull();
+  }
+}
@@ -17,6 +17,7 @@
 package org.mobilitydata.gtfsvalidator.processor;
 
 import org.mobilitydata.gtfsvalidator.annotation.CachedField;
+import org.mobilitydata.gtfsvalidator.annotation.Columnar;
 import org.mobilitydata.gtfsvalidator.annotation.DefaultValue;
 import org.mobilitydata.gtfsvalidator.annotation.FieldType;
 import org.mobilitydata.gtfsvalidator.annotation.FieldTypeEnum;
@@ -67,6 +68,7 @@ public class Analyser {
     GtfsTable gtfsFileAnnotation = type.getAnnotation(GtfsTable.class);
     fileBuilder.setFilename(gtfsFileAnnotation.value().toLowerCase());
     fileBuilder.setSingleRow(gtfsFileAnnotation.singleRow());
+    fileBuilder.setColumnar(type.getAnnotation(Columnar.class) != null);
     fileBuilder.interfacesBuilder().add(type.asType());
     fileBuilder.setClassName(entityImplementationSimpleName(type.getSimpleName().toString()));
     fileBuilder.setRequired(type.getAnnotation(Required.class) != null);
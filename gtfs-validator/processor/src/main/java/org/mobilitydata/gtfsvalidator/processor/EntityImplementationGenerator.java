@@ -55,7 +55,7 @@ public class EntityImplementationGenerator {
     this.classNames = new GtfsEntityClasses(fileDescriptor);
   }
 
-  private static int lastBitFieldNumber(int fieldCount) {
+  static int lastBitFieldNumber(int fieldCount) {
     // Each bitField has 32 bits. We need bitField0_ to store 1..32 fields,
     // bitField0_ and bitField1_ for 33..64 fields etc.
     return (fieldCount - 1) / 32;
@@ -71,7 +71,7 @@ public class EntityImplementationGenerator {
    * @param i number of a bitField, starting from 0.
    * @return name of a bitField, e.g., bitField0_.
    */
-  private static String bitFieldName(int i) {
+  static String bitFieldName(int i) {
     return "bitField" + i + "_";
   }
 
@@ -83,13 +83,13 @@ public class EntityImplementationGenerator {
    * @param fieldNumber number of a GTFS field, starting from 0.
    * @return name of a bitField, e.g., bitField0_.
    */
-  private static String bitFieldForFieldNumber(int fieldNumber) {
+  static String bitFieldForFieldNumber(int fieldNumber) {
     // Bits for fields 0..31 are stored in bitField0_,
     // for fields 32..63 - in bitField1_ etc.
     return bitFieldName(fieldNumber / 32);
   }
 
-  private static String maskForFieldNumber(int fieldNumber) {
+  static String maskForFieldNumber(int fieldNumber) {
     return "0x" + Integer.toHexString(1 << (fieldNumber % 32));
   }
 
@@ -264,6 +264,14 @@ public class EntityImplementationGenerator {
 
     addEntityOrBuilderFields(typeSpec);
 
+    // Starts with the defaults of all fields, like a cleared builder, so that missing values of
+    // built entities are never null.
+    typeSpec.addMethod(
+        MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addStatement("clear()")
+            .build());
+
     typeSpec.addMethod(
         MethodSpec.methodBuilder(getterMethodName(CSV_ROW_NUMBER))
             .addModifiers(Modifier.PUBLIC)
@@ -281,23 +289,38 @@ public class EntityImplementationGenerator {
 
     int fieldNumber = 0;
     for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      final TypeName fieldType = getClassFieldType(field);
       typeSpec.addMethod(
           MethodSpec.methodBuilder(getterMethodName(field.name()))
               .addModifiers(Modifier.PUBLIC)
-              .returns(getClassFieldType(field))
+              .returns(fieldType)
               .addStatement("return $L", field.name())
               .build());
-      typeSpec.addMethod(
+      MethodSpec.Builder setter =
           MethodSpec.methodBuilder(setterMethodName(field.name()))
               .addModifiers(Modifier.PUBLIC)
               .returns(classNames.entityBuilderTypeName())
-              .addParameter(getClassFieldType(field).box(), "value")
+              .addParameter(fieldType.box(), "value")
               .beginControlFlow("if (value == null)")
               .addStatement("$L = $L", field.name(), fieldDefaultName(field.name()))
               .addStatement(
                   "$L &= ~$L", bitFieldForFieldNumber(fieldNumber), maskForFieldNumber(fieldNumber))
               .addStatement("return this")
-              .endControlFlow()
+              .endControlFlow();
+      if (fieldType.isPrimitive()) {
+        // Parsers call the primitive overload, so that values are not boxed.
+        typeSpec.addMethod(
+            setter
+                .addStatement("return $L(($T) value)", setterMethodName(field.name()), fieldType)
+                .build());
+        setter =
+            MethodSpec.methodBuilder(setterMethodName(field.name()))
+                .addModifiers(Modifier.PUBLIC)
+                .returns(classNames.entityBuilderTypeName())
+                .addParameter(fieldType, "value");
+      }
+      typeSpec.addMethod(
+          setter
               .addStatement("$L = value", field.name())
               .addStatement(
                   "$L |= $L", bitFieldForFieldNumber(fieldNumber), maskForFieldNumber(fieldNumber))
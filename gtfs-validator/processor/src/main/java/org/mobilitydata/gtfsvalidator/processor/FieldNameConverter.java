@@ -44,8 +44,8 @@ public final class FieldNameConverter {
     return "by" + StringUtils.capitalize(field);
   }
 
-  public static String byKeyMapName(String field) {
-    return "by" + StringUtils.capitalize(field) + "Map";
+  public static String byKeyIndexName(String field) {
+    return "by" + StringUtils.capitalize(field) + "Index";
   }
 
   public static String gtfsColumnName(String javaFieldName) {
@@ -64,6 +64,10 @@ public final class FieldNameConverter {
     return field + "ColumnIndex";
   }
 
+  public static String fieldParsedFlag(String field) {
+    return field + "Parsed";
+  }
+
   public static String fieldDefaultName(String field) {
     return "DEFAULT_" + CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, field);
   }
@@ -16,6 +16,8 @@
 
 package org.mobilitydata.gtfsvalidator.processor;
 
+import com.squareup.javapoet.AnnotationSpec;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
@@ -24,12 +26,15 @@ import org.apache.commons.lang3.StringUtils;
 import org.mobilitydata.gtfsvalidator.annotation.Generated;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
 import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
 import org.mobilitydata.gtfsvalidator.notice.ForeignKeyError;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
 import org.mobilitydata.gtfsvalidator.validator.FileValidator;
 
 import javax.lang.model.element.Modifier;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -90,6 +95,8 @@ public class ForeignKeyValidatorGenerator {
             .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
             .addAnnotation(Generated.class)
             .addAnnotation(GtfsValidator.class)
+            .addAnnotation(readsColumns(childFile, childField))
+            .addAnnotation(readsColumns(parentFile, parentField))
             .superclass(FileValidator.class);
 
     typeSpec.addField(
@@ -101,59 +108,120 @@ public class ForeignKeyValidatorGenerator {
             .addAnnotation(Inject.class)
             .build());
 
+    if (!parentField.primaryKey() && !parentField.firstKey() && !parentField.index()) {
+      reportWarning(
+          "Parent field "
+              + FieldNameConverter.gtfsColumnName(parentField.name())
+              + " in "
+              + parentFile.filename()
+              + " must be annotated with @PrimaryKey, @FirstKey or @Index");
+    }
     MethodSpec.Builder validateMethod =
         MethodSpec.methodBuilder("validate")
             .addModifiers(Modifier.PUBLIC)
             .addAnnotation(Override.class)
             .returns(void.class)
             .addParameter(NoticeContainer.class, "noticeContainer")
-            .beginControlFlow(
-                "for ($T childEntity: childContainer.getEntities())",
-                childClasses.entityImplementationTypeName())
-            .beginControlFlow(
-                "if (!childEntity.$L())", FieldNameConverter.hasMethodName(childField.name()))
-            .addStatement("continue")
-            .endControlFlow()
-            .addStatement("String childKey = childEntity.$L()", childField.name())
-            .beginControlFlow("if (!hasReferencedKey(childKey, parentContainer))")
+            // Child keys are looked up by their codes among the codes of parent keys. The lookup
+            // goes through the parent namespace, so tables with separate dictionaries also match.
+            .addStatement(
+                "$T parentIds = parentContainer.$L().getNamespace()",
+                IdDictionary.Namespace.class,
+                FieldNameConverter.byKeyIndexName(parentField.name()))
             .addStatement(
-                "noticeContainer.addNotice(new $T($S, $S, $S, $S, childKey, childEntity.csvRowNumber()))",
-                ForeignKeyError.class,
-                childFile.filename(),
-                FieldNameConverter.gtfsColumnName(childField.name()),
-                parentFile.filename(),
-                FieldNameConverter.gtfsColumnName(parentField.name()))
-            .endControlFlow()
-            .endControlFlow();
+                "$T parentCodes = parentContainer.$L().keyCodes()",
+                BitSet.class,
+                FieldNameConverter.byKeyIndexName(parentField.name()))
+            .addCode(
+                childFile.columnar()
+                    ? checkChildColumns(childFile, childField, parentFile, parentField)
+                    : checkChildEntities(childFile, childField, parentFile, parentField));
     typeSpec.addMethod(validateMethod.build());
 
-    MethodSpec.Builder hasReferencedKeyMethod =
+    typeSpec.addMethod(
         MethodSpec.methodBuilder("hasReferencedKey")
-            .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
             .returns(boolean.class)
-            .addParameter(String.class, "key")
-            .addParameter(parentClasses.tableContainerTypeName(), "parentContainer");
-    if (parentField.primaryKey()) {
-      hasReferencedKeyMethod.addStatement(
-          "return parentContainer.$L(key) != null",
-          FieldNameConverter.byKeyMethodName(parentField.name()));
-    } else if (parentField.firstKey() || parentField.index()) {
-      hasReferencedKeyMethod.addStatement(
-          "return !parentContainer.$L(key).isEmpty()",
-          FieldNameConverter.byKeyMethodName(parentField.name()));
-    } else {
-      reportWarning(
-          "Parent field "
-              + FieldNameConverter.gtfsColumnName(parentField.name())
-              + " in "
-              + parentFile.filename()
-              + " must be annotated with @PrimaryKey, @FirstKey or @Index");
-    }
-    typeSpec.addMethod(hasReferencedKeyMethod.build());
+            .addParameter(int.class, "code")
+            .addParameter(BitSet.class, "parentCodes")
+            .addStatement("return code != -1 && parentCodes.get(code)")
+            .build());
 
     return JavaFile.builder(VALIDATOR_PACKAGE_NAME, typeSpec.build()).build();
   }
 
+  /** Returns a loop that checks the key of each child entity. */
+  private static CodeBlock checkChildEntities(
+      GtfsFileDescriptor childFile,
+      GtfsFieldDescriptor childField,
+      GtfsFileDescriptor parentFile,
+      GtfsFieldDescriptor parentField) {
+    return CodeBlock.builder()
+        .beginControlFlow(
+            "for ($T childEntity: childContainer.getEntities())",
+            new GtfsEntityClasses(childFile).entityImplementationTypeName())
+        .beginControlFlow(
+            "if (!childEntity.$L())", FieldNameConverter.hasMethodName(childField.name()))
+        .addStatement("continue")
+        .endControlFlow()
+        .addStatement("String childKey = childEntity.$L()", childField.name())
+        .beginControlFlow("if (!hasReferencedKey(parentIds.find(childKey), parentCodes))")
+        .addStatement(
+            "noticeContainer.addNotice(new $T($S, $S, $S, $S, childKey, childEntity.csvRowNumber()))",
+            ForeignKeyError.class,
+            childFile.filename(),
+            FieldNameConverter.gtfsColumnName(childField.name()),
+            parentFile.filename(),
+            FieldNameConverter.gtfsColumnName(parentField.name()))
+        .endControlFlow()
+        .endControlFlow()
+        .build();
+  }
+
+  /**
+   * Returns a loop that checks the key of each row of child columns, so that no child entities are
+   * created. Codes of the columns are used as they are if both tables share a dictionary.
+   */
+  private static CodeBlock checkChildColumns(
+      GtfsFileDescriptor childFile,
+      GtfsFieldDescriptor childField,
+      GtfsFileDescriptor parentFile,
+      GtfsFieldDescriptor parentField) {
+    String field = childField.name();
+    return CodeBlock.builder()
+        .addStatement(
+            "$T columns = childContainer.getColumns()",
+            new GtfsEntityClasses(childFile).columnsTypeName())
+        .addStatement("boolean sharedIds = columns.$LNamespace() == parentIds", field)
+        .beginControlFlow("for (int row = 0; row < columns.size(); ++row)")
+        .beginControlFlow("if (!columns.$L(row))", FieldNameConverter.hasMethodName(field))
+        .addStatement("continue")
+        .endControlFlow()
+        .addStatement(
+            "int code = sharedIds ? columns.$LCode(row) : parentIds.find(columns.$L(row))",
+            field,
+            field)
+        .beginControlFlow("if (!hasReferencedKey(code, parentCodes))")
+        .addStatement(
+            "noticeContainer.addNotice(new $T($S, $S, $S, $S, columns.$L(row), columns.csvRowNumber(row)))",
+            ForeignKeyError.class,
+            childFile.filename(),
+            FieldNameConverter.gtfsColumnName(field),
+            parentFile.filename(),
+            FieldNameConverter.gtfsColumnName(parentField.name()),
+            field)
+        .endControlFlow()
+        .endControlFlow()
+        .build();
+  }
+
+  private static AnnotationSpec readsColumns(GtfsFileDescriptor file, GtfsFieldDescriptor field) {
+    return AnnotationSpec.builder(ReadsColumns.class)
+        .addMember("file", "$S", file.filename())
+        .addMember("columns", "$S", FieldNameConverter.gtfsColumnName(field.name()))
+        .build();
+  }
+
   private String validatorName(GtfsFileDescriptor childFile, GtfsFieldDescriptor childField) {
     return childFile.className()
         + StringUtils.capitalize(childField.name())
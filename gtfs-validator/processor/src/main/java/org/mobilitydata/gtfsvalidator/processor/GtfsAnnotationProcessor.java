@@ -20,8 +20,12 @@ import com.google.auto.service.AutoService;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.TypeName;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsEnumValues;
 import org.mobilitydata.gtfsvalidator.annotation.GtfsTable;
+import org.mobilitydata.gtfsvalidator.annotation.GtfsValidator;
+import org.mobilitydata.gtfsvalidator.annotation.ReadsColumns;
+import org.mobilitydata.gtfsvalidator.validator.GtfsComponentRegistry;
 
 import javax.annotation.processing.AbstractProcessor;
 import javax.annotation.processing.ProcessingEnvironment;
@@ -31,22 +35,38 @@ import javax.lang.model.SourceVersion;
 import javax.lang.model.element.Element;
 import javax.lang.model.element.TypeElement;
 import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.annotation.Annotation;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import static javax.lang.model.util.ElementFilter.typesIn;
 
 /**
  * Processor that generates data classes, loaders and validators based on annotations on GTFS schema
  * interfaces.
+ *
+ * <p>It also generates a registry of all table loaders and {@code GtfsValidator} classes of the
+ * compilation, which is found at runtime with {@code ServiceLoader}.
  */
 @AutoService(Processor.class)
 public class GtfsAnnotationProcessor extends AbstractProcessor {
 
   private final Analyser analyser = new Analyser();
+  // Table loaders and validators are collected over all rounds, since validators generated in one
+  // round are only seen in the next one.
+  private final List<TypeName> tableLoaders = new ArrayList<>();
+  private final Set<String> validatorNames = new TreeSet<>();
+  private final Map<String, GtfsFileDescriptor> schema = new HashMap<>();
+  private boolean registryWritten = false;
 
   /**
    * Sanitizes the result of {@link RoundEnvironment#getElementsAnnotatedWith}, which otherwise can
@@ -62,7 +82,8 @@ public class GtfsAnnotationProcessor extends AbstractProcessor {
 
   @Override
   public Set<String> getSupportedAnnotationTypes() {
-    return ImmutableSet.of(GtfsTable.class.getName(), GtfsEnumValues.class.getName());
+    return ImmutableSet.of(
+        GtfsTable.class.getName(), GtfsEnumValues.class.getName(), GtfsValidator.class.getName());
   }
 
   @Override
@@ -88,21 +109,125 @@ public class GtfsAnnotationProcessor extends AbstractProcessor {
 
     List<GtfsFileDescriptor> fileDescriptors = new ArrayList<>();
     for (TypeElement type : typesIn(annotatedElementsIn(roundEnv, GtfsTable.class))) {
-      fileDescriptors.add(analyser.analyzeGtfsFileType(type));
+      GtfsFileDescriptor fileDescriptor = analyser.analyzeGtfsFileType(type);
+      if (fileDescriptor.columnar() && fileDescriptor.primaryKey().isPresent()) {
+        processingEnv
+            .getMessager()
+            .printMessage(Diagnostic.Kind.ERROR, "Columnar table may not have a primary key", type);
+      }
+      fileDescriptors.add(fileDescriptor);
     }
     for (GtfsFileDescriptor fileDescriptor : fileDescriptors) {
       writeJavaFile(new EntityImplementationGenerator(fileDescriptor).generateGtfsEntityJavaFile());
       writeJavaFile(new TableLoaderGenerator(fileDescriptor).generateGtfsTableLoaderJavaFile());
       writeJavaFile(new TableContainerGenerator(fileDescriptor).generateGtfsContainerJavaFile());
+      if (fileDescriptor.columnar()) {
+        writeJavaFile(new TableColumnsGenerator(fileDescriptor).generateColumnsJavaFile());
+      }
     }
     ForeignKeyValidatorGenerator foreignKeyValidatorGenerator =
         new ForeignKeyValidatorGenerator(fileDescriptors);
     for (JavaFile javaFile : foreignKeyValidatorGenerator.generateValidatorFiles()) {
       writeJavaFile(javaFile);
     }
+
+    boolean foundComponents = !fileDescriptors.isEmpty();
+    for (GtfsFileDescriptor fileDescriptor : fileDescriptors) {
+      schema.put(fileDescriptor.filename(), fileDescriptor);
+      tableLoaders.add(new GtfsEntityClasses(fileDescriptor).tableLoaderTypeName());
+    }
+    for (TypeElement type : typesIn(annotatedElementsIn(roundEnv, GtfsValidator.class))) {
+      foundComponents |= validatorNames.add(type.getQualifiedName().toString());
+    }
+    // The registry is written once a round brings no new components, so that it also covers the
+    // validators generated above.
+    if (!registryWritten
+        && (!foundComponents || roundEnv.processingOver())
+        && !(tableLoaders.isEmpty() && validatorNames.isEmpty())) {
+      writeRegistry();
+      registryWritten = true;
+    }
     return false;
   }
 
+  /**
+   * Reports an error if a validator declares that it reads a file or a column not in the schema.
+   */
+  private void checkReadColumns(TypeElement validator) {
+    for (ReadsColumns readsColumns : validator.getAnnotationsByType(ReadsColumns.class)) {
+      GtfsFileDescriptor file = schema.get(readsColumns.file());
+      if (file == null) {
+        processingEnv
+            .getMessager()
+            .printMessage(
+                Diagnostic.Kind.ERROR, "Unknown GTFS file " + readsColumns.file(), validator);
+        continue;
+      }
+      for (String column : readsColumns.columns()) {
+        if (file.fields().stream()
+            .noneMatch(field -> FieldNameConverter.gtfsColumnName(field.name()).equals(column))) {
+          processingEnv
+              .getMessager()
+              .printMessage(
+                  Diagnostic.Kind.ERROR,
+                  "Unknown column " + column + " in GTFS file " + readsColumns.file(),
+                  validator);
+        }
+      }
+    }
+  }
+
+  private void writeRegistry() {
+    // Elements of previous rounds are looked up again, so that the types they refer to are
+    // resolved to the classes generated since then.
+    List<TypeElement> validators = new ArrayList<>();
+    for (String name : validatorNames) {
+      validators.add(processingEnv.getElementUtils().getTypeElement(name));
+    }
+    if (!schema.isEmpty()) {
+      for (TypeElement validator : validators) {
+        checkReadColumns(validator);
+      }
+    }
+    String packageName =
+        validators.isEmpty()
+            ? GtfsEntityClasses.TABLE_PACKAGE_NAME
+            : processingEnv
+                .getElementUtils()
+                .getPackageOf(validators.get(0))
+                .getQualifiedName()
+                .toString();
+    tableLoaders.sort(Comparator.comparing(TypeName::toString));
+    RegistryGenerator generator =
+        new RegistryGenerator(
+            packageName,
+            tableLoaders,
+            validators,
+            processingEnv.getElementUtils(),
+            processingEnv.getTypeUtils(),
+            processingEnv.getMessager());
+    writeJavaFile(generator.generateRegistryJavaFile());
+    try {
+      FileObject services =
+          processingEnv
+              .getFiler()
+              .createResource(
+                  StandardLocation.CLASS_OUTPUT,
+                  "",
+                  "META-INF/services/" + GtfsComponentRegistry.class.getName());
+      try (Writer writer = services.openWriter()) {
+        writer.write(packageName + "." + RegistryGenerator.REGISTRY_SIMPLE_NAME + "\n");
+      }
+    } catch (IOException e) {
+      processingEnv
+          .getMessager()
+          .printMessage(
+              Diagnostic.Kind.ERROR,
+              String.format(
+                  "failed to register %s: %s", RegistryGenerator.REGISTRY_SIMPLE_NAME, e));
+    }
+  }
+
   private void writeJavaFile(JavaFile javaFile) {
     try {
       javaFile.writeTo(processingEnv.getFiler());
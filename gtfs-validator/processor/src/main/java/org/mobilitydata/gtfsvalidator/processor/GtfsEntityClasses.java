@@ -58,6 +58,10 @@ public final class GtfsEntityClasses {
     return className + "TableContainer";
   }
 
+  public String columnsSimpleName() {
+    return className + "Columns";
+  }
+
   public TypeName entityImplementationTypeName() {
     return ClassName.get(TABLE_PACKAGE_NAME, entityImplementationSimpleName());
   }
@@ -73,4 +77,8 @@ public final class GtfsEntityClasses {
   public TypeName tableContainerTypeName() {
     return ClassName.get(TABLE_PACKAGE_NAME, tableContainerSimpleName());
   }
+
+  public TypeName columnsTypeName() {
+    return ClassName.get(TABLE_PACKAGE_NAME, columnsSimpleName());
+  }
 }
@@ -39,6 +39,9 @@ public abstract class GtfsFileDescriptor {
 
   public abstract boolean singleRow();
 
+  // Entities are stored column by column, see {@code Columnar}.
+  public abstract boolean columnar();
+
   public abstract ImmutableList<GtfsFieldDescriptor> fields();
 
   public abstract ImmutableMap<String, GtfsFieldDescriptor> fieldByName();
@@ -67,6 +70,8 @@ public abstract class GtfsFileDescriptor {
 
     public abstract Builder setSingleRow(boolean value);
 
+    public abstract Builder setColumnar(boolean value);
+
     public abstract ImmutableList.Builder<GtfsFieldDescriptor> fieldsBuilder();
 
     abstract ImmutableList<GtfsFieldDescriptor> fields();
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.processor;
+
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ListMultimap;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import com.squareup.javapoet.WildcardTypeName;
+import org.mobilitydata.gtfsvalidator.annotation.Generated;
+import org.mobilitydata.gtfsvalidator.annotation.Inject;
+import org.mobilitydata.gtfsvalidator.table.GtfsEntity;
+import org.mobilitydata.gtfsvalidator.table.GtfsTableContainer;
+import org.mobilitydata.gtfsvalidator.table.GtfsTableLoader;
+import org.mobilitydata.gtfsvalidator.validator.FileValidator;
+import org.mobilitydata.gtfsvalidator.validator.FileValidatorFactory;
+import org.mobilitydata.gtfsvalidator.validator.GtfsComponentRegistry;
+import org.mobilitydata.gtfsvalidator.validator.SingleEntityValidator;
+
+import javax.annotation.processing.Messager;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates a registry of table loaders and validators, so that they are found at runtime without
+ * scanning the class path.
+ *
+ * <p>Validators are instantiated with their constructors and tables are assigned to their {@code
+ * Inject} fields directly, hence the constructors and fields must be accessible from the package of
+ * the registry.
+ */
+public class RegistryGenerator {
+  public static final String REGISTRY_SIMPLE_NAME = "GeneratedGtfsComponentRegistry";
+
+  private final String packageName;
+  private final List<TypeName> tableLoaders;
+  private final List<TypeElement> validators;
+  private final Elements elements;
+  private final Types types;
+  private final Messager messager;
+
+  /**
+   * Creates a generator.
+   *
+   * @param packageName package of the registry
+   * @param tableLoaders classes of table loaders
+   * @param validators classes annotated with {@code GtfsValidator}
+   */
+  public RegistryGenerator(
+      String packageName,
+      List<TypeName> tableLoaders,
+      List<TypeElement> validators,
+      Elements elements,
+      Types types,
+      Messager messager) {
+    this.packageName = packageName;
+    this.tableLoaders = tableLoaders;
+    this.validators = validators;
+    this.elements = elements;
+    this.types = types;
+    this.messager = messager;
+  }
+
+  public JavaFile generateRegistryJavaFile() {
+    TypeSpec typeSpec =
+        TypeSpec.classBuilder(REGISTRY_SIMPLE_NAME)
+            .addSuperinterface(GtfsComponentRegistry.class)
+            .addAnnotation(Generated.class)
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addMethod(generateCreateTableLoadersMethod())
+            .addMethod(generateCreateSingleEntityValidatorsMethod())
+            .addMethod(generateGetFileValidatorFactoriesMethod())
+            .addMethod(generateGetClassNamesMethod())
+            .build();
+    return JavaFile.builder(packageName, typeSpec).build();
+  }
+
+  private MethodSpec generateCreateTableLoadersMethod() {
+    TypeName loaderType =
+        ParameterizedTypeName.get(
+            ClassName.get(GtfsTableLoader.class), WildcardTypeName.subtypeOf(Object.class));
+    TypeName listType = ParameterizedTypeName.get(ClassName.get(List.class), loaderType);
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("createTableLoaders")
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override.class)
+            .returns(listType)
+            .addStatement("$T loaders = new $T<>()", listType, ArrayList.class);
+    for (TypeName loader : tableLoaders) {
+      method.addStatement("loaders.add(new $T())", loader);
+    }
+    return method.addStatement("return loaders").build();
+  }
+
+  private MethodSpec generateCreateSingleEntityValidatorsMethod() {
+    TypeName multimapType =
+        ParameterizedTypeName.get(
+            ClassName.get(ListMultimap.class),
+            ParameterizedTypeName.get(
+                ClassName.get(Class.class), WildcardTypeName.subtypeOf(GtfsEntity.class)),
+            ParameterizedTypeName.get(
+                ClassName.get(SingleEntityValidator.class),
+                WildcardTypeName.subtypeOf(Object.class)));
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("createSingleEntityValidators")
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override.class)
+            .returns(multimapType)
+            .addStatement("$T validators = $T.create()", multimapType, ArrayListMultimap.class);
+    TypeElement singleEntityValidator =
+        elements.getTypeElement(SingleEntityValidator.class.getCanonicalName());
+    for (TypeElement validator : validators) {
+      DeclaredType supertype = findSupertype(validator.asType(), singleEntityValidator);
+      if (supertype == null || !isInstantiable(validator)) {
+        continue;
+      }
+      TypeMirror entityType = types.erasure(supertype.getTypeArguments().get(0));
+      method.addStatement(
+          "validators.put($T.class, new $T())", TypeName.get(entityType), ClassName.get(validator));
+    }
+    return method.addStatement("return validators").build();
+  }
+
+  private MethodSpec generateGetFileValidatorFactoriesMethod() {
+    TypeName listType = ParameterizedTypeName.get(List.class, FileValidatorFactory.class);
+    TypeName dependencyType =
+        ParameterizedTypeName.get(
+            ClassName.get(Class.class),
+            WildcardTypeName.subtypeOf(
+                ParameterizedTypeName.get(
+                    ClassName.get(GtfsTableContainer.class),
+                    WildcardTypeName.subtypeOf(Object.class))));
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("getFileValidatorFactories")
+            .addModifiers(Modifier.PUBLIC)
+            .addAnnotation(Override.class)
+            .returns(listType)
+            .addStatement("$T factories = new $T<>()", listType, ArrayList.class);
+    TypeElement fileValidator = elements.getTypeElement(FileValidator.class.getCanonicalName());
+    TypeMirror tableContainer =
+        types.erasure(
+            elements.getTypeElement(GtfsTableContainer.class.getCanonicalName()).asType());
+    for (TypeElement validator : validators) {
+      if (findSupertype(validator.asType(), fileValidator) == null || !isInstantiable(validator)) {
+        continue;
+      }
+      List<VariableElement> fields = new ArrayList<>();
+      for (VariableElement field : ElementFilter.fieldsIn(validator.getEnclosedElements())) {
+        if (field.getAnnotation(Inject.class) != null
+            && types.isAssignable(types.erasure(field.asType()), tableContainer)) {
+          if (!isAccessible(field)) {
+            reportError(field, "@Inject field must be accessible from " + packageName);
+            continue;
+          }
+          fields.add(field);
+        }
+      }
+      ClassName validatorName = ClassName.get(validator);
+      CodeBlock.Builder dependencies = CodeBlock.builder();
+      CodeBlock.Builder creator =
+          CodeBlock.builder().addStatement("$T validator = new $T()", validatorName, validatorName);
+      for (int i = 0; i < fields.size(); ++i) {
+        TypeName fieldType = TypeName.get(types.erasure(fields.get(i).asType()));
+        dependencies.add(i == 0 ? "$T.class" : ", $T.class", fieldType);
+        creator.addStatement(
+            "validator.$L = ($T) tables.get($L)", fields.get(i).getSimpleName(), fieldType, i);
+      }
+      creator.addStatement("return validator");
+      method
+          .addCode(
+              "factories.add(\n$>$>new $T(\n$>$>$T.class,\n$T.<$T>of($L),\ntables -> {\n$>",
+              FileValidatorFactory.class,
+              validatorName,
+              ImmutableList.class,
+              dependencyType,
+              dependencies.build())
+          .addCode(creator.build())
+          .addCode("$<}));\n$<$<$<$<");
+    }
+    return method.addStatement("return factories").build();
+  }
+
+  private MethodSpec generateGetClassNamesMethod() {
+    List<CodeBlock> classNames = new ArrayList<>();
+    for (TypeName loader : tableLoaders) {
+      classNames.add(CodeBlock.of("$S", loader.toString()));
+    }
+    for (TypeElement validator : validators) {
+      classNames.add(CodeBlock.of("$S", elements.getBinaryName(validator).toString()));
+    }
+    return MethodSpec.methodBuilder("getClassNames")
+        .addModifiers(Modifier.PUBLIC)
+        .addAnnotation(Override.class)
+        .returns(ParameterizedTypeName.get(Set.class, String.class))
+        .addStatement(
+            "return $T.of(\n$>$>$L)$<$<", ImmutableSet.class, CodeBlock.join(classNames, ",\n"))
+        .build();
+  }
+
+  /** Finds the parameterized supertype of the given type that is declared by a given class. */
+  private DeclaredType findSupertype(TypeMirror type, TypeElement superclass) {
+    for (TypeMirror supertype : types.directSupertypes(type)) {
+      if (types.isSameType(types.erasure(supertype), types.erasure(superclass.asType()))) {
+        return (DeclaredType) supertype;
+      }
+      DeclaredType found = findSupertype(supertype, superclass);
+      if (found != null) {
+        return found;
+      }
+    }
+    return null;
+  }
+
+  /** Checks that the validator can be created with {@code new} from the registry package. */
+  private boolean isInstantiable(TypeElement validator) {
+    if (validator.getModifiers().contains(Modifier.ABSTRACT)) {
+      return false;
+    }
+    if (!isAccessible(validator)) {
+      reportError(validator, "Validator must be accessible from " + packageName);
+      return false;
+    }
+    for (ExecutableElement constructor :
+        ElementFilter.constructorsIn(validator.getEnclosedElements())) {
+      if (constructor.getParameters().isEmpty() && isAccessible(constructor)) {
+        return true;
+      }
+    }
+    reportError(validator, "Validator must have an accessible constructor without parameters");
+    return false;
+  }
+
+  private boolean isAccessible(Element element) {
+    if (element.getModifiers().contains(Modifier.PUBLIC)) {
+      return true;
+    }
+    return !element.getModifiers().contains(Modifier.PRIVATE)
+        && elements.getPackageOf(element).getQualifiedName().contentEquals(packageName);
+  }
+
+  private void reportError(Element element, String message) {
+    messager.printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
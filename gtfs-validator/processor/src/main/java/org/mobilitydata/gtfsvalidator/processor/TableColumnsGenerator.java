@@ -0,0 +1,512 @@
+/*
+ * Copyright 2020 Google LLC
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.mobilitydata.gtfsvalidator.processor;
+
+import com.squareup.javapoet.ArrayTypeName;
+import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
+import com.squareup.javapoet.FieldSpec;
+import com.squareup.javapoet.JavaFile;
+import com.squareup.javapoet.MethodSpec;
+import com.squareup.javapoet.ParameterizedTypeName;
+import com.squareup.javapoet.TypeName;
+import com.squareup.javapoet.TypeSpec;
+import org.mobilitydata.gtfsvalidator.annotation.FieldTypeEnum;
+import org.mobilitydata.gtfsvalidator.annotation.Generated;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
+import org.mobilitydata.gtfsvalidator.type.GtfsTime;
+
+import javax.lang.model.element.Modifier;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+import static org.mobilitydata.gtfsvalidator.processor.EntityImplementationGenerator.bitFieldForFieldNumber;
+import static org.mobilitydata.gtfsvalidator.processor.EntityImplementationGenerator.bitFieldName;
+import static org.mobilitydata.gtfsvalidator.processor.EntityImplementationGenerator.lastBitFieldNumber;
+import static org.mobilitydata.gtfsvalidator.processor.EntityImplementationGenerator.maskForFieldNumber;
+import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.fieldDefaultName;
+import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.getValueMethodName;
+import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.getterMethodName;
+import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.hasMethodName;
+import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.setterMethodName;
+import static org.mobilitydata.gtfsvalidator.processor.GtfsEntityClasses.TABLE_PACKAGE_NAME;
+import static org.mobilitydata.gtfsvalidator.processor.TableLoaderGenerator.idNamespaceName;
+import static org.mobilitydata.gtfsvalidator.processor.TableLoaderGenerator.usesIdDictionary;
+
+/**
+ * Generates columns of a GTFS table that is annotated with {@code Columnar}.
+ *
+ * <p>E.g., GtfsStopTimeColumns class is generated for "stop_times.txt". It has an array for each
+ * field and getters that take a row index, so that validators may read values without creating
+ * entities. The loader fills the columns row by row with {@code startRow}, the setters and {@code
+ * commitRow}.
+ */
+public class TableColumnsGenerator {
+  private static final String CSV_ROW_NUMBER = "csvRowNumber";
+  private static final String SIZE = "size";
+  private static final String SORTED_WITHIN_RUNS = "sortedWithinRuns";
+  private final GtfsFileDescriptor fileDescriptor;
+  private final GtfsEntityClasses classNames;
+
+  public TableColumnsGenerator(GtfsFileDescriptor fileDescriptor) {
+    this.fileDescriptor = fileDescriptor;
+    this.classNames = new GtfsEntityClasses(fileDescriptor);
+  }
+
+  /** Tells if the field is stored as seconds since midnight. */
+  private static boolean storedAsSeconds(GtfsFieldDescriptor field) {
+    return TypeName.get(field.javaType()).equals(ClassName.get(GtfsTime.class));
+  }
+
+  /** Returns the type of elements of the array that stores the field. */
+  private static TypeName columnElementType(GtfsFieldDescriptor field) {
+    if (usesIdDictionary(field) || storedAsSeconds(field) || field.type() == FieldTypeEnum.ENUM) {
+      return TypeName.INT;
+    }
+    return TypeName.get(field.javaType());
+  }
+
+  private static String fieldIdNamespace(GtfsFieldDescriptor field) {
+    return field.name() + "Ids";
+  }
+
+  public JavaFile generateColumnsJavaFile() {
+    return JavaFile.builder(TABLE_PACKAGE_NAME, generateColumnsClass()).build();
+  }
+
+  public TypeSpec generateColumnsClass() {
+    TypeSpec.Builder typeSpec =
+        TypeSpec.classBuilder(classNames.columnsSimpleName())
+            .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+            .addAnnotation(Generated.class);
+
+    typeSpec.addField(
+        FieldSpec.builder(
+                int.class, "INITIAL_CAPACITY", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL)
+            .initializer("16")
+            .build());
+    MethodSpec.Builder constructor =
+        MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(IdDictionary.class, "idDictionary");
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      if (usesIdDictionary(field)) {
+        typeSpec.addField(
+            IdDictionary.Namespace.class,
+            fieldIdNamespace(field),
+            Modifier.PRIVATE,
+            Modifier.FINAL);
+        constructor.addStatement(
+            "$L = idDictionary.namespace($S)", fieldIdNamespace(field), idNamespaceName(field));
+      }
+    }
+    typeSpec.addField(
+        FieldSpec.builder(int.class, SIZE, Modifier.PRIVATE).initializer("0").build());
+    addColumnField(typeSpec, TypeName.LONG, CSV_ROW_NUMBER);
+    for (int i = 0; i <= lastBitFieldNumber(fileDescriptor.fields().size()); ++i) {
+      addColumnField(typeSpec, TypeName.INT, bitFieldName(i));
+    }
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      addColumnField(typeSpec, columnElementType(field), field.name());
+    }
+    if (tracksSortedWithinRuns()) {
+      typeSpec.addField(
+          FieldSpec.builder(boolean.class, SORTED_WITHIN_RUNS, Modifier.PRIVATE)
+              .initializer("true")
+              .build());
+    }
+    typeSpec.addMethod(constructor.build());
+
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder(SIZE)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(int.class)
+            .addStatement("return $L", SIZE)
+            .build());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder(getterMethodName(CSV_ROW_NUMBER))
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(int.class, "row")
+            .returns(long.class)
+            .addStatement("return $L[row]", CSV_ROW_NUMBER)
+            .build());
+    int fieldNumber = 0;
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      addGetters(typeSpec, field, fieldNumber);
+      ++fieldNumber;
+    }
+    if (tracksSortedWithinRuns()) {
+      typeSpec.addMethod(
+          MethodSpec.methodBuilder("isSortedWithinRuns")
+              .addJavadoc(
+                  "Tells if $L never decreases between adjacent rows with the same $L.\n",
+                  fileDescriptor.sequenceKey().get().name(),
+                  fileDescriptor.firstKey().get().name())
+              .addModifiers(Modifier.PUBLIC)
+              .returns(boolean.class)
+              .addStatement("return $L", SORTED_WITHIN_RUNS)
+              .build());
+    }
+    typeSpec.addMethod(generateStartRowMethod());
+    fieldNumber = 0;
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      typeSpec.addMethod(generateSetter(field, fieldNumber));
+      ++fieldNumber;
+    }
+    typeSpec.addMethod(generateCommitRowMethod());
+    typeSpec.addMethod(generateAddMethod());
+    typeSpec.addMethod(generateAddAllMethod());
+    typeSpec.addMethod(generateEntityMethod());
+    typeSpec.addMethod(generateAsEntityListMethod());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder("trimToSize")
+            .addJavadoc("Releases the capacity that is not used by rows.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .addStatement("resize($L)", SIZE)
+            .build());
+    typeSpec.addMethod(generateResizeMethod());
+    if (tracksSortedWithinRuns()) {
+      typeSpec.addMethod(generateCheckSortedWithinRunsMethod());
+    }
+    typeSpec.addType(generateEntityListClass());
+
+    return typeSpec.build();
+  }
+
+  private static void addColumnField(TypeSpec.Builder typeSpec, TypeName elementType, String name) {
+    typeSpec.addField(
+        FieldSpec.builder(ArrayTypeName.of(elementType), name, Modifier.PRIVATE)
+            .initializer("new $T[INITIAL_CAPACITY]", elementType)
+            .build());
+  }
+
+  private void addGetters(TypeSpec.Builder typeSpec, GtfsFieldDescriptor field, int fieldNumber) {
+    TypeName javaType = TypeName.get(field.javaType());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder(hasMethodName(field.name()))
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(int.class, "row")
+            .returns(boolean.class)
+            .addStatement(
+                "return ($L[row] & $L) != 0",
+                bitFieldForFieldNumber(fieldNumber),
+                maskForFieldNumber(fieldNumber))
+            .build());
+    MethodSpec.Builder getter =
+        MethodSpec.methodBuilder(getterMethodName(field.name()))
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(int.class, "row")
+            .returns(javaType);
+    if (usesIdDictionary(field)) {
+      getter
+          .addStatement("int code = $L[row]", field.name())
+          .addStatement(
+              "return code == -1 ? $T.$L : $L.decode(code)",
+              classNames.entityImplementationTypeName(),
+              fieldDefaultName(field.name()),
+              fieldIdNamespace(field));
+      typeSpec.addMethod(getter.build());
+      typeSpec.addMethod(
+          MethodSpec.methodBuilder(field.name() + "Code")
+              .addJavadoc(
+                  "Returns the code of the value in the {@link $T} or -1 if there is no value.\n",
+                  IdDictionary.class)
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(int.class, "row")
+              .returns(int.class)
+              .addStatement("return $L[row]", field.name())
+              .build());
+      typeSpec.addMethod(
+          MethodSpec.methodBuilder(field.name() + "Namespace")
+              .addJavadoc("Returns the namespace of the codes of $L.\n", field.name())
+              .addModifiers(Modifier.PUBLIC)
+              .returns(IdDictionary.Namespace.class)
+              .addStatement("return $L", fieldIdNamespace(field))
+              .build());
+    } else if (storedAsSeconds(field)) {
+      getter.addStatement(
+          "return $L(row) ? $T.fromSecondsSinceMidnight($L[row]) : $T.$L",
+          hasMethodName(field.name()),
+          GtfsTime.class,
+          field.name(),
+          classNames.entityImplementationTypeName(),
+          fieldDefaultName(field.name()));
+      typeSpec.addMethod(getter.build());
+      typeSpec.addMethod(
+          MethodSpec.methodBuilder(field.name() + "SecondsSinceMidnight")
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(int.class, "row")
+              .returns(int.class)
+              .addStatement("return $L[row]", field.name())
+              .build());
+    } else if (field.type() == FieldTypeEnum.ENUM) {
+      getter
+          .addStatement("$T result = $T.forNumber($L[row])", javaType, javaType, field.name())
+          .addStatement("return result == null ? $T.UNRECOGNIZED : result", javaType);
+      typeSpec.addMethod(getter.build());
+      typeSpec.addMethod(
+          MethodSpec.methodBuilder(getValueMethodName(field.name()))
+              .addModifiers(Modifier.PUBLIC)
+              .addParameter(int.class, "row")
+              .returns(int.class)
+              .addStatement("return $L[row]", field.name())
+              .build());
+    } else {
+      typeSpec.addMethod(getter.addStatement("return $L[row]", field.name()).build());
+    }
+  }
+
+  private MethodSpec generateStartRowMethod() {
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("startRow")
+            .addJavadoc(
+                "Starts a row after the last one with all fields missing. The row is appended by"
+                    + " {@link #commitRow()},\nand a row that is not committed is overwritten by"
+                    + " the next one.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(long.class, "rowNumber")
+            .beginControlFlow("if ($L == $L.length)", SIZE, CSV_ROW_NUMBER)
+            .addStatement("resize(Math.max(INITIAL_CAPACITY, 2 * $L))", SIZE)
+            .endControlFlow()
+            .addStatement("$L[$L] = rowNumber", CSV_ROW_NUMBER, SIZE);
+    for (int i = 0; i <= lastBitFieldNumber(fileDescriptor.fields().size()); ++i) {
+      method.addStatement("$L[$L] = 0", bitFieldName(i), SIZE);
+    }
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      if (usesIdDictionary(field)) {
+        method.addStatement("$L[$L] = -1", field.name(), SIZE);
+      } else if (storedAsSeconds(field)) {
+        method.addStatement("$L[$L] = 0", field.name(), SIZE);
+      } else {
+        method.addStatement(
+            "$L[$L] = $T.$L",
+            field.name(),
+            SIZE,
+            classNames.entityImplementationTypeName(),
+            fieldDefaultName(field.name()));
+      }
+    }
+    return method.build();
+  }
+
+  private MethodSpec generateSetter(GtfsFieldDescriptor field, int fieldNumber) {
+    TypeName parameterType =
+        field.type() == FieldTypeEnum.ENUM ? TypeName.INT : TypeName.get(field.javaType());
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder(setterMethodName(field.name()))
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(parameterType, "value");
+    if (parameterType.isPrimitive()) {
+      method.addJavadoc("Sets $L of the started row.\n", field.name());
+    } else {
+      method
+          .addJavadoc("Sets $L of the started row, which stays missing for null.\n", field.name())
+          .beginControlFlow("if (value == null)")
+          .addStatement("return")
+          .endControlFlow();
+    }
+    method.addStatement(
+        "$L[$L] |= $L", bitFieldForFieldNumber(fieldNumber), SIZE, maskForFieldNumber(fieldNumber));
+    if (usesIdDictionary(field)) {
+      method.addStatement("$L[$L] = $L.encode(value)", field.name(), SIZE, fieldIdNamespace(field));
+    } else if (storedAsSeconds(field)) {
+      method.addStatement("$L[$L] = value.getSecondsSinceMidnight()", field.name(), SIZE);
+    } else {
+      method.addStatement("$L[$L] = value", field.name(), SIZE);
+    }
+    return method.build();
+  }
+
+  private MethodSpec generateCommitRowMethod() {
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("commitRow")
+            .addJavadoc("Appends the started row.\n")
+            .addModifiers(Modifier.PUBLIC);
+    if (tracksSortedWithinRuns()) {
+      method.addStatement("checkSortedWithinRuns($L)", SIZE);
+    }
+    return method.addStatement("++$L", SIZE).build();
+  }
+
+  private MethodSpec generateAddMethod() {
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("add")
+            .addJavadoc("Appends a row with the values of the entity.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(classNames.entityImplementationTypeName(), "entity")
+            .addStatement("startRow(entity.$L())", CSV_ROW_NUMBER);
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      method
+          .beginControlFlow("if (entity.$L())", hasMethodName(field.name()))
+          .addStatement(
+              "$L(entity.$L())",
+              setterMethodName(field.name()),
+              field.type() == FieldTypeEnum.ENUM
+                  ? getValueMethodName(field.name())
+                  : getterMethodName(field.name()))
+          .endControlFlow();
+    }
+    return method.addStatement("commitRow()").build();
+  }
+
+  private MethodSpec generateAddAllMethod() {
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("addAll")
+            .addJavadoc(
+                "Appends all rows of the other columns, which must use the same {@link $T}.\n",
+                IdDictionary.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(classNames.columnsTypeName(), "other")
+            .beginControlFlow("if ($L + other.$L > $L.length)", SIZE, SIZE, CSV_ROW_NUMBER)
+            .addStatement("resize(Math.max($L + other.$L, 2 * $L))", SIZE, SIZE, SIZE)
+            .endControlFlow();
+    List<String> columns = new ArrayList<>();
+    columns.add(CSV_ROW_NUMBER);
+    for (int i = 0; i <= lastBitFieldNumber(fileDescriptor.fields().size()); ++i) {
+      columns.add(bitFieldName(i));
+    }
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      columns.add(field.name());
+    }
+    for (String column : columns) {
+      method.addStatement(
+          "$T.arraycopy(other.$L, 0, $L, $L, other.$L)", System.class, column, column, SIZE, SIZE);
+    }
+    if (tracksSortedWithinRuns()) {
+      method
+          .beginControlFlow("if (!other.$L)", SORTED_WITHIN_RUNS)
+          .addStatement("$L = false", SORTED_WITHIN_RUNS)
+          .nextControlFlow("else if (other.$L > 0)", SIZE)
+          .addStatement("checkSortedWithinRuns($L)", SIZE)
+          .endControlFlow();
+    }
+    return method.addStatement("$L += other.$L", SIZE, SIZE).build();
+  }
+
+  private MethodSpec generateCheckSortedWithinRunsMethod() {
+    // Compares with the previous row only, so that sorted input is detected while it is parsed.
+    GtfsFieldDescriptor firstKey = fileDescriptor.firstKey().get();
+    String sequenceKey = fileDescriptor.sequenceKey().get().name();
+    return MethodSpec.methodBuilder("checkSortedWithinRuns")
+        .addModifiers(Modifier.PRIVATE)
+        .addParameter(int.class, "row")
+        .beginControlFlow(
+            "if (row > 0 && $L[row] < $L[row - 1] && $L)",
+            sequenceKey,
+            sequenceKey,
+            usesIdDictionary(firstKey)
+                ? CodeBlock.of("$L[row] == $L[row - 1]", firstKey.name(), firstKey.name())
+                : CodeBlock.of(
+                    "$T.equals($L[row], $L[row - 1])",
+                    Objects.class,
+                    firstKey.name(),
+                    firstKey.name()))
+        .addStatement("$L = false", SORTED_WITHIN_RUNS)
+        .endControlFlow()
+        .build();
+  }
+
+  private boolean tracksSortedWithinRuns() {
+    return fileDescriptor.firstKey().isPresent() && fileDescriptor.sequenceKey().isPresent();
+  }
+
+  private MethodSpec generateEntityMethod() {
+    TypeName builderType = classNames.entityBuilderTypeName();
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("entity")
+            .addJavadoc("Returns a new entity with the values of the row.\n")
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(int.class, "row")
+            .returns(classNames.entityImplementationTypeName())
+            .addStatement("$T builder = new $T()", builderType, builderType)
+            .addStatement("builder.$L($L[row])", setterMethodName(CSV_ROW_NUMBER), CSV_ROW_NUMBER);
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      method.beginControlFlow("if ($L(row))", hasMethodName(field.name()));
+      if (field.type() == FieldTypeEnum.ENUM) {
+        // The builder stores the number of an enum value, which may be unrecognized.
+        method.addStatement("builder.$L($L[row])", setterMethodName(field.name()), field.name());
+      } else {
+        method.addStatement(
+            "builder.$L($L(row))", setterMethodName(field.name()), getterMethodName(field.name()));
+      }
+      method.endControlFlow();
+    }
+    return method.addStatement("return builder.build()").build();
+  }
+
+  private MethodSpec generateAsEntityListMethod() {
+    return MethodSpec.methodBuilder("asEntityList")
+        .addJavadoc("Returns a view of all rows as entities, which are created on each access.\n")
+        .addModifiers(Modifier.PUBLIC)
+        .returns(
+            ParameterizedTypeName.get(
+                ClassName.get(List.class), classNames.entityImplementationTypeName()))
+        .addStatement("return new EntityList()")
+        .build();
+  }
+
+  private MethodSpec generateResizeMethod() {
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("resize")
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(int.class, "capacity")
+            .addStatement(
+                "$L = $T.copyOf($L, capacity)", CSV_ROW_NUMBER, Arrays.class, CSV_ROW_NUMBER);
+    for (int i = 0; i <= lastBitFieldNumber(fileDescriptor.fields().size()); ++i) {
+      method.addStatement(
+          "$L = $T.copyOf($L, capacity)", bitFieldName(i), Arrays.class, bitFieldName(i));
+    }
+    for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
+      method.addStatement("$L = $T.copyOf($L, capacity)", field.name(), Arrays.class, field.name());
+    }
+    return method.build();
+  }
+
+  private TypeSpec generateEntityListClass() {
+    TypeName gtfsEntityType = classNames.entityImplementationTypeName();
+    return TypeSpec.classBuilder("EntityList")
+        .addModifiers(Modifier.PRIVATE, Modifier.FINAL)
+        .superclass(ParameterizedTypeName.get(ClassName.get(AbstractList.class), gtfsEntityType))
+        .addSuperinterface(RandomAccess.class)
+        .addMethod(
+            MethodSpec.methodBuilder("get")
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .addParameter(int.class, "row")
+                .returns(gtfsEntityType)
+                .beginControlFlow("if (row < 0 || row >= $L)", SIZE)
+                .addStatement(
+                    "throw new $T(\"Index: \" + row + \", size: \" + $L)",
+                    IndexOutOfBoundsException.class,
+                    SIZE)
+                .endControlFlow()
+                .addStatement("return entity(row)")
+                .build())
+        .addMethod(
+            MethodSpec.methodBuilder(SIZE)
+                .addAnnotation(Override.class)
+                .addModifiers(Modifier.PUBLIC)
+                .returns(int.class)
+                .addStatement("return $L", SIZE)
+                .build())
+        .build();
+  }
+}
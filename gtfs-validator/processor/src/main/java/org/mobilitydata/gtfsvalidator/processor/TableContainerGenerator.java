@@ -16,10 +16,8 @@
 
 package org.mobilitydata.gtfsvalidator.processor;
 
-import com.google.common.collect.ArrayListMultimap;
-import com.google.common.collect.ListMultimap;
-import com.google.common.collect.Multimaps;
 import com.squareup.javapoet.ClassName;
+import com.squareup.javapoet.CodeBlock;
 import com.squareup.javapoet.FieldSpec;
 import com.squareup.javapoet.JavaFile;
 import com.squareup.javapoet.MethodSpec;
@@ -30,18 +28,23 @@ import org.mobilitydata.gtfsvalidator.annotation.Generated;
 import org.mobilitydata.gtfsvalidator.notice.DuplicateKeyError;
 import org.mobilitydata.gtfsvalidator.notice.MoreThanOneEntityNotice;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
 import org.mobilitydata.gtfsvalidator.table.GtfsTableContainer;
+import org.mobilitydata.gtfsvalidator.table.PrimaryKeyIndex;
+import org.mobilitydata.gtfsvalidator.table.RowGroupIndex;
 
 import javax.lang.model.element.Modifier;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.byKeyMapName;
+import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.byKeyIndexName;
 import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.byKeyMethodName;
 import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.fieldNameField;
 import static org.mobilitydata.gtfsvalidator.processor.GtfsEntityClasses.TABLE_PACKAGE_NAME;
+import static org.mobilitydata.gtfsvalidator.processor.TableLoaderGenerator.idNamespaceName;
 
 /**
  * Generates code for a container for a loaded GTFS table.
@@ -57,57 +60,35 @@ public class TableContainerGenerator {
     this.classNames = new GtfsEntityClasses(fileDescriptor);
   }
 
-  private static void addListMultimapWithGetters(
+  private static void addPrimaryKeyIndexWithGetters(
       TypeSpec.Builder typeSpec, GtfsFieldDescriptor indexField, TypeName entityTypeName) {
-    TypeName keyMapType =
-        ParameterizedTypeName.get(
-            ClassName.get(ListMultimap.class), TypeName.get(indexField.javaType()), entityTypeName);
-    String methodName = byKeyMethodName(indexField.name());
-    String fieldName = byKeyMapName(indexField.name());
-    typeSpec.addField(
-        FieldSpec.builder(keyMapType, fieldName, Modifier.PRIVATE)
-            .initializer("$T.create()", ParameterizedTypeName.get(ArrayListMultimap.class))
-            .build());
+    String fieldName = byKeyIndexName(indexField.name());
+    typeSpec.addField(PrimaryKeyIndex.class, fieldName, Modifier.PRIVATE, Modifier.FINAL);
     typeSpec.addMethod(
-        MethodSpec.methodBuilder(methodName)
+        MethodSpec.methodBuilder(byKeyMethodName(indexField.name()))
             .addModifiers(Modifier.PUBLIC)
             .addParameter(TypeName.get(indexField.javaType()), "key")
-            .returns(ParameterizedTypeName.get(ClassName.get(List.class), entityTypeName))
-            .addStatement("return $L.get(key)", fieldName)
+            .returns(entityTypeName)
+            .addStatement("int row = $L.findRow(key)", fieldName)
+            .addStatement("return row == -1 ? null : entities.get(row)")
             .build());
     typeSpec.addMethod(
-        MethodSpec.methodBuilder(methodName + "Map")
+        MethodSpec.methodBuilder(fieldName)
+            .addJavadoc("Returns rows of the table by $L.\n", indexField.name())
             .addModifiers(Modifier.PUBLIC)
-            .returns(keyMapType)
+            .returns(PrimaryKeyIndex.class)
             .addStatement("return $L", fieldName)
             .build());
   }
 
-  private static void addMapWithGetter(
-      TypeSpec.Builder typeSpec, GtfsFieldDescriptor indexField, TypeName entityTypeName) {
-    String methodName = byKeyMethodName(indexField.name());
-    String fieldName = byKeyMapName(indexField.name());
-    TypeName keyMapType =
-        ParameterizedTypeName.get(
-            ClassName.get(Map.class), TypeName.get(indexField.javaType()), entityTypeName);
-    typeSpec.addField(
-        FieldSpec.builder(keyMapType, fieldName, Modifier.PRIVATE)
-            .initializer("new $T<>()", ParameterizedTypeName.get(HashMap.class))
-            .build());
-    typeSpec.addMethod(
-        MethodSpec.methodBuilder(methodName)
-            .addModifiers(Modifier.PUBLIC)
-            .addParameter(TypeName.get(indexField.javaType()), "key")
-            .returns(entityTypeName)
-            .addStatement("return $L.get(key)", fieldName)
-            .build());
-  }
-
   public JavaFile generateGtfsContainerJavaFile() {
     return JavaFile.builder(TABLE_PACKAGE_NAME, generateGtfsContainerClass()).build();
   }
 
   public TypeSpec generateGtfsContainerClass() {
+    if (fileDescriptor.columnar()) {
+      return generateColumnarContainerClass();
+    }
     TypeName gtfsEntityType = classNames.entityImplementationTypeName();
     TypeSpec.Builder typeSpec =
         TypeSpec.classBuilder(classNames.tableContainerSimpleName())
@@ -136,6 +117,7 @@ public class TableContainerGenerator {
         ParameterizedTypeName.get(ClassName.get(List.class), gtfsEntityType),
         "entities",
         Modifier.PRIVATE);
+    typeSpec.addField(IdDictionary.class, "idDictionary", Modifier.PRIVATE, Modifier.FINAL);
 
     typeSpec.addMethod(
         MethodSpec.methodBuilder("getEntities")
@@ -153,18 +135,18 @@ public class TableContainerGenerator {
               .addStatement("return entities.isEmpty() ? null : entities.get(0)")
               .build());
     } else if (fileDescriptor.sequenceKey().isPresent()) {
-      addListMultimapWithGetters(
-          typeSpec, fileDescriptor.firstKey().get(), classNames.entityImplementationTypeName());
+      addRowGroupIndexWithGetters(typeSpec, fileDescriptor.firstKey().get());
     } else if (fileDescriptor.primaryKey().isPresent()) {
-      addMapWithGetter(
+      addPrimaryKeyIndexWithGetters(
           typeSpec, fileDescriptor.primaryKey().get(), classNames.entityImplementationTypeName());
     }
     for (GtfsFieldDescriptor indexField : fileDescriptor.indices()) {
-      addListMultimapWithGetters(typeSpec, indexField, classNames.entityImplementationTypeName());
+      addRowGroupIndexWithGetters(typeSpec, indexField);
     }
 
     typeSpec.addMethod(generateConstructor());
     typeSpec.addMethod(generateForEntitiesMethod());
+    typeSpec.addMethod(generateForEntitiesWithIdDictionaryMethod());
     typeSpec.addMethod(generateForEmptyFileMethod());
     typeSpec.addMethod(generateForMissingFileMethod());
     typeSpec.addMethod(generateSetupIndicesMethod());
@@ -173,27 +155,298 @@ public class TableContainerGenerator {
     return typeSpec.build();
   }
 
-  private MethodSpec generateConstructor() {
-    return MethodSpec.constructorBuilder()
-        .addModifiers(Modifier.PRIVATE)
-        .addParameter(
-            ParameterizedTypeName.get(
-                ClassName.get(List.class), classNames.entityImplementationTypeName()),
-            "entities")
-        .addStatement("this.entities = entities")
+  /** Returns a function that maps a row to its entity. */
+  private String rowMapper() {
+    return fileDescriptor.columnar() ? "columns::entity" : "entities::get";
+  }
+
+  /** Returns an expression for the value of the field in the row. */
+  private CodeBlock valueOfRow(String field, String row) {
+    return fileDescriptor.columnar()
+        ? CodeBlock.of("columns.$L($L)", field, row)
+        : CodeBlock.of("entities.get($L).$L()", row, field);
+  }
+
+  /** Returns an expression for the namespace of IDs of the field. */
+  private CodeBlock namespaceOf(GtfsFieldDescriptor field) {
+    return fileDescriptor.columnar()
+        ? CodeBlock.of("columns.$LNamespace()", field.name())
+        : CodeBlock.of("idDictionary.namespace($S)", idNamespaceName(field));
+  }
+
+  /**
+   * Returns an expression for the code of the field in the row, which is -1 if the row has no
+   * value.
+   */
+  private CodeBlock codeOfRow(GtfsFieldDescriptor field, String namespace, String row) {
+    return fileDescriptor.columnar()
+        ? CodeBlock.of("columns.$LCode($L)", field.name(), row)
+        : CodeBlock.of("$L.encodeIfNotEmpty(entities.get($L).$L())", namespace, row, field.name());
+  }
+
+  /** Returns the number of rows of the table. */
+  private String rowCount() {
+    return fileDescriptor.columnar() ? "columns.size()" : "entities.size()";
+  }
+
+  private void addRowGroupIndexWithGetters(
+      TypeSpec.Builder typeSpec, GtfsFieldDescriptor indexField) {
+    TypeName entityTypeName = classNames.entityImplementationTypeName();
+    TypeName keyType = TypeName.get(indexField.javaType());
+    TypeName indexType = ClassName.get(RowGroupIndex.class);
+    String methodName = byKeyMethodName(indexField.name());
+    String fieldName = byKeyIndexName(indexField.name());
+    // Built on first access, so that indices that no validator uses are never built.
+    typeSpec.addField(
+        FieldSpec.builder(
+                ParameterizedTypeName.get(ClassName.get(AtomicReference.class), indexType),
+                fieldName,
+                Modifier.PRIVATE,
+                Modifier.FINAL)
+            .initializer("new $T<>()", AtomicReference.class)
+            .build());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder(methodName)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(keyType, "key")
+            .returns(ParameterizedTypeName.get(ClassName.get(List.class), entityTypeName))
+            .addStatement("return $L().get(key, $L)", fieldName, rowMapper())
+            .build());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder(methodName + "Map")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(
+                ParameterizedTypeName.get(
+                    ClassName.get(Map.class),
+                    keyType,
+                    ParameterizedTypeName.get(ClassName.get(List.class), entityTypeName)))
+            .addStatement("return $L().asMap($L)", fieldName, rowMapper())
+            .build());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder(fieldName)
+            .addJavadoc(
+                "Returns rows of the table grouped by $L, building the index on first access.\n",
+                indexField.name())
+            .addModifiers(Modifier.PUBLIC)
+            .returns(indexType)
+            .addStatement("$T index = $L.get()", indexType, fieldName)
+            .beginControlFlow("if (index == null)")
+            // No lock is held while building: the index is built by parallel streams, whose
+            // workers may call back into this method. Callers that race may build the index more
+            // than once, but all of them return the one that was published first.
+            .addCode(createRowGroupIndex(indexField))
+            .beginControlFlow("if (!$L.compareAndSet(null, index))", fieldName)
+            .addStatement("index = $L.get()", fieldName)
+            .endControlFlow()
+            .endControlFlow()
+            .addStatement("return index")
+            .build());
+  }
+
+  /**
+   * Returns statements that set {@code index} to rows grouped by the field and, for a first key,
+   * sorted by the sequence key.
+   */
+  private CodeBlock createRowGroupIndex(GtfsFieldDescriptor indexField) {
+    CodeBlock.Builder code =
+        CodeBlock.builder()
+            .addStatement("$T ids = $L", IdDictionary.Namespace.class, namespaceOf(indexField));
+    CodeBlock codeOfRow = codeOfRow(indexField, "ids", "row");
+    if (!indexField.firstKey() || !fileDescriptor.sequenceKey().isPresent()) {
+      return code.addStatement(
+              "index = $T.create(ids, $L, row -> $L)", RowGroupIndex.class, rowCount(), codeOfRow)
+          .build();
+    }
+    CodeBlock sequenceOfRow = valueOfRow(fileDescriptor.sequenceKey().get().name(), "row");
+    CodeBlock sortedWithinRuns =
+        fileDescriptor.columnar()
+            // Tracked by the columns while rows are parsed.
+            ? CodeBlock.of("columns.isSortedWithinRuns()")
+            : CodeBlock.of(
+                "$T.isSortedWithinRuns($L, row -> $L, row -> $L)",
+                RowGroupIndex.class,
+                rowCount(),
+                codeOfRow,
+                sequenceOfRow);
+    // Feeds usually list rows grouped by the first key and sorted by the sequence key, so the runs
+    // of rows are the groups and nothing needs to be sorted.
+    return code.beginControlFlow("if ($L)", sortedWithinRuns)
+        .addStatement(
+            "index = $T.createFromRuns(ids, $L, row -> $L)",
+            RowGroupIndex.class,
+            rowCount(),
+            codeOfRow)
+        .endControlFlow()
+        .beginControlFlow("if (index == null)")
+        .addStatement(
+            "index = $T.create(ids, $L, row -> $L, row -> $L)",
+            RowGroupIndex.class,
+            rowCount(),
+            codeOfRow,
+            sequenceOfRow)
+        .endControlFlow()
         .build();
   }
 
+  /**
+   * Generates a container that keeps entities in {@code Gtfs*Columns} and creates entity objects
+   * only when they are accessed.
+   */
+  private TypeSpec generateColumnarContainerClass() {
+    TypeName gtfsEntityType = classNames.entityImplementationTypeName();
+    TypeName columnsType = classNames.columnsTypeName();
+    TypeName tableContainerTypeName = classNames.tableContainerTypeName();
+    TypeSpec.Builder typeSpec =
+        TypeSpec.classBuilder(classNames.tableContainerSimpleName())
+            .superclass(
+                ParameterizedTypeName.get(ClassName.get(GtfsTableContainer.class), gtfsEntityType))
+            .addAnnotation(Generated.class)
+            .addModifiers(Modifier.PUBLIC);
+
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder("getEntityClass")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(ParameterizedTypeName.get(ClassName.get(Class.class), gtfsEntityType))
+            .addStatement("return $T.class", gtfsEntityType)
+            .build());
+
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder("gtfsFilename")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(String.class)
+            .addStatement("return $T.FILENAME", classNames.tableLoaderTypeName())
+            .build());
+
+    typeSpec.addField(columnsType, "columns", Modifier.PRIVATE, Modifier.FINAL);
+    typeSpec.addField(
+        ParameterizedTypeName.get(ClassName.get(List.class), gtfsEntityType),
+        "entities",
+        Modifier.PRIVATE,
+        Modifier.FINAL);
+
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder("getEntities")
+            .addJavadoc("Returns a view of all rows, which creates entities on each access.\n")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .returns(ParameterizedTypeName.get(ClassName.get(List.class), gtfsEntityType))
+            .addStatement("return entities")
+            .build());
+
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder("getColumns")
+            .addModifiers(Modifier.PUBLIC)
+            .returns(columnsType)
+            .addStatement("return columns")
+            .build());
+
+    if (fileDescriptor.firstKey().isPresent()) {
+      addRowGroupIndexWithGetters(typeSpec, fileDescriptor.firstKey().get());
+    }
+    for (GtfsFieldDescriptor indexField : fileDescriptor.indices()) {
+      addRowGroupIndexWithGetters(typeSpec, indexField);
+    }
+
+    typeSpec.addMethod(
+        MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(columnsType, "columns")
+            .addStatement("this.columns = columns")
+            .addStatement("this.entities = columns.asEntityList()")
+            .build());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder("forColumns")
+            .returns(tableContainerTypeName)
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addParameter(columnsType, "columns")
+            .addParameter(NoticeContainer.class, "noticeContainer")
+            .addStatement(
+                "$T table = new $T(columns)", tableContainerTypeName, tableContainerTypeName)
+            .addStatement("table.setEmptyFile(false)")
+            .addStatement("table.setMissingFile(false)")
+            .addStatement("table.setupIndices(noticeContainer)")
+            .addStatement("return table")
+            .build());
+    typeSpec.addMethod(
+        MethodSpec.methodBuilder("forEntities")
+            .returns(tableContainerTypeName)
+            .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+            .addParameter(
+                ParameterizedTypeName.get(ClassName.get(List.class), gtfsEntityType), "entities")
+            .addParameter(NoticeContainer.class, "noticeContainer")
+            .addStatement(
+                "$T columns = new $T(new $T())", columnsType, columnsType, IdDictionary.class)
+            .addStatement("entities.forEach(columns::add)")
+            .addStatement("return forColumns(columns, noticeContainer)")
+            .build());
+    typeSpec.addMethod(generateColumnarForFileStateMethod("forEmptyFile", "setEmptyFile"));
+    typeSpec.addMethod(generateColumnarForFileStateMethod("forMissingFile", "setMissingFile"));
+    typeSpec.addMethod(generateSetupIndicesMethod());
+    typeSpec.addMethod(
+        generateColumnarForFileStateMethod("forInvalidHeaders", "setInvalidHeaders"));
+
+    return typeSpec.build();
+  }
+
+  private MethodSpec generateColumnarForFileStateMethod(String methodName, String stateSetter) {
+    TypeName tableContainerTypeName = classNames.tableContainerTypeName();
+    TypeName columnsType = classNames.columnsTypeName();
+    return MethodSpec.methodBuilder(methodName)
+        .returns(tableContainerTypeName)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addStatement(
+            "$T table = new $T(new $T(new $T()))",
+            tableContainerTypeName,
+            tableContainerTypeName,
+            columnsType,
+            IdDictionary.class)
+        .addStatement("table.$L(true)", stateSetter)
+        .addStatement("return table")
+        .build();
+  }
+
+  private MethodSpec generateConstructor() {
+    MethodSpec.Builder constructor =
+        MethodSpec.constructorBuilder()
+            .addModifiers(Modifier.PRIVATE)
+            .addParameter(
+                ParameterizedTypeName.get(
+                    ClassName.get(List.class), classNames.entityImplementationTypeName()),
+                "entities")
+            .addParameter(IdDictionary.class, "idDictionary")
+            // Indices refer to entities by position, so the list must not be reordered.
+            .addStatement("this.entities = $T.unmodifiableList(entities)", Collections.class)
+            .addStatement("this.idDictionary = idDictionary");
+    if (hasPrimaryKeyIndex()) {
+      GtfsFieldDescriptor primaryKey = fileDescriptor.primaryKey().get();
+      constructor.addStatement(
+          "this.$L = new $T($L)",
+          byKeyIndexName(primaryKey.name()),
+          PrimaryKeyIndex.class,
+          namespaceOf(primaryKey));
+    }
+    return constructor.build();
+  }
+
+  private boolean hasPrimaryKeyIndex() {
+    return !fileDescriptor.singleRow()
+        && !fileDescriptor.sequenceKey().isPresent()
+        && fileDescriptor.primaryKey().isPresent();
+  }
+
   private MethodSpec generateForEmptyFileMethod() {
     TypeName tableContainerTypeName = classNames.tableContainerTypeName();
     return MethodSpec.methodBuilder("forEmptyFile")
         .returns(tableContainerTypeName)
         .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
         .addStatement(
-            "$T table = new $T(new $T<>())",
+            "$T table = new $T(new $T<>(), new $T())",
             tableContainerTypeName,
             tableContainerTypeName,
-            ArrayList.class)
+            ArrayList.class,
+            IdDictionary.class)
         .addStatement("table.setEmptyFile(true)")
         .addStatement("return table")
         .build();
@@ -205,10 +458,11 @@ public class TableContainerGenerator {
         .returns(tableContainerTypeName)
         .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
         .addStatement(
-            "$T table = new $T(new $T<>())",
+            "$T table = new $T(new $T<>(), new $T())",
             tableContainerTypeName,
             tableContainerTypeName,
-            ArrayList.class)
+            ArrayList.class,
+            IdDictionary.class)
         .addStatement("table.setMissingFile(true)")
         .addStatement("return table")
         .build();
@@ -220,26 +474,45 @@ public class TableContainerGenerator {
         .returns(tableContainerTypeName)
         .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
         .addStatement(
-            "$T table = new $T(new $T<>())",
+            "$T table = new $T(new $T<>(), new $T())",
             tableContainerTypeName,
             tableContainerTypeName,
-            ArrayList.class)
+            ArrayList.class,
+            IdDictionary.class)
         .addStatement("table.setInvalidHeaders(true)")
         .addStatement("return table")
         .build();
   }
 
   private MethodSpec generateForEntitiesMethod() {
+    return MethodSpec.methodBuilder("forEntities")
+        .returns(classNames.tableContainerTypeName())
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(
+            ParameterizedTypeName.get(
+                ClassName.get(List.class), classNames.entityImplementationTypeName()),
+            "entities")
+        .addParameter(NoticeContainer.class, "noticeContainer")
+        .addStatement("return forEntities(entities, new $T(), noticeContainer)", IdDictionary.class)
+        .build();
+  }
+
+  private MethodSpec generateForEntitiesWithIdDictionaryMethod() {
     TypeName tableContainerTypeName = classNames.tableContainerTypeName();
     return MethodSpec.methodBuilder("forEntities")
+        .addJavadoc("Creates a table whose index keys are IDs of the given dictionary.\n")
         .returns(tableContainerTypeName)
         .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
         .addParameter(
             ParameterizedTypeName.get(
                 ClassName.get(List.class), classNames.entityImplementationTypeName()),
             "entities")
+        .addParameter(IdDictionary.class, "idDictionary")
         .addParameter(NoticeContainer.class, "noticeContainer")
-        .addStatement("$T table = new $T(entities)", tableContainerTypeName, tableContainerTypeName)
+        .addStatement(
+            "$T table = new $T(entities, idDictionary)",
+            tableContainerTypeName,
+            tableContainerTypeName)
         .addStatement("table.setEmptyFile(false)")
         .addStatement("table.setMissingFile(false)")
         .addStatement("table.setupIndices(noticeContainer)")
@@ -266,72 +539,59 @@ public class TableContainerGenerator {
     } else if (fileDescriptor.sequenceKey().isPresent() && fileDescriptor.firstKey().isPresent()) {
       GtfsFieldDescriptor firstKey = fileDescriptor.firstKey().get();
       GtfsFieldDescriptor sequenceKey = fileDescriptor.sequenceKey().get();
-      String byKeyMap = byKeyMapName(firstKey.name());
-      method.beginControlFlow("for ($T entity : entities)", gtfsEntityType);
-      method.addStatement("$L.put(entity.$L(), entity)", byKeyMap, firstKey.name());
-      method.endControlFlow();
-
+      String index = "index";
+      // Duplicates are found on adjacent rows of the sorted groups, so this pass builds the index.
+      // Groups are checked in parallel.
+      CodeBlock checkGroup =
+          CodeBlock.builder()
+              .beginControlFlow(
+                  "for (int i = $L.groupStart(group) + 1; i < $L.groupEnd(group); ++i)",
+                  index,
+                  index)
+              .addStatement("int a = $L.row(i - 1)", index)
+              .addStatement("int b = $L.row(i)", index)
+              .beginControlFlow(
+                  "if ($L == $L)",
+                  valueOfRow(sequenceKey.name(), "a"),
+                  valueOfRow(sequenceKey.name(), "b"))
+              .addStatement(
+                  "notices.addNotice(new $T(gtfsFilename(), $L, $L, $T.$L, $L, $T.$L, $L))",
+                  DuplicateKeyError.class,
+                  valueOfRow("csvRowNumber", "a"),
+                  valueOfRow("csvRowNumber", "b"),
+                  loaderType,
+                  fieldNameField(firstKey.name()),
+                  valueOfRow(firstKey.name(), "a"),
+                  loaderType,
+                  fieldNameField(sequenceKey.name()),
+                  valueOfRow(sequenceKey.name(), "a"))
+              .endControlFlow()
+              .endControlFlow()
+              .build();
       method
-          .beginControlFlow(
-              "for (List<$T> entityList: $T.asMap($L).values())",
-              gtfsEntityType,
-              Multimaps.class,
-              byKeyMap)
-          .addStatement(
-              "entityList.sort((entity1, entity2) -> Integer.compare(entity1.$L(), entity2.$L()))",
-              sequenceKey.name(),
-              sequenceKey.name())
-          .beginControlFlow("for (int i = 1; i < entityList.size(); ++i)")
-          .addStatement("$T a = entityList.get(i - 1)", gtfsEntityType)
-          .addStatement("$T b = entityList.get(i)", gtfsEntityType)
-          .beginControlFlow("if (a.$L() == b.$L())", sequenceKey.name(), sequenceKey.name())
-          .addStatement(
-              "noticeContainer.addNotice(new $T("
-                  + "gtfsFilename(), a.csvRowNumber(), "
-                  + "b.csvRowNumber(), "
-                  + "$T.$L, a.$L(), "
-                  + "$T.$L, a.$L()))",
-              DuplicateKeyError.class,
-              loaderType,
-              fieldNameField(firstKey.name()),
-              firstKey.name(),
-              loaderType,
-              fieldNameField(sequenceKey.name()),
-              sequenceKey.name())
-          .endControlFlow()
-          .endControlFlow()
-          .endControlFlow();
+          .addStatement("$T $L = $L()", RowGroupIndex.class, index, byKeyIndexName(firstKey.name()))
+          .addCode("$L.checkGroupsInParallel(noticeContainer, (group, notices) -> {\n$>", index)
+          .addCode(checkGroup)
+          .addCode("$<});\n");
     } else if (fileDescriptor.primaryKey().isPresent()) {
       GtfsFieldDescriptor primaryKey = fileDescriptor.primaryKey().get();
-      String byKeyMap = byKeyMapName(primaryKey.name());
-      method.beginControlFlow("for ($T newEntity : entities)", gtfsEntityType);
       method
+          .beginControlFlow("for (int row = 0; row < entities.size(); ++row)")
+          .addStatement("$T newEntity = entities.get(row)", gtfsEntityType)
           .addStatement(
-              "$T oldEntity = $L.getOrDefault(newEntity.$L(), null)",
-              classNames.entityImplementationTypeName(),
-              byKeyMap,
+              "int oldRow = $L.putIfAbsent(newEntity.$L(), row)",
+              byKeyIndexName(primaryKey.name()),
               primaryKey.name())
-          .beginControlFlow("if (oldEntity != null)")
+          .beginControlFlow("if (oldRow != -1)")
           .addStatement(
               "noticeContainer.addNotice("
-                  + "new $T(gtfsFilename(), newEntity.csvRowNumber(), oldEntity.csvRowNumber(), $T.$L, newEntity.$L()))",
+                  + "new $T(gtfsFilename(), newEntity.csvRowNumber(), entities.get(oldRow).csvRowNumber(), $T.$L, newEntity.$L()))",
               DuplicateKeyError.class,
               loaderType,
               fieldNameField(primaryKey.name()),
               primaryKey.name())
-          .nextControlFlow("else")
-          .addStatement("$L.put(newEntity.$L(), newEntity)", byKeyMap, primaryKey.name())
+          .endControlFlow()
           .endControlFlow();
-      method.endControlFlow();
-    }
-
-    if (!fileDescriptor.indices().isEmpty()) {
-      method.beginControlFlow("for ($T entity : entities)", gtfsEntityType);
-      for (GtfsFieldDescriptor indexField : fileDescriptor.indices()) {
-        method.addStatement(
-            "$L.put(entity.$L(), entity)", byKeyMapName(indexField.name()), indexField.name());
-      }
-      method.endControlFlow();
     }
     return method.build();
   }
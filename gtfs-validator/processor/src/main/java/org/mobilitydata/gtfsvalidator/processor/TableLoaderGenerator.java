@@ -17,6 +17,7 @@
 package org.mobilitydata.gtfsvalidator.processor;
 
 import com.google.common.base.CaseFormat;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
 import com.squareup.javapoet.ClassName;
@@ -34,9 +35,12 @@ import org.mobilitydata.gtfsvalidator.input.GtfsFeedName;
 import org.mobilitydata.gtfsvalidator.notice.EmptyFileNotice;
 import org.mobilitydata.gtfsvalidator.notice.MissingRequiredFileError;
 import org.mobilitydata.gtfsvalidator.notice.NoticeContainer;
+import org.mobilitydata.gtfsvalidator.parsing.ChunkedCsvParser;
 import org.mobilitydata.gtfsvalidator.parsing.CsvFile;
 import org.mobilitydata.gtfsvalidator.parsing.CsvRow;
 import org.mobilitydata.gtfsvalidator.parsing.FieldCache;
+import org.mobilitydata.gtfsvalidator.parsing.FieldValidationCache;
+import org.mobilitydata.gtfsvalidator.parsing.IdDictionary;
 import org.mobilitydata.gtfsvalidator.parsing.RowParser;
 import org.mobilitydata.gtfsvalidator.table.GtfsTableContainer;
 import org.mobilitydata.gtfsvalidator.table.GtfsTableLoader;
@@ -52,6 +56,7 @@ import java.util.Set;
 
 import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.fieldColumnIndex;
 import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.fieldNameField;
+import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.fieldParsedFlag;
 import static org.mobilitydata.gtfsvalidator.processor.FieldNameConverter.gtfsColumnName;
 import static org.mobilitydata.gtfsvalidator.processor.GtfsEntityClasses.TABLE_PACKAGE_NAME;
 
@@ -63,6 +68,7 @@ import static org.mobilitydata.gtfsvalidator.processor.GtfsEntityClasses.TABLE_P
  */
 public class TableLoaderGenerator {
   private static final int LOG_EVERY_N_ROWS = 200000;
+  private static final String CHUNK_PARSER_CLASS_NAME = "TableChunkParser";
   private final GtfsFileDescriptor fileDescriptor;
   private final GtfsEntityClasses classNames;
 
@@ -77,6 +83,10 @@ public class TableLoaderGenerator {
 
   private static boolean cachingEnabled(final GtfsFieldDescriptor field) {
     // FIXME: Add a way to disable all caching with a command-line flag.
+    if (usesIdDictionary(field)) {
+      // The dictionary already shares the values among all tables.
+      return false;
+    }
     if (field.cached()) {
       return true;
     }
@@ -87,14 +97,68 @@ public class TableLoaderGenerator {
       // cached.
       return false;
     }
-    // Caching is enabled by default for certain field types.
+    // Caching is enabled by default for certain field types. Times are not cached because
+    // GtfsTime already shares instances of all usual times.
     return field.type() == FieldTypeEnum.COLOR
         || field.type() == FieldTypeEnum.DATE
-        || field.type() == FieldTypeEnum.TIME
         || field.type() == FieldTypeEnum.LANGUAGE_CODE
         || field.type() == FieldTypeEnum.ID;
   }
 
+  /**
+   * Tells if values of the field are interned in the {@link IdDictionary} of the feed, so that the
+   * same ID is a single object in all tables.
+   */
+  static boolean usesIdDictionary(GtfsFieldDescriptor field) {
+    return TypeName.get(field.javaType()).equals(ClassName.get(String.class))
+        && (field.type() == FieldTypeEnum.ID || field.foreignKey().isPresent());
+  }
+
+  /**
+   * Returns the namespace of IDs of the field in the {@link IdDictionary}, which is named after the
+   * referenced column, e.g., "stop_id" for parent_station in stops.txt.
+   */
+  static String idNamespaceName(GtfsFieldDescriptor field) {
+    return gtfsColumnName(
+        field.foreignKey().isPresent() ? field.foreignKey().get().field() : field.name());
+  }
+
+  private static String fieldIdNamespace(GtfsFieldDescriptor field) {
+    return field.name() + "Ids";
+  }
+
+  /** Tells if the field is parsed with a method of {@code RowParser} that returns a primitive. */
+  private static boolean hasPrimitiveParser(GtfsFieldDescriptor field) {
+    switch (field.type()) {
+      case INTEGER:
+      case FLOAT:
+      case LATITUDE:
+      case LONGITUDE:
+      case ENUM:
+        return !cachingEnabled(field);
+      default:
+        return false;
+    }
+  }
+
+  private static TypeName primitiveParserType(GtfsFieldDescriptor field) {
+    return field.type() == FieldTypeEnum.INTEGER || field.type() == FieldTypeEnum.ENUM
+        ? TypeName.INT
+        : TypeName.DOUBLE;
+  }
+
+  /**
+   * Tells if the field is parsed even if no validator reads it, because the table container needs
+   * it for its keys and indices or a foreign key validator checks it.
+   */
+  private static boolean alwaysParsed(GtfsFieldDescriptor field) {
+    return field.primaryKey()
+        || field.firstKey()
+        || field.sequenceKey()
+        || field.index()
+        || field.foreignKey().isPresent();
+  }
+
   private static String fieldColumnCache(GtfsFieldDescriptor field) {
     // There is a limited amount of possible values for certain field types, so it is more efficient
     // to use a single
@@ -152,8 +216,10 @@ public class TableLoaderGenerator {
 
     typeSpec.addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PUBLIC).build());
     typeSpec.addMethod(generateGtfsFilenameMethod());
+    typeSpec.addMethod(generateGetTableContainerClassMethod());
     typeSpec.addMethod(generateIsRequiredMethod());
     typeSpec.addMethod(generateLoadMethod());
+    typeSpec.addType(generateChunkParserClass());
     typeSpec.addMethod(generateLoadMissingFileMethod());
     typeSpec.addMethod(generateGetColumnNamesMethod());
     typeSpec.addMethod(generateGetRequiredColumnNamesMethod());
@@ -202,11 +268,15 @@ public class TableLoaderGenerator {
     TypeName tableContainerTypeName = classNames.tableContainerTypeName();
     MethodSpec.Builder method =
         MethodSpec.methodBuilder("load")
+            .addAnnotation(Override.class)
             .addModifiers(Modifier.PUBLIC)
             .addParameter(Reader.class, "reader")
             .addParameter(GtfsFeedName.class, "feedName")
             .addParameter(ValidatorLoader.class, "validatorLoader")
             .addParameter(NoticeContainer.class, "noticeContainer")
+            .addParameter(ChunkedCsvParser.class, "chunkedParser")
+            .addParameter(IdDictionary.class, "idDictionary")
+            .addParameter(FieldValidationCache.class, "validationCache")
             .returns(
                 ParameterizedTypeName.get(ClassName.get(GtfsTableContainer.class), gtfsEntityType))
             .addStatement("$T csvFile = new $T(reader, FILENAME)", CsvFile.class, CsvFile.class)
@@ -222,13 +292,120 @@ public class TableLoaderGenerator {
                     + "getColumnNames(), getRequiredColumnNames(), noticeContainer))",
                 TableHeaderValidator.class)
             .addStatement("return $T.forInvalidHeaders()", tableContainerTypeName)
-            .endControlFlow();
+            .endControlFlow()
+            .addStatement(
+                "$T projectedColumns = validatorLoader.getProjectedColumns(FILENAME, $T.class, "
+                    + "$T.class)",
+                ParameterizedTypeName.get(Set.class, String.class),
+                tableContainerTypeName,
+                gtfsEntityType);
+    if (fileDescriptor.columnar()) {
+      // Each chunk is parsed into its own columns, which are appended in the order of chunks.
+      TypeName columnsType = classNames.columnsTypeName();
+      method
+          .addStatement("$T columns = new $T(idDictionary)", columnsType, columnsType)
+          .addStatement(
+              "chunkedParser.parse(csvFile, "
+                  + "() -> new $L(csvFile, feedName, validatorLoader, projectedColumns, "
+                  + "idDictionary, validationCache), noticeContainer, columns::addAll)",
+              CHUNK_PARSER_CLASS_NAME)
+          .addStatement("columns.trimToSize()")
+          .addStatement(
+              "$T table = $T.forColumns(columns, noticeContainer)",
+              tableContainerTypeName,
+              tableContainerTypeName);
+    } else {
+      method
+          .addStatement(
+              "$T entities = chunkedParser.parse(csvFile, "
+                  + "() -> new $L(csvFile, feedName, validatorLoader, projectedColumns, "
+                  + "idDictionary, validationCache), noticeContainer)",
+              ParameterizedTypeName.get(ClassName.get(List.class), gtfsEntityType),
+              CHUNK_PARSER_CLASS_NAME)
+          .addStatement(
+              "$T table = $T.forEntities(entities, idDictionary, noticeContainer)",
+              tableContainerTypeName,
+              tableContainerTypeName);
+    }
+    method
+        .addStatement("validatorLoader.invokeSingleFileValidators(table, noticeContainer)")
+        .addStatement("return table");
+
+    return method.build();
+  }
+
+  /**
+   * Generates a parser of rows. Each instance has its own field caches, so that chunks of a file
+   * may be parsed by several instances in parallel.
+   *
+   * <p>The parser of a columnar table returns the rows of a chunk as columns and creates entities
+   * only for single entity validators.
+   */
+  private TypeSpec generateChunkParserClass() {
+    TypeName gtfsEntityType = classNames.entityImplementationTypeName();
+    boolean columnar = fileDescriptor.columnar();
+    TypeName chunkType = columnar ? classNames.columnsTypeName() : gtfsEntityType;
+    TypeSpec.Builder typeSpec =
+        TypeSpec.classBuilder(CHUNK_PARSER_CLASS_NAME)
+            .addModifiers(Modifier.PRIVATE, Modifier.STATIC)
+            .addSuperinterface(
+                ParameterizedTypeName.get(
+                    ClassName.get(ChunkedCsvParser.ChunkParser.class), chunkType))
+            .addField(GtfsFeedName.class, "feedName", Modifier.PRIVATE, Modifier.FINAL)
+            .addField(ValidatorLoader.class, "validatorLoader", Modifier.PRIVATE, Modifier.FINAL)
+            .addField(
+                FieldValidationCache.class, "validationCache", Modifier.PRIVATE, Modifier.FINAL);
+    MethodSpec.Builder constructor =
+        MethodSpec.constructorBuilder()
+            .addParameter(CsvFile.class, "csvFile")
+            .addParameter(GtfsFeedName.class, "feedName")
+            .addParameter(ValidatorLoader.class, "validatorLoader")
+            .addParameter(ParameterizedTypeName.get(Set.class, String.class), "projectedColumns")
+            .addParameter(IdDictionary.class, "idDictionary")
+            .addParameter(FieldValidationCache.class, "validationCache")
+            .addStatement("this.feedName = feedName")
+            .addStatement("this.validatorLoader = validatorLoader")
+            .addStatement("this.validationCache = validationCache");
+    if (columnar) {
+      typeSpec
+          .addField(IdDictionary.class, "idDictionary", Modifier.PRIVATE, Modifier.FINAL)
+          .addField(boolean.class, "hasEntityValidators", Modifier.PRIVATE, Modifier.FINAL);
+      constructor
+          .addStatement("this.idDictionary = idDictionary")
+          .addStatement(
+              "this.hasEntityValidators = "
+                  + "!validatorLoader.getSingleEntityValidators($T.class).isEmpty()",
+              gtfsEntityType);
+    }
 
     for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
-      method.addStatement(
-          "final int $L = csvFile.getColumnIndex($L)",
+      typeSpec.addField(
+          int.class, fieldColumnIndex(field.name()), Modifier.PRIVATE, Modifier.FINAL);
+      constructor.addStatement(
+          "this.$L = csvFile.getColumnIndex($L)",
           fieldColumnIndex(field.name()),
           fieldNameField(field.name()));
+      if (!alwaysParsed(field)) {
+        // A null set of projected columns means that all columns are parsed.
+        typeSpec.addField(
+            boolean.class, fieldParsedFlag(field.name()), Modifier.PRIVATE, Modifier.FINAL);
+        constructor.addStatement(
+            "this.$L = projectedColumns == null || projectedColumns.contains($L)",
+            fieldParsedFlag(field.name()),
+            fieldNameField(field.name()));
+      }
+      if (usesIdDictionary(field) && !columnar) {
+        // Columns encode IDs in the same namespaces themselves.
+        typeSpec.addField(
+            IdDictionary.Namespace.class,
+            fieldIdNamespace(field),
+            Modifier.PRIVATE,
+            Modifier.FINAL);
+        constructor.addStatement(
+            "this.$L = idDictionary.namespace($S)",
+            fieldIdNamespace(field),
+            idNamespaceName(field));
+      }
     }
 
     // Several fields may reuse the same cache.
@@ -237,25 +414,52 @@ public class TableLoaderGenerator {
       if (cachingEnabled(field)) {
         String cacheVarName = fieldColumnCache(field);
         if (cacheVars.add(cacheVarName)) {
-          method.addStatement(
-              "final $T<$T> $L = new $T<>()",
-              FieldCache.class,
-              TypeName.get(field.javaType()),
-              cacheVarName,
-              FieldCache.class);
+          TypeName cacheType =
+              ParameterizedTypeName.get(
+                  ClassName.get(FieldCache.class), TypeName.get(field.javaType()));
+          typeSpec.addField(
+              FieldSpec.builder(cacheType, cacheVarName, Modifier.PRIVATE, Modifier.FINAL)
+                  .initializer("new $T<>()", FieldCache.class)
+                  .build());
         }
       }
     }
 
+    if (!columnar) {
+      typeSpec.addField(
+          FieldSpec.builder(
+                  classNames.entityBuilderTypeName(), "builder", Modifier.PRIVATE, Modifier.FINAL)
+              .initializer("new $T()", classNames.entityBuilderTypeName())
+              .build());
+    }
+
+    MethodSpec.Builder method =
+        MethodSpec.methodBuilder("parseChunk")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC)
+            .addParameter(CsvFile.class, "csvFile")
+            .addParameter(NoticeContainer.class, "noticeContainer")
+            .returns(ParameterizedTypeName.get(ClassName.get(List.class), chunkType))
+            .addStatement(
+                "$T rowParser = new $T(feedName, noticeContainer, validationCache)",
+                RowParser.class,
+                RowParser.class);
+    if (columnar) {
+      method.addStatement(
+          "$T columns = new $T(idDictionary)",
+          classNames.columnsTypeName(),
+          classNames.columnsTypeName());
+    } else {
+      method.addStatement(
+          "$T entities = new $T<>()",
+          ParameterizedTypeName.get(ClassName.get(List.class), gtfsEntityType),
+          ArrayList.class);
+    }
+    // The row is a cursor that is refilled in place, so nothing is allocated per row except for the
+    // entities of tables that are not columnar.
     method
-        .addStatement("$T.Builder builder = new $T.Builder()", gtfsEntityType, gtfsEntityType)
-        .addStatement(
-            "$T rowParser = new $T(feedName, noticeContainer)", RowParser.class, RowParser.class)
-        .addStatement(
-            "$T entities = new $T<>()",
-            ParameterizedTypeName.get(ClassName.get(List.class), gtfsEntityType),
-            ArrayList.class);
-    method.beginControlFlow("for ($T row : csvFile)", CsvRow.class);
+        .addStatement("$T row", CsvRow.class)
+        .beginControlFlow("while ((row = csvFile.nextRow()) != null)");
 
     method
         .beginControlFlow("if (row.getRowNumber() % $L == 0)", LOG_EVERY_N_ROWS)
@@ -264,66 +468,126 @@ public class TableLoaderGenerator {
 
     method
         .addStatement("rowParser.setRow(row)")
-        .addStatement("rowParser.checkRowColumnCount(csvFile)")
-        .addStatement("builder.clear()")
-        .addStatement(
-            "builder.$L(row.getRowNumber())", FieldNameConverter.setterMethodName("csvRowNumber"));
+        .addStatement("rowParser.checkRowColumnCount(csvFile)");
+    if (columnar) {
+      method.addStatement("columns.startRow(row.getRowNumber())");
+    } else {
+      method
+          .addStatement("builder.clear()")
+          .addStatement(
+              "builder.$L(row.getRowNumber())",
+              FieldNameConverter.setterMethodName("csvRowNumber"));
+    }
 
     for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
-      CodeBlock fieldValue =
-          CodeBlock.of(
-              "rowParser.$L($L, $T.$L$L)",
-              gtfsTypeToParserMethod(field.type()),
-              fieldColumnIndex(field.name()),
-              RowParser.class,
-              field.required() ? "REQUIRED" : "OPTIONAL",
-              field.numberBounds().isPresent()
-                  ? ", RowParser.NumberBounds." + field.numberBounds().get()
-                  : field.type() == FieldTypeEnum.ENUM
-                      ? ", " + field.javaType().toString() + "::forNumber"
-                      : "");
-      if (cachingEnabled(field)) {
-        fieldValue = CodeBlock.of("$L.addIfAbsent($L)", fieldColumnCache(field), fieldValue);
+      if (!alwaysParsed(field)) {
+        method.beginControlFlow("if ($L)", fieldParsedFlag(field.name()));
+      }
+      addFieldParsing(method, field, columnar);
+      if (!alwaysParsed(field)) {
+        if (field.required()) {
+          method
+              .nextControlFlow("else")
+              .addStatement("rowParser.checkRequiredValue($L)", fieldColumnIndex(field.name()));
+        }
+        method.endControlFlow();
       }
-      method.addStatement(
-          "builder.$L($L)", FieldNameConverter.setterMethodName(field.name()), fieldValue);
     }
 
-    method
-        .beginControlFlow("if (!rowParser.hasParseErrorsInRow())")
-        .addStatement("$T entity = builder.build()", gtfsEntityType)
-        .addStatement("validatorLoader.invokeSingleEntityValidators(entity, noticeContainer)")
-        .addStatement("entities.add(entity)")
-        .endControlFlow();
+    method.beginControlFlow("if (!rowParser.hasParseErrorsInRow())");
+    if (columnar) {
+      method
+          .addStatement("columns.commitRow()")
+          .beginControlFlow("if (hasEntityValidators)")
+          .addStatement(
+              "validatorLoader.invokeSingleEntityValidators("
+                  + "columns.entity(columns.size() - 1), noticeContainer)")
+          .endControlFlow();
+    } else {
+      method
+          .addStatement("$T entity = builder.build()", gtfsEntityType)
+          .addStatement("validatorLoader.invokeSingleEntityValidators(entity, noticeContainer)")
+          .addStatement("entities.add(entity)");
+    }
+    method.endControlFlow();
 
-    method.endControlFlow(); // end for (row)
+    method.endControlFlow(); // end while (row)
+    if (columnar) {
+      method.addStatement("return $T.of(columns)", ImmutableList.class);
+    } else {
+      method.addStatement("return entities");
+    }
 
     // Print statistics for cache efficiency.
+    MethodSpec.Builder finish =
+        MethodSpec.methodBuilder("finish")
+            .addAnnotation(Override.class)
+            .addModifiers(Modifier.PUBLIC);
     for (GtfsFieldDescriptor field : fileDescriptor.fields()) {
       if (cachingEnabled(field)) {
         final String cacheName = fieldColumnCache(field);
-        method.addStatement(
+        finish.addStatement(
             "logger.atInfo().log("
-                + "$S, gtfsFilename(), $L, $L.getCacheSize(), $L.getLookupCount(), "
-                + "$L.getHitRatio() * 100.0, $L.getMissRatio() * 100.0)",
-            "Cache for %s %s: size = %d, lookup count = %d, hits = %.2f%%, misses = %.2f%%",
+                + "$S, FILENAME, $L, $L.isEnabled() ? \"enabled\" : \"turned off\", "
+                + "$L.getCacheSize(), $L.getLookupCount(), $L.getHitRatio() * 100.0, "
+                + "$L.getMissRatio() * 100.0, $L.getBypassCount())",
+            "Cache for %s %s: %s, size = %d, lookup count = %d, hits = %.2f%%, misses = %.2f%%, "
+                + "bypassed = %d",
             fieldNameField(field.name()),
             cacheName,
             cacheName,
             cacheName,
+            cacheName,
+            cacheName,
             cacheName);
       }
     }
 
-    method
-        .addStatement(
-            "$T table = $T.forEntities(entities, noticeContainer)",
-            tableContainerTypeName,
-            tableContainerTypeName)
-        .addStatement("validatorLoader.invokeSingleFileValidators(table, noticeContainer)")
-        .addStatement("return table");
+    return typeSpec
+        .addMethod(constructor.build())
+        .addMethod(method.build())
+        .addMethod(finish.build())
+        .build();
+  }
 
-    return method.build();
+  /**
+   * Adds statements that parse a field of the current row and set it in the builder or, for a
+   * columnar table, in the started row of the columns.
+   */
+  private static void addFieldParsing(
+      MethodSpec.Builder method, GtfsFieldDescriptor field, boolean columnar) {
+    String target = columnar ? "columns" : "builder";
+    final boolean primitive = hasPrimitiveParser(field);
+    CodeBlock fieldValue =
+        CodeBlock.of(
+            "rowParser.$L($L, $T.$L$L)",
+            gtfsTypeToParserMethod(field.type()) + (primitive ? "Value" : ""),
+            fieldColumnIndex(field.name()),
+            RowParser.class,
+            field.required() ? "REQUIRED" : "OPTIONAL",
+            field.numberBounds().isPresent()
+                ? ", RowParser.NumberBounds." + field.numberBounds().get()
+                : field.type() == FieldTypeEnum.ENUM
+                    ? ", " + field.javaType().toString() + "::forNumber"
+                    : "");
+    if (primitive) {
+      // Missing values are left unset in the cleared builder or the started row, so that nothing
+      // is boxed.
+      method
+          .addStatement("$T $L = $L", primitiveParserType(field), field.name(), fieldValue)
+          .beginControlFlow("if (rowParser.hasValue())")
+          .addStatement(
+              "$L.$L($L)", target, FieldNameConverter.setterMethodName(field.name()), field.name())
+          .endControlFlow();
+      return;
+    }
+    if (usesIdDictionary(field) && !columnar) {
+      fieldValue = CodeBlock.of("$L.intern($L)", fieldIdNamespace(field), fieldValue);
+    } else if (cachingEnabled(field)) {
+      fieldValue = CodeBlock.of("$L.addIfAbsent($L)", fieldColumnCache(field), fieldValue);
+    }
+    method.addStatement(
+        "$L.$L($L)", target, FieldNameConverter.setterMethodName(field.name()), fieldValue);
   }
 
   private MethodSpec generateGtfsFilenameMethod() {
@@ -335,6 +599,17 @@ public class TableLoaderGenerator {
         .build();
   }
 
+  private MethodSpec generateGetTableContainerClassMethod() {
+    return MethodSpec.methodBuilder("getTableContainerClass")
+        .addAnnotation(Override.class)
+        .addModifiers(Modifier.PUBLIC)
+        .returns(
+            ParameterizedTypeName.get(
+                ClassName.get(Class.class), classNames.tableContainerTypeName()))
+        .addStatement("return $T.class", classNames.tableContainerTypeName())
+        .build();
+  }
+
   private MethodSpec generateIsRequiredMethod() {
     return MethodSpec.methodBuilder("isRequired")
         .addModifiers(Modifier.PUBLIC)